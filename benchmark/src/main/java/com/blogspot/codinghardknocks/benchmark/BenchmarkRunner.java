@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so every result also
+ * reports the allocation rate and bytes allocated per operation.
+ *
+ * <pre>
+ * java -cp benchmark/target/benchmarks.jar com.blogspot.codinghardknocks.benchmark.BenchmarkRunner [regex]
+ * </pre>
+ *
+ * The same can be done with <code>java -jar benchmarks.jar -prof gc</code>,
+ * which also accepts the rest of the JMH command line options.
+ *
+ * @author kbohling
+ *
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.blogspot.codinghardknocks.*";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
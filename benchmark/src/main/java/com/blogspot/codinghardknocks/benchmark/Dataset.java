@@ -0,0 +1,159 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The key sets used by the benchmarks.  Every data set is generated with a
+ * fixed seed and returned shuffled, so runs are repeatable.
+ *
+ * @author kbohling
+ *
+ */
+public enum Dataset {
+    /**
+     * The Lexicon.txt word list.  A positive key length truncates the words,
+     * dropping the duplicates this creates.
+     */
+    LEXICON {
+        @Override
+        protected List<String> generate(int keyLength, Random random) {
+            Set<String> words = new LinkedHashSet<String>();
+            for (String word : readLexicon()) {
+                words.add(keyLength > 0 && word.length() > keyLength ? word.substring(0, keyLength) : word);
+            }
+            return new ArrayList<String>(words);
+        }
+    },
+    /**
+     * Uniformly random upper case keys, with little prefix sharing.
+     */
+    RANDOM {
+        @Override
+        protected List<String> generate(int keyLength, Random random) {
+            int length = keyLength > 0 ? keyLength : DEFAULT_KEY_LENGTH;
+            Set<String> keys = new LinkedHashSet<String>();
+            char[] buffer = new char[length];
+            while (keys.size() < RANDOM_KEY_COUNT) {
+                for (int i = 0; i < length; ++i) {
+                    buffer[i] = (char) ('A' + random.nextInt(26));
+                }
+                keys.add(new String(buffer));
+            }
+            return new ArrayList<String>(keys);
+        }
+    },
+    /**
+     * URL like keys, which share long prefixes and have a random tail.
+     */
+    URL {
+        @Override
+        protected List<String> generate(int keyLength, Random random) {
+            int length = keyLength > 0 ? keyLength : DEFAULT_KEY_LENGTH;
+            String[] hosts = {"http://www.example.com/", "http://static.example.com/assets/",
+                "https://api.example.org/v1/", "https://example.net/users/"};
+            Set<String> keys = new LinkedHashSet<String>();
+            StringBuilder builder = new StringBuilder();
+            while (keys.size() < RANDOM_KEY_COUNT) {
+                builder.setLength(0);
+                builder.append(hosts[random.nextInt(hosts.length)]);
+                for (int i = 0; i < length; ++i) {
+                    builder.append(i % 8 == 7 ? '/' : (char) ('a' + random.nextInt(26)));
+                }
+                keys.add(builder.toString());
+            }
+            return new ArrayList<String>(keys);
+        }
+    };
+
+    /** The number of keys generated by the random data sets. */
+    private static final int RANDOM_KEY_COUNT = 100000;
+
+    /** The key length used by the random data sets when none is given. */
+    private static final int DEFAULT_KEY_LENGTH = 16;
+
+    /**
+     * Generate the keys.
+     *
+     * @param keyLength The requested key length, <code>0</code> or less for the default.
+     * @param random The source of randomness.
+     * @return The unique keys.
+     */
+    protected abstract List<String> generate(int keyLength, Random random);
+
+    /**
+     * Return the shuffled keys of this data set.
+     *
+     * @param keyLength The requested key length, <code>0</code> or less for the default.
+     * @return The unique keys, in a repeatable random order.
+     */
+    public String[] keys(int keyLength) {
+        Random random = new Random(42);
+        List<String> keys = generate(keyLength, random);
+        Collections.shuffle(keys, random);
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * Return keys which are not part of this data set, by appending a
+     * character which never occurs in the keys.
+     *
+     * @param keys The keys of the data set.
+     * @return The missing keys, in the same order.
+     */
+    public static String[] missingKeys(String[] keys) {
+        String[] missing = new String[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            missing[i] = keys[i] + '#';
+        }
+        return missing;
+    }
+
+    private static List<String> readLexicon() {
+        InputStream stream = Dataset.class.getResourceAsStream("/com/blogspot/codinghardknocks/trie/Lexicon.txt");
+        if (stream == null) {
+            throw new IllegalStateException("Lexicon.txt is not on the classpath");
+        }
+
+        List<String> words = new ArrayList<String>(178692);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+            try {
+                // The first line is the word count.
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    words.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read Lexicon.txt", e);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares {@link BurstSort} against {@link Arrays#sort(Object[])}.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BurstSortBenchmark {
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    private String[] input;
+    private String[] work;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        input = dataset.keys(0);
+        pool = new ForkJoinPool();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyInput() {
+        work = input.clone();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public String[] arraysSort() {
+        Arrays.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public String[] burstSort() {
+        BurstSort.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public String[] parallelBurstSort() {
+        BurstSort.parallelSort(work, pool);
+        return work;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares finding every dictionary key in a document with an
+ * {@link AhoCorasickMatcher} against walking the {@link StringTrieMap} from
+ * every offset of the document.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AhoCorasickBenchmark {
+
+    /** The number of dictionary keys. */
+    @Param({"1000", "100000"})
+    public int dictionarySize;
+
+    /** The length of the scanned document. */
+    @Param({"100000"})
+    public int documentLength;
+
+    private String document;
+    private StringTrieMap<Object> trie;
+    private AhoCorasickMatcher<Object> matcher;
+    private int maxKeyLength;
+
+    @Setup
+    public void setUp() {
+        String[] keys = Dataset.LEXICON.keys(0);
+        trie = new StringTrieMap<Object>();
+        for (int i = 0; i < dictionarySize && i < keys.length; ++i) {
+            trie.addIfAbsent(keys[i], keys[i]);
+            maxKeyLength = Math.max(maxKeyLength, keys[i].length());
+        }
+        matcher = trie.compileMatcher();
+
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(documentLength + 32);
+        while (builder.length() < documentLength) {
+            builder.append(keys[random.nextInt(keys.length)]).append(' ');
+        }
+        document = builder.substring(0, documentLength);
+    }
+
+    /**
+     * Scan the document once with the automaton.
+     */
+    @Benchmark
+    public long automaton() {
+        final long[] count = new long[1];
+        matcher.scan(document, new MatchHandler<Object>() {
+            @Override
+            public boolean onMatch(long start, long end, Object value) {
+                ++count[0];
+                return true;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Look up every substring starting at every offset, up to the longest key.
+     */
+    @Benchmark
+    public long lookupAtEveryOffset() {
+        long count = 0;
+        for (int start = 0; start < document.length(); ++start) {
+            int limit = Math.min(document.length(), start + maxKeyLength);
+            for (int end = start + 1; end <= limit; ++end) {
+                if (trie.contains(document.substring(start, end))) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+}
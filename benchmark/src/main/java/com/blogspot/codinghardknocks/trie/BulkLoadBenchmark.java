@@ -0,0 +1,191 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares building a {@link StringTrieMap} one key at a time against the
+ * {@link StringTrieMapLoader} bulk loads, and building a
+ * {@link TernarySearchTreeMap} from sorted keys one at a time against its
+ * balanced bulk insertion.  Loading from a file compares reading the lines
+ * into a list before adding them against streaming the file into the trie
+ * with a {@link StringTrieMapFileLoader}.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkLoadBenchmark {
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    private List<Map.Entry<String, Object>> shuffled;
+    private List<Map.Entry<String, Object>> sorted;
+    private ForkJoinPool pool;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] keys = dataset.keys(0);
+        shuffled = entries(keys);
+        String[] copy = keys.clone();
+        Arrays.sort(copy);
+        sorted = entries(copy);
+        pool = new ForkJoinPool();
+
+        file = File.createTempFile("keys", ".txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            for (String key : keys) {
+                writer.write(key);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        file.delete();
+    }
+
+    /**
+     * Add the shuffled keys one at a time.
+     */
+    @Benchmark
+    public StringTrieMap<Object> incremental() {
+        StringTrieMap<Object> trie = new StringTrieMap<Object>();
+        for (Map.Entry<String, Object> entry : shuffled) {
+            trie.addIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    /**
+     * Load the sorted keys in a single pass.
+     */
+    @Benchmark
+    public StringTrieMap<Object> sortedLoad() {
+        return StringTrieMapLoader.loadSorted(sorted);
+    }
+
+    /**
+     * Load the shuffled keys in parallel.
+     */
+    @Benchmark
+    public StringTrieMap<Object> parallelLoad() {
+        return StringTrieMapLoader.load(shuffled, pool);
+    }
+
+    /**
+     * Add the sorted keys to a ternary search tree one at a time, which
+     * degrades the smaller/larger links into chains.
+     */
+    @Benchmark
+    public TernarySearchTreeMap<Object> ternarySortedIncremental() {
+        TernarySearchTreeMap<Object> tree = new TernarySearchTreeMap<Object>();
+        for (Map.Entry<String, Object> entry : sorted) {
+            tree.addIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return tree;
+    }
+
+    /**
+     * Add the sorted keys to a ternary search tree middle-out.
+     */
+    @Benchmark
+    public TernarySearchTreeMap<Object> ternaryBalancedLoad() {
+        TernarySearchTreeMap<Object> tree = new TernarySearchTreeMap<Object>();
+        tree.addAllSorted(sorted);
+        return tree;
+    }
+
+    /**
+     * Read the file into a list of lines, then add them one at a time.
+     */
+    @Benchmark
+    public StringTrieMap<Object> readLinesFromFile() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        StringTrieMap<Object> trie = new StringTrieMap<Object>();
+        for (String line : lines) {
+            trie.addIfAbsent(line, null);
+        }
+        return trie;
+    }
+
+    /**
+     * Stream the file straight into the trie.
+     */
+    @Benchmark
+    public StringTrieMap<Object> streamFromFile() throws IOException {
+        return new StringTrieMapFileLoader<Object>().load(file);
+    }
+
+    private static List<Map.Entry<String, Object>> entries(String[] keys) {
+        List<Map.Entry<String, Object>> entries = new ArrayList<Map.Entry<String, Object>>(keys.length);
+        for (String key : keys) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<String, Object>(key, key));
+        }
+        return entries;
+    }
+}
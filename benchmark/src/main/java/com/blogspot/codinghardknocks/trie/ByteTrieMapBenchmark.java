@@ -0,0 +1,153 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares looking up UTF-8 encoded keys held in a direct buffer by decoding
+ * each one into a {@link String} for a {@link StringTrieMap}, against looking
+ * them up in place with a {@link ByteTrieMap}.  The same keys are also looked
+ * up from a heap array in the {@link ByteTrieMap} and in an
+ * {@link AdaptiveRadixTreeMap}, which compares a node per byte against a node
+ * per branch.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ByteTrieMapBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    private StringTrieMap<Object> stringTrie;
+    private ByteTrieMap<Object> byteTrie;
+    private AdaptiveRadixTreeMap<Object> artTree;
+    private byte[] heap;
+    private ByteBuffer encoded;
+    private int[] offsets;
+
+    @Setup
+    public void setUp() {
+        String[] keys = dataset.keys(0);
+        stringTrie = new StringTrieMap<Object>();
+        byteTrie = new ByteTrieMap<Object>();
+        artTree = new AdaptiveRadixTreeMap<Object>();
+        byte[][] bytes = new byte[keys.length][];
+        int total = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            bytes[i] = keys[i].getBytes(UTF8);
+            total += bytes[i].length;
+            stringTrie.addIfAbsent(keys[i], keys[i]);
+            byteTrie.addIfAbsent(bytes[i], keys[i]);
+            artTree.addIfAbsent(bytes[i], keys[i]);
+        }
+
+        // The keys as they would arrive off the network, back to back.
+        encoded = ByteBuffer.allocateDirect(total);
+        offsets = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; ++i) {
+            encoded.put(bytes[i]);
+            offsets[i + 1] = encoded.position();
+        }
+        heap = new byte[total];
+        ((ByteBuffer) encoded.duplicate().flip()).get(heap);
+    }
+
+    /**
+     * Decode every key and look it up in the {@link StringTrieMap}.
+     */
+    @Benchmark
+    public int decodeAndGet() {
+        int found = 0;
+        ByteBuffer buffer = encoded.duplicate();
+        for (int i = 1; i < offsets.length; ++i) {
+            buffer.limit(offsets[i]).position(offsets[i - 1]);
+            if (stringTrie.get(UTF8.decode(buffer).toString()) != null) {
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Look up every key in place in the {@link ByteTrieMap}.
+     */
+    @Benchmark
+    public int getFromBuffer() {
+        int found = 0;
+        ByteBuffer buffer = encoded.duplicate();
+        for (int i = 1; i < offsets.length; ++i) {
+            buffer.limit(offsets[i]).position(offsets[i - 1]);
+            if (byteTrie.get(buffer) != null) {
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Look up every key from the array in the {@link ByteTrieMap}.
+     */
+    @Benchmark
+    public int byteTrieGetFromArray() {
+        int found = 0;
+        for (int i = 1; i < offsets.length; ++i) {
+            if (byteTrie.get(heap, offsets[i - 1], offsets[i] - offsets[i - 1]) != null) {
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Look up every key from the array in the {@link AdaptiveRadixTreeMap}.
+     */
+    @Benchmark
+    public int artGetFromArray() {
+        int found = 0;
+        for (int i = 1; i < offsets.length; ++i) {
+            if (artTree.get(heap, offsets[i - 1], offsets[i] - offsets[i - 1]) != null) {
+                ++found;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Churns a structure by removing the oldest key and adding a new one on every
+ * operation, so the number of live keys stays at half the data set while
+ * every key is eventually removed and added again.  The
+ * <code>retainedMB</code> secondary result is the heap in use after the most
+ * recent garbage collection, it should stay flat from one iteration to the
+ * next if removal reclaims the nodes of the removed keys.  Run with
+ * <code>-prof gc</code> for the allocation rate.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChurnBenchmark {
+
+    @Param({"STRING_TRIE", "CHAR_SEQ_TRIE", "RADIX_TRIE", "TERNARY_TREE", "HASH_MAP_TRIE", "SORTED_MAP_TRIE", "RB_TREE",
+        "HASH_MAP"})
+    public StructureTypes structure;
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    private String[] keys;
+    private StructureTypes.Store store;
+    private int oldest;
+    private int live;
+
+    @Setup
+    public void setUp() {
+        keys = dataset.keys(0);
+        live = keys.length / 2;
+        store = structure.create();
+        for (int i = 0; i < live; ++i) {
+            store.add(keys[i], keys[i]);
+        }
+        oldest = 0;
+    }
+
+    /**
+     * Remove the oldest key and add the next one.
+     */
+    @Benchmark
+    public Object churn(RetainedHeap heap) {
+        int i = oldest;
+        int added = i + live;
+        if (added >= keys.length) {
+            added -= keys.length;
+        }
+        oldest = i + 1 == keys.length ? 0 : i + 1;
+
+        store.add(keys[added], keys[added]);
+        return store.remove(keys[i]);
+    }
+
+    /**
+     * Reports the heap retained after the last collection as a secondary
+     * result, without forcing a collection.  Only the collections JMH and the
+     * churn itself trigger are observed.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+        /** The heap in use after the most recent collection, in megabytes. */
+        public double retainedMB;
+
+        @TearDown(Level.Iteration)
+        public void sample() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                if (pool.getType() == MemoryType.HEAP && usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+            retainedMB = used / (1024.0 * 1024.0);
+        }
+    }
+}
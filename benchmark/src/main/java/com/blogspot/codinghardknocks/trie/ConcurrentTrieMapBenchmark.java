@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares the throughput of {@link ConcurrentCharSequenceTrieMap} against a
+ * {@link StringTrieMap} guarded by a single lock.  Change the number of threads
+ * with <code>-t</code> to see how each scales with cores.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentTrieMapBenchmark {
+
+    @Param({"LEXICON"})
+    public Dataset dataset;
+
+    /** The percentage of operations which are writes. */
+    @Param({"0", "10"})
+    public int writePercent;
+
+    private String[] keys;
+    private ConcurrentCharSequenceTrieMap<Object> concurrent;
+    private StringTrieMap<Object> locked;
+
+    @Setup
+    public void setUp() {
+        keys = dataset.keys(0);
+        concurrent = new ConcurrentCharSequenceTrieMap<Object>();
+        locked = new StringTrieMap<Object>();
+
+        // Populate half of the keys, so writes keep finding work to do.
+        for (int i = 0; i < keys.length; i += 2) {
+            concurrent.addIfAbsent(keys[i], keys[i]);
+            locked.addIfAbsent(keys[i], keys[i]);
+        }
+    }
+
+    @Benchmark
+    public Object concurrent() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(keys.length)];
+        if (random.nextInt(100) < writePercent) {
+            return concurrent.addIfAbsent(key, key);
+        }
+        return concurrent.get(key);
+    }
+
+    @Benchmark
+    public Object locked() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(keys.length)];
+        synchronized (locked) {
+            if (random.nextInt(100) < writePercent) {
+                return locked.addIfAbsent(key, key);
+            }
+            return locked.get(key);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares publishing a new version of a dictionary with one changed key, by
+ * path copying a {@link PersistentTrieMap} against copying a
+ * {@link StringTrieMap} and updating the copy.  Run it through
+ * {@link com.blogspot.codinghardknocks.benchmark.BenchmarkRunner} (or with
+ * <code>-prof gc</code>) to see the bytes allocated per update.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistentTrieMapBenchmark {
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    private String[] keys;
+    private PersistentTrieMap<Object> persistent;
+    private StringTrieMap<Object> mutable;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        keys = dataset.keys(0);
+        persistent = new PersistentTrieMap<Object>();
+        mutable = new StringTrieMap<Object>();
+        for (String key : keys) {
+            persistent = persistent.put(key, key);
+            mutable.addIfAbsent(key, key);
+        }
+    }
+
+    /**
+     * Derive a version with one key replaced, sharing the rest.
+     */
+    @Benchmark
+    public PersistentTrieMap<Object> pathCopy() {
+        String key = keys[next++ % keys.length];
+        return persistent.put(key, this);
+    }
+
+    /**
+     * Copy the whole trie, then replace one key in the copy.
+     */
+    @Benchmark
+    public StringTrieMap<Object> fullCopy() {
+        String key = keys[next++ % keys.length];
+        StringTrieMap<Object> copy = new StringTrieMap<Object>();
+        Iterator<Map.Entry<String, Object>> it = mutable.entriesWithPrefix("");
+        while (it.hasNext()) {
+            Map.Entry<String, Object> entry = it.next();
+            copy.addIfAbsent(entry.getKey(), entry.getKey().equals(key) ? this : entry.getValue());
+        }
+        return copy;
+    }
+}
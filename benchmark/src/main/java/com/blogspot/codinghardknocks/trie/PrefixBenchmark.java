@@ -0,0 +1,104 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares enumerating and counting the keys below a prefix, on the
+ * structures which support it.  Each operation takes the first half of the
+ * next key as the prefix, so every prefix has at least one completion.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PrefixBenchmark {
+
+    @Param({"STRING_TRIE", "CHAR_SEQ_TRIE", "RADIX_TRIE", "TERNARY_TREE", "HASH_MAP_TRIE", "SORTED_MAP_TRIE", "RB_TREE"})
+    public StructureTypes structure;
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    /** The most keys to enumerate for each prefix. */
+    @Param({"10"})
+    public int limit;
+
+    private String[] prefixes;
+    private StructureTypes.Store store;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        String[] keys = dataset.keys(0);
+        prefixes = new String[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            prefixes[i] = keys[i].substring(0, (keys[i].length() + 1) / 2);
+        }
+
+        store = structure.create();
+        for (String key : keys) {
+            store.add(key, key);
+        }
+    }
+
+    /**
+     * Enumerate at most {@link #limit} keys starting with the prefix.
+     */
+    @Benchmark
+    public void keysWithPrefix(Blackhole blackhole) {
+        Iterator<?> it = store.keysWithPrefix(prefixes[nextIndex()], limit);
+        while (it.hasNext()) {
+            blackhole.consume(it.next());
+        }
+    }
+
+    /**
+     * Count every key starting with the prefix.
+     */
+    @Benchmark
+    public int countWithPrefix() {
+        return store.countWithPrefix(prefixes[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int i = index;
+        index = i + 1 == prefixes.length ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The structures compared by the benchmarks, each adapted to a common
+ * {@link Store} interface.  This lives in the trie package so it can create
+ * the {@link TrieMap} implementations whose constructors are protected.
+ *
+ * @author kbohling
+ *
+ */
+public enum StructureTypes {
+    HASH_MAP_TRIE {
+        @Override
+        public Store create() {
+            return new TrieMapStore(new HashMapTrieMap<Character, Object>());
+        }
+    },
+    SORTED_MAP_TRIE {
+        @Override
+        public Store create() {
+            return new TrieMapStore(new SortedMapTrieMap<Character, Object>());
+        }
+    },
+    CHAR_SEQ_TRIE {
+        @Override
+        public Store create() {
+            final CharSequenceTrieMap<Object> trie = new CharSequenceTrieMap<Object>();
+            return new Store() {
+                @Override
+                public void add(String key, Object value) {
+                    trie.addIfAbsent(key, value);
+                }
+
+                @Override
+                public Object get(String key) {
+                    return trie.get(key);
+                }
+
+                @Override
+                public Object remove(String key) {
+                    return trie.remove(key);
+                }
+
+                @Override
+                public Iterator<?> keysWithPrefix(String prefix, int limit) {
+                    return trie.keysWithPrefix(prefix, limit);
+                }
+
+                @Override
+                public int countWithPrefix(String prefix) {
+                    return trie.countWithPrefix(prefix);
+                }
+            };
+        }
+    },
+    STRING_TRIE {
+        @Override
+        public Store create() {
+            final StringTrieMap<Object> trie = new StringTrieMap<Object>();
+            return new Store() {
+                @Override
+                public void add(String key, Object value) {
+                    trie.addIfAbsent(key, value);
+                }
+
+                @Override
+                public Object get(String key) {
+                    return trie.get(key);
+                }
+
+                @Override
+                public Object remove(String key) {
+                    return trie.remove(key);
+                }
+
+                @Override
+                public Iterator<?> keysWithPrefix(String prefix, int limit) {
+                    return trie.keysWithPrefix(prefix, limit);
+                }
+
+                @Override
+                public int countWithPrefix(String prefix) {
+                    return trie.countWithPrefix(prefix);
+                }
+            };
+        }
+    },
+    BURST_TRIE {
+        @Override
+        public Store create() {
+            final BurstTrieMap<Object> trie = new BurstTrieMap<Object>();
+            return new Store() {
+                @Override
+                public void add(String key, Object value) {
+                    trie.addIfAbsent(key, value);
+                }
+
+                @Override
+                public Object get(String key) {
+                    return trie.get(key);
+                }
+
+                @Override
+                public Object remove(String key) {
+                    throw new UnsupportedOperationException("BurstTrieMap does not support removal");
+                }
+
+                @Override
+                public Iterator<?> keysWithPrefix(String prefix, int limit) {
+                    throw new UnsupportedOperationException("BurstTrieMap does not support prefix enumeration");
+                }
+
+                @Override
+                public int countWithPrefix(String prefix) {
+                    throw new UnsupportedOperationException("BurstTrieMap does not support prefix enumeration");
+                }
+            };
+        }
+    },
+    TERNARY_TREE {
+        @Override
+        public Store create() {
+            final TernarySearchTreeMap<Object> trie = new TernarySearchTreeMap<Object>();
+            return new Store() {
+                @Override
+                public void add(String key, Object value) {
+                    trie.addIfAbsent(key, value);
+                }
+
+                @Override
+                public Object get(String key) {
+                    return trie.get(key);
+                }
+
+                @Override
+                public Object remove(String key) {
+                    return trie.remove(key);
+                }
+
+                @Override
+                public Iterator<?> keysWithPrefix(String prefix, int limit) {
+                    return trie.keysWithPrefix(prefix, limit);
+                }
+
+                @Override
+                public int countWithPrefix(String prefix) {
+                    return trie.countWithPrefix(prefix);
+                }
+            };
+        }
+    },
+    RADIX_TRIE {
+        @Override
+        public Store create() {
+            final RadixTrieMap<Object> trie = new RadixTrieMap<Object>();
+            return new Store() {
+                @Override
+                public void add(String key, Object value) {
+                    trie.addIfAbsent(key, value);
+                }
+
+                @Override
+                public Object get(String key) {
+                    return trie.get(key);
+                }
+
+                @Override
+                public Object remove(String key) {
+                    return trie.remove(key);
+                }
+
+                @Override
+                public Iterator<?> keysWithPrefix(String prefix, int limit) {
+                    return trie.keysWithPrefix(prefix, limit);
+                }
+
+                @Override
+                public int countWithPrefix(String prefix) {
+                    return trie.countWithPrefix(prefix);
+                }
+            };
+        }
+    },
+    RB_TREE {
+        @Override
+        public Store create() {
+            return new MapStore(new TreeMap<String, Object>());
+        }
+    },
+    HASH_MAP {
+        @Override
+        public Store create() {
+            return new MapStore(new HashMap<String, Object>());
+        }
+    };
+
+    /**
+     * Create a new empty structure.
+     *
+     * @return The structure.
+     */
+    public abstract Store create();
+
+    /**
+     * The operations every structure supports.
+     */
+    public interface Store {
+
+        /**
+         * Associate the value with the key, if it is not already present.
+         */
+        void add(String key, Object value);
+
+        /**
+         * Return the value associated with the key, or <code>null</code>.
+         */
+        Object get(String key);
+
+        /**
+         * Remove the key, returning the value which was associated with it.
+         */
+        Object remove(String key);
+
+        /**
+         * Return at most <code>limit</code> keys starting with the prefix, in
+         * ascending order.
+         *
+         * @throws UnsupportedOperationException If the structure cannot
+         *         enumerate keys by prefix.
+         */
+        Iterator<?> keysWithPrefix(String prefix, int limit);
+
+        /**
+         * Return the number of keys starting with the prefix.
+         *
+         * @throws UnsupportedOperationException If the structure cannot
+         *         enumerate keys by prefix.
+         */
+        int countWithPrefix(String prefix);
+    }
+
+    private static final class MapStore implements Store {
+        private final Map<String, Object> map;
+
+        MapStore(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void add(String key, Object value) {
+            if (!map.containsKey(key)) {
+                map.put(key, value);
+            }
+        }
+
+        @Override
+        public Object get(String key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Object remove(String key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public Iterator<?> keysWithPrefix(String prefix, int limit) {
+            return new LimitIterator<String>(withPrefix(prefix).keySet().iterator(), limit);
+        }
+
+        @Override
+        public int countWithPrefix(String prefix) {
+            return withPrefix(prefix).size();
+        }
+
+        private SortedMap<String, Object> withPrefix(String prefix) {
+            if (!(map instanceof SortedMap)) {
+                throw new UnsupportedOperationException(map.getClass().getSimpleName()
+                    + " does not support prefix enumeration");
+            }
+            return ((SortedMap<String, Object>) map).subMap(prefix, prefix + Character.MAX_VALUE);
+        }
+    }
+
+    private static final class TrieMapStore implements Store {
+        private final TrieMap<Character, Object> trie;
+
+        TrieMapStore(TrieMap<Character, Object> trie) {
+            this.trie = trie;
+        }
+
+        @Override
+        public void add(String key, Object value) {
+            trie.addIfAbsent(iterator(key), value);
+        }
+
+        @Override
+        public Object get(String key) {
+            return trie.get(iterator(key));
+        }
+
+        @Override
+        public Object remove(String key) {
+            return trie.remove(iterator(key));
+        }
+
+        @Override
+        public Iterator<?> keysWithPrefix(String prefix, int limit) {
+            return trie.keysWithPrefix(iterator(prefix), limit);
+        }
+
+        @Override
+        public int countWithPrefix(String prefix) {
+            return trie.countWithPrefix(iterator(prefix));
+        }
+
+        private static Iterator<Character> iterator(final String input) {
+            return new Iterator<Character>() {
+                int currIndex = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return currIndex < input.length();
+                }
+
+                @Override
+                public Character next() {
+                    return input.charAt(currIndex++);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    /**
+     * Stops after a fixed number of elements.
+     */
+    private static final class LimitIterator<T> implements Iterator<T> {
+        private final Iterator<T> delegate;
+        private int remaining;
+
+        LimitIterator(Iterator<T> delegate, int limit) {
+            this.delegate = delegate;
+            this.remaining = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 && delegate.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            --remaining;
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
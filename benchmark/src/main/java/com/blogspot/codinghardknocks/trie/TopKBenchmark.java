@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares finding the k best scoring completions of short prefixes with the
+ * best-first search of a {@link WeightedTrieMap}, against enumerating every
+ * completion from a {@link StringTrieMap} and keeping the best k in a heap.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopKBenchmark {
+
+    /** URL keys share their first few characters, so enumerating them takes seconds. */
+    @Param({"LEXICON"})
+    public Dataset dataset;
+
+    /** The number of completions to return. */
+    @Param({"10"})
+    public int k;
+
+    /** The length of the prefixes typed. */
+    @Param({"1", "3"})
+    public int prefixLength;
+
+    private String[] prefixes;
+    private WeightedTrieMap<Object> weighted;
+    private StringTrieMap<Double> scored;
+
+    @Setup
+    public void setUp() {
+        String[] keys = dataset.keys(0);
+        Random random = new Random(42);
+        weighted = new WeightedTrieMap<Object>();
+        scored = new StringTrieMap<Double>();
+        for (String key : keys) {
+            double score = random.nextDouble();
+            weighted.addIfAbsent(key, key, score);
+            scored.addIfAbsent(key, score);
+        }
+
+        prefixes = new String[100];
+        for (int i = 0; i < prefixes.length; ++i) {
+            String key = keys[random.nextInt(keys.length)];
+            prefixes[i] = key.substring(0, Math.min(prefixLength, key.length()));
+        }
+    }
+
+    /**
+     * Best-first search over the cached subtree maxima.
+     */
+    @Benchmark
+    public int bestFirst() {
+        int found = 0;
+        for (String prefix : prefixes) {
+            found += weighted.topK(prefix, k).size();
+        }
+        return found;
+    }
+
+    /**
+     * Visit every completion and keep the k best.
+     */
+    @Benchmark
+    public int enumerateAndSelect() {
+        int found = 0;
+        for (String prefix : prefixes) {
+            PriorityQueue<Double> best = new PriorityQueue<Double>(k + 1);
+            Iterator<Map.Entry<String, Double>> it = scored.entriesWithPrefix(prefix);
+            while (it.hasNext()) {
+                best.add(it.next().getValue());
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            found += best.size();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Compares the tries against the {@link java.util.TreeMap} and
+ * {@link java.util.HashMap} baselines.  The lookup benchmarks perform a single
+ * lookup per operation, cycling through the keys, so the scores are per
+ * operation latencies; run with <code>-bm sample</code> for percentiles.
+ * Prefix enumeration is measured by {@link PrefixBenchmark}.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TrieMapBenchmark {
+
+    @Param({"STRING_TRIE", "CHAR_SEQ_TRIE", "RADIX_TRIE", "TERNARY_TREE", "HASH_MAP_TRIE", "SORTED_MAP_TRIE", "BURST_TRIE", "RB_TREE",
+        "HASH_MAP"})
+    public StructureTypes structure;
+
+    @Param({"LEXICON", "RANDOM", "URL"})
+    public Dataset dataset;
+
+    /** Key length for the generated data sets, <code>0</code> uses the natural length. */
+    @Param({"0"})
+    public int keyLength;
+
+    private String[] keys;
+    private String[] missing;
+    private StructureTypes.Store store;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        keys = dataset.keys(keyLength);
+        missing = Dataset.missingKeys(keys);
+
+        store = structure.create();
+        for (String key : keys) {
+            store.add(key, key);
+        }
+    }
+
+    /**
+     * Build the whole structure from the keys.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public StructureTypes.Store insert() {
+        StructureTypes.Store result = structure.create();
+        for (String key : keys) {
+            result.add(key, key);
+        }
+        return result;
+    }
+
+    /**
+     * Look up a key which is present.
+     */
+    @Benchmark
+    public Object hitLookup() {
+        return store.get(keys[nextIndex()]);
+    }
+
+    /**
+     * Look up a key which shares all but its last character with a key which is present.
+     */
+    @Benchmark
+    public Object missLookup() {
+        return store.get(missing[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int i = index;
+        index = i + 1 == keys.length ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blogspot.codinghardknocks.benchmark.Dataset;
+
+/**
+ * Simulates a type-ahead service which counts the completions after every
+ * character typed, comparing walking each prefix from the root against
+ * extending a {@link CharTrieCursor} one character at a time.
+ *
+ * @author kbohling
+ *
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TypeAheadBenchmark {
+
+    @Param({"LEXICON", "URL"})
+    public Dataset dataset;
+
+    private String[] keys;
+    private CharSequenceTrieMap<Object> trie;
+    private CharTrieCursor<Object> cursor;
+
+    @Setup
+    public void setUp() {
+        keys = dataset.keys(0);
+        trie = new CharSequenceTrieMap<Object>();
+        for (String key : keys) {
+            trie.addIfAbsent(key, key);
+        }
+        cursor = trie.cursor();
+    }
+
+    /**
+     * Count the completions of every prefix of every key, walking from the root.
+     */
+    @Benchmark
+    public long fromRoot() {
+        long total = 0;
+        for (String key : keys) {
+            for (int i = 1; i <= key.length(); ++i) {
+                total += trie.countWithPrefix(key.subSequence(0, i));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Count the completions of every prefix of every key, extending a cursor.
+     */
+    @Benchmark
+    public long withCursor() {
+        long total = 0;
+        for (String key : keys) {
+            cursor.reset();
+            for (int i = 0; i < key.length(); ++i) {
+                cursor.advance(key.charAt(i));
+                total += cursor.count();
+            }
+        }
+        return total;
+    }
+}
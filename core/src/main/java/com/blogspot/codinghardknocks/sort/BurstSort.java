@@ -0,0 +1,553 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * Sorts strings using <a href="http://goanna.cs.rmit.edu.au/~jz/fulltext/alenex03.pdf">Burstsort</a>
+ * (Sinha and Zobel, 2003).  The strings are first distributed into a burst
+ * trie, whose leaves are buckets of string references.  When a bucket grows
+ * past the threshold it is burst into a trie node, one character deeper.  The
+ * buckets are small enough to stay in cache, and each is finished with a
+ * multikey quicksort starting at the depth of the bucket, so the characters
+ * consumed by the trie are never compared again.
+ *
+ * <p>
+ * The resulting order is the same as {@link String#compareTo(String)}.  The
+ * buckets are independent of each other, so the parallel variants sort them
+ * concurrently on a {@link ForkJoinPool}.
+ * </p>
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class BurstSort {
+
+    /** The number of strings a bucket may hold before it is burst. */
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    /** The initial capacity of a bucket. */
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    /** Ranges smaller than this are finished with an insertion sort. */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /** Buckets smaller than this are not worth a separate parallel task. */
+    private static final int PARALLEL_TASK_SIZE = 4096;
+
+    /**
+     * Constructor.
+     */
+    private BurstSort() {
+    }
+
+    /**
+     * Sort the array in place.
+     *
+     * @param strings The strings to sort, must not contain <code>null</code>.
+     */
+    public static void sort(CharSequence[] strings) {
+        sort(strings, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Sort the array in place.
+     *
+     * @param strings The strings to sort, must not contain <code>null</code>.
+     * @param threshold The number of strings a bucket may hold before it is burst.
+     */
+    public static void sort(CharSequence[] strings, int threshold) {
+        List<int[]> buckets = distribute(strings, threshold);
+        for (int[] bucket : buckets) {
+            multikeyQuicksort(strings, bucket[0], bucket[0] + bucket[1], bucket[2]);
+        }
+    }
+
+    /**
+     * Sort the list in place.
+     *
+     * @param <T> The type of strings in the list.
+     * @param strings The strings to sort, must not contain <code>null</code>.
+     */
+    public static <T extends CharSequence> void sort(List<T> strings) {
+        CharSequence[] array = strings.toArray(new CharSequence[strings.size()]);
+        sort(array);
+        copyBack(array, strings);
+    }
+
+    /**
+     * Sort the array in place, sorting the buckets in parallel using a pool
+     * sized to the number of available processors.
+     *
+     * @param strings The strings to sort, must not contain <code>null</code>.
+     */
+    public static void parallelSort(CharSequence[] strings) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            parallelSort(strings, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sort the array in place, sorting the buckets in parallel.
+     *
+     * @param strings The strings to sort, must not contain <code>null</code>.
+     * @param pool The pool used to sort the buckets.
+     */
+    public static void parallelSort(CharSequence[] strings, ForkJoinPool pool) {
+        List<int[]> buckets = distribute(strings, DEFAULT_THRESHOLD);
+        pool.invoke(new BucketSortTask(strings, buckets, 0, buckets.size()));
+    }
+
+    /**
+     * Sort the list in place, sorting the buckets in parallel using a pool
+     * sized to the number of available processors.
+     *
+     * @param <T> The type of strings in the list.
+     * @param strings The strings to sort, must not contain <code>null</code>.
+     */
+    public static <T extends CharSequence> void parallelSort(List<T> strings) {
+        CharSequence[] array = strings.toArray(new CharSequence[strings.size()]);
+        parallelSort(array);
+        copyBack(array, strings);
+    }
+
+    private static <T extends CharSequence> void copyBack(CharSequence[] array, List<T> strings) {
+        ListIterator<T> iter = strings.listIterator();
+        for (CharSequence str : array) {
+            iter.next();
+            @SuppressWarnings("unchecked")
+            T value = (T) str;
+            iter.set(value);
+        }
+    }
+
+    /**
+     * Insert every string into a burst trie, then copy the buckets back into
+     * the array in trie order.
+     *
+     * @param strings The strings to distribute.
+     * @param threshold The number of strings a bucket may hold before it is burst.
+     * @return The buckets which still need sorting as
+     *         <code>{offset, length, depth}</code>, in array order.
+     */
+    private static List<int[]> distribute(CharSequence[] strings, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+
+        Node root = new Node();
+        for (CharSequence str : strings) {
+            insert(root, str, threshold);
+        }
+
+        List<int[]> buckets = new ArrayList<int[]>();
+        collect(root, strings, buckets);
+        return buckets;
+    }
+
+    private static void insert(Node root, CharSequence str, int threshold) {
+        Node node = root;
+        int depth = 0;
+        int len = str.length();
+
+        while (true) {
+            if (depth == len) {
+                node.end = Bucket.add(node.end, str);
+                return;
+            }
+
+            char c = str.charAt(depth);
+            Object slot = node.get(c);
+            if (slot instanceof Node) {
+                node = (Node) slot;
+                ++depth;
+                continue;
+            }
+
+            Bucket bucket = Bucket.add((Bucket) slot, str);
+            if (bucket.size > threshold) {
+                node.set(c, burst(bucket, depth + 1, threshold));
+            } else if (bucket != slot) {
+                node.set(c, bucket);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Replace a bucket with a trie node, distributing its strings one
+     * character deeper.  Any new bucket which is still over the threshold is
+     * burst as well, from an explicit stack rather than by recursion, since
+     * the strings can share a prefix far longer than the call stack is deep.
+     *
+     * @param bucket The bucket to burst.
+     * @param depth The depth of the strings in the bucket.
+     * @param threshold The number of strings a bucket may hold before it is burst.
+     * @return The node replacing the bucket.
+     */
+    private static Node burst(Bucket bucket, int depth, int threshold) {
+        Node result = distribute(bucket, depth);
+        Node[] nodes = new Node[16];
+        int[] depths = new int[16];
+        int top = 0;
+        nodes[0] = result;
+        depths[0] = depth;
+        while (top >= 0) {
+            Node node = nodes[top];
+            int d = depths[top];
+            nodes[top--] = null;
+
+            // Skip down the chain built for a shared prefix.
+            while (node.slots != null && node.slots.length == 1 && node.slots[0] instanceof Node) {
+                node = (Node) node.slots[0];
+                ++d;
+            }
+            if (node.slots == null) {
+                continue;
+            }
+            for (int i = 0; i < node.slots.length; ++i) {
+                Object slot = node.slots[i];
+                if (slot instanceof Bucket && ((Bucket) slot).size > threshold) {
+                    Node child = distribute((Bucket) slot, d + 1);
+                    node.slots[i] = child;
+                    if (++top == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top << 1);
+                        depths = Arrays.copyOf(depths, top << 1);
+                    }
+                    nodes[top] = child;
+                    depths[top] = d + 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build a node holding the strings of a bucket, which share their first
+     * <code>depth</code> characters.  Any further characters shared by every
+     * string become a chain of single slot nodes, built in one pass, so the
+     * strings are only distributed once into new buckets.
+     */
+    private static Node distribute(Bucket bucket, int depth) {
+        CharSequence first = bucket.items[0];
+        int shared = first.length() - depth;
+        for (int i = 1; i < bucket.size && shared > 0; ++i) {
+            CharSequence str = bucket.items[i];
+            int max = Math.min(shared, str.length() - depth);
+            int j = 0;
+            while (j < max && str.charAt(depth + j) == first.charAt(depth + j)) {
+                ++j;
+            }
+            shared = j;
+        }
+
+        Node result = new Node();
+        Node node = result;
+        for (int i = 0; i < shared; ++i) {
+            Node next = new Node();
+            node.set(first.charAt(depth + i), next);
+            node = next;
+        }
+        int d = depth + shared;
+        for (int i = 0; i < bucket.size; ++i) {
+            CharSequence str = bucket.items[i];
+            if (str.length() == d) {
+                node.end = Bucket.add(node.end, str);
+            } else {
+                char c = str.charAt(d);
+                Bucket slot = (Bucket) node.get(c);
+                Bucket added = Bucket.add(slot, str);
+                if (added != slot) {
+                    node.set(c, added);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copy the contents of the trie back into the array in order, walking the
+     * trie with an explicit stack.
+     *
+     * @param root The root of the trie.
+     * @param out The array to copy the strings to.
+     * @param buckets The buckets which still need sorting, appended in array order.
+     */
+    private static void collect(Node root, CharSequence[] out, List<int[]> buckets) {
+        Node[] nodes = new Node[16];
+        int[] depths = new int[16];
+        int[] next = new int[16];
+        int top = 0;
+        nodes[0] = root;
+        int offset = copyEnd(root, out, 0);
+        while (top >= 0) {
+            Node node = nodes[top];
+            int i = next[top];
+            if (node.slots == null || i == node.slots.length) {
+                nodes[top--] = null;
+                continue;
+            }
+            next[top] = i + 1;
+
+            Object slot = node.slots[i];
+            int depth = depths[top] + 1;
+            if (slot instanceof Node) {
+                Node child = (Node) slot;
+                offset = copyEnd(child, out, offset);
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    depths = Arrays.copyOf(depths, top << 1);
+                    next = Arrays.copyOf(next, top << 1);
+                }
+                nodes[top] = child;
+                depths[top] = depth;
+                next[top] = 0;
+            } else if (slot != null) {
+                Bucket bucket = (Bucket) slot;
+                System.arraycopy(bucket.items, 0, out, offset, bucket.size);
+                if (bucket.size > 1) {
+                    buckets.add(new int[] {offset, bucket.size, depth});
+                }
+                offset += bucket.size;
+            }
+        }
+    }
+
+    /**
+     * Copy the strings ending at the node, which are all identical, so they
+     * need no sorting.
+     *
+     * @return The offset after the last string copied.
+     */
+    private static int copyEnd(Node node, CharSequence[] out, int offset) {
+        if (node.end == null) {
+            return offset;
+        }
+        System.arraycopy(node.end.items, 0, out, offset, node.end.size);
+        return offset + node.end.size;
+    }
+
+    /**
+     * Return the character at the given depth, or <code>-1</code> past the end,
+     * so shorter strings sort first.
+     */
+    private static int charAt(CharSequence str, int depth) {
+        return depth < str.length() ? str.charAt(depth) : -1;
+    }
+
+    /**
+     * Sort the range using Bentley and Sedgewick's multikey quicksort, assuming
+     * all of the strings share their first <code>depth</code> characters.
+     *
+     * @param a The array to sort.
+     * @param from The first index to sort, inclusive.
+     * @param to The last index to sort, exclusive.
+     * @param depth The number of characters already known to be equal.
+     */
+    static void multikeyQuicksort(CharSequence[] a, int from, int to, int depth) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int pivot = charAt(a[from + ((to - from) >>> 1)], depth);
+
+            // Partition into [less | equal | greater].
+            int lt = from;
+            int gt = to - 1;
+            int i = from;
+            while (i <= gt) {
+                int c = charAt(a[i], depth);
+                if (c < pivot) {
+                    swap(a, lt++, i++);
+                } else if (c > pivot) {
+                    swap(a, i, gt--);
+                } else {
+                    ++i;
+                }
+            }
+
+            multikeyQuicksort(a, from, lt, depth);
+            multikeyQuicksort(a, gt + 1, to, depth);
+
+            // Strings equal at this depth continue one character deeper,
+            // unless they all ended here.
+            if (pivot < 0) {
+                return;
+            }
+            from = lt;
+            to = gt + 1;
+            ++depth;
+        }
+        insertionSort(a, from, to, depth);
+    }
+
+    private static void insertionSort(CharSequence[] a, int from, int to, int depth) {
+        for (int i = from + 1; i < to; ++i) {
+            CharSequence value = a[i];
+            int j = i - 1;
+            while (j >= from && compare(a[j], value, depth) > 0) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    private static int compare(CharSequence s1, CharSequence s2, int depth) {
+        int len1 = s1.length();
+        int len2 = s2.length();
+        int n = Math.min(len1, len2);
+
+        for (int i = depth; i < n; ++i) {
+            char c1 = s1.charAt(i);
+            char c2 = s2.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return len1 - len2;
+    }
+
+    private static void swap(CharSequence[] a, int i, int j) {
+        CharSequence tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    /**
+     * A burst trie node, the slots cover the range of characters seen so far
+     * and hold either a {@link Node} or a {@link Bucket}.
+     */
+    private static final class Node {
+        private int low;
+        private Object[] slots;
+        private Bucket end;
+
+        Object get(char c) {
+            int idx = c - low;
+            if (slots == null || idx < 0 || idx >= slots.length) {
+                return null;
+            }
+            return slots[idx];
+        }
+
+        void set(char c, Object slot) {
+            if (slots == null) {
+                low = c;
+                slots = new Object[1];
+            } else if (c < low || c >= low + slots.length) {
+                grow(c);
+            }
+            slots[c - low] = slot;
+        }
+
+        /**
+         * Grow the range to cover the character, at least doubling its size
+         * so repeated growth is amortized.
+         */
+        private void grow(char c) {
+            int high = low + slots.length;
+            int newLow;
+            int newHigh;
+            if (c < low) {
+                newLow = Math.max(0, Math.min(c, high - (slots.length << 1)));
+                newHigh = high;
+            } else {
+                newLow = low;
+                newHigh = Math.min(Character.MAX_VALUE + 1, Math.max(c + 1, low + (slots.length << 1)));
+            }
+
+            Object[] newSlots = new Object[newHigh - newLow];
+            System.arraycopy(slots, 0, newSlots, low - newLow, slots.length);
+            slots = newSlots;
+            low = newLow;
+        }
+    }
+
+    /**
+     * A growable bucket of string references.
+     */
+    private static final class Bucket {
+        private CharSequence[] items = new CharSequence[INITIAL_BUCKET_CAPACITY];
+        private int size;
+
+        /**
+         * Add the string to the bucket, creating the bucket if needed.
+         *
+         * @return The bucket holding the string.
+         */
+        static Bucket add(Bucket bucket, CharSequence str) {
+            if (bucket == null) {
+                bucket = new Bucket();
+            } else if (bucket.size == bucket.items.length) {
+                CharSequence[] newItems = new CharSequence[bucket.size << 1];
+                System.arraycopy(bucket.items, 0, newItems, 0, bucket.size);
+                bucket.items = newItems;
+            }
+            bucket.items[bucket.size++] = str;
+            return bucket;
+        }
+    }
+
+    /**
+     * Sorts a range of buckets, splitting it in half until the range is small
+     * enough to sort directly.
+     */
+    private static final class BucketSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence[] strings;
+        private final List<int[]> buckets;
+        private final int from;
+        private final int to;
+
+        BucketSortTask(CharSequence[] strings, List<int[]> buckets, int from, int to) {
+            this.strings = strings;
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int total = 0;
+            for (int i = from; i < to; ++i) {
+                total += buckets.get(i)[1];
+            }
+
+            if (to - from > 1 && total > PARALLEL_TASK_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BucketSortTask(strings, buckets, from, mid),
+                        new BucketSortTask(strings, buckets, mid, to));
+                return;
+            }
+
+            for (int i = from; i < to; ++i) {
+                int[] bucket = buckets.get(i);
+                multikeyQuicksort(strings, bucket[0], bucket[0] + bucket[1], bucket[2]);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * The transitions shared by the trie nodes specialized for <code>char</code>
+ * labels.  They are kept in a pair of parallel arrays, sorted by label, so a
+ * transition is a binary search over a <code>char[]</code> rather than a
+ * lookup in a <code>SortedMap&lt;Character, Node&gt;</code>.
+ *
+ * <p>
+ * The arrays are only allocated once the first transition is added, so leaf
+ * nodes are just the node object itself.  They shrink when the fanout drops
+ * to a quarter of their capacity, and are released with the last transition.
+ * </p>
+ *
+ * @param <V> The type of value associated with this node.
+ * @param <N> The type of the node itself, which is the type of its children.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+abstract class AbstractCharTrieNode<V, N extends AbstractCharTrieNode<V, N>> implements CharTrieView<V> {
+
+    /** Initial capacity of the transition arrays. */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** <code>true</code> if this node is the end of a key. */
+    boolean accepting;
+
+    /** The value associated with this node. */
+    V value;
+
+    /** Transition labels, sorted ascending, only the first {@link #fanout} are valid. */
+    char[] labels;
+
+    /** Transition targets, parallel to {@link #labels}. */
+    N[] children;
+
+    /** The number of valid transitions. */
+    int fanout;
+
+    /**
+     * Create an empty node, the target of a new transition.
+     *
+     * @return The node.
+     */
+    abstract N newNode();
+
+    /**
+     * Create an array for the transition targets.
+     *
+     * @param capacity The length of the array.
+     * @return The array.
+     */
+    abstract N[] newChildren(int capacity);
+
+    /**
+     * Find the index of the given label.
+     *
+     * @param c The label to search for.
+     * @return The index of the label if it exists, otherwise
+     *         <code>-(insertion point) - 1</code>.
+     */
+    final int indexOf(char c) {
+        char[] keys = labels;
+        int low = 0;
+        int high = fanout - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midVal = keys[mid];
+
+            if (midVal < c) {
+                low = mid + 1;
+            } else if (midVal > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Return the next node.
+     *
+     * @param c The input to pick the next state.
+     * @return The next node, or <code>null</code> if no such transition exists.
+     */
+    final N next(char c) {
+        if (fanout == 0) {
+            return null;
+        }
+        int idx = indexOf(c);
+        return idx >= 0 ? children[idx] : null;
+    }
+
+    /**
+     * Add the transition for the given input if it does not already exist.
+     *
+     * @param c The input to add the transition for.
+     * @return The node associated with the transition.
+     */
+    final N addIfAbsent(char c) {
+        int idx = fanout == 0 ? -1 : indexOf(c);
+        if (idx >= 0) {
+            return children[idx];
+        }
+
+        N node = newNode();
+        insertAt(-(idx + 1), c, node);
+        return node;
+    }
+
+    /**
+     * Insert a transition at the given position, growing the arrays if needed.
+     *
+     * @param pos The insertion point, must keep the labels sorted.
+     * @param c The transition label.
+     * @param node The transition target.
+     */
+    final void insertAt(int pos, char c, N node) {
+        if (labels == null) {
+            labels = new char[INITIAL_CAPACITY];
+            children = newChildren(INITIAL_CAPACITY);
+        } else if (fanout == labels.length) {
+            int capacity = fanout << 1;
+            char[] newLabels = new char[capacity];
+            N[] newChildren = newChildren(capacity);
+            System.arraycopy(labels, 0, newLabels, 0, fanout);
+            System.arraycopy(children, 0, newChildren, 0, fanout);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        int moved = fanout - pos;
+        if (moved > 0) {
+            System.arraycopy(labels, pos, labels, pos + 1, moved);
+            System.arraycopy(children, pos, children, pos + 1, moved);
+        }
+        labels[pos] = c;
+        children[pos] = node;
+        ++fanout;
+    }
+
+    /**
+     * Remove the transition at the given position, shrinking the arrays if
+     * they are mostly empty.
+     *
+     * @param pos The index of the transition to remove.
+     */
+    final void removeAt(int pos) {
+        --fanout;
+        if (fanout == 0) {
+            labels = null;
+            children = null;
+            return;
+        }
+
+        int moved = fanout - pos;
+        if (fanout <= labels.length >> 2 && labels.length > INITIAL_CAPACITY) {
+            int capacity = Math.max(INITIAL_CAPACITY, fanout << 1);
+            char[] newLabels = new char[capacity];
+            N[] newChildren = newChildren(capacity);
+            System.arraycopy(labels, 0, newLabels, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            System.arraycopy(labels, pos + 1, newLabels, pos, moved);
+            System.arraycopy(children, pos + 1, newChildren, pos, moved);
+            labels = newLabels;
+            children = newChildren;
+            return;
+        }
+
+        System.arraycopy(labels, pos + 1, labels, pos, moved);
+        System.arraycopy(children, pos + 1, children, pos, moved);
+        children[fanout] = null;
+    }
+
+    /**
+     * Remove all transitions and reset the key and value of this node.
+     */
+    void clear() {
+        accepting = false;
+        value = null;
+        labels = null;
+        children = null;
+        fanout = 0;
+    }
+
+    @Override
+    public final boolean isAccepting() {
+        return accepting;
+    }
+
+    @Override
+    public final V value() {
+        return value;
+    }
+
+    @Override
+    public final int fanout() {
+        return fanout;
+    }
+
+    @Override
+    public final char label(int index) {
+        return labels[index];
+    }
+
+    @Override
+    public final N child(int index) {
+        return children[index];
+    }
+
+    /**
+     * Estimate the memory used by the transition arrays.
+     *
+     * @return The estimated size in bytes.
+     */
+    final long transitionBytes() {
+        if (labels == null) {
+            return 0;
+        }
+        return MemoryEstimator.array(labels.length, 2)
+            + MemoryEstimator.array(children.length, MemoryEstimator.REFERENCE);
+    }
+}
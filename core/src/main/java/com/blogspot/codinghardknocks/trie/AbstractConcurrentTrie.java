@@ -0,0 +1,677 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * The shared machinery of the lock-free tries, following the
+ * <a href="http://lampwww.epfl.ch/~prokopec/ctries-snapshot.pdf">Ctrie</a>
+ * design (Prokopec, Bronson, Bagwell and Odersky, 2012), applied to a trie
+ * over key sequences rather than a hash trie.
+ *
+ * <p>
+ * Every trie node is an indirection node ({@link INode}) pointing to an
+ * immutable main node holding the accepting state, the value and the
+ * children.  An update copies the main node and swings the indirection node
+ * to the copy with a single CAS, so readers never block and never see a
+ * partial update.  Every indirection node belongs to a generation; taking a
+ * snapshot gives the root a new generation in O(1), and writers lazily copy
+ * (renew) the old generation nodes on their path before changing them.  The
+ * GCAS and RDCSS operations make sure a CAS which raced with a snapshot fails
+ * rather than changing nodes the snapshot still shares.
+ * </p>
+ *
+ * <p>
+ * Removing the last key below a leaf replaces the leaf's main node with a
+ * tomb, which no update may extend.  The remover, or any writer which later
+ * finds the tomb, then removes the leaf from its parent, and the pruning
+ * continues up the path while the parents are left empty.
+ * </p>
+ *
+ * @param <S> The type of key sequence.
+ * @param <V> The type contained by the Trie.
+ *
+ * @author kbohling
+ */
+@ThreadSafe
+abstract class AbstractConcurrentTrie<S, V> {
+
+    /** Returned by an update which has to start again from the root. */
+    private static final Object RESTART = new Object();
+
+    /**
+     * Holds either an {@link INode}, or an {@link RdcssDescriptor} while the
+     * root is being replaced.
+     */
+    private final AtomicReference<Object> root;
+    private final boolean readOnly;
+
+    /**
+     * Constructor.
+     *
+     * @param root The root node.
+     * @param readOnly <code>true</code> if updates are not allowed.
+     */
+    AbstractConcurrentTrie(INode<V> root, boolean readOnly) {
+        this.root = new AtomicReference<Object>(root);
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Create an empty main node, used for the root.
+     *
+     * @return The empty main node.
+     */
+    abstract MainNode<V> emptyNode();
+
+    /**
+     * Return the length of a key sequence.
+     */
+    abstract int length(S keys);
+
+    /**
+     * Find the child of a main node selected by the key at the given depth.
+     *
+     * @return The index of the child, or <code>-(insertion point) - 1</code>.
+     */
+    abstract int indexOf(MainNode<V> node, S keys, int depth);
+
+    /**
+     * Copy a main node adding a child, selected by the key at the given depth.
+     *
+     * @param node The node to copy.
+     * @param pos The insertion point returned by {@link #indexOf(MainNode, Object, int)}.
+     * @param child The child to add.
+     * @return The copy.
+     */
+    abstract MainNode<V> withChild(MainNode<V> node, int pos, S keys, int depth, INode<V> child);
+
+    /**
+     * Copy a main node without one of its children.
+     *
+     * @param node The node to copy.
+     * @param pos The index of the child to drop.
+     * @return The copy.
+     */
+    abstract MainNode<V> withoutChild(MainNode<V> node, int pos);
+
+    /**
+     * Create a main node with at most one child.
+     *
+     * @param child The only child, selected by the key at the given depth,
+     *        or <code>null</code> for a leaf.
+     */
+    abstract MainNode<V> singleton(boolean accepting, V value, S keys, int depth, INode<V> child);
+
+    /**
+     * Check if this trie is a read-only snapshot.
+     *
+     * @return <code>true</code> if updates are not allowed.
+     */
+    final boolean readOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Find the main node at the end of the key sequence.
+     *
+     * @return The main node, or <code>null</code> if the path does not exist.
+     */
+    final MainNode<V> lookup(S keys) {
+        int len = length(keys);
+        MainNode<V> node = gcasRead(rdcssReadRoot(false));
+        for (int depth = 0; depth < len; ++depth) {
+            // A tomb is a leaf whose key was removed but not yet pruned.
+            if (node instanceof TombNode) {
+                return null;
+            }
+            int idx = indexOf(node, keys, depth);
+            if (idx < 0) {
+                return null;
+            }
+            node = gcasRead(node.children[idx]);
+        }
+        return node instanceof TombNode ? null : node;
+    }
+
+    /**
+     * Add the value if there is no value stored at that key.
+     *
+     * @return The value associated with the keys after the call.
+     */
+    @SuppressWarnings("unchecked")
+    final V insert(S keys, V value) {
+        checkWritable();
+        while (true) {
+            INode<V> r = rdcssReadRoot(false);
+            Object result = insert(r, keys, value, r.gen);
+            if (result != RESTART) {
+                return (V) result;
+            }
+        }
+    }
+
+    private Object insert(INode<V> in, S keys, V value, Generation startGen) {
+        int len = length(keys);
+        int depth = 0;
+        INode<V> parent = null;
+
+        while (true) {
+            MainNode<V> node = gcasRead(in);
+            if (node instanceof TombNode) {
+                clean(parent, in);
+                return RESTART;
+            }
+            if (depth == len) {
+                if (node.accepting) {
+                    return node.value;
+                }
+                return gcas(in, node, node.withValue(true, value)) ? value : RESTART;
+            }
+
+            int idx = indexOf(node, keys, depth);
+            if (idx < 0) {
+                INode<V> child = chain(keys, depth + 1, len, value, startGen);
+                return gcas(in, node, withChild(node, -(idx + 1), keys, depth, child)) ? value : RESTART;
+            }
+
+            INode<V> child = node.children[idx];
+            if (child.gen != startGen) {
+                // The child is shared with a snapshot, copy the children into this generation first.
+                if (!gcas(in, node, renewed(node, startGen))) {
+                    return RESTART;
+                }
+                continue;
+            }
+            parent = in;
+            in = child;
+            ++depth;
+        }
+    }
+
+    /**
+     * Remove the value stored at the key sequence.
+     *
+     * @return The value which was associated with the keys, or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    final V delete(S keys) {
+        checkWritable();
+        List<INode<V>> path = new ArrayList<INode<V>>();
+        while (true) {
+            INode<V> r = rdcssReadRoot(false);
+            Object result = delete(r, keys, r.gen, path);
+            if (result != RESTART) {
+                return (V) result;
+            }
+            path.clear();
+        }
+    }
+
+    private Object delete(INode<V> in, S keys, Generation startGen, List<INode<V>> path) {
+        int len = length(keys);
+        int depth = 0;
+
+        while (true) {
+            MainNode<V> node = gcasRead(in);
+            if (node instanceof TombNode) {
+                clean(path.get(depth - 1), in);
+                return RESTART;
+            }
+            if (depth == len) {
+                if (!node.accepting) {
+                    return null;
+                }
+                boolean leaf = node.children.length == 0 && depth > 0;
+                MainNode<V> n = leaf ? new TombNode<V>() : node.withValue(false, null);
+                if (!gcas(in, node, n)) {
+                    return RESTART;
+                }
+                if (leaf) {
+                    prune(path, in);
+                }
+                return node.value;
+            }
+
+            int idx = indexOf(node, keys, depth);
+            if (idx < 0) {
+                return null;
+            }
+
+            INode<V> child = node.children[idx];
+            if (child.gen != startGen) {
+                if (!gcas(in, node, renewed(node, startGen))) {
+                    return RESTART;
+                }
+                continue;
+            }
+            path.add(in);
+            in = child;
+            ++depth;
+        }
+    }
+
+    /**
+     * Remove an entombed node from its parent, and keep entombing and removing
+     * the parents which are left without a key.  This is best effort, any tomb
+     * left behind is removed by the next writer to reach it.
+     *
+     * @param path The indirection nodes above the tomb, starting at the root.
+     * @param tombed The entombed indirection node.
+     */
+    private void prune(List<INode<V>> path, INode<V> tombed) {
+        INode<V> in = tombed;
+        for (int depth = path.size() - 1; depth >= 0; --depth) {
+            INode<V> parent = path.get(depth);
+            MainNode<V> pm = clean(parent, in);
+            if (pm == null || depth == 0 || pm.accepting || pm.children.length != 0) {
+                return;
+            }
+            if (!gcas(parent, pm, new TombNode<V>())) {
+                return;
+            }
+            in = parent;
+        }
+    }
+
+    /**
+     * Remove an entombed child from its parent.
+     *
+     * @param parent The parent of the tomb.
+     * @param tombed The entombed indirection node.
+     * @return The new main node of the parent, or <code>null</code> if it
+     *         could not be changed.
+     */
+    private MainNode<V> clean(INode<V> parent, INode<V> tombed) {
+        MainNode<V> pm = gcasRead(parent);
+        if (pm instanceof TombNode) {
+            return null;
+        }
+        INode<V>[] children = pm.children;
+        for (int i = 0; i < children.length; ++i) {
+            if (children[i] == tombed) {
+                MainNode<V> n = withoutChild(pm, i);
+                return gcas(parent, pm, n) ? n : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build the path for the keys from <code>from</code> onwards, ending in an
+     * accepting node.
+     */
+    private INode<V> chain(S keys, int from, int len, V value, Generation gen) {
+        INode<V> in = new INode<V>(gen, singleton(true, value, keys, len, null));
+        for (int depth = len - 1; depth >= from; --depth) {
+            in = new INode<V>(gen, singleton(false, null, keys, depth, in));
+        }
+        return in;
+    }
+
+    /**
+     * Remove all key sequences.
+     */
+    final void removeAll() {
+        checkWritable();
+        while (true) {
+            INode<V> r = rdcssReadRoot(false);
+            if (rdcssRoot(r, gcasRead(r), new INode<V>(new Generation(), emptyNode()))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count the accepting nodes of a consistent snapshot.
+     *
+     * @param limit Stop counting once this many have been found.
+     * @return The number of accepting nodes, at most <code>limit</code>.
+     */
+    final int count(int limit) {
+        return count(gcasRead(readOnlyRoot()), limit);
+    }
+
+    /**
+     * Count the accepting nodes starting with the given key sequence in a
+     * consistent snapshot.
+     *
+     * @param prefix The key sequence to count below.
+     * @return The number of accepting nodes starting with the prefix.
+     */
+    final int countWithPrefix(S prefix) {
+        int len = length(prefix);
+        MainNode<V> node = gcasRead(readOnlyRoot());
+        for (int depth = 0; depth < len; ++depth) {
+            if (node instanceof TombNode) {
+                return 0;
+            }
+            int idx = indexOf(node, prefix, depth);
+            if (idx < 0) {
+                return 0;
+            }
+            node = gcasRead(node.children[idx]);
+        }
+        return count(node, Integer.MAX_VALUE);
+    }
+
+    private int count(MainNode<V> start, int limit) {
+        ArrayDeque<MainNode<V>> pending = new ArrayDeque<MainNode<V>>();
+        pending.push(start);
+
+        int count = 0;
+        while (!pending.isEmpty() && count < limit) {
+            MainNode<V> node = pending.pop();
+            if (node.accepting) {
+                ++count;
+            }
+            for (INode<V> child : node.children) {
+                pending.push(gcasRead(child));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Take a snapshot, giving both this trie and the snapshot a new generation.
+     *
+     * @return The root for the snapshot.
+     */
+    final INode<V> snapshotRoot() {
+        while (true) {
+            INode<V> r = rdcssReadRoot(false);
+            MainNode<V> expected = gcasRead(r);
+            if (rdcssRoot(r, expected, copyToGen(r, new Generation()))) {
+                return copyToGen(r, new Generation());
+            }
+        }
+    }
+
+    /**
+     * Take a read-only snapshot.  The old root is handed to the snapshot,
+     * which is safe because writers never change nodes from an old generation.
+     *
+     * @return The root for the snapshot.
+     */
+    final INode<V> readOnlyRoot() {
+        if (readOnly) {
+            return rdcssReadRoot(false);
+        }
+        while (true) {
+            INode<V> r = rdcssReadRoot(false);
+            MainNode<V> expected = gcasRead(r);
+            if (rdcssRoot(r, expected, copyToGen(r, new Generation()))) {
+                return r;
+            }
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The trie is a read-only snapshot");
+        }
+    }
+
+    private MainNode<V> renewed(MainNode<V> node, Generation gen) {
+        INode<V>[] children = node.children.clone();
+        for (int i = 0; i < children.length; ++i) {
+            children[i] = copyToGen(children[i], gen);
+        }
+        return node.withChildren(children);
+    }
+
+    private INode<V> copyToGen(INode<V> in, Generation gen) {
+        return new INode<V>(gen, gcasRead(in));
+    }
+
+    // GCAS: a CAS on an indirection node which only commits if the root's
+    // generation has not changed since the update started.
+
+    private boolean gcas(INode<V> in, MainNode<V> old, MainNode<V> n) {
+        n.prev = old;
+        if (in.casMain(old, n)) {
+            gcasComplete(in, n);
+            return n.prev == null;
+        }
+        return false;
+    }
+
+    final MainNode<V> gcasRead(INode<V> in) {
+        MainNode<V> m = in.main;
+        if (m.prev == null) {
+            return m;
+        }
+        return gcasComplete(in, m);
+    }
+
+    private MainNode<V> gcasComplete(INode<V> in, MainNode<V> m) {
+        while (true) {
+            MainNode<V> prev = m.prev;
+            INode<V> ctr = rdcssReadRoot(true);
+            if (prev == null) {
+                return m;
+            }
+
+            if (prev instanceof FailedNode) {
+                MainNode<V> failed = ((FailedNode<V>) prev).failed;
+                if (in.casMain(m, failed)) {
+                    return failed;
+                }
+                m = in.main;
+                continue;
+            }
+
+            if (ctr.gen == in.gen && !readOnly) {
+                if (m.casPrev(prev, null)) {
+                    return m;
+                }
+                continue;
+            }
+
+            m.casPrev(prev, new FailedNode<V>(prev));
+            m = in.main;
+        }
+    }
+
+    // RDCSS: replaces the root only if the old root's main node is unchanged.
+
+    @SuppressWarnings("unchecked")
+    private INode<V> rdcssReadRoot(boolean abort) {
+        Object r = root.get();
+        if (r instanceof INode) {
+            return (INode<V>) r;
+        }
+        return rdcssComplete(abort);
+    }
+
+    private boolean rdcssRoot(INode<V> ov, MainNode<V> expectedMain, INode<V> nv) {
+        RdcssDescriptor<V> desc = new RdcssDescriptor<V>(ov, expectedMain, nv);
+        if (root.compareAndSet(ov, desc)) {
+            rdcssComplete(false);
+            return desc.committed;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private INode<V> rdcssComplete(boolean abort) {
+        while (true) {
+            Object r = root.get();
+            if (r instanceof INode) {
+                return (INode<V>) r;
+            }
+
+            RdcssDescriptor<V> desc = (RdcssDescriptor<V>) r;
+            if (abort) {
+                if (root.compareAndSet(desc, desc.old)) {
+                    return desc.old;
+                }
+                continue;
+            }
+
+            MainNode<V> oldMain = gcasRead(desc.old);
+            if (oldMain == desc.expectedMain) {
+                if (root.compareAndSet(desc, desc.nv)) {
+                    desc.committed = true;
+                    return desc.nv;
+                }
+                continue;
+            }
+            if (root.compareAndSet(desc, desc.old)) {
+                return desc.old;
+            }
+        }
+    }
+
+    /**
+     * Identifies a generation, compared by identity.
+     */
+    static final class Generation {
+    }
+
+    /**
+     * An indirection node, the only mutable part of the trie.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    static final class INode<V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<INode, MainNode> MAIN =
+                AtomicReferenceFieldUpdater.newUpdater(INode.class, MainNode.class, "main");
+
+        final Generation gen;
+        volatile MainNode<V> main;
+
+        INode(Generation gen, MainNode<V> main) {
+            this.gen = gen;
+            this.main = main;
+        }
+
+        boolean casMain(MainNode<V> expected, MainNode<V> update) {
+            return MAIN.compareAndSet(this, expected, update);
+        }
+    }
+
+    /**
+     * An immutable trie node.  Only {@link #prev} changes, while a GCAS
+     * involving this node is in progress.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    abstract static class MainNode<V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<MainNode, MainNode> PREV =
+                AtomicReferenceFieldUpdater.newUpdater(MainNode.class, MainNode.class, "prev");
+
+        final boolean accepting;
+        final V value;
+        final INode<V>[] children;
+        volatile MainNode<V> prev;
+
+        MainNode(boolean accepting, V value, INode<V>[] children) {
+            this.accepting = accepting;
+            this.value = value;
+            this.children = children;
+        }
+
+        boolean casPrev(MainNode<V> expected, MainNode<V> update) {
+            return PREV.compareAndSet(this, expected, update);
+        }
+
+        /**
+         * Copy this node with a different accepting state and value.
+         */
+        abstract MainNode<V> withValue(boolean accepting, V value);
+
+        /**
+         * Copy this node with the same labels leading to different children.
+         */
+        abstract MainNode<V> withChildren(INode<V>[] children);
+    }
+
+    /**
+     * Replaces the main node of a leaf whose last key was removed.  A tomb
+     * has no key and no children, and is never copied or extended.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class TombNode<V> extends MainNode<V> {
+
+        @SuppressWarnings("unchecked")
+        TombNode() {
+            super(false, null, new INode[0]);
+        }
+
+        @Override
+        MainNode<V> withValue(boolean accepting, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        MainNode<V> withChildren(INode<V>[] children) {
+            return this;
+        }
+    }
+
+    /**
+     * Marks a GCAS which failed, so the previous main node is restored.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class FailedNode<V> extends MainNode<V> {
+        final MainNode<V> failed;
+
+        FailedNode(MainNode<V> failed) {
+            super(failed.accepting, failed.value, failed.children);
+            this.failed = failed;
+        }
+
+        @Override
+        MainNode<V> withValue(boolean accepting, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        MainNode<V> withChildren(INode<V>[] children) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Describes a pending replacement of the root.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class RdcssDescriptor<V> {
+        final INode<V> old;
+        final MainNode<V> expectedMain;
+        final INode<V> nv;
+        volatile boolean committed;
+
+        RdcssDescriptor(INode<V> old, MainNode<V> expectedMain, INode<V> nv) {
+            this.old = old;
+            this.expectedMain = expectedMain;
+            this.nv = nv;
+        }
+    }
+}
@@ -15,12 +15,15 @@
  */
 package com.blogspot.codinghardknocks.trie;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 
 import static com.blogspot.codinghardknocks.trie.TrieUtil.walk;
-import static com.blogspot.codinghardknocks.trie.TrieUtil.walkAndAdd;
 
 
 /**
@@ -35,20 +38,86 @@ public abstract class AbstractTrieMap<K, V> implements TrieMap<K, V> {
 
     private final TrieMapNode<K, V> root;
 
+    /** Scratch list of the nodes along the path being changed, reused between calls. */
+    private final List<TrieMapNode<K, V>> path = new ArrayList<TrieMapNode<K, V>>();
+
+    /** Scratch list of the keys along the path being removed, parallel to {@link #path}. */
+    private final List<K> pathKeys = new ArrayList<K>();
+
     protected AbstractTrieMap(TrieMapNode<K, V> root) {
         this.root = root;
     }
 
+    /**
+     * Getter for the root node.
+     *
+     * @return The root node of this trie.
+     */
+    TrieMapNode<K, V> root() {
+        return root;
+    }
+
     @Override
     public V addIfAbsent(Iterator<K> keys, V value) {
-        TrieMapNode<K, V> currNode = walkAndAdd(keys, root);
+        try {
+            TrieMapNode<K, V> currNode = root;
+            while (keys.hasNext()) {
+                path.add(currNode);
+                currNode = currNode.addTransition(keys.next());
+            }
+
+            if (currNode.isAccepting()) {
+                return currNode.value();
+            }
+            currNode.setAccepting(true);
+            currNode.setValue(value);
+            for (int i = 0; i < path.size(); ++i) {
+                path.get(i).adjustCount(1);
+            }
+            return value;
+        } finally {
+            path.clear();
+        }
+    }
 
-        if (currNode.isAccepting()) {
-            return currNode.value();
+    @Override
+    public V remove(Iterator<K> keys) {
+        try {
+            TrieMapNode<K, V> currNode = root;
+            while (keys.hasNext()) {
+                K currKey = keys.next();
+                path.add(currNode);
+                pathKeys.add(currKey);
+                currNode = currNode.next(currKey);
+                if (currNode == null) {
+                    return null;
+                }
+            }
+
+            if (!currNode.isAccepting()) {
+                return null;
+            }
+            V value = currNode.value();
+            currNode.setAccepting(false);
+            currNode.setValue(null);
+            for (int i = 0; i < path.size(); ++i) {
+                path.get(i).adjustCount(-1);
+            }
+
+            // Cut the path at the highest node which no longer leads to a key.
+            int depth = path.size();
+            for (int i = 0; i < depth; ++i) {
+                TrieMapNode<K, V> child = i + 1 < depth ? path.get(i + 1) : currNode;
+                if (child.countAccepting() == 0) {
+                    path.get(i).removeTransition(pathKeys.get(i));
+                    break;
+                }
+            }
+            return value;
+        } finally {
+            path.clear();
+            pathKeys.clear();
         }
-        currNode.setAccepting(true);
-        currNode.setValue(value);
-        return value;
     }
 
     @Override
@@ -86,4 +155,79 @@ public abstract class AbstractTrieMap<K, V> implements TrieMap<K, V> {
     public int size() {
         return root.countAccepting();
     }
+
+    @Override
+    public int countWithPrefix(Iterator<K> prefix) {
+        TrieMapNode<K, V> node = walk(prefix, root);
+        return node == null ? 0 : node.countAccepting();
+    }
+
+    @Override
+    public Iterator<List<K>> keysWithPrefix(Iterator<K> prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<List<K>> keysWithPrefix(Iterator<K> prefix, int limit) {
+        List<K> path = new ArrayList<K>();
+        return new TrieMapNodeIterator<K, V, List<K>>(walkPrefix(prefix, path), path, limit) {
+            @Override
+            List<K> emit(List<K> keys, V value) {
+                return new ArrayList<K>(keys);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Map.Entry<List<K>, V>> entriesWithPrefix(Iterator<K> prefix) {
+        return entriesWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<Map.Entry<List<K>, V>> entriesWithPrefix(Iterator<K> prefix, int limit) {
+        List<K> path = new ArrayList<K>();
+        return new TrieMapNodeIterator<K, V, Map.Entry<List<K>, V>>(walkPrefix(prefix, path), path, limit) {
+            @Override
+            Map.Entry<List<K>, V> emit(List<K> keys, V value) {
+                return new AbstractMap.SimpleImmutableEntry<List<K>, V>(new ArrayList<K>(keys), value);
+            }
+        };
+    }
+
+    /**
+     * Create a cursor positioned at the root of this trie, which walks key
+     * sequences one element at a time without allocating.
+     *
+     * @return A new cursor.
+     */
+    public TrieCursor<K, V> cursor() {
+        return new TrieMapNodeCursor<K, V>(root);
+    }
+
+    /**
+     * Gather statistics about the shape and estimated size of this trie.  This
+     * walks every node, so it is O(nodes).
+     *
+     * @return The statistics.
+     */
+    public TrieStatistics statistics() {
+        return TrieStatistics.of(root);
+    }
+
+    /**
+     * Walk the prefix, recording the keys walked.
+     *
+     * @param prefix The keys to walk.
+     * @param path The list to record the keys into.
+     * @return The final node, or <code>null</code> if the path does not exist.
+     */
+    private TrieMapNode<K, V> walkPrefix(Iterator<K> prefix, List<K> path) {
+        TrieMapNode<K, V> currNode = root;
+        while (currNode != null && prefix.hasNext()) {
+            K currKey = prefix.next();
+            path.add(currKey);
+            currNode = currNode.next(currKey);
+        }
+        return currNode;
+    }
 }
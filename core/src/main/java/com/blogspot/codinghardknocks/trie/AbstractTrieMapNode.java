@@ -40,6 +40,9 @@ public abstract class AbstractTrieMapNode<K, V> implements TrieMapNode<K, V> {
     /** The value associated with this node. */
     protected V value;
 
+    /** The number of accepting states reachable from this node, including this node. */
+    protected int count;
+
     /**
      * Constructor.
      *
@@ -50,6 +53,7 @@ public abstract class AbstractTrieMapNode<K, V> implements TrieMapNode<K, V> {
     public AbstractTrieMapNode(boolean accepting, V value) {
         this.accepting = accepting;
         this.value = value;
+        this.count = accepting ? 1 : 0;
     }
 
     @Override
@@ -59,6 +63,9 @@ public abstract class AbstractTrieMapNode<K, V> implements TrieMapNode<K, V> {
 
     @Override
     public void setAccepting(boolean state) {
+        if (state != accepting) {
+            count += state ? 1 : -1;
+        }
         this.accepting = state;
     }
 
@@ -76,32 +83,32 @@ public abstract class AbstractTrieMapNode<K, V> implements TrieMapNode<K, V> {
     public void clear() {
         accepting = false;
         value = null;
+        count = 0;
     }
 
     @Override
     public int countAccepting() {
-        int count = isAccepting() ? 1 : 0;
-
-        // An effective depth first search of the nodes.
-        for (TrieMapNode<K, V> node : nextNodes()) {
-            count += node.countAccepting();
-        }
-
         return count;
     }
 
+    @Override
+    public void adjustCount(int delta) {
+        count += delta;
+    }
+
     @Override
     public boolean hasAccepting() {
-        if (isAccepting()) {
-            return true;
-        }
+        return count > 0;
+    }
 
-        for (TrieMapNode<K, V> node : nextNodes()) {
-            if (node.isAccepting()) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Estimate the memory used by this node, not counting the children or the
+     * value.  Subclasses which hold more state should add its size.
+     *
+     * @return The estimated size in bytes.
+     */
+    protected long estimatedBytes() {
+        return MemoryEstimator.object(1, 5);
     }
 
     /**
@@ -4,14 +4,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.SortedMap;
 
 import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 
 /**
  * A base node implementation which uses a Map for computing the traversal
- * to the next state.  This implementation has a final field {@link #next},
- * where it would likely be more memory efficient to only allocate the next
- * once a traversal state is added.
+ * to the next state.  The map is only allocated once a transition is added,
+ * and is released again when the last transition is removed, so leaf nodes
+ * are just the node object itself.
  *
  * @param <K> The type of input used during the traversal.
  * @param <V> The type of value associated with this node.
@@ -21,7 +22,14 @@ import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 @NotThreadSafe
 public class AbstractTrieMapUsingMapNode<K, V> extends AbstractTrieMapNode<K, V> {
 
-    private final Map<K, AbstractTrieMapUsingMapNode<K, V>> next;
+    /** Maps which never held more transitions than this are not worth rebuilding. */
+    private static final int MIN_SHRINK_PEAK = 12;
+
+    /** The transitions, <code>null</code> while this node is a leaf. */
+    private Map<K, AbstractTrieMapUsingMapNode<K, V>> next;
+
+    /** The largest size {@link #next} has reached, a HashMap's table is sized for it. */
+    private int peak;
 
     /**
      * Constructor.
@@ -32,13 +40,13 @@ public class AbstractTrieMapUsingMapNode<K, V> extends AbstractTrieMapNode<K, V>
      */
     public AbstractTrieMapUsingMapNode(boolean accepting, V value) {
         super(accepting, value);
-        next = createMap();
     }
 
     @Override
     public void clear() {
         super.clear();
-        next.clear();
+        next = null;
+        peak = 0;
     }
 
     /**
@@ -51,30 +59,91 @@ public class AbstractTrieMapUsingMapNode<K, V> extends AbstractTrieMapNode<K, V>
         return new HashMap<K, AbstractTrieMapUsingMapNode<K, V>>();
     }
 
+    /**
+     * This is intended to be overridden by subclasses so that the children
+     * of a node use the same kind of map as the node itself.
+     *
+     * @return A newly created non-accepting node without a value.
+     */
+    protected AbstractTrieMapUsingMapNode<K, V> createNode() {
+        return new AbstractTrieMapUsingMapNode<K, V>(false, null);
+    }
+
     @Override
     public TrieMapNode<K, V> next(K input) {
-        return next.get(input);
+        return next == null ? null : next.get(input);
     }
 
     @Override
     public TrieMapNode<K, V> addTransition(K input) {
+        if (next == null) {
+            next = createMap();
+        }
         AbstractTrieMapUsingMapNode<K, V> node = next.get(input);
 
         if (node != null) {
             return node;
         }
 
-        node = new AbstractTrieMapUsingMapNode<K, V>(false, null);
+        node = createNode();
         next.put(input, node);
+        peak = Math.max(peak, next.size());
         return node;
     }
 
+    @Override
+    public TrieMapNode<K, V> removeTransition(K input) {
+        if (next == null) {
+            return null;
+        }
+        AbstractTrieMapUsingMapNode<K, V> node = next.remove(input);
+        int size = next.size();
+        if (size == 0) {
+            // Release the map, a HashMap never shrinks its table.
+            next = null;
+            peak = 0;
+        } else if (size <= peak >> 2 && peak > MIN_SHRINK_PEAK) {
+            // Copy into a map sized for the remaining transitions.
+            Map<K, AbstractTrieMapUsingMapNode<K, V>> smaller = createMap();
+            smaller.putAll(next);
+            next = smaller;
+            peak = size;
+        }
+        return node;
+    }
+
+    @Override
+    public Map<K, ? extends TrieMapNode<K, V>> transitions() {
+        if (next == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(next);
+    }
+
+    @Override
+    protected long estimatedBytes() {
+        long size = MemoryEstimator.object(2, 9);
+        if (next != null) {
+            size += next instanceof SortedMap ? MemoryEstimator.treeMap(next.size())
+                : MemoryEstimator.hashMap(next.size(), peak);
+            for (K key : next.keySet()) {
+                if (key instanceof Character) {
+                    size += MemoryEstimator.boxedCharacter((Character) key);
+                }
+            }
+        }
+        return size;
+    }
+
     /**
      * Return a collection of next nodes available from this node.
      *
      * @return A collection of direct children from this node.
      */
     protected Collection<? extends AbstractTrieMapUsingMapNode<K, V>> nextNodes() {
+        if (next == null) {
+            return Collections.emptyList();
+        }
         return Collections.unmodifiableCollection(next.values());
     }
 
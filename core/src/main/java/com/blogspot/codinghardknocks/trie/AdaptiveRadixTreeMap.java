@@ -0,0 +1,572 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements an <a href="http://db.in.tum.de/~leis/papers/ART.pdf">adaptive
+ * radix tree</a>, which associates a sequence of bytes with a specific value.
+ * Like {@link ByteTrieMap} it branches on one unsigned byte at a time, but the
+ * inner nodes come in four sizes (4, 16, 48 and 256 children, see
+ * {@link ArtNode}) so each node pays only for the fanout it has, where the
+ * map based {@link TrieMap}s allocate a whole map for every node.
+ *
+ * <p>
+ * The tree is also path compressed: a chain of single-child nodes is folded
+ * into the prefix of the node below it, and a key which shares no further
+ * bytes with any other key is stored whole in a leaf rather than as a chain
+ * of nodes.  Lookups therefore touch one node per branching point rather
+ * than one per byte.
+ * </p>
+ *
+ * <p>
+ * Bytes are compared as unsigned values, so keys are iterated
+ * lexicographically by unsigned byte, the same order as {@link ByteTrieMap}.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class AdaptiveRadixTreeMap<V> {
+
+    private ArtNode<V> root;
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public AdaptiveRadixTreeMap() {
+    }
+
+    public V addIfAbsent(byte[] key, V value) {
+        return addIfAbsent(key, 0, key.length, value);
+    }
+
+    /**
+     * Add a key held in part of an array.  The bytes are copied, so the array
+     * may be reused afterwards.
+     *
+     * @param key The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @param value The value to associate with the key if it is not present.
+     * @return The value now associated with the key.
+     */
+    public V addIfAbsent(byte[] key, int offset, int length, V value) {
+        checkBounds(key, offset, length);
+        ArtNode.Inner<V> parent = null;
+        int label = -1;
+        ArtNode<V> node = root;
+        int depth = 0;
+        while (true) {
+            if (node == null) {
+                root = newLeaf(key, offset, length, value);
+                ++size;
+                return value;
+            }
+
+            if (node instanceof ArtNode.Leaf) {
+                ArtNode.Leaf<V> leaf = (ArtNode.Leaf<V>) node;
+                int common = depth;
+                int limit = Math.min(leaf.key.length, length);
+                while (common < limit && leaf.key[common] == key[offset + common]) {
+                    ++common;
+                }
+                if (common == leaf.key.length && common == length) {
+                    return leaf.value;
+                }
+
+                // Lazy expansion: only now does the leaf need a node above it.
+                ArtNode.Inner<V> split = new ArtNode.Node4<V>(
+                    Arrays.copyOfRange(key, offset + depth, offset + common));
+                split.attach(leaf, common);
+                split.attach(newLeaf(key, offset, length, value), common);
+                link(parent, label, split);
+                ++size;
+                return value;
+            }
+
+            ArtNode.Inner<V> inner = (ArtNode.Inner<V>) node;
+            byte[] prefix = inner.prefix;
+            int matched = 0;
+            int limit = Math.min(prefix.length, length - depth);
+            while (matched < limit && prefix[matched] == key[offset + depth + matched]) {
+                ++matched;
+            }
+            if (matched < prefix.length) {
+                // The key leaves the compressed path part way along.
+                ArtNode.Inner<V> split = new ArtNode.Node4<V>(Arrays.copyOf(prefix, matched));
+                split.put(prefix[matched] & 0xff, inner);
+                inner.prefix = Arrays.copyOfRange(prefix, matched + 1, prefix.length);
+                split.attach(newLeaf(key, offset, length, value), depth + matched);
+                link(parent, label, split);
+                ++size;
+                return value;
+            }
+
+            depth += matched;
+            if (depth == length) {
+                if (inner.terminal != null) {
+                    return inner.terminal.value;
+                }
+                inner.terminal = newLeaf(key, offset, length, value);
+                ++size;
+                return value;
+            }
+
+            int b = key[offset + depth] & 0xff;
+            ArtNode<V> child = inner.child(b);
+            if (child == null) {
+                if (inner.isFull()) {
+                    ArtNode.Inner<V> grown = inner.grow();
+                    link(parent, label, grown);
+                    inner = grown;
+                }
+                inner.put(b, newLeaf(key, offset, length, value));
+                ++size;
+                return value;
+            }
+
+            parent = inner;
+            label = b;
+            node = child;
+            ++depth;
+        }
+    }
+
+    /**
+     * Add the key held in the remaining bytes of a buffer.  The buffer's
+     * position is not changed.
+     *
+     * @param key The buffer holding the key.
+     * @param value The value to associate with the key if it is not present.
+     * @return The value now associated with the key.
+     */
+    public V addIfAbsent(ByteBuffer key, V value) {
+        if (key.hasArray()) {
+            return addIfAbsent(key.array(), key.arrayOffset() + key.position(), key.remaining(), value);
+        }
+        return addIfAbsent(toArray(key), value);
+    }
+
+    public V remove(byte[] key) {
+        return remove(key, 0, key.length);
+    }
+
+    /**
+     * Remove a key held in part of an array.  A node left with a single entry
+     * is merged into its child, and one left mostly empty is replaced by a
+     * smaller layout.
+     *
+     * @param key The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(byte[] key, int offset, int length) {
+        checkBounds(key, offset, length);
+        ArtNode.Inner<V> grandparent = null;
+        int parentLabel = -1;
+        ArtNode.Inner<V> parent = null;
+        int label = -1;
+        ArtNode<V> node = root;
+        int depth = 0;
+        while (node != null) {
+            if (node instanceof ArtNode.Leaf) {
+                ArtNode.Leaf<V> leaf = (ArtNode.Leaf<V>) node;
+                if (!leaf.matches(key, offset, length, depth)) {
+                    return null;
+                }
+                if (parent == null) {
+                    root = null;
+                } else {
+                    parent.remove(label);
+                    link(grandparent, parentLabel, compact(parent));
+                }
+                --size;
+                return leaf.value;
+            }
+
+            ArtNode.Inner<V> inner = (ArtNode.Inner<V>) node;
+            if (!prefixMatches(inner.prefix, key, offset + depth, length - depth)) {
+                return null;
+            }
+            depth += inner.prefix.length;
+            if (depth == length) {
+                ArtNode.Leaf<V> leaf = inner.terminal;
+                if (leaf == null) {
+                    return null;
+                }
+                inner.terminal = null;
+                link(parent, label, compact(inner));
+                --size;
+                return leaf.value;
+            }
+
+            grandparent = parent;
+            parentLabel = label;
+            parent = inner;
+            label = key[offset + depth] & 0xff;
+            node = inner.child(label);
+            ++depth;
+        }
+        return null;
+    }
+
+    /**
+     * Remove the key held in the remaining bytes of a buffer.  The buffer's
+     * position is not changed.
+     *
+     * @param key The buffer holding the key.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(ByteBuffer key) {
+        if (key.hasArray()) {
+            return remove(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        }
+        return remove(toArray(key));
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public boolean contains(byte[] key) {
+        return find(key, 0, key.length) != null;
+    }
+
+    public boolean contains(byte[] key, int offset, int length) {
+        return find(key, offset, length) != null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(byte[] key) {
+        return get(key, 0, key.length);
+    }
+
+    /**
+     * Look up a key held in part of an array.
+     *
+     * @param key The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return The value associated with the key, or <code>null</code> if
+     *         there is none.
+     */
+    public V get(byte[] key, int offset, int length) {
+        ArtNode.Leaf<V> leaf = find(key, offset, length);
+        return leaf == null ? null : leaf.value;
+    }
+
+    /**
+     * Look up the key held in the remaining bytes of a buffer.  The buffer's
+     * position is not changed.  A direct buffer is copied to an array first.
+     *
+     * @param key The buffer holding the key.
+     * @return The value associated with the key, or <code>null</code> if
+     *         there is none.
+     */
+    public V get(ByteBuffer key) {
+        if (key.hasArray()) {
+            return get(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        }
+        return get(toArray(key));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Lazily enumerate the keys starting with the given prefix, in unsigned
+     * byte order.  The tree must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The keys starting with the prefix.
+     */
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        return new LeafIterator<V, byte[]>(subtree(prefix)) {
+            @Override
+            byte[] emit(ArtNode.Leaf<V> leaf) {
+                return leaf.key.clone();
+            }
+        };
+    }
+
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * unsigned byte order.  The tree must not be modified while the iterator
+     * is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<byte[], V>> entriesWithPrefix(byte[] prefix) {
+        return new LeafIterator<V, Map.Entry<byte[], V>>(subtree(prefix)) {
+            @Override
+            Map.Entry<byte[], V> emit(ArtNode.Leaf<V> leaf) {
+                return new AbstractMap.SimpleImmutableEntry<byte[], V>(leaf.key.clone(), leaf.value);
+            }
+        };
+    }
+
+    /**
+     * Estimate the memory used by the nodes of the tree, not counting the values.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        Deque<ArtNode<V>> stack = new ArrayDeque<ArtNode<V>>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            ArtNode<V> node = stack.pop();
+            bytes += node.estimatedBytes();
+            if (node instanceof ArtNode.Inner) {
+                ArtNode.Inner<V> inner = (ArtNode.Inner<V>) node;
+                if (inner.terminal != null) {
+                    stack.push(inner.terminal);
+                }
+                for (int b = inner.nextLabel(0); b >= 0; b = inner.nextLabel(b + 1)) {
+                    stack.push(inner.child(b));
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Getter for the root node.
+     *
+     * @return The root, or <code>null</code> if the tree is empty.
+     */
+    ArtNode<V> root() {
+        return root;
+    }
+
+    private ArtNode.Leaf<V> find(byte[] key, int offset, int length) {
+        checkBounds(key, offset, length);
+        ArtNode<V> node = root;
+        int depth = 0;
+        while (node != null) {
+            if (node instanceof ArtNode.Leaf) {
+                ArtNode.Leaf<V> leaf = (ArtNode.Leaf<V>) node;
+                return leaf.matches(key, offset, length, depth) ? leaf : null;
+            }
+            ArtNode.Inner<V> inner = (ArtNode.Inner<V>) node;
+            if (!prefixMatches(inner.prefix, key, offset + depth, length - depth)) {
+                return null;
+            }
+            depth += inner.prefix.length;
+            if (depth == length) {
+                return inner.terminal;
+            }
+            node = inner.child(key[offset + depth] & 0xff);
+            ++depth;
+        }
+        return null;
+    }
+
+    /**
+     * Find the highest node whose keys all start with the prefix.
+     *
+     * @param prefix The prefix.
+     * @return The node, or <code>null</code> if no key starts with the prefix.
+     */
+    private ArtNode<V> subtree(byte[] prefix) {
+        ArtNode<V> node = root;
+        int depth = 0;
+        while (node != null && depth < prefix.length) {
+            if (node instanceof ArtNode.Leaf) {
+                byte[] key = ((ArtNode.Leaf<V>) node).key;
+                if (key.length < prefix.length) {
+                    return null;
+                }
+                for (int i = depth; i < prefix.length; ++i) {
+                    if (key[i] != prefix[i]) {
+                        return null;
+                    }
+                }
+                return node;
+            }
+
+            ArtNode.Inner<V> inner = (ArtNode.Inner<V>) node;
+            int limit = Math.min(inner.prefix.length, prefix.length - depth);
+            for (int i = 0; i < limit; ++i) {
+                if (inner.prefix[i] != prefix[depth + i]) {
+                    return null;
+                }
+            }
+            depth += inner.prefix.length;
+            if (depth >= prefix.length) {
+                return node;
+            }
+            node = inner.child(prefix[depth] & 0xff);
+            ++depth;
+        }
+        return node;
+    }
+
+    /**
+     * Restore the invariants of a node which lost an entry.
+     *
+     * @param inner The node.
+     * @return The node which should replace it.
+     */
+    private static <V> ArtNode<V> compact(ArtNode.Inner<V> inner) {
+        if (inner.fanout == 0) {
+            return inner.terminal;
+        }
+        if (inner.fanout == 1 && inner.terminal == null) {
+            int b = inner.nextLabel(0);
+            ArtNode<V> child = inner.child(b);
+            if (child instanceof ArtNode.Inner) {
+                ArtNode.Inner<V> only = (ArtNode.Inner<V>) child;
+                only.prefix = ArtNode.join(inner.prefix, b, only.prefix);
+            }
+            return child;
+        }
+        return inner.shrinkIfSparse();
+    }
+
+    /**
+     * Replace the child of a node, or the root.
+     *
+     * @param parent The node, or <code>null</code> for the root.
+     * @param label The label of the child within the parent.
+     * @param node The new child.
+     */
+    private void link(ArtNode.Inner<V> parent, int label, ArtNode<V> node) {
+        if (parent == null) {
+            root = node;
+        } else {
+            parent.put(label, node);
+        }
+    }
+
+    private static <V> ArtNode.Leaf<V> newLeaf(byte[] key, int offset, int length, V value) {
+        return new ArtNode.Leaf<V>(Arrays.copyOfRange(key, offset, offset + length), value);
+    }
+
+    private static boolean prefixMatches(byte[] prefix, byte[] key, int offset, int remaining) {
+        if (prefix.length > remaining) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i) {
+            if (prefix[i] != key[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static void checkBounds(byte[] key, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > key.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                + ", array length " + key.length);
+        }
+    }
+
+    /**
+     * Walks the leaves below a node in key order.  A node's terminal key is a
+     * prefix of everything below it, so it comes before the children.
+     *
+     * @param <V> The type of value associated with the keys.
+     * @param <T> The type returned by the iterator.
+     */
+    private abstract static class LeafIterator<V, T> implements Iterator<T> {
+
+        private final Deque<ArtNode<V>> pending = new ArrayDeque<ArtNode<V>>();
+        private final int[] labels = new int[256];
+        private ArtNode.Leaf<V> next;
+
+        LeafIterator(ArtNode<V> start) {
+            if (start != null) {
+                pending.push(start);
+            }
+            advance();
+        }
+
+        abstract T emit(ArtNode.Leaf<V> leaf);
+
+        private void advance() {
+            next = null;
+            while (next == null && !pending.isEmpty()) {
+                ArtNode<V> node = pending.pop();
+                if (node instanceof ArtNode.Leaf) {
+                    next = (ArtNode.Leaf<V>) node;
+                    continue;
+                }
+                ArtNode.Inner<V> inner = (ArtNode.Inner<V>) node;
+                int count = 0;
+                for (int b = inner.nextLabel(0); b >= 0; b = inner.nextLabel(b + 1)) {
+                    labels[count++] = b;
+                }
+                while (count > 0) {
+                    pending.push(inner.child(labels[--count]));
+                }
+                next = inner.terminal;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T result = emit(next);
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * An immutable <a href="http://en.wikipedia.org/wiki/Aho%E2%80%93Corasick_string_matching_algorithm">Aho-Corasick</a>
+ * automaton, which finds every occurrence of every key of a trie in a text in
+ * a single pass, in time linear in the length of the text plus the number of
+ * matches.  It is compiled from a {@link StringTrieMap} or a
+ * {@link CharSequenceTrieMap} by <code>compileMatcher()</code>.
+ *
+ * <p>
+ * The states are the nodes of the trie numbered breadth first, and everything
+ * is stored in flat arrays: the edges of state <code>s</code> are
+ * <code>firstEdge[s]</code> up to <code>firstEdge[s + 1]</code>, sorted by
+ * label.  When a state has no edge for the next character the scan follows
+ * the failure link to the state for the longest proper suffix which is also
+ * in the trie.  The output link of a state points to the nearest accepting
+ * state along its failure links, so every match ending at a position is found
+ * without visiting the states in between.  Scanning allocates nothing per
+ * character or per match.
+ * </p>
+ *
+ * <p>
+ * The empty key never matches.
+ * </p>
+ *
+ * @param <V> The type of value associated with the keys.
+ *
+ * @author kbohling
+ */
+@ThreadSafe
+public final class AhoCorasickMatcher<V> {
+
+    /** The size of the chunks read from a {@link Reader}. */
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final int ROOT = 0;
+
+    private final int[] firstEdge;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] failure;
+    private final int[] output;
+    private final int[] depth;
+    private final int[] valueIndex;
+    private final Object[] values;
+
+    private AhoCorasickMatcher(int[] firstEdge, char[] labels, int[] targets, int[] failure, int[] output,
+            int[] depth, int[] valueIndex, Object[] values) {
+        this.firstEdge = firstEdge;
+        this.labels = labels;
+        this.targets = targets;
+        this.failure = failure;
+        this.output = output;
+        this.depth = depth;
+        this.valueIndex = valueIndex;
+        this.values = values;
+    }
+
+    /**
+     * Compile the automaton for the keys below the given node.
+     *
+     * @param root The root of the trie.
+     * @return The automaton.
+     */
+    static <V> AhoCorasickMatcher<V> compile(CharTrieView<V> root) {
+        int[] firstEdge = new int[64];
+        int[] depth = new int[64];
+        int[] valueIndex = new int[64];
+        char[] labels = new char[64];
+        int[] targets = new int[64];
+        List<Object> values = new ArrayList<Object>();
+
+        // Number the states breadth first, so the edges of each state are
+        // appended in state order.
+        ArrayDeque<CharTrieView<V>> queue = new ArrayDeque<CharTrieView<V>>();
+        queue.add(root);
+        int states = 1;
+        int edges = 0;
+        for (int s = 0; !queue.isEmpty(); ++s) {
+            CharTrieView<V> node = queue.poll();
+            firstEdge[s] = edges;
+            if (s != ROOT && node.isAccepting()) {
+                valueIndex[s] = values.size();
+                values.add(node.value());
+            } else {
+                valueIndex[s] = -1;
+            }
+
+            int fanout = node.fanout();
+            if (edges + fanout > labels.length) {
+                int capacity = Math.max(labels.length << 1, edges + fanout);
+                labels = Arrays.copyOf(labels, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            if (states + fanout >= firstEdge.length) {
+                int capacity = Math.max(firstEdge.length << 1, states + fanout + 1);
+                firstEdge = Arrays.copyOf(firstEdge, capacity);
+                depth = Arrays.copyOf(depth, capacity);
+                valueIndex = Arrays.copyOf(valueIndex, capacity);
+            }
+            for (int i = 0; i < fanout; ++i) {
+                labels[edges] = node.label(i);
+                targets[edges] = states;
+                depth[states] = depth[s] + 1;
+                ++edges;
+                ++states;
+                queue.add(node.child(i));
+            }
+        }
+        firstEdge[states] = edges;
+
+        AhoCorasickMatcher<V> matcher = new AhoCorasickMatcher<V>(Arrays.copyOf(firstEdge, states + 1),
+                Arrays.copyOf(labels, edges), Arrays.copyOf(targets, edges), new int[states], new int[states],
+                Arrays.copyOf(depth, states), Arrays.copyOf(valueIndex, states), values.toArray());
+        matcher.link();
+        return matcher;
+    }
+
+    /**
+     * Compute the failure and output links.  A state's failure link is
+     * shallower than the state, so visiting the states in breadth first
+     * order always finds the links it depends on already computed.
+     */
+    private void link() {
+        int states = depth.length;
+        for (int s = 0; s < states; ++s) {
+            for (int e = firstEdge[s]; e < firstEdge[s + 1]; ++e) {
+                int t = targets[e];
+                int f = ROOT;
+                if (s != ROOT) {
+                    f = failure[s];
+                    int next = edgeOf(f, labels[e]);
+                    while (next < 0 && f != ROOT) {
+                        f = failure[f];
+                        next = edgeOf(f, labels[e]);
+                    }
+                    f = next >= 0 ? targets[next] : ROOT;
+                }
+                failure[t] = f;
+                output[t] = valueIndex[f] >= 0 ? f : output[f];
+            }
+        }
+    }
+
+    /**
+     * Report every match in the text.
+     *
+     * @param text The text to scan.
+     * @param handler The handler to report the matches to, the offsets are
+     *        indexes into the text.
+     * @return <code>true</code> if the whole text was scanned,
+     *         <code>false</code> if the handler stopped the scan.
+     */
+    public boolean scan(CharSequence text, MatchHandler<? super V> handler) {
+        int len = text.length();
+        int state = ROOT;
+        for (int i = 0; i < len; ++i) {
+            state = step(state, text.charAt(i));
+            if (state != ROOT && !report(state, i + 1, handler)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Report every match in the remaining characters of the buffer, without
+     * changing its position.
+     *
+     * @param buffer The buffer to scan.
+     * @param handler The handler to report the matches to, the offsets are
+     *        relative to the position of the buffer.
+     * @return <code>true</code> if the whole buffer was scanned,
+     *         <code>false</code> if the handler stopped the scan.
+     */
+    public boolean scan(CharBuffer buffer, MatchHandler<? super V> handler) {
+        if (!buffer.hasArray()) {
+            return scan((CharSequence) buffer, handler);
+        }
+        int offset = buffer.arrayOffset() + buffer.position();
+        return scan(buffer.array(), offset, offset + buffer.remaining(), ROOT, -offset, handler) >= 0;
+    }
+
+    /**
+     * Report every match in the characters read from the reader, which is
+     * read to the end but not closed.
+     *
+     * @param reader The reader to scan.
+     * @param handler The handler to report the matches to, the offsets count
+     *        the characters read.
+     * @return <code>true</code> if the whole input was scanned,
+     *         <code>false</code> if the handler stopped the scan.
+     * @throws IOException If reading fails.
+     */
+    public boolean scan(Reader reader, MatchHandler<? super V> handler) throws IOException {
+        char[] chunk = new char[CHUNK_SIZE];
+        long consumed = 0;
+        int state = ROOT;
+        int read;
+        while ((read = reader.read(chunk)) >= 0) {
+            state = scan(chunk, 0, read, state, consumed, handler);
+            if (state < 0) {
+                return false;
+            }
+            consumed += read;
+        }
+        return true;
+    }
+
+    /**
+     * Scan a range of an array, continuing from the given state.
+     *
+     * @param base The offset of the first character of the array.
+     * @return The state after the last character, or <code>-1</code> if the
+     *         handler stopped the scan.
+     */
+    private int scan(char[] text, int from, int to, int state, long base, MatchHandler<? super V> handler) {
+        for (int i = from; i < to; ++i) {
+            state = step(state, text[i]);
+            if (state != ROOT && !report(state, base + i + 1, handler)) {
+                return -1;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Return the number of states.
+     *
+     * @return The number of states, one per node of the source trie.
+     */
+    public int stateCount() {
+        return depth.length;
+    }
+
+    /**
+     * Estimate the memory used by the automaton.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        int states = depth.length;
+        return MemoryEstimator.object(8, 0)
+            + MemoryEstimator.array(states + 1, 4)
+            + 5 * MemoryEstimator.array(states, 4)
+            + MemoryEstimator.array(labels.length, 2)
+            + MemoryEstimator.array(targets.length, 4)
+            + MemoryEstimator.array(values.length, MemoryEstimator.REFERENCE);
+    }
+
+    /**
+     * Follow the edge for the character, falling back along the failure links.
+     */
+    private int step(int state, char c) {
+        while (true) {
+            int edge = edgeOf(state, c);
+            if (edge >= 0) {
+                return targets[edge];
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Report the accepting state, if it is, and every state on its output links.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean report(int state, long end, MatchHandler<? super V> handler) {
+        int s = valueIndex[state] >= 0 ? state : output[state];
+        while (s != ROOT) {
+            if (!handler.onMatch(end - depth[s], end, (V) values[valueIndex[s]])) {
+                return false;
+            }
+            s = output[s];
+        }
+        return true;
+    }
+
+    /**
+     * Find the edge with the given label.
+     *
+     * @return The index of the edge, or <code>-1</code> if there is none.
+     */
+    private int edgeOf(int state, char c) {
+        int low = firstEdge[state];
+        int high = firstEdge[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
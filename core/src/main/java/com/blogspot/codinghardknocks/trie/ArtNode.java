@@ -0,0 +1,526 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * The nodes of an {@link AdaptiveRadixTreeMap}.  A key is either held whole by
+ * a {@link Leaf}, or branches at an {@link Inner} node, which comes in four
+ * layouts sized for its fanout: {@link Node4} and {@link Node16} keep sorted
+ * parallel arrays of labels and children, {@link Node48} maps each byte to a
+ * slot in a 48 entry child array, and {@link Node256} indexes the children by
+ * the byte directly.  A node is replaced by the next larger layout when it
+ * fills up, and by the next smaller one when removals leave it mostly empty.
+ *
+ * <p>
+ * Labels are unsigned bytes passed around as <code>int</code>s in
+ * <code>[0, 255]</code>.
+ * </p>
+ *
+ * @param <V> The type of value associated with the keys.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+abstract class ArtNode<V> {
+
+    /**
+     * Constructor.
+     */
+    ArtNode() {
+    }
+
+    /**
+     * Estimate the memory used by this node, not counting its children or value.
+     *
+     * @return The estimated size in bytes.
+     */
+    abstract long estimatedBytes();
+
+    /**
+     * A node holding a single key and its value.  Leaves are only created
+     * where a key diverges from every other key, so a key with no neighbours
+     * needs no inner nodes at all.
+     *
+     * @param <V> The type of value associated with the key.
+     */
+    static final class Leaf<V> extends ArtNode<V> {
+
+        /** The whole key, owned by the leaf. */
+        final byte[] key;
+
+        /** The value associated with the key. */
+        V value;
+
+        Leaf(byte[] key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Check if the key matches the leaf, given that the first
+         * <code>depth</code> bytes are already known to match.
+         *
+         * @return <code>true</code> if the keys are equal.
+         */
+        boolean matches(byte[] other, int offset, int length, int depth) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = depth; i < length; ++i) {
+                if (key[i] != other[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        long estimatedBytes() {
+            return MemoryEstimator.object(2, 0) + MemoryEstimator.array(key.length, 1);
+        }
+    }
+
+    /**
+     * A node where keys branch.  The bytes every key below the node shares
+     * are stored in full in {@link #prefix}, then each child is reached by the
+     * byte following the prefix.  A key which ends right after the prefix is
+     * kept in {@link #terminal}.  Every inner node holds at least two keys
+     * between its children and terminal, so single-child chains never form.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    abstract static class Inner<V> extends ArtNode<V> {
+
+        /** The bytes shared by every key below this node, after the parent's label. */
+        byte[] prefix;
+
+        /** The key ending at this node, or <code>null</code>. */
+        Leaf<V> terminal;
+
+        /** The number of children. */
+        int fanout;
+
+        Inner(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Return the child for the given label.
+         *
+         * @param b The unsigned label.
+         * @return The child, or <code>null</code> if there is none.
+         */
+        abstract ArtNode<V> child(int b);
+
+        /**
+         * Return the smallest label with a child which is not less than the
+         * given label.
+         *
+         * @param b The unsigned label to start from.
+         * @return The label, or -1 if there is none.
+         */
+        abstract int nextLabel(int b);
+
+        /**
+         * Set the child for the given label, replacing any existing child.  A
+         * new label must not be added to a full node.
+         *
+         * @param b The unsigned label.
+         * @param node The child.
+         */
+        abstract void put(int b, ArtNode<V> node);
+
+        /**
+         * Remove the child for the given label, which must exist.
+         *
+         * @param b The unsigned label.
+         */
+        abstract void remove(int b);
+
+        /**
+         * Check if a child can be added without growing the node.
+         *
+         * @return <code>true</code> if the node is full.
+         */
+        abstract boolean isFull();
+
+        /**
+         * Copy this node into the next larger layout.
+         *
+         * @return The larger node.
+         */
+        abstract Inner<V> grow();
+
+        /**
+         * Copy this node into a smaller layout if it has become mostly empty.
+         *
+         * @return The smaller node, or this node if it is still a good fit.
+         */
+        abstract Inner<V> shrinkIfSparse();
+
+        /**
+         * Put a leaf below this node, either as a child or as the terminal.
+         *
+         * @param leaf The leaf to add.
+         * @param depth The length of the keys up to and including the prefix.
+         */
+        final void attach(Leaf<V> leaf, int depth) {
+            if (leaf.key.length == depth) {
+                terminal = leaf;
+            } else {
+                put(leaf.key[depth] & 0xff, leaf);
+            }
+        }
+
+        /**
+         * Copy the prefix, terminal and children of this node into another.
+         *
+         * @param target The node to fill.
+         * @return The target.
+         */
+        final Inner<V> copyInto(Inner<V> target) {
+            target.terminal = terminal;
+            for (int b = nextLabel(0); b >= 0; b = nextLabel(b + 1)) {
+                target.put(b, child(b));
+            }
+            return target;
+        }
+
+        /**
+         * The size of the fields common to every layout.
+         *
+         * @return The estimated size in bytes.
+         */
+        final long headerBytes() {
+            return MemoryEstimator.array(prefix.length, 1);
+        }
+    }
+
+    /**
+     * Base of the layouts which keep labels and children in sorted parallel
+     * arrays.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    abstract static class SortedInner<V> extends Inner<V> {
+
+        /** The labels, sorted by unsigned value, only the first {@link #fanout} are valid. */
+        final byte[] labels;
+
+        /** The children, parallel to {@link #labels}. */
+        final ArtNode<V>[] children;
+
+        @SuppressWarnings("unchecked")
+        SortedInner(byte[] prefix, int capacity) {
+            super(prefix);
+            labels = new byte[capacity];
+            children = new ArtNode[capacity];
+        }
+
+        /**
+         * Find the index of the given label.
+         *
+         * @param b The unsigned label to search for.
+         * @return The index of the label if it exists, otherwise
+         *         <code>-(insertion point) - 1</code>.
+         */
+        final int indexOf(int b) {
+            // At most 16 labels, so a scan beats a binary search.
+            for (int i = 0; i < fanout; ++i) {
+                int label = labels[i] & 0xff;
+                if (label >= b) {
+                    return label == b ? i : -(i + 1);
+                }
+            }
+            return -(fanout + 1);
+        }
+
+        @Override
+        final ArtNode<V> child(int b) {
+            int idx = indexOf(b);
+            return idx >= 0 ? children[idx] : null;
+        }
+
+        @Override
+        final int nextLabel(int b) {
+            int idx = indexOf(b);
+            if (idx < 0) {
+                idx = -(idx + 1);
+            }
+            return idx < fanout ? labels[idx] & 0xff : -1;
+        }
+
+        @Override
+        final void put(int b, ArtNode<V> node) {
+            int idx = indexOf(b);
+            if (idx >= 0) {
+                children[idx] = node;
+                return;
+            }
+            int pos = -(idx + 1);
+            int moved = fanout - pos;
+            if (moved > 0) {
+                System.arraycopy(labels, pos, labels, pos + 1, moved);
+                System.arraycopy(children, pos, children, pos + 1, moved);
+            }
+            labels[pos] = (byte) b;
+            children[pos] = node;
+            ++fanout;
+        }
+
+        @Override
+        final void remove(int b) {
+            int pos = indexOf(b);
+            int moved = fanout - pos - 1;
+            if (moved > 0) {
+                System.arraycopy(labels, pos + 1, labels, pos, moved);
+                System.arraycopy(children, pos + 1, children, pos, moved);
+            }
+            --fanout;
+            children[fanout] = null;
+        }
+
+        @Override
+        final boolean isFull() {
+            return fanout == labels.length;
+        }
+
+        @Override
+        final long estimatedBytes() {
+            return MemoryEstimator.object(4, 4) + headerBytes()
+                + MemoryEstimator.array(labels.length, 1)
+                + MemoryEstimator.array(children.length, MemoryEstimator.REFERENCE);
+        }
+    }
+
+    /**
+     * An inner node with up to 4 children.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    static final class Node4<V> extends SortedInner<V> {
+
+        Node4(byte[] prefix) {
+            super(prefix, 4);
+        }
+
+        @Override
+        Inner<V> grow() {
+            return copyInto(new Node16<V>(prefix));
+        }
+
+        @Override
+        Inner<V> shrinkIfSparse() {
+            return this;
+        }
+    }
+
+    /**
+     * An inner node with 5 to 16 children.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    static final class Node16<V> extends SortedInner<V> {
+
+        /** The fanout at which the node is replaced by a {@link Node4}. */
+        static final int SHRINK = 3;
+
+        Node16(byte[] prefix) {
+            super(prefix, 16);
+        }
+
+        @Override
+        Inner<V> grow() {
+            return copyInto(new Node48<V>(prefix));
+        }
+
+        @Override
+        Inner<V> shrinkIfSparse() {
+            return fanout <= SHRINK ? copyInto(new Node4<V>(prefix)) : this;
+        }
+    }
+
+    /**
+     * An inner node with 17 to 48 children, found through a 256 entry index
+     * of slots.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    static final class Node48<V> extends Inner<V> {
+
+        /** The fanout at which the node is replaced by a {@link Node16}. */
+        static final int SHRINK = 12;
+
+        /** For each label, one more than the slot of its child, or 0 if there is none. */
+        final byte[] index = new byte[256];
+
+        /** The children, in no particular order. */
+        final ArtNode<V>[] children;
+
+        @SuppressWarnings("unchecked")
+        Node48(byte[] prefix) {
+            super(prefix);
+            children = new ArtNode[48];
+        }
+
+        @Override
+        ArtNode<V> child(int b) {
+            int slot = index[b];
+            return slot == 0 ? null : children[slot - 1];
+        }
+
+        @Override
+        int nextLabel(int b) {
+            for (int i = b; i < 256; ++i) {
+                if (index[i] != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        void put(int b, ArtNode<V> node) {
+            int slot = index[b];
+            if (slot != 0) {
+                children[slot - 1] = node;
+                return;
+            }
+            while (children[slot] != null) {
+                ++slot;
+            }
+            children[slot] = node;
+            index[b] = (byte) (slot + 1);
+            ++fanout;
+        }
+
+        @Override
+        void remove(int b) {
+            children[index[b] - 1] = null;
+            index[b] = 0;
+            --fanout;
+        }
+
+        @Override
+        boolean isFull() {
+            return fanout == children.length;
+        }
+
+        @Override
+        Inner<V> grow() {
+            return copyInto(new Node256<V>(prefix));
+        }
+
+        @Override
+        Inner<V> shrinkIfSparse() {
+            return fanout <= SHRINK ? copyInto(new Node16<V>(prefix)) : this;
+        }
+
+        @Override
+        long estimatedBytes() {
+            return MemoryEstimator.object(4, 4) + headerBytes()
+                + MemoryEstimator.array(index.length, 1)
+                + MemoryEstimator.array(children.length, MemoryEstimator.REFERENCE);
+        }
+    }
+
+    /**
+     * An inner node with 49 to 256 children, indexed directly by label.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    static final class Node256<V> extends Inner<V> {
+
+        /** The fanout at which the node is replaced by a {@link Node48}. */
+        static final int SHRINK = 40;
+
+        /** The children, indexed by unsigned label. */
+        final ArtNode<V>[] children;
+
+        @SuppressWarnings("unchecked")
+        Node256(byte[] prefix) {
+            super(prefix);
+            children = new ArtNode[256];
+        }
+
+        @Override
+        ArtNode<V> child(int b) {
+            return children[b];
+        }
+
+        @Override
+        int nextLabel(int b) {
+            for (int i = b; i < 256; ++i) {
+                if (children[i] != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        void put(int b, ArtNode<V> node) {
+            if (children[b] == null) {
+                ++fanout;
+            }
+            children[b] = node;
+        }
+
+        @Override
+        void remove(int b) {
+            children[b] = null;
+            --fanout;
+        }
+
+        @Override
+        boolean isFull() {
+            return false;
+        }
+
+        @Override
+        Inner<V> grow() {
+            throw new IllegalStateException("Node256 cannot grow");
+        }
+
+        @Override
+        Inner<V> shrinkIfSparse() {
+            return fanout <= SHRINK ? copyInto(new Node48<V>(prefix)) : this;
+        }
+
+        @Override
+        long estimatedBytes() {
+            return MemoryEstimator.object(3, 4) + headerBytes()
+                + MemoryEstimator.array(children.length, MemoryEstimator.REFERENCE);
+        }
+    }
+
+    /**
+     * Join a parent's prefix and label onto the front of a child's prefix,
+     * used when a parent is left with one child and is collapsed into it.
+     *
+     * @return The joined prefix.
+     */
+    static byte[] join(byte[] prefix, int b, byte[] suffix) {
+        byte[] joined = Arrays.copyOf(prefix, prefix.length + 1 + suffix.length);
+        joined[prefix.length] = (byte) b;
+        System.arraycopy(suffix, 0, joined, prefix.length + 1, suffix.length);
+        return joined;
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayDeque;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements a <a href="http://goanna.cs.rmit.edu.au/~jz/fulltext/acmtois02.pdf">Burst Trie</a>
+ * (Heinz, Zobel and Williams, 2002) which associates a {@link CharSequence} with a specific value.
+ *
+ * <p>
+ * The top of the structure is made of trie nodes, but instead of a node per
+ * character the remaining suffixes of a key are stored in small containers,
+ * kept as sorted arrays.  When a container holds more than the threshold
+ * number of suffixes it is burst: it is replaced by a trie node whose
+ * children are new containers, split on the first character of each suffix.
+ * A low threshold behaves like a trie, a high threshold like a sorted array
+ * per leading character, which trades lookup speed for memory.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class BurstTrieMap<V> {
+
+    /** The default container size limit, taken from the paper's recommendations. */
+    public static final int DEFAULT_THRESHOLD = 35;
+
+    /** Sentinel returned by {@link #find(CharSequence, Object)} when the key is not found. */
+    private static final Object MISSING = new Object();
+
+    private final int threshold;
+    private AccessNode<V> root;
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public BurstTrieMap() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threshold The number of suffixes a container may hold before it
+     *        is burst, must be at least <code>1</code>.
+     */
+    public BurstTrieMap(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.threshold = threshold;
+        root = new AccessNode<V>();
+    }
+
+    public V addIfAbsent(CharSequence keys, V value) {
+        int len = keys.length();
+        AccessNode<V> node = root;
+
+        for (int depth = 0; depth < len; ++depth) {
+            char c = keys.charAt(depth);
+            int idx = node.indexOf(c);
+            if (idx < 0) {
+                Container<V> container = new Container<V>();
+                container.insertAt(0, keys.subSequence(depth + 1, len).toString(), value);
+                node.insertAt(-(idx + 1), c, container);
+                ++size;
+                return value;
+            }
+
+            Object child = node.children[idx];
+            if (child instanceof Container) {
+                @SuppressWarnings("unchecked")
+                Container<V> container = (Container<V>) child;
+                int pos = container.indexOf(keys, depth + 1);
+                if (pos >= 0) {
+                    return container.value(pos);
+                }
+                container.insertAt(-(pos + 1), keys.subSequence(depth + 1, len).toString(), value);
+                ++size;
+                if (container.size > threshold) {
+                    node.children[idx] = burst(container);
+                }
+                return value;
+            }
+
+            @SuppressWarnings("unchecked")
+            AccessNode<V> next = (AccessNode<V>) child;
+            node = next;
+        }
+
+        if (!node.accepting) {
+            node.accepting = true;
+            node.value = value;
+            ++size;
+        }
+        return node.value;
+    }
+
+    public void clear() {
+        root = new AccessNode<V>();
+        size = 0;
+    }
+
+    public boolean contains(CharSequence keys) {
+        return find(keys, MISSING) != MISSING;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(CharSequence keys) {
+        return get(keys, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(CharSequence keys, V defaultValue) {
+        Object found = find(keys, MISSING);
+        return found == MISSING ? defaultValue : (V) found;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for the burst threshold.
+     *
+     * @return The number of suffixes a container may hold before it is burst.
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Find the value associated with the keys.
+     *
+     * @param keys The key to look up.
+     * @param missing The object to return if the key is not contained.
+     * @return The associated value, or <code>missing</code>.
+     */
+    private Object find(CharSequence keys, Object missing) {
+        int len = keys.length();
+        AccessNode<V> node = root;
+
+        for (int depth = 0; depth < len; ++depth) {
+            int idx = node.indexOf(keys.charAt(depth));
+            if (idx < 0) {
+                return missing;
+            }
+
+            Object child = node.children[idx];
+            if (child instanceof Container) {
+                Container<?> container = (Container<?>) child;
+                int pos = container.indexOf(keys, depth + 1);
+                return pos >= 0 ? container.values[pos] : missing;
+            }
+            @SuppressWarnings("unchecked")
+            AccessNode<V> next = (AccessNode<V>) child;
+            node = next;
+        }
+
+        return node.accepting ? node.value : missing;
+    }
+
+    /**
+     * Replace a container with an access node, splitting the suffixes on
+     * their first character.  Any new container which is still over the
+     * threshold is burst as well, from a work list rather than by recursion,
+     * since the suffixes can share a prefix far longer than the call stack is
+     * deep.
+     *
+     * @param container The container to burst.
+     * @return The access node replacing the container.
+     */
+    private AccessNode<V> burst(Container<V> container) {
+        AccessNode<V> top = new AccessNode<V>();
+        ArrayDeque<AccessNode<V>> pending = new ArrayDeque<AccessNode<V>>();
+        pending.push(split(top, container));
+        while (!pending.isEmpty()) {
+            AccessNode<V> node = pending.pop();
+            for (int i = 0; i < node.fanout; ++i) {
+                @SuppressWarnings("unchecked")
+                Container<V> child = (Container<V>) node.children[i];
+                if (child.size > threshold) {
+                    AccessNode<V> replacement = new AccessNode<V>();
+                    pending.push(split(replacement, child));
+                    node.children[i] = replacement;
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Move the suffixes of a container below an access node.  The prefix
+     * which every suffix shares becomes a chain of access nodes, built in one
+     * pass, and the suffixes are cut once after it and split into new
+     * containers on their next character.
+     *
+     * @param node The empty access node replacing the container.
+     * @param container The container to split.
+     * @return The last node of the chain, whose children are the new containers.
+     */
+    private AccessNode<V> split(AccessNode<V> node, Container<V> container) {
+        // The suffixes are sorted, so the first and last share the least.
+        String first = container.suffixes[0];
+        String last = container.suffixes[container.size - 1];
+        int max = Math.min(first.length(), last.length());
+        int shared = 0;
+        while (shared < max && first.charAt(shared) == last.charAt(shared)) {
+            ++shared;
+        }
+        for (int i = 0; i < shared; ++i) {
+            AccessNode<V> next = new AccessNode<V>();
+            node.insertAt(0, first.charAt(i), next);
+            node = next;
+        }
+
+        // The suffixes are sorted, so each new container is appended to in order.
+        Container<V> current = null;
+        for (int i = 0; i < container.size; ++i) {
+            String suffix = container.suffixes[i];
+            V value = container.value(i);
+            if (suffix.length() == shared) {
+                node.accepting = true;
+                node.value = value;
+                continue;
+            }
+
+            char c = suffix.charAt(shared);
+            if (current == null || node.labels[node.fanout - 1] != c) {
+                current = new Container<V>();
+                node.insertAt(node.fanout, c, current);
+            }
+            current.insertAt(current.size, suffix.substring(shared + 1), value);
+        }
+        return node;
+    }
+
+    /**
+     * A trie node, whose children are either access nodes or containers.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class AccessNode<V> {
+        private boolean accepting;
+        private V value;
+        private char[] labels = new char[2];
+        private Object[] children = new Object[2];
+        private int fanout;
+
+        int indexOf(char c) {
+            char[] keys = labels;
+            int low = 0;
+            int high = fanout - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midVal = keys[mid];
+
+                if (midVal < c) {
+                    low = mid + 1;
+                } else if (midVal > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertAt(int pos, char c, Object child) {
+            if (fanout == labels.length) {
+                char[] newLabels = new char[fanout << 1];
+                Object[] newChildren = new Object[fanout << 1];
+                System.arraycopy(labels, 0, newLabels, 0, fanout);
+                System.arraycopy(children, 0, newChildren, 0, fanout);
+                labels = newLabels;
+                children = newChildren;
+            }
+            System.arraycopy(labels, pos, labels, pos + 1, fanout - pos);
+            System.arraycopy(children, pos, children, pos + 1, fanout - pos);
+            labels[pos] = c;
+            children[pos] = child;
+            ++fanout;
+        }
+    }
+
+    /**
+     * A container of key suffixes, kept sorted so lookups are a binary search.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class Container<V> {
+        private String[] suffixes = new String[4];
+        private Object[] values = new Object[4];
+        private int size;
+
+        /**
+         * Find the suffix of the key starting at <code>offset</code>.
+         *
+         * @return The index of the suffix if it exists, otherwise
+         *         <code>-(insertion point) - 1</code>.
+         */
+        int indexOf(CharSequence key, int offset) {
+            int low = 0;
+            int high = size - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(suffixes[mid], key, offset);
+
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        V value(int pos) {
+            return (V) values[pos];
+        }
+
+        void insertAt(int pos, String suffix, V value) {
+            if (size == suffixes.length) {
+                String[] newSuffixes = new String[size << 1];
+                Object[] newValues = new Object[size << 1];
+                System.arraycopy(suffixes, 0, newSuffixes, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                suffixes = newSuffixes;
+                values = newValues;
+            }
+            System.arraycopy(suffixes, pos, suffixes, pos + 1, size - pos);
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            suffixes[pos] = suffix;
+            values[pos] = value;
+            ++size;
+        }
+
+        /**
+         * Compare a stored suffix against the tail of a key without copying the key.
+         */
+        private static int compare(String suffix, CharSequence key, int offset) {
+            int len1 = suffix.length();
+            int len2 = key.length() - offset;
+            int n = Math.min(len1, len2);
+
+            for (int i = 0; i < n; ++i) {
+                char c1 = suffix.charAt(i);
+                char c2 = key.charAt(offset + i);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return len1 - len2;
+        }
+    }
+}
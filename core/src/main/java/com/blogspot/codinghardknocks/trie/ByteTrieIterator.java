@@ -0,0 +1,197 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * Lazily enumerates the keys of a {@link ByteTrieMap} within a range, in
+ * unsigned byte order.  The walk is a depth first search using an explicit
+ * stack, and the current key is kept in a single reused <code>byte[]</code>,
+ * so the only allocation per result is whatever
+ * {@link #emit(byte[], int, Object)} creates.
+ *
+ * <p>
+ * The walk starts by seeking down the path of the lower bound, so the keys
+ * before the range are skipped without being visited, and stops at the first
+ * key which is not below the upper bound.
+ * </p>
+ *
+ * @param <V> The type of value stored in the trie.
+ * @param <T> The type of result returned by the iterator.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+abstract class ByteTrieIterator<V, T> implements Iterator<T> {
+
+    private final byte[] to;
+    private ByteTrieNode<V>[] nodes;
+    private int[] next;
+    private byte[] buffer;
+    private int top;
+    private int remaining;
+    private T pending;
+
+    /**
+     * Constructor.
+     *
+     * @param root The root of the trie.
+     * @param from The inclusive lower bound, or <code>null</code> for none.
+     * @param to The exclusive upper bound, or <code>null</code> for none.
+     * @param limit The maximum number of results to return.
+     */
+    @SuppressWarnings("unchecked")
+    ByteTrieIterator(ByteTrieNode<V> root, byte[] from, byte[] to, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+
+        this.to = to;
+        int len = from == null ? 0 : from.length;
+        nodes = new ByteTrieNode[len + 16];
+        next = new int[len + 16];
+        buffer = new byte[len + 16];
+        remaining = limit;
+        if (limit == 0) {
+            top = -1;
+            return;
+        }
+
+        // Seek down the lower bound, leaving each node on the stack positioned
+        // at the first transition past the bound.
+        ByteTrieNode<V> node = root;
+        nodes[0] = root;
+        top = 0;
+        int i = 0;
+        while (i < len) {
+            int b = from[i] & 0xff;
+            int slot = node.ceilingSlot(b);
+            if (slot < 0 || node.label(slot) != b) {
+                next[top] = slot < 0 ? Integer.MAX_VALUE : slot;
+                break;
+            }
+            next[top] = slot + 1;
+            node = node.children[slot];
+            buffer[top++] = (byte) b;
+            nodes[top] = node;
+            ++i;
+        }
+
+        if (i == len) {
+            next[top] = 0;
+            if (node.accepting) {
+                pending = inRange(len) ? emit(buffer, len, node.value) : finish();
+                return;
+            }
+        }
+        pending = advance();
+    }
+
+    /**
+     * Create the result for an accepting node.
+     *
+     * @param key The buffer holding the key, only valid until this returns.
+     * @param length The length of the key.
+     * @param value The value associated with the key.
+     * @return The result.
+     */
+    abstract T emit(byte[] key, int length, V value);
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && top >= 0;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = pending;
+        if (--remaining > 0) {
+            pending = advance();
+        } else {
+            pending = null;
+        }
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Move to the next accepting node.
+     *
+     * @return The next result, if there is none <code>top</code> becomes <code>-1</code>.
+     */
+    private T advance() {
+        while (top >= 0) {
+            ByteTrieNode<V> node = nodes[top];
+            int slot = node.slotFrom(next[top]);
+            if (slot < 0) {
+                nodes[top--] = null;
+                continue;
+            }
+
+            next[top] = slot + 1;
+            ByteTrieNode<V> child = node.children[slot];
+            if (top + 1 == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+            buffer[top] = (byte) node.label(slot);
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top << 1);
+                next = Arrays.copyOf(next, top << 1);
+            }
+            nodes[top] = child;
+            next[top] = 0;
+
+            if (child.accepting) {
+                return inRange(top) ? emit(buffer, top, child.value) : finish();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check the key in the buffer against the upper bound.
+     *
+     * @param length The length of the key.
+     * @return <code>true</code> if the key is below the upper bound.
+     */
+    private boolean inRange(int length) {
+        return to == null || ByteTrieMap.compare(buffer, 0, length, to, 0, to.length) < 0;
+    }
+
+    /**
+     * End the iteration, the keys come in order so none of the remaining
+     * keys can be in range either.
+     *
+     * @return <code>null</code>.
+     */
+    private T finish() {
+        Arrays.fill(nodes, null);
+        top = -1;
+        return null;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements a <a href="http://en.wikipedia.org/wiki/Trie">Trie</a>
+ * which associates a sequence of bytes with a specific value.  It is intended
+ * for keys which arrive as encoded bytes, such as UTF-8 off the network, so a
+ * lookup can go straight from a <code>byte[]</code>, a slice of one, or a
+ * {@link ByteBuffer} (heap or direct) without decoding the key into a
+ * {@link String} first.  Transitions are stored in {@link ByteTrieNode}s,
+ * which switch from sorted arrays to a 256-way array as their fanout grows.
+ *
+ * <p>
+ * Bytes are compared as unsigned values, so keys are ordered
+ * lexicographically by unsigned byte.  For UTF-8 keys that is the same as the
+ * order of their code points, which lets a range over the encoded keys stand
+ * in for a range over the strings.  Note this differs from
+ * {@link String#compareTo(String)} for characters above U+FFFF, which Java
+ * orders by their UTF-16 surrogates.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class ByteTrieMap<V> {
+
+    private final ByteTrieNode<V> root;
+
+    /**
+     * Constructor.
+     */
+    public ByteTrieMap() {
+        root = new ByteTrieNode<V>();
+    }
+
+    public V addIfAbsent(byte[] key, V value) {
+        return addIfAbsent(key, 0, key.length, value);
+    }
+
+    /**
+     * Add a key held in part of an array, if it is not already present.
+     *
+     * @param key The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @param value The value to associate with the key.
+     * @return The value associated with the key after the call.
+     */
+    public V addIfAbsent(byte[] key, int offset, int length, V value) {
+        checkBounds(key, offset, length);
+        ByteTrieNode<V> curr = root;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            curr = curr.addIfAbsent(key[i] & 0xff);
+        }
+        if (!curr.accepting) {
+            curr.accepting = true;
+            curr.value = value;
+            adjustCounts(key, offset, length, 1);
+        }
+        return curr.value;
+    }
+
+    /**
+     * Add the remaining bytes of a buffer as a key, if it is not already
+     * present.  The buffer's position is not changed.
+     *
+     * @param key The buffer holding the key.
+     * @param value The value to associate with the key.
+     * @return The value associated with the key after the call.
+     */
+    public V addIfAbsent(ByteBuffer key, V value) {
+        if (key.hasArray()) {
+            return addIfAbsent(key.array(), key.arrayOffset() + key.position(), key.remaining(), value);
+        }
+        return addIfAbsent(toArray(key), value);
+    }
+
+    public V remove(byte[] key) {
+        return remove(key, 0, key.length);
+    }
+
+    /**
+     * Remove a key held in part of an array, pruning any nodes which no
+     * longer lead to a key.
+     *
+     * @param key The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(byte[] key, int offset, int length) {
+        ByteTrieNode<V> node = walk(key, offset, length);
+        if (node == null || !node.accepting) {
+            return null;
+        }
+
+        V value = node.value;
+        node.accepting = false;
+        node.value = null;
+        adjustCounts(key, offset, length, -1);
+
+        // Cut the path at the highest node which no longer leads to a key.
+        ByteTrieNode<V> curr = root;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            int b = key[i] & 0xff;
+            ByteTrieNode<V> child = curr.next(b);
+            if (child.count == 0) {
+                curr.remove(b);
+                break;
+            }
+            curr = child;
+        }
+        return value;
+    }
+
+    /**
+     * Remove the key held in the remaining bytes of a buffer.  The buffer's
+     * position is not changed.
+     *
+     * @param key The buffer holding the key.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(ByteBuffer key) {
+        if (key.hasArray()) {
+            return remove(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        }
+        return remove(toArray(key));
+    }
+
+    public void clear() {
+        root.clear();
+    }
+
+    public boolean contains(byte[] key) {
+        return contains(key, 0, key.length);
+    }
+
+    public boolean contains(byte[] key, int offset, int length) {
+        ByteTrieNode<V> node = walk(key, offset, length);
+        return (node != null && node.accepting);
+    }
+
+    public boolean contains(ByteBuffer key) {
+        ByteTrieNode<V> node = walk(key);
+        return (node != null && node.accepting);
+    }
+
+    public boolean isEmpty() {
+        return root.count == 0;
+    }
+
+    public V get(byte[] key) {
+        return get(key, 0, key.length);
+    }
+
+    /**
+     * Look up a key held in part of an array.
+     *
+     * @param key The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return The value associated with the key, or <code>null</code> if
+     *         there is none.
+     */
+    public V get(byte[] key, int offset, int length) {
+        ByteTrieNode<V> node = walk(key, offset, length);
+        return node != null && node.accepting ? node.value : null;
+    }
+
+    /**
+     * Look up the key held in the remaining bytes of a buffer, which may be a
+     * direct buffer.  The buffer's position is not changed, and nothing is
+     * copied or allocated.
+     *
+     * @param key The buffer holding the key.
+     * @return The value associated with the key, or <code>null</code> if
+     *         there is none.
+     */
+    public V get(ByteBuffer key) {
+        ByteTrieNode<V> node = walk(key);
+        return node != null && node.accepting ? node.value : null;
+    }
+
+    public int size() {
+        return root.count;
+    }
+
+    /**
+     * Returns the number of keys starting with the given prefix, in O(|prefix|).
+     *
+     * @param prefix The prefix of the keys to count.
+     * @return The number of keys starting with the prefix, including the prefix itself.
+     */
+    public int countWithPrefix(byte[] prefix) {
+        ByteTrieNode<V> node = walk(prefix, 0, prefix.length);
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * Lazily enumerate the keys starting with the given prefix, in unsigned
+     * byte order.  The trie must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The keys starting with the prefix.
+     */
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> keys starting with the given
+     * prefix, in unsigned byte order.  The trie must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of keys to return.
+     * @return The keys starting with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix, int limit) {
+        return new ByteTrieIterator<V, byte[]>(root, prefix, successor(prefix), limit) {
+            @Override
+            byte[] emit(byte[] key, int length, V value) {
+                return Arrays.copyOf(key, length);
+            }
+        };
+    }
+
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * unsigned byte order.  The trie must not be modified while the iterator
+     * is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<byte[], V>> entriesWithPrefix(byte[] prefix) {
+        return entriesInRange(prefix, successor(prefix));
+    }
+
+    /**
+     * Lazily enumerate the entries whose key is in the range
+     * <code>[from, to)</code>, in unsigned byte order.  The trie must not be
+     * modified while the iterator is in use.
+     *
+     * @param from The inclusive lower bound, or <code>null</code> to start at the smallest key.
+     * @param to The exclusive upper bound, or <code>null</code> to end at the largest key.
+     * @return The entries in the range.
+     */
+    public Iterator<Map.Entry<byte[], V>> entriesInRange(byte[] from, byte[] to) {
+        return new ByteTrieIterator<V, Map.Entry<byte[], V>>(root, from, to, Integer.MAX_VALUE) {
+            @Override
+            Map.Entry<byte[], V> emit(byte[] key, int length, V value) {
+                return new AbstractMap.SimpleImmutableEntry<byte[], V>(Arrays.copyOf(key, length), value);
+            }
+        };
+    }
+
+    /**
+     * Estimate the memory used by the nodes of the trie, not counting the values.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        Deque<ByteTrieNode<V>> stack = new ArrayDeque<ByteTrieNode<V>>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ByteTrieNode<V> node = stack.pop();
+            bytes += node.estimatedBytes();
+            for (int slot = node.slotFrom(0); slot >= 0; slot = node.slotFrom(slot + 1)) {
+                stack.push(node.children[slot]);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Compare two byte ranges lexicographically as unsigned bytes.
+     *
+     * @return A negative number, zero, or a positive number as the first range
+     *         is less than, equal to, or greater than the second.
+     */
+    static int compare(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        int len = Math.min(aLength, bLength);
+        for (int i = 0; i < len; ++i) {
+            int diff = (a[aOffset + i] & 0xff) - (b[bOffset + i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * Return the smallest key greater than every key starting with the prefix.
+     *
+     * @param prefix The prefix.
+     * @return The bound, or <code>null</code> if there is none because the
+     *         prefix is all <code>0xff</code> bytes.
+     */
+    private static byte[] successor(byte[] prefix) {
+        int i = prefix.length - 1;
+        while (i >= 0 && prefix[i] == (byte) 0xff) {
+            --i;
+        }
+        if (i < 0) {
+            return null;
+        }
+        byte[] bound = Arrays.copyOf(prefix, i + 1);
+        ++bound[i];
+        return bound;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static void checkBounds(byte[] key, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > key.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                + ", array length " + key.length);
+        }
+    }
+
+    private ByteTrieNode<V> walk(byte[] key, int offset, int length) {
+        checkBounds(key, offset, length);
+        ByteTrieNode<V> curr = root;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            curr = curr.next(key[i] & 0xff);
+            if (null == curr) {
+                return null;
+            }
+        }
+        return curr;
+    }
+
+    private ByteTrieNode<V> walk(ByteBuffer key) {
+        if (key.hasArray()) {
+            return walk(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        }
+        ByteTrieNode<V> curr = root;
+        for (int i = key.position(), end = key.limit(); i < end; ++i) {
+            curr = curr.next(key.get(i) & 0xff);
+            if (null == curr) {
+                return null;
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * Adjust the count of every node along the path of a key.
+     *
+     * @param delta The change in the number of keys.
+     */
+    private void adjustCounts(byte[] key, int offset, int length, int delta) {
+        ByteTrieNode<V> curr = root;
+        curr.count += delta;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            curr = curr.next(key[i] & 0xff);
+            curr.count += delta;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * A trie node specialized for unsigned <code>byte</code> transitions, with an
+ * adaptive layout.  A node with few transitions keeps them in a pair of
+ * parallel arrays sorted by unsigned label, like {@link CharTrieNode}.  Once
+ * the fanout reaches {@link #MAX_SPARSE} the labels are dropped and the
+ * children move to a 256 entry array indexed directly by the label, so a
+ * transition out of a wide node is a single array load.
+ *
+ * <p>
+ * The transitions are addressed by <em>slot</em>: the index into the sorted
+ * arrays for a sparse node, or the label itself for a dense one.  Slots
+ * increase with the label in both layouts, so walking the slots visits the
+ * children in unsigned byte order.
+ * </p>
+ *
+ * @param <V> The type of value associated with this node.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+final class ByteTrieNode<V> {
+
+    /** Initial capacity of the sparse transition arrays. */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** The fanout at which a node switches to the dense layout. */
+    static final int MAX_SPARSE = 48;
+
+    /** Size of the dense children array, one slot per byte value. */
+    private static final int DENSE = 256;
+
+    /** <code>true</code> if this node is the end of a key. */
+    boolean accepting;
+
+    /** The value associated with this node. */
+    V value;
+
+    /**
+     * Transition labels, sorted by unsigned value, only the first
+     * {@link #fanout} are valid.  <code>null</code> for a dense node.
+     */
+    byte[] labels;
+
+    /**
+     * Transition targets, parallel to {@link #labels} for a sparse node, or
+     * indexed by the unsigned label for a dense node.
+     */
+    ByteTrieNode<V>[] children;
+
+    /** The number of valid transitions. */
+    int fanout;
+
+    /** The number of accepting nodes in the subtree rooted at this node, including this node. */
+    int count;
+
+    /**
+     * Constructor.
+     */
+    ByteTrieNode() {
+    }
+
+    /**
+     * Check if the node uses the dense layout.
+     *
+     * @return <code>true</code> if the children are indexed by label.
+     */
+    boolean isDense() {
+        return children != null && labels == null;
+    }
+
+    /**
+     * Find the slot of the given sparse label.
+     *
+     * @param b The unsigned label to search for.
+     * @return The index of the label if it exists, otherwise
+     *         <code>-(insertion point) - 1</code>.
+     */
+    private int indexOf(int b) {
+        byte[] keys = labels;
+        int low = 0;
+        int high = fanout - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midVal = keys[mid] & 0xff;
+
+            if (midVal < b) {
+                low = mid + 1;
+            } else if (midVal > b) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Return the next node.
+     *
+     * @param b The unsigned input to pick the next state.
+     * @return The next node, or <code>null</code> if no such transition exists.
+     */
+    ByteTrieNode<V> next(int b) {
+        if (fanout == 0) {
+            return null;
+        }
+        if (labels == null) {
+            return children[b];
+        }
+        int idx = indexOf(b);
+        return idx >= 0 ? children[idx] : null;
+    }
+
+    /**
+     * Add the transition for the given input if it does not already exist.
+     *
+     * @param b The unsigned input to add the transition for.
+     * @return The node associated with the transition.
+     */
+    @SuppressWarnings("unchecked")
+    ByteTrieNode<V> addIfAbsent(int b) {
+        if (isDense()) {
+            ByteTrieNode<V> node = children[b];
+            if (node == null) {
+                node = new ByteTrieNode<V>();
+                children[b] = node;
+                ++fanout;
+            }
+            return node;
+        }
+
+        int idx = fanout == 0 ? -1 : indexOf(b);
+        if (idx >= 0) {
+            return children[idx];
+        }
+
+        ByteTrieNode<V> node = new ByteTrieNode<V>();
+        if (fanout == MAX_SPARSE) {
+            ByteTrieNode<V>[] dense = new ByteTrieNode[DENSE];
+            for (int i = 0; i < fanout; ++i) {
+                dense[labels[i] & 0xff] = children[i];
+            }
+            dense[b] = node;
+            labels = null;
+            children = dense;
+            ++fanout;
+            return node;
+        }
+
+        int pos = -(idx + 1);
+        if (labels == null) {
+            labels = new byte[INITIAL_CAPACITY];
+            children = new ByteTrieNode[INITIAL_CAPACITY];
+        } else if (fanout == labels.length) {
+            int capacity = Math.min(fanout << 1, MAX_SPARSE);
+            byte[] newLabels = new byte[capacity];
+            ByteTrieNode<V>[] newChildren = new ByteTrieNode[capacity];
+            System.arraycopy(labels, 0, newLabels, 0, fanout);
+            System.arraycopy(children, 0, newChildren, 0, fanout);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        int moved = fanout - pos;
+        if (moved > 0) {
+            System.arraycopy(labels, pos, labels, pos + 1, moved);
+            System.arraycopy(children, pos, children, pos + 1, moved);
+        }
+        labels[pos] = (byte) b;
+        children[pos] = node;
+        ++fanout;
+        return node;
+    }
+
+    /**
+     * Remove the transition for the given input, switching back to the sparse
+     * layout once a dense node is half empty, and shrinking the sparse arrays
+     * if they are mostly empty.
+     *
+     * @param b The unsigned input of the transition, which must exist.
+     */
+    @SuppressWarnings("unchecked")
+    void remove(int b) {
+        int pos = labels != null ? indexOf(b) : b;
+        --fanout;
+        if (fanout == 0) {
+            labels = null;
+            children = null;
+            return;
+        }
+
+        if (labels == null) {
+            children[b] = null;
+            if (fanout <= MAX_SPARSE / 2) {
+                byte[] newLabels = new byte[MAX_SPARSE / 2];
+                ByteTrieNode<V>[] newChildren = new ByteTrieNode[MAX_SPARSE / 2];
+                int j = 0;
+                for (int i = 0; i < DENSE; ++i) {
+                    if (children[i] != null) {
+                        newLabels[j] = (byte) i;
+                        newChildren[j++] = children[i];
+                    }
+                }
+                labels = newLabels;
+                children = newChildren;
+            }
+            return;
+        }
+
+        int moved = fanout - pos;
+        if (fanout <= labels.length >> 2 && labels.length > INITIAL_CAPACITY) {
+            int capacity = Math.max(INITIAL_CAPACITY, fanout << 1);
+            byte[] newLabels = new byte[capacity];
+            ByteTrieNode<V>[] newChildren = new ByteTrieNode[capacity];
+            System.arraycopy(labels, 0, newLabels, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            System.arraycopy(labels, pos + 1, newLabels, pos, moved);
+            System.arraycopy(children, pos + 1, newChildren, pos, moved);
+            labels = newLabels;
+            children = newChildren;
+            return;
+        }
+
+        System.arraycopy(labels, pos + 1, labels, pos, moved);
+        System.arraycopy(children, pos + 1, children, pos, moved);
+        children[fanout] = null;
+    }
+
+    /**
+     * Find the first slot at or after the given slot which holds a transition.
+     *
+     * @param slot The slot to start from.
+     * @return The slot, or <code>-1</code> if there are no more transitions.
+     */
+    int slotFrom(int slot) {
+        if (labels != null) {
+            return slot < fanout ? slot : -1;
+        }
+        if (children != null) {
+            for (int i = slot; i < DENSE; ++i) {
+                if (children[i] != null) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the slot of the smallest label greater than or equal to the given
+     * label.
+     *
+     * @param b The unsigned label.
+     * @return The slot, or <code>-1</code> if every label is smaller.
+     */
+    int ceilingSlot(int b) {
+        if (labels != null) {
+            int idx = indexOf(b);
+            if (idx < 0) {
+                idx = -(idx + 1);
+            }
+            return idx < fanout ? idx : -1;
+        }
+        return slotFrom(b);
+    }
+
+    /**
+     * Return the unsigned label of a slot holding a transition.
+     *
+     * @param slot The slot.
+     * @return The label.
+     */
+    int label(int slot) {
+        return labels != null ? labels[slot] & 0xff : slot;
+    }
+
+    /**
+     * Estimate the memory used by this node, not counting the children or the value.
+     *
+     * @return The estimated size in bytes.
+     */
+    long estimatedBytes() {
+        long size = MemoryEstimator.object(3, 9);
+        if (labels != null) {
+            size += MemoryEstimator.array(labels.length, 1);
+        }
+        if (children != null) {
+            size += MemoryEstimator.array(children.length, MemoryEstimator.REFERENCE);
+        }
+        return size;
+    }
+
+    /**
+     * Remove all children and reset the state of this node.
+     */
+    void clear() {
+        accepting = false;
+        value = null;
+        labels = null;
+        children = null;
+        fanout = 0;
+        count = 0;
+    }
+}
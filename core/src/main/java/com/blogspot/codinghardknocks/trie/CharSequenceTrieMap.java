@@ -16,6 +16,8 @@
 package com.blogspot.codinghardknocks.trie;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 
@@ -24,6 +26,8 @@ import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
  * Class implements a <a href="http://en.wikipedia.org/wiki/Trie">Trie</a>
  * which associates a {@link CharSequence} with a specific value.  It is expected to primarily
  * be used with {@link String} objects, but only uses the {@link CharSequence} interface.
+ * The nodes are {@link CharTrieNode}s, so walking a key neither boxes a character nor
+ * allocates an iterator, and {@link #cursor()} walks a key incrementally.
  *
  * @param <V> The type contained by the Trie.
  * @author kbohling
@@ -33,18 +37,29 @@ import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 public class CharSequenceTrieMap<V> {
 
 
-    /** The internal HashTrieMap used to implement Tries. */
-    private final AbstractTrieMap<Character, V> charTrie;
+    /** The trie of primitive char transitions used to implement this trie. */
+    private final StringTrieMap<V> charTrie;
 
     /**
      * Constructor.
      */
     public CharSequenceTrieMap() {
-        charTrie = new SortedMapTrieMap<Character, V>();
+        charTrie = new StringTrieMap<V>();
     }
 
     public V addIfAbsent(CharSequence keys, V value) {
-        return charTrie.addIfAbsent(iterator(keys), value);
+        return charTrie.addIfAbsent(keys, value);
+    }
+
+    /**
+     * Remove the key, pruning any nodes which no longer lead to a key.
+     *
+     * @param keys The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(CharSequence keys) {
+        return charTrie.remove(keys);
     }
 
     public void clear() {
@@ -52,7 +67,7 @@ public class CharSequenceTrieMap<V> {
     }
 
     public boolean contains(CharSequence keys) {
-        return charTrie.contains(iterator(keys));
+        return charTrie.contains(keys);
     }
 
     public boolean isEmpty() {
@@ -64,34 +79,172 @@ public class CharSequenceTrieMap<V> {
     }
 
     public V get(CharSequence keys, V defaultValue) {
-        return charTrie.get(iterator(keys), defaultValue);
+        return charTrie.get(keys, defaultValue);
     }
 
     public int size() {
         return charTrie.size();
     }
 
-    private static Iterator<Character> iterator(final CharSequence input) {
-        return new Iterator<Character>() {
-            int currIndex = 0;
+    /**
+     * Returns the number of keys starting with the given prefix, in O(|prefix|).
+     *
+     * @param prefix The prefix of the keys to count.
+     * @return The number of keys starting with the prefix, including the prefix itself.
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        return charTrie.countWithPrefix(prefix);
+    }
+
+    /**
+     * Returns the number of keys which sort before the given key.  The key does
+     * not need to be in the trie.
+     *
+     * @param key The key to rank.
+     * @return The number of keys less than <code>key</code>, which is the
+     *         index of <code>key</code> in sorted order if it is present.
+     */
+    public int rank(CharSequence key) {
+        return charTrie.rank(key);
+    }
+
+    /**
+     * Returns the key at the given position in sorted order.
+     *
+     * @param index The position of the key, starting from zero.
+     * @return The key, <code>rank(select(index)) == index</code>.
+     * @throws IndexOutOfBoundsException If the index is negative or not less
+     *         than {@link #size()}.
+     */
+    public String select(int index) {
+        return charTrie.select(index);
+    }
+
+    /**
+     * Lazily enumerate the keys starting with the given prefix, in ascending
+     * order.  The trie must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The keys starting with the prefix.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> keys starting with the given
+     * prefix, in ascending order.  The trie must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of keys to return.
+     * @return The keys starting with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix, int limit) {
+        return charTrie.keysWithPrefix(prefix, limit);
+    }
+
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * ascending key order.  The trie must not be modified while the iterator
+     * is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix) {
+        return entriesWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> entries whose key starts with
+     * the given prefix, in ascending key order.  The trie must not be modified
+     * while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of entries to return.
+     * @return The entries whose key starts with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix, int limit) {
+        return charTrie.entriesWithPrefix(prefix, limit);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return currIndex < input.length();
-            }
+    /**
+     * Create a cursor positioned at the root of this trie, which walks keys
+     * one character at a time without allocating.
+     *
+     * @return A new cursor.
+     */
+    public CharTrieCursor<V> cursor() {
+        return charTrie.cursor();
+    }
 
-            @Override
-            public Character next() {
-                Character next = input.charAt(currIndex);
-                ++currIndex;
-                return next;
-            }
+    /**
+     * Gather statistics about the shape and estimated size of this trie.  This
+     * walks every node, so it is O(nodes).
+     *
+     * @return The statistics.
+     */
+    public TrieStatistics statistics() {
+        return charTrie.statistics();
+    }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
+    /**
+     * Find every key within the given edit distance of the query.
+     *
+     * @param query The query to compare the keys against.
+     * @param maxDistance The largest Levenshtein distance to return.
+     * @return The matches, ordered by distance and then by key.
+     * @throws IllegalArgumentException If the distance is negative.
+     */
+    public List<FuzzyMatch<V>> fuzzySearch(CharSequence query, int maxDistance) {
+        return fuzzySearch(query, maxDistance, Integer.MAX_VALUE);
     }
 
+    /**
+     * Find the <code>limit</code> keys closest to the query, within the given
+     * edit distance.  Ties are broken by key, and the search stops exploring
+     * a branch once it cannot improve on the matches already found.
+     *
+     * @param query The query to compare the keys against.
+     * @param maxDistance The largest Levenshtein distance to return.
+     * @param limit The maximum number of matches to return.
+     * @return The matches, ordered by distance and then by key.
+     * @throws IllegalArgumentException If the distance or limit is negative.
+     */
+    public List<FuzzyMatch<V>> fuzzySearch(CharSequence query, int maxDistance, int limit) {
+        return charTrie.fuzzySearch(query, maxDistance, limit);
+    }
+
+    /**
+     * Compile the current contents into an immutable {@link DoubleArrayTrieMap}.
+     * Later changes to this trie are not reflected in the result.
+     *
+     * @return The compiled read-only trie.
+     */
+    public DoubleArrayTrieMap<V> freeze() {
+        return charTrie.freeze();
+    }
+
+    /**
+     * Compile the current keys into an {@link AhoCorasickMatcher}, which finds
+     * every occurrence of the keys in a text.  Later changes to this trie are
+     * not reflected in the result.
+     *
+     * @return The compiled matcher.
+     */
+    public AhoCorasickMatcher<V> compileMatcher() {
+        return charTrie.compileMatcher();
+    }
+
+    /**
+     * Getter for a read-only view of the root node.
+     *
+     * @return The view of the root node.
+     */
+    CharTrieView<V> rootView() {
+        return charTrie.rootView();
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+/**
+ * A reusable position inside a trie of <code>char</code> keys, which walks a
+ * key one character at a time without boxing or allocating.  A cursor can be
+ * kept at a prefix and extended later rather than walking the prefix again
+ * from the root, for example as a user types one character after another.
+ *
+ * <p>
+ * Adding keys to the trie leaves a cursor valid.  Removing keys can prune the
+ * nodes the cursor is on, so the cursor must be {@link #reset()} after a
+ * removal.
+ * </p>
+ *
+ * @param <V> The value associated with a key.
+ *
+ * @author kbohling
+ */
+public interface CharTrieCursor<V> {
+
+    /**
+     * Follow the transition for the given character.
+     *
+     * @param c The next character of the key.
+     * @return <code>true</code> if the transition exists, <code>false</code>
+     *         if it does not, in which case the cursor does not move.
+     */
+    boolean advance(char c);
+
+    /**
+     * Follow the transitions for every character of the sequence.
+     *
+     * @param chars The next characters of the key.
+     * @return <code>true</code> if every transition exists, <code>false</code>
+     *         if one does not, in which case the cursor does not move.
+     */
+    boolean advance(CharSequence chars);
+
+    /**
+     * Undo the last character followed.
+     *
+     * @return <code>true</code> if the cursor moved back, <code>false</code>
+     *         if it is already at the root.
+     */
+    boolean retreat();
+
+    /**
+     * Move the cursor back to the root.
+     */
+    void reset();
+
+    /**
+     * Getter for the number of characters followed from the root.
+     *
+     * @return The length of the key leading to the cursor.
+     */
+    int depth();
+
+    /**
+     * Check if the key leading to the cursor is in the trie.
+     *
+     * @return <code>true</code> if the cursor is on an accepting node.
+     */
+    boolean isAccepting();
+
+    /**
+     * Getter for the value associated with the key leading to the cursor.
+     *
+     * @return The value, or <code>null</code> if the node is not accepting.
+     */
+    V value();
+
+    /**
+     * Count the keys starting with the one leading to the cursor.
+     *
+     * @return The number of keys, including the one leading to the cursor.
+     */
+    int count();
+}
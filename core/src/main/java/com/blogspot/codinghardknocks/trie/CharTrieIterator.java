@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * Lazily enumerates the accepting nodes below a {@link CharTrieNode} in key
+ * order.  The walk is a depth first search using an explicit stack, and the
+ * current key is kept in a single reused <code>char[]</code>, so the only
+ * allocation per result is whatever {@link #emit(char[], int, Object)} creates.
+ *
+ * @param <V> The type of value stored in the trie.
+ * @param <T> The type of result returned by the iterator.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+abstract class CharTrieIterator<V, T> implements Iterator<T> {
+
+    private final int prefixLength;
+    private CharTrieNode<V>[] nodes;
+    private int[] next;
+    private char[] buffer;
+    private int top;
+    private int remaining;
+    private T pending;
+
+    /**
+     * Constructor.
+     *
+     * @param start The node reached by the prefix, can be <code>null</code>.
+     * @param prefix The prefix leading to <code>start</code>.
+     * @param limit The maximum number of results to return.
+     */
+    @SuppressWarnings("unchecked")
+    CharTrieIterator(CharTrieNode<V> start, CharSequence prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+
+        prefixLength = prefix.length();
+        nodes = new CharTrieNode[16];
+        next = new int[16];
+        buffer = new char[prefixLength + 16];
+        for (int i = 0; i < prefixLength; ++i) {
+            buffer[i] = prefix.charAt(i);
+        }
+        remaining = limit;
+
+        if (start == null || limit == 0) {
+            top = -1;
+            return;
+        }
+        nodes[0] = start;
+        pending = start.accepting ? emit(buffer, prefixLength, start.value) : advance();
+    }
+
+    /**
+     * Create the result for an accepting node.
+     *
+     * @param key The buffer holding the key, only valid until this returns.
+     * @param length The length of the key.
+     * @param value The value associated with the key.
+     * @return The result.
+     */
+    abstract T emit(char[] key, int length, V value);
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && top >= 0;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = pending;
+        if (--remaining > 0) {
+            pending = advance();
+        } else {
+            pending = null;
+        }
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Move to the next accepting node.
+     *
+     * @return The next result, if there is none <code>top</code> becomes <code>-1</code>.
+     */
+    private T advance() {
+        while (top >= 0) {
+            CharTrieNode<V> node = nodes[top];
+            int i = next[top];
+            if (i == node.fanout) {
+                nodes[top--] = null;
+                continue;
+            }
+
+            next[top] = i + 1;
+            CharTrieNode<V> child = node.children[i];
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top << 1);
+                next = Arrays.copyOf(next, top << 1);
+            }
+            if (prefixLength + top > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+            buffer[prefixLength + top - 1] = node.labels[i];
+            nodes[top] = child;
+            next[top] = 0;
+
+            if (child.accepting) {
+                return emit(buffer, prefixLength + top, child.value);
+            }
+        }
+        return null;
+    }
+}
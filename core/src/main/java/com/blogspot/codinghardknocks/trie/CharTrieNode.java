@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * A trie node specialized for <code>char</code> transitions.  The transitions
+ * are kept in a pair of parallel arrays, sorted by label, so a transition is a
+ * binary search over a <code>char[]</code> rather than a lookup in a
+ * <code>SortedMap&lt;Character, Node&gt;</code>.  No transition ever boxes
+ * a <code>char</code> or allocates a map entry.  The arrays are managed by
+ * {@link AbstractCharTrieNode}.
+ *
+ * @param <V> The type of value associated with this node.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+final class CharTrieNode<V> extends AbstractCharTrieNode<V, CharTrieNode<V>> {
+
+    /** The number of accepting nodes in the subtree rooted at this node, including this node. */
+    int count;
+
+    /**
+     * Constructor.
+     */
+    CharTrieNode() {
+    }
+
+    @Override
+    CharTrieNode<V> newNode() {
+        return new CharTrieNode<V>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    CharTrieNode<V>[] newChildren(int capacity) {
+        return new CharTrieNode[capacity];
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return MemoryEstimator.object(3, 9) + transitionBytes();
+    }
+
+    /**
+     * Remove all children and reset the state of this node.
+     */
+    @Override
+    void clear() {
+        super.clear();
+        count = 0;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * A {@link CharTrieCursor} over {@link CharTrieNode}s.  The path from the root
+ * is kept in an array which only grows, so once it is as deep as the longest
+ * key stepping the cursor never allocates.
+ *
+ * @param <V> The value associated with a key.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+final class CharTrieNodeCursor<V> implements CharTrieCursor<V> {
+
+    private CharTrieNode<V>[] path;
+    private int depth;
+
+    /**
+     * Constructor.
+     *
+     * @param root The root of the trie.
+     */
+    @SuppressWarnings("unchecked")
+    CharTrieNodeCursor(CharTrieNode<V> root) {
+        path = new CharTrieNode[16];
+        path[0] = root;
+    }
+
+    @Override
+    public boolean advance(char c) {
+        CharTrieNode<V> next = path[depth].next(c);
+        if (next == null) {
+            return false;
+        }
+        push(next);
+        return true;
+    }
+
+    @Override
+    public boolean advance(CharSequence chars) {
+        int start = depth;
+        int len = chars.length();
+        for (int i = 0; i < len; ++i) {
+            CharTrieNode<V> next = path[depth].next(chars.charAt(i));
+            if (next == null) {
+                while (depth > start) {
+                    path[depth--] = null;
+                }
+                return false;
+            }
+            push(next);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean retreat() {
+        if (depth == 0) {
+            return false;
+        }
+        path[depth--] = null;
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        while (depth > 0) {
+            path[depth--] = null;
+        }
+    }
+
+    @Override
+    public int depth() {
+        return depth;
+    }
+
+    @Override
+    public boolean isAccepting() {
+        return path[depth].accepting;
+    }
+
+    @Override
+    public V value() {
+        return path[depth].value;
+    }
+
+    @Override
+    public int count() {
+        return path[depth].count;
+    }
+
+    private void push(CharTrieNode<V> node) {
+        if (++depth == path.length) {
+            path = Arrays.copyOf(path, depth << 1);
+        }
+        path[depth] = node;
+    }
+}
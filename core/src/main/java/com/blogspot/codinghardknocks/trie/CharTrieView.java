@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+/**
+ * A read-only view of a node in a trie keyed by <code>char</code> transitions.
+ * This is used by the compile steps which translate a populated trie into a
+ * different representation, so they can work from any of the char based tries.
+ *
+ * @param <V> The type of value associated with the node.
+ *
+ * @author kbohling
+ */
+interface CharTrieView<V> {
+
+    /**
+     * Getter to check if the node is an accepting state.
+     *
+     * @return <code>true</code> if the node is accepting, <code>false</code>
+     *         otherwise.
+     */
+    boolean isAccepting();
+
+    /**
+     * Getter for the current value.
+     *
+     * @return The value associated with this node.
+     */
+    V value();
+
+    /**
+     * Return the number of transitions out of this node.
+     *
+     * @return The number of transitions.
+     */
+    int fanout();
+
+    /**
+     * Return the label of a transition, labels are in ascending order.
+     *
+     * @param index The index of the transition, must be less than {@link #fanout()}.
+     * @return The label of the transition.
+     */
+    char label(int index);
+
+    /**
+     * Return the target of a transition.
+     *
+     * @param index The index of the transition, must be less than {@link #fanout()}.
+     * @return The node the transition leads to.
+     */
+    CharTrieView<V> child(int index);
+
+    /**
+     * Estimate the heap used by this node, excluding the children and the value.
+     *
+     * @return The estimated number of bytes.
+     */
+    long estimatedBytes();
+}
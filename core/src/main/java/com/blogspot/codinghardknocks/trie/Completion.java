@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * A key returned by a top-k search, along with its value and score.
+ *
+ * @param <V> The type of value associated with the key.
+ *
+ * @author kbohling
+ */
+@ThreadSafe
+public final class Completion<V> {
+
+    private final String key;
+    private final V value;
+    private final double score;
+
+    /**
+     * Constructor.
+     *
+     * @param key The completed key.
+     * @param value The value associated with the key.
+     * @param score The score of the key.
+     */
+    Completion(String key, V value, double score) {
+        this.key = key;
+        this.value = value;
+        this.score = score;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public V value() {
+        return value;
+    }
+
+    public double score() {
+        return score;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Completion)) {
+            return false;
+        }
+        Completion<?> other = (Completion<?>) obj;
+        return Double.compare(score, other.score) == 0 && key.equals(other.key)
+            && (value == null ? other.value == null : value.equals(other.value));
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(score);
+        return (key.hashCode() * 31 + (int) (bits ^ (bits >>> 32))) * 31 + (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + value + " (" + score + ")";
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * A lock-free trie which associates a {@link CharSequence} with a value, the
+ * <code>char</code> specialized counterpart of {@link ConcurrentTrieMap}.
+ * Transitions are kept in sorted <code>char[]</code> arrays and found by
+ * binary search, and keys are read directly from the {@link CharSequence},
+ * so no operation boxes a character.
+ *
+ * <p>
+ * Lookups never block or retry, {@link #addIfAbsent(CharSequence, Object)}
+ * is linearizable, and {@link #snapshot()} is O(1).  {@link #size()} and
+ * {@link #isEmpty()} walk a read-only snapshot, so they are O(n) and reflect
+ * a single point in time.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public class ConcurrentCharSequenceTrieMap<V> extends AbstractConcurrentTrie<CharSequence, V> {
+
+    private static final char[] NO_LABELS = new char[0];
+
+    /**
+     * Constructor.
+     */
+    public ConcurrentCharSequenceTrieMap() {
+        this(new INode<V>(new Generation(), ConcurrentCharSequenceTrieMap.<V>empty()), false);
+    }
+
+    private ConcurrentCharSequenceTrieMap(INode<V> root, boolean readOnly) {
+        super(root, readOnly);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> MainNode<V> empty() {
+        return new CharNode<V>(false, null, NO_LABELS, new INode[0]);
+    }
+
+    public V addIfAbsent(CharSequence keys, V value) {
+        return insert(keys, value);
+    }
+
+    /**
+     * Remove the key, pruning any nodes which no longer lead to a key.
+     *
+     * @param keys The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(CharSequence keys) {
+        return delete(keys);
+    }
+
+    public void clear() {
+        removeAll();
+    }
+
+    public boolean contains(CharSequence keys) {
+        MainNode<V> node = lookup(keys);
+        return node != null && node.accepting;
+    }
+
+    public boolean isEmpty() {
+        return count(1) == 0;
+    }
+
+    public V get(CharSequence keys) {
+        return get(keys, null);
+    }
+
+    public V get(CharSequence keys, V defaultValue) {
+        MainNode<V> node = lookup(keys);
+        if (node != null && node.accepting) {
+            return node.value;
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return count(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Check if this trie is a read-only snapshot.
+     *
+     * @return <code>true</code> if updates are not allowed.
+     */
+    public boolean isReadOnly() {
+        return readOnly();
+    }
+
+    /**
+     * Take a snapshot of this trie in O(1).  The snapshot and this trie can
+     * both be updated afterwards without affecting each other.
+     *
+     * @return The snapshot.
+     */
+    public ConcurrentCharSequenceTrieMap<V> snapshot() {
+        return new ConcurrentCharSequenceTrieMap<V>(snapshotRoot(), false);
+    }
+
+    /**
+     * Take a read-only snapshot of this trie in O(1), which is cheaper for
+     * the writers of this trie than {@link #snapshot()}.
+     *
+     * @return The snapshot, whose update methods throw
+     *         {@link UnsupportedOperationException}.
+     */
+    public ConcurrentCharSequenceTrieMap<V> readOnlySnapshot() {
+        return new ConcurrentCharSequenceTrieMap<V>(readOnlyRoot(), true);
+    }
+
+    @Override
+    MainNode<V> emptyNode() {
+        return ConcurrentCharSequenceTrieMap.<V>empty();
+    }
+
+    @Override
+    int length(CharSequence keys) {
+        return keys.length();
+    }
+
+    @Override
+    int indexOf(MainNode<V> node, CharSequence keys, int depth) {
+        char[] labels = ((CharNode<V>) node).labels;
+        char c = keys.charAt(depth);
+        int low = 0;
+        int high = labels.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midVal = labels[mid];
+
+            if (midVal < c) {
+                low = mid + 1;
+            } else if (midVal > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    MainNode<V> withChild(MainNode<V> node, int pos, CharSequence keys, int depth, INode<V> child) {
+        char[] labels = ((CharNode<V>) node).labels;
+        int len = labels.length;
+
+        char[] newLabels = new char[len + 1];
+        System.arraycopy(labels, 0, newLabels, 0, pos);
+        System.arraycopy(labels, pos, newLabels, pos + 1, len - pos);
+        newLabels[pos] = keys.charAt(depth);
+
+        @SuppressWarnings("unchecked")
+        INode<V>[] newChildren = new INode[len + 1];
+        System.arraycopy(node.children, 0, newChildren, 0, pos);
+        System.arraycopy(node.children, pos, newChildren, pos + 1, len - pos);
+        newChildren[pos] = child;
+        return new CharNode<V>(node.accepting, node.value, newLabels, newChildren);
+    }
+
+    @Override
+    MainNode<V> withoutChild(MainNode<V> node, int pos) {
+        char[] labels = ((CharNode<V>) node).labels;
+        int len = labels.length - 1;
+
+        char[] newLabels = len == 0 ? NO_LABELS : new char[len];
+        System.arraycopy(labels, 0, newLabels, 0, pos);
+        System.arraycopy(labels, pos + 1, newLabels, pos, len - pos);
+
+        @SuppressWarnings("unchecked")
+        INode<V>[] newChildren = new INode[len];
+        System.arraycopy(node.children, 0, newChildren, 0, pos);
+        System.arraycopy(node.children, pos + 1, newChildren, pos, len - pos);
+        return new CharNode<V>(node.accepting, node.value, newLabels, newChildren);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    MainNode<V> singleton(boolean accepting, V value, CharSequence keys, int depth, INode<V> child) {
+        if (child == null) {
+            return new CharNode<V>(accepting, value, NO_LABELS, new INode[0]);
+        }
+        return new CharNode<V>(accepting, value, new char[] {keys.charAt(depth)}, new INode[] {child});
+    }
+
+    /**
+     * A main node whose transitions are characters, kept sorted.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class CharNode<V> extends MainNode<V> {
+        final char[] labels;
+
+        CharNode(boolean accepting, V value, char[] labels, INode<V>[] children) {
+            super(accepting, value, children);
+            this.labels = labels;
+        }
+
+        @Override
+        MainNode<V> withValue(boolean accepting, V value) {
+            return new CharNode<V>(accepting, value, labels, children);
+        }
+
+        @Override
+        MainNode<V> withChildren(INode<V>[] children) {
+            return new CharNode<V>(accepting, value, labels, children);
+        }
+    }
+}
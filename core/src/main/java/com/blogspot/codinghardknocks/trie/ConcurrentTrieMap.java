@@ -0,0 +1,369 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * A lock-free {@link TrieMap} based on the
+ * <a href="http://lampwww.epfl.ch/~prokopec/ctries-snapshot.pdf">Ctrie</a> design.
+ * Lookups never block or retry, {@link #addIfAbsent(Iterator, Object)} is
+ * linearizable, and {@link #snapshot()} is O(1).
+ *
+ * <p>
+ * Each node keeps its transitions in an immutable array which is searched
+ * linearly with {@link Object#equals(Object)}, so this suits the small
+ * fanouts typical of tries.  {@link #size()}, {@link #isEmpty()} and
+ * {@link #countWithPrefix(Iterator)} walk a read-only snapshot, so they are
+ * O(n) and reflect a single point in time.
+ * The prefix iterators also walk a read-only snapshot, so unlike the other
+ * tries they may be used while the trie is being modified.
+ * </p>
+ *
+ * @param <K> The key type.
+ * @param <V> The value associated with a key sequence.
+ *
+ * @author kbohling
+ */
+@ThreadSafe
+public class ConcurrentTrieMap<K, V> extends AbstractConcurrentTrie<List<K>, V> implements TrieMap<K, V> {
+
+    private static final Object[] NO_KEYS = new Object[0];
+
+    /**
+     * Constructor.
+     */
+    public ConcurrentTrieMap() {
+        this(new INode<V>(new Generation(), new KeyNode<V>(false, null, NO_KEYS,
+                ConcurrentTrieMap.<V>noChildren())), false);
+    }
+
+    private ConcurrentTrieMap(INode<V> root, boolean readOnly) {
+        super(root, readOnly);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> INode<V>[] noChildren() {
+        return new INode[0];
+    }
+
+    @Override
+    public V addIfAbsent(Iterator<K> keys, V value) {
+        return insert(toList(keys), value);
+    }
+
+    @Override
+    public V remove(Iterator<K> keys) {
+        return delete(toList(keys));
+    }
+
+    @Override
+    public void clear() {
+        removeAll();
+    }
+
+    @Override
+    public boolean contains(Iterator<K> keys) {
+        MainNode<V> node = lookup(toList(keys));
+        return node != null && node.accepting;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count(1) == 0;
+    }
+
+    @Override
+    public V get(Iterator<K> keys) {
+        return get(keys, null);
+    }
+
+    @Override
+    public V get(Iterator<K> keys, V defaultValue) {
+        MainNode<V> node = lookup(toList(keys));
+        if (node != null && node.accepting) {
+            return node.value;
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int size() {
+        return count(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int countWithPrefix(Iterator<K> prefix) {
+        return countWithPrefix(toList(prefix));
+    }
+
+    @Override
+    public Iterator<List<K>> keysWithPrefix(Iterator<K> prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<List<K>> keysWithPrefix(Iterator<K> prefix, int limit) {
+        return readOnlyView().new PrefixIterator<List<K>>(toList(prefix), limit) {
+            @Override
+            List<K> emit(List<K> keys, V value) {
+                return new ArrayList<K>(keys);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Map.Entry<List<K>, V>> entriesWithPrefix(Iterator<K> prefix) {
+        return entriesWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<Map.Entry<List<K>, V>> entriesWithPrefix(Iterator<K> prefix, int limit) {
+        return readOnlyView().new PrefixIterator<Map.Entry<List<K>, V>>(toList(prefix), limit) {
+            @Override
+            Map.Entry<List<K>, V> emit(List<K> keys, V value) {
+                return new AbstractMap.SimpleImmutableEntry<List<K>, V>(new ArrayList<K>(keys), value);
+            }
+        };
+    }
+
+    /**
+     * Check if this trie is a read-only snapshot.
+     *
+     * @return <code>true</code> if updates are not allowed.
+     */
+    public boolean isReadOnly() {
+        return readOnly();
+    }
+
+    /**
+     * Take a snapshot of this trie in O(1).  The snapshot and this trie can
+     * both be updated afterwards without affecting each other.
+     *
+     * @return The snapshot.
+     */
+    public ConcurrentTrieMap<K, V> snapshot() {
+        return new ConcurrentTrieMap<K, V>(snapshotRoot(), false);
+    }
+
+    /**
+     * Take a read-only snapshot of this trie in O(1), which is cheaper for
+     * the writers of this trie than {@link #snapshot()}.
+     *
+     * @return The snapshot, whose update methods throw
+     *         {@link UnsupportedOperationException}.
+     */
+    public ConcurrentTrieMap<K, V> readOnlySnapshot() {
+        return new ConcurrentTrieMap<K, V>(readOnlyRoot(), true);
+    }
+
+    private ConcurrentTrieMap<K, V> readOnlyView() {
+        return isReadOnly() ? this : readOnlySnapshot();
+    }
+
+    @Override
+    MainNode<V> emptyNode() {
+        return new KeyNode<V>(false, null, NO_KEYS, ConcurrentTrieMap.<V>noChildren());
+    }
+
+    @Override
+    int length(List<K> keys) {
+        return keys.size();
+    }
+
+    @Override
+    int indexOf(MainNode<V> node, List<K> keys, int depth) {
+        Object[] nodeKeys = ((KeyNode<V>) node).keys;
+        Object key = keys.get(depth);
+        for (int i = 0; i < nodeKeys.length; ++i) {
+            if (nodeKeys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -(nodeKeys.length + 1);
+    }
+
+    @Override
+    MainNode<V> withChild(MainNode<V> node, int pos, List<K> keys, int depth, INode<V> child) {
+        KeyNode<V> keyNode = (KeyNode<V>) node;
+        int len = keyNode.keys.length;
+
+        Object[] newKeys = new Object[len + 1];
+        System.arraycopy(keyNode.keys, 0, newKeys, 0, len);
+        newKeys[len] = keys.get(depth);
+
+        @SuppressWarnings("unchecked")
+        INode<V>[] newChildren = new INode[len + 1];
+        System.arraycopy(node.children, 0, newChildren, 0, len);
+        newChildren[len] = child;
+        return new KeyNode<V>(node.accepting, node.value, newKeys, newChildren);
+    }
+
+    @Override
+    MainNode<V> withoutChild(MainNode<V> node, int pos) {
+        KeyNode<V> keyNode = (KeyNode<V>) node;
+        int len = keyNode.keys.length - 1;
+
+        Object[] newKeys = len == 0 ? NO_KEYS : new Object[len];
+        System.arraycopy(keyNode.keys, 0, newKeys, 0, pos);
+        System.arraycopy(keyNode.keys, pos + 1, newKeys, pos, len - pos);
+
+        @SuppressWarnings("unchecked")
+        INode<V>[] newChildren = new INode[len];
+        System.arraycopy(node.children, 0, newChildren, 0, pos);
+        System.arraycopy(node.children, pos + 1, newChildren, pos, len - pos);
+        return new KeyNode<V>(node.accepting, node.value, newKeys, newChildren);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    MainNode<V> singleton(boolean accepting, V value, List<K> keys, int depth, INode<V> child) {
+        if (child == null) {
+            return new KeyNode<V>(accepting, value, NO_KEYS, ConcurrentTrieMap.<V>noChildren());
+        }
+        return new KeyNode<V>(accepting, value, new Object[] {keys.get(depth)}, new INode[] {child});
+    }
+
+    private static <K> List<K> toList(Iterator<K> keys) {
+        List<K> list = new ArrayList<K>();
+        while (keys.hasNext()) {
+            list.add(keys.next());
+        }
+        return list;
+    }
+
+    /**
+     * A main node whose transitions are arbitrary key objects.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class KeyNode<V> extends MainNode<V> {
+        final Object[] keys;
+
+        KeyNode(boolean accepting, V value, Object[] keys, INode<V>[] children) {
+            super(accepting, value, children);
+            this.keys = keys;
+        }
+
+        @Override
+        MainNode<V> withValue(boolean accepting, V value) {
+            return new KeyNode<V>(accepting, value, keys, children);
+        }
+
+        @Override
+        MainNode<V> withChildren(INode<V>[] children) {
+            return new KeyNode<V>(accepting, value, keys, children);
+        }
+    }
+
+    /**
+     * Lazily enumerates the accepting nodes below a prefix of a read-only
+     * trie, using an explicit stack and a single reused key list.
+     *
+     * @param <T> The type of result returned by the iterator.
+     */
+    private abstract class PrefixIterator<T> implements Iterator<T> {
+        private final List<K> path;
+        private MainNode<V>[] nodes;
+        private int[] next;
+        private int top;
+        private int remaining;
+        private T pending;
+
+        @SuppressWarnings("unchecked")
+        PrefixIterator(List<K> prefix, int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative: " + limit);
+            }
+            path = prefix;
+            nodes = new MainNode[16];
+            next = new int[16];
+            remaining = limit;
+
+            MainNode<V> start = lookup(prefix);
+            if (start == null || limit == 0) {
+                top = -1;
+                return;
+            }
+            nodes[0] = start;
+            pending = start.accepting ? emit(path, start.value) : advance();
+        }
+
+        abstract T emit(List<K> keys, V value);
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 && top >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = pending;
+            if (--remaining > 0) {
+                pending = advance();
+            } else {
+                pending = null;
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        private T advance() {
+            while (top >= 0) {
+                MainNode<V> node = nodes[top];
+                int i = next[top];
+                if (i == node.children.length) {
+                    nodes[top--] = null;
+                    if (top >= 0) {
+                        path.remove(path.size() - 1);
+                    }
+                    continue;
+                }
+
+                next[top] = i + 1;
+                MainNode<V> child = gcasRead(node.children[i]);
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    next = Arrays.copyOf(next, top << 1);
+                }
+                path.add((K) ((KeyNode<V>) node).keys[i]);
+                nodes[top] = child;
+                next[top] = 0;
+
+                if (child.accepting) {
+                    return emit(path, child.value);
+                }
+            }
+            return null;
+        }
+    }
+}
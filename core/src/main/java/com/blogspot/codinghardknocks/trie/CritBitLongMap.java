@@ -0,0 +1,522 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements a <a href="http://cr.yp.to/critbit.html">crit-bit tree</a>,
+ * a bitwise trie which maps <code>long</code> keys to values.  Each internal
+ * node records the most significant bit at which the keys below it differ, and
+ * lookups only test those bits, comparing the whole key once at the leaf.  A
+ * tree of <code>n</code> keys has exactly <code>n - 1</code> internal nodes and
+ * is never more than 64 levels deep, whatever the insertion order.
+ *
+ * <p>
+ * Keys are ordered as <em>unsigned</em> values, which is the natural order for
+ * IPv4/IPv6 prefixes and identifiers.  To order signed values, flip the sign
+ * bit of every key with <code>key ^ Long.MIN_VALUE</code>.  Besides exact
+ * lookups the tree answers {@link #floorKey(long)}, {@link #ceilingKey(long)},
+ * and iterates a range or every key under a bit prefix in order.
+ * </p>
+ *
+ * <p>
+ * Nodes are not objects.  The leaves are indexes into a <code>long[]</code> of
+ * keys and a parallel array of values, and the internal nodes are indexes into
+ * parallel <code>int[]</code>s holding the bit and the two children.  A child
+ * reference <code>r</code> is an internal node if <code>r &gt;= 0</code> and the
+ * leaf <code>~r</code> otherwise.
+ * </p>
+ *
+ * @param <V> The type contained by the tree.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class CritBitLongMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The deepest a path can be, one internal node per bit plus the leaf. */
+    private static final int MAX_DEPTH = 65;
+
+    /** Marks the end of a free list. */
+    private static final int NIL = -1;
+
+    private long[] keys;
+    private Object[] values;
+
+    /** The bit tested by each internal node, as a shift from the least significant bit. */
+    private int[] shift;
+    /** The child for keys with the bit clear. */
+    private int[] left;
+    /** The child for keys with the bit set. */
+    private int[] right;
+
+    private int nextLeaf;
+    private int nextNode;
+    /** Head of the list of freed leaves, chained through {@link #keys}. */
+    private int freeLeaf;
+    /** Head of the list of freed internal nodes, chained through {@link #left}. */
+    private int freeNode;
+
+    /** The root reference, only valid while the tree is not empty. */
+    private int root;
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public CritBitLongMap() {
+        clear();
+    }
+
+    /**
+     * Associate the value with the key.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The value previously associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V put(long key, V value) {
+        if (size == 0) {
+            root = ~allocateLeaf(key, value);
+            size = 1;
+            return null;
+        }
+
+        int leaf = bestLeaf(key);
+        long diff = key ^ keys[leaf];
+        if (diff == 0) {
+            V old = value(leaf);
+            values[leaf] = value;
+            return old;
+        }
+
+        int crit = 63 - Long.numberOfLeadingZeros(diff);
+        int newLeaf = ~allocateLeaf(key, value);
+
+        // Find where the new bit belongs: below every node testing a more
+        // significant bit, above every node testing a less significant one.
+        int parent = NIL;
+        boolean parentRight = false;
+        int ref = root;
+        while (ref >= 0 && shift[ref] > crit) {
+            parent = ref;
+            parentRight = bit(key, shift[ref]);
+            ref = parentRight ? right[ref] : left[ref];
+        }
+
+        int node = allocateNode(crit);
+        if (bit(key, crit)) {
+            left[node] = ref;
+            right[node] = newLeaf;
+        } else {
+            left[node] = newLeaf;
+            right[node] = ref;
+        }
+        replace(parent, parentRight, node);
+        ++size;
+        return null;
+    }
+
+    public void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        shift = new int[INITIAL_CAPACITY];
+        left = new int[INITIAL_CAPACITY];
+        right = new int[INITIAL_CAPACITY];
+        nextLeaf = 0;
+        nextNode = 0;
+        freeLeaf = NIL;
+        freeNode = NIL;
+        size = 0;
+    }
+
+    public boolean containsKey(long key) {
+        return size > 0 && keys[bestLeaf(key)] == key;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(long key) {
+        return get(key, null);
+    }
+
+    public V get(long key, V defaultValue) {
+        if (size == 0) {
+            return defaultValue;
+        }
+        int leaf = bestLeaf(key);
+        return keys[leaf] == key ? value(leaf) : defaultValue;
+    }
+
+    /**
+     * Remove the key.
+     *
+     * @param key The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(long key) {
+        if (size == 0) {
+            return null;
+        }
+
+        int grandparent = NIL;
+        boolean grandparentRight = false;
+        int parent = NIL;
+        boolean parentRight = false;
+        int ref = root;
+        while (ref >= 0) {
+            grandparent = parent;
+            grandparentRight = parentRight;
+            parent = ref;
+            parentRight = bit(key, shift[ref]);
+            ref = parentRight ? right[ref] : left[ref];
+        }
+
+        int leaf = ~ref;
+        if (keys[leaf] != key) {
+            return null;
+        }
+        V value = value(leaf);
+        if (parent == NIL) {
+            size = 0;
+        } else {
+            // The sibling takes the place of the parent.
+            replace(grandparent, grandparentRight, parentRight ? left[parent] : right[parent]);
+            releaseNode(parent);
+            --size;
+        }
+        releaseLeaf(leaf);
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the greatest key less than or equal to the given key, in unsigned
+     * order.
+     *
+     * @param key The key.
+     * @return The key, or <code>null</code> if there is none.
+     */
+    public Long floorKey(long key) {
+        int leaf = floorLeaf(key);
+        return leaf == NIL ? null : Long.valueOf(keys[leaf]);
+    }
+
+    /**
+     * Return the least key greater than or equal to the given key, in unsigned
+     * order.
+     *
+     * @param key The key.
+     * @return The key, or <code>null</code> if there is none.
+     */
+    public Long ceilingKey(long key) {
+        int leaf = ceilingLeaf(key);
+        return leaf == NIL ? null : Long.valueOf(keys[leaf]);
+    }
+
+    /**
+     * Lazily enumerate every entry in unsigned key order.  The tree must not be
+     * modified while the iterator is in use.
+     *
+     * @return The entries.
+     */
+    public Iterator<Map.Entry<Long, V>> entries() {
+        return entriesInRange(0, -1L);
+    }
+
+    /**
+     * Lazily enumerate the entries whose key is in the range
+     * <code>[from, to]</code>, in unsigned key order.  The tree must not be
+     * modified while the iterator is in use.
+     *
+     * @param from The inclusive unsigned lower bound.
+     * @param to The inclusive unsigned upper bound.
+     * @return The entries in the range.
+     */
+    public Iterator<Map.Entry<Long, V>> entriesInRange(long from, long to) {
+        return new RangeIterator(from, to);
+    }
+
+    /**
+     * Lazily enumerate the entries whose <code>bits</code> most significant
+     * bits match those of <code>prefix</code>, such as the addresses within a
+     * network, in unsigned key order.  The tree must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The key holding the prefix, the remaining bits are ignored.
+     * @param bits The length of the prefix, from 0 to 64.
+     * @return The entries under the prefix.
+     * @throws IllegalArgumentException If the length is out of range.
+     */
+    public Iterator<Map.Entry<Long, V>> entriesWithPrefix(long prefix, int bits) {
+        if (bits < 0 || bits > 64) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and 64: " + bits);
+        }
+        long mask = bits == 0 ? 0 : -1L << (64 - bits);
+        return entriesInRange(prefix & mask, prefix | ~mask);
+    }
+
+    /**
+     * Estimate the memory used by the node arrays, not counting the values.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        return MemoryEstimator.object(5, 24)
+            + MemoryEstimator.array(keys.length, 8)
+            + MemoryEstimator.array(values.length, MemoryEstimator.REFERENCE)
+            + 3 * MemoryEstimator.array(shift.length, 4);
+    }
+
+    private static boolean bit(long key, int shift) {
+        return ((key >>> shift) & 1) != 0;
+    }
+
+    private static boolean lessThanUnsigned(long a, long b) {
+        return (a + Long.MIN_VALUE) < (b + Long.MIN_VALUE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int leaf) {
+        return (V) values[leaf];
+    }
+
+    /**
+     * Follow the bits of the key to a leaf, the only leaf which can hold the
+     * key.  The tree must not be empty.
+     *
+     * @return The leaf.
+     */
+    private int bestLeaf(long key) {
+        int ref = root;
+        while (ref >= 0) {
+            ref = bit(key, shift[ref]) ? right[ref] : left[ref];
+        }
+        return ~ref;
+    }
+
+    /**
+     * Follow the path of a key down to the first subtree whose keys differ
+     * from the key at or above its bit, collecting the subtrees beside the
+     * path on one side.
+     *
+     * @param key The key.
+     * @param crit The most significant bit at which the key differs from its
+     *        best leaf, or <code>-1</code> if the key is in the tree.
+     * @param stack Receives the subtrees greater (or, if <code>greater</code>
+     *        is false, less) than the key, innermost last, followed by the
+     *        subtree where the path ends.
+     * @param greater Which side of the path to collect.
+     * @return The number of subtrees in the stack.
+     */
+    private int descend(long key, int crit, int[] stack, boolean greater) {
+        int top = 0;
+        int ref = root;
+        while (ref >= 0 && shift[ref] > crit) {
+            boolean b = bit(key, shift[ref]);
+            if (b != greater) {
+                stack[top++] = greater ? right[ref] : left[ref];
+            }
+            ref = b ? right[ref] : left[ref];
+        }
+        stack[top++] = ref;
+        return top;
+    }
+
+    private int criticalBit(long key) {
+        long diff = key ^ keys[bestLeaf(key)];
+        return diff == 0 ? -1 : 63 - Long.numberOfLeadingZeros(diff);
+    }
+
+    private int ceilingLeaf(long key) {
+        if (size == 0) {
+            return NIL;
+        }
+        int crit = criticalBit(key);
+        int[] stack = new int[MAX_DEPTH];
+        int top = descend(key, crit, stack, true);
+        if (crit >= 0 && bit(key, crit)) {
+            // The subtree where the path ends is below the key.
+            --top;
+        }
+        return top == 0 ? NIL : extreme(stack[top - 1], false);
+    }
+
+    private int floorLeaf(long key) {
+        if (size == 0) {
+            return NIL;
+        }
+        int crit = criticalBit(key);
+        int[] stack = new int[MAX_DEPTH];
+        int top = descend(key, crit, stack, false);
+        if (crit >= 0 && !bit(key, crit)) {
+            // The subtree where the path ends is above the key.
+            --top;
+        }
+        return top == 0 ? NIL : extreme(stack[top - 1], true);
+    }
+
+    /**
+     * Return the smallest or largest leaf of a subtree.
+     */
+    private int extreme(int ref, boolean largest) {
+        while (ref >= 0) {
+            ref = largest ? right[ref] : left[ref];
+        }
+        return ~ref;
+    }
+
+    /**
+     * Point the given side of the parent, or the root, at a new child.
+     */
+    private void replace(int parent, boolean parentRight, int child) {
+        if (parent == NIL) {
+            root = child;
+        } else if (parentRight) {
+            right[parent] = child;
+        } else {
+            left[parent] = child;
+        }
+    }
+
+    private int allocateLeaf(long key, V value) {
+        int leaf;
+        if (freeLeaf != NIL) {
+            leaf = freeLeaf;
+            freeLeaf = (int) keys[leaf];
+        } else {
+            if (nextLeaf == keys.length) {
+                keys = Arrays.copyOf(keys, nextLeaf << 1);
+                values = Arrays.copyOf(values, nextLeaf << 1);
+            }
+            leaf = nextLeaf++;
+        }
+        keys[leaf] = key;
+        values[leaf] = value;
+        return leaf;
+    }
+
+    private void releaseLeaf(int leaf) {
+        values[leaf] = null;
+        keys[leaf] = freeLeaf;
+        freeLeaf = leaf;
+    }
+
+    private int allocateNode(int bit) {
+        int node;
+        if (freeNode != NIL) {
+            node = freeNode;
+            freeNode = left[node];
+        } else {
+            if (nextNode == shift.length) {
+                shift = Arrays.copyOf(shift, nextNode << 1);
+                left = Arrays.copyOf(left, nextNode << 1);
+                right = Arrays.copyOf(right, nextNode << 1);
+            }
+            node = nextNode++;
+        }
+        shift[node] = bit;
+        return node;
+    }
+
+    private void releaseNode(int node) {
+        left[node] = freeNode;
+        freeNode = node;
+    }
+
+    /**
+     * Lazily enumerates the leaves in a range with an in-order walk, starting
+     * from the subtrees beside the path of the lower bound.
+     */
+    private final class RangeIterator implements Iterator<Map.Entry<Long, V>> {
+        private final long to;
+        private final int[] stack = new int[2 * MAX_DEPTH];
+        private int top;
+        private int pending = NIL;
+
+        RangeIterator(long from, long to) {
+            this.to = to;
+            if (size == 0 || lessThanUnsigned(to, from)) {
+                return;
+            }
+
+            int crit = criticalBit(from);
+            top = descend(from, crit, stack, true);
+            if (crit >= 0 && bit(from, crit)) {
+                --top;
+            }
+            // The collected subtrees are in descending order from the top of
+            // the stack, which is the order they are popped in.
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != NIL;
+        }
+
+        @Override
+        public Map.Entry<Long, V> next() {
+            if (pending == NIL) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Long, V> entry = new AbstractMap.SimpleImmutableEntry<Long, V>(keys[pending],
+                value(pending));
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advance() {
+            pending = NIL;
+            while (top > 0) {
+                int ref = stack[--top];
+                while (ref >= 0) {
+                    stack[top++] = right[ref];
+                    ref = left[ref];
+                }
+                int leaf = ~ref;
+                if (lessThanUnsigned(to, keys[leaf])) {
+                    top = 0;
+                    return;
+                }
+                pending = leaf;
+                return;
+            }
+        }
+    }
+}
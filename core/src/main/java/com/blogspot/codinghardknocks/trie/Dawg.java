@@ -0,0 +1,298 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * An immutable, minimal <a href="http://www.pathcom.com/~vadco/dawg.html">Directed Acyclic Word Graph</a>,
+ * created by a {@link DawgBuilder}.  Unlike a trie, states which accept the same
+ * set of suffixes are merged, so common endings are only stored once.
+ *
+ * <p>
+ * The graph is stored in flat arrays: the edges of state <code>s</code> are
+ * <code>firstEdge[s]</code> up to <code>firstEdge[s + 1]</code>, sorted by
+ * label.  Every state also records the number of words reachable from it,
+ * which gives a minimal perfect hash: {@link #indexOf(CharSequence)} maps each
+ * word to its position in sorted order and {@link #wordAt(int)} reverses it.
+ * Values can be associated with the words by storing them in an array indexed
+ * by {@link #indexOf(CharSequence)}.
+ * </p>
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class Dawg implements Iterable<String> {
+
+    private final int root;
+    private final int[] firstEdge;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] counts;
+    private final boolean[] accepting;
+
+    /**
+     * Constructor.
+     */
+    Dawg(int root, int[] firstEdge, char[] labels, int[] targets, int[] counts, boolean[] accepting) {
+        this.root = root;
+        this.firstEdge = firstEdge;
+        this.labels = labels;
+        this.targets = targets;
+        this.counts = counts;
+        this.accepting = accepting;
+    }
+
+    /**
+     * Build a graph from words in sorted order.
+     *
+     * @param words The words, sorted as by {@link String#compareTo(String)}.
+     * @return The graph containing the words.
+     */
+    public static Dawg build(Iterable<? extends CharSequence> words) {
+        return new DawgBuilder().addAll(words).build();
+    }
+
+    public boolean contains(CharSequence word) {
+        int state = walk(word);
+        return state >= 0 && accepting[state];
+    }
+
+    public boolean isEmpty() {
+        return counts[root] == 0;
+    }
+
+    public int size() {
+        return counts[root];
+    }
+
+    /**
+     * Return the position of the word in sorted order.
+     *
+     * @param word The word to look up.
+     * @return The index of the word, between <code>0</code> and
+     *         <code>size() - 1</code>, or <code>-1</code> if not contained.
+     */
+    public int indexOf(CharSequence word) {
+        int len = word.length();
+        int state = root;
+        int index = 0;
+
+        for (int i = 0; i < len; ++i) {
+            if (accepting[state]) {
+                ++index;
+            }
+
+            int edge = edgeOf(state, word.charAt(i));
+            if (edge < 0) {
+                return -1;
+            }
+            for (int e = firstEdge[state]; e < edge; ++e) {
+                index += counts[targets[e]];
+            }
+            state = targets[edge];
+        }
+        return accepting[state] ? index : -1;
+    }
+
+    /**
+     * Return the word at the given position in sorted order.
+     *
+     * @param index The index of the word.
+     * @return The word.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public String wordAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        StringBuilder word = new StringBuilder();
+        int state = root;
+        int remaining = index;
+        while (true) {
+            if (accepting[state]) {
+                if (remaining == 0) {
+                    return word.toString();
+                }
+                --remaining;
+            }
+
+            int edge = firstEdge[state];
+            while (remaining >= counts[targets[edge]]) {
+                remaining -= counts[targets[edge]];
+                ++edge;
+            }
+            word.append(labels[edge]);
+            state = targets[edge];
+        }
+    }
+
+    /**
+     * Return an iterator over the words in sorted order.
+     *
+     * @return An iterator over the words.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new WordIterator();
+    }
+
+    /**
+     * Getter for the number of states.
+     *
+     * @return The number of states in the graph.
+     */
+    public int stateCount() {
+        return counts.length;
+    }
+
+    /**
+     * Getter for the number of edges.
+     *
+     * @return The number of edges in the graph.
+     */
+    public int edgeCount() {
+        return labels.length;
+    }
+
+    /**
+     * Estimate the heap used by this graph.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long estimatedBytes() {
+        return MemoryEstimator.object(5, 4)
+                + MemoryEstimator.array(firstEdge.length, 4)
+                + MemoryEstimator.array(labels.length, 2)
+                + MemoryEstimator.array(targets.length, 4)
+                + MemoryEstimator.array(counts.length, 4)
+                + MemoryEstimator.array(accepting.length, 1);
+    }
+
+    private int walk(CharSequence word) {
+        int len = word.length();
+        int state = root;
+        for (int i = 0; i < len; ++i) {
+            int edge = edgeOf(state, word.charAt(i));
+            if (edge < 0) {
+                return -1;
+            }
+            state = targets[edge];
+        }
+        return state;
+    }
+
+    /**
+     * Binary search the edges of a state for a label.
+     *
+     * @return The index of the edge, or <code>-1</code> if there is none.
+     */
+    private int edgeOf(int state, char c) {
+        int low = firstEdge[state];
+        int high = firstEdge[state + 1] - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midVal = labels[mid];
+
+            if (midVal < c) {
+                low = mid + 1;
+            } else if (midVal > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Depth first enumeration using an explicit stack, which reuses a single
+     * buffer for the current word.
+     */
+    private final class WordIterator implements Iterator<String> {
+        private int[] states = new int[16];
+        private int[] edges = new int[16];
+        private char[] word = new char[16];
+        private int depth;
+        private String next;
+
+        WordIterator() {
+            states[0] = root;
+            edges[0] = firstEdge[root];
+            next = accepting[root] ? "" : advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Move to the next accepting state.
+         *
+         * @return The next word, or <code>null</code> if there are no more.
+         */
+        private String advance() {
+            while (depth >= 0) {
+                int state = states[depth];
+                int edge = edges[depth];
+                if (edge == firstEdge[state + 1]) {
+                    --depth;
+                    continue;
+                }
+
+                edges[depth] = edge + 1;
+                if (depth + 1 == states.length) {
+                    states = Arrays.copyOf(states, states.length << 1);
+                    edges = Arrays.copyOf(edges, edges.length << 1);
+                    word = Arrays.copyOf(word, word.length << 1);
+                }
+                word[depth] = labels[edge];
+                int target = targets[edge];
+                ++depth;
+                states[depth] = target;
+                edges[depth] = firstEdge[target];
+
+                if (accepting[target]) {
+                    return new String(word, 0, depth);
+                }
+            }
+            return null;
+        }
+    }
+}
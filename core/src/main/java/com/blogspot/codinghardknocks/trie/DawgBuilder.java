@@ -0,0 +1,288 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * Builds a minimal <a href="http://www.pathcom.com/~vadco/dawg.html">Directed Acyclic Word Graph</a>
+ * incrementally from words in sorted order, using the algorithm from Daciuk,
+ * Mihov, Watson and Watson, "Incremental Construction of Minimal Acyclic Finite
+ * State Automata" (2000).
+ *
+ * <p>
+ * Only the path of the most recently added word is mutable.  When the next
+ * word diverges from it, the states below the divergence point can never
+ * change again, so each one is replaced by an equivalent state from the
+ * register if one exists, or added to the register otherwise.  The automaton
+ * is therefore minimal at all times, apart from the last path, and shared
+ * suffixes such as "ING" or "ED" are stored once.
+ * </p>
+ *
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class DawgBuilder {
+
+    private final Map<State, State> register = new HashMap<State, State>();
+    private final StringBuilder previous = new StringBuilder();
+    private State[] path = new State[16];
+    private int wordCount;
+    private boolean built;
+
+    /**
+     * Constructor.
+     */
+    public DawgBuilder() {
+        path[0] = new State();
+    }
+
+    /**
+     * Add a word to the graph.
+     *
+     * @param word The word to add, must not sort before the previously added word.
+     * @return <code>this</code>, for chaining.
+     * @throws IllegalArgumentException if the word sorts before the previous word.
+     * @throws IllegalStateException if {@link #build()} has already been called.
+     */
+    public DawgBuilder add(CharSequence word) {
+        if (built) {
+            throw new IllegalStateException("The graph has already been built");
+        }
+
+        int len = word.length();
+        int prevLen = previous.length();
+        int common = 0;
+        int limit = Math.min(len, prevLen);
+        while (common < limit && word.charAt(common) == previous.charAt(common)) {
+            ++common;
+        }
+
+        if (common < limit ? word.charAt(common) < previous.charAt(common) : len < prevLen) {
+            throw new IllegalArgumentException("Words must be added in sorted order: \"" + word
+                    + "\" after \"" + previous + "\"");
+        }
+        if (common == len && common == prevLen && wordCount > 0) {
+            // A duplicate of the previous word.
+            return this;
+        }
+
+        minimize(common);
+
+        if (path.length <= len) {
+            path = Arrays.copyOf(path, Math.max(len + 1, path.length << 1));
+        }
+        for (int i = common; i < len; ++i) {
+            State next = new State();
+            path[i].append(word.charAt(i), next);
+            path[i + 1] = next;
+        }
+        path[len].accepting = true;
+
+        previous.setLength(common);
+        previous.append(word, common, len);
+        ++wordCount;
+        return this;
+    }
+
+    /**
+     * Add every word to the graph.
+     *
+     * @param words The words to add, in sorted order.
+     * @return <code>this</code>, for chaining.
+     */
+    public DawgBuilder addAll(Iterable<? extends CharSequence> words) {
+        for (CharSequence word : words) {
+            add(word);
+        }
+        return this;
+    }
+
+    /**
+     * Minimize the remaining path and flatten the graph into its read-only form.
+     * No further words can be added afterwards.
+     *
+     * @return The read-only graph.
+     */
+    public Dawg build() {
+        if (!built) {
+            minimize(0);
+            built = true;
+        }
+        return flatten(path[0]);
+    }
+
+    /**
+     * Replace or register every state on the path deeper than <code>depth</code>,
+     * deepest first.
+     *
+     * @param depth The depth of the deepest state which may still change.
+     */
+    private void minimize(int depth) {
+        for (int i = previous.length(); i > depth; --i) {
+            State child = path[i];
+            child.freeze();
+            State existing = register.get(child);
+            if (existing != null) {
+                path[i - 1].targets[path[i - 1].fanout - 1] = existing;
+            } else {
+                register.put(child, child);
+            }
+        }
+    }
+
+    /**
+     * Number the states depth first and copy them into flat arrays.
+     */
+    private static Dawg flatten(State root) {
+        Map<State, Integer> ids = new IdentityHashMap<State, Integer>();
+        int edgeCount = number(root, ids);
+
+        int stateCount = ids.size();
+        int[] firstEdge = new int[stateCount + 1];
+        char[] labels = new char[edgeCount];
+        int[] targets = new int[edgeCount];
+        int[] counts = new int[stateCount];
+        boolean[] accepting = new boolean[stateCount];
+
+        // Ids are assigned in post-order, so children always have lower ids.
+        State[] byId = new State[stateCount];
+        for (Map.Entry<State, Integer> entry : ids.entrySet()) {
+            byId[entry.getValue()] = entry.getKey();
+        }
+
+        int edge = 0;
+        for (int id = 0; id < stateCount; ++id) {
+            State state = byId[id];
+            firstEdge[id] = edge;
+            accepting[id] = state.accepting;
+            int count = state.accepting ? 1 : 0;
+            for (int i = 0; i < state.fanout; ++i) {
+                int target = ids.get(state.targets[i]);
+                labels[edge] = state.labels[i];
+                targets[edge] = target;
+                count += counts[target];
+                ++edge;
+            }
+            counts[id] = count;
+        }
+        firstEdge[stateCount] = edge;
+
+        return new Dawg(stateCount - 1, firstEdge, labels, targets, counts, accepting);
+    }
+
+    /**
+     * Assign post-order ids to every state reachable from the root.
+     *
+     * @return The number of edges reachable from the root.
+     */
+    private static int number(State root, Map<State, Integer> ids) {
+        int edges = 0;
+        State[] stack = new State[16];
+        int[] next = new int[16];
+        int top = 0;
+        stack[0] = root;
+
+        while (top >= 0) {
+            State state = stack[top];
+            if (next[top] < state.fanout) {
+                State child = state.targets[next[top]++];
+                if (!ids.containsKey(child)) {
+                    if (++top == stack.length) {
+                        stack = Arrays.copyOf(stack, top << 1);
+                        next = Arrays.copyOf(next, top << 1);
+                    }
+                    stack[top] = child;
+                    next[top] = 0;
+                }
+            } else {
+                ids.put(state, ids.size());
+                edges += state.fanout;
+                --top;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * A state of the automaton under construction.  Once frozen, equality is
+     * structural: two states are equivalent if they agree on accepting and have
+     * the same transitions to the same (already minimal) states.
+     */
+    private static final class State {
+        private boolean accepting;
+        private char[] labels = new char[2];
+        private State[] targets = new State[2];
+        private int fanout;
+        private int hash;
+
+        void append(char c, State target) {
+            if (fanout == labels.length) {
+                labels = Arrays.copyOf(labels, fanout << 1);
+                targets = Arrays.copyOf(targets, fanout << 1);
+            }
+            labels[fanout] = c;
+            targets[fanout] = target;
+            ++fanout;
+        }
+
+        void freeze() {
+            if (labels.length != fanout) {
+                labels = Arrays.copyOf(labels, fanout);
+                targets = Arrays.copyOf(targets, fanout);
+            }
+
+            int h = accepting ? 1 : 0;
+            for (int i = 0; i < fanout; ++i) {
+                h = 31 * h + labels[i];
+                h = 31 * h + System.identityHashCode(targets[i]);
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof State)) {
+                return false;
+            }
+
+            State other = (State) obj;
+            if (accepting != other.accepting || fanout != other.fanout || hash != other.hash) {
+                return false;
+            }
+            for (int i = 0; i < fanout; ++i) {
+                if (labels[i] != other.labels[i] || targets[i] != other.targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
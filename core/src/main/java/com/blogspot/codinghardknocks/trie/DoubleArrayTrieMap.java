@@ -0,0 +1,279 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * An immutable <a href="http://en.wikipedia.org/wiki/Trie">Trie</a> stored as a
+ * double-array (Aoe, 1989).  Each state is an index into two parallel arrays:
+ * the transition on character <code>c</code> from state <code>s</code> leads to
+ * state <code>t = base[s] + c + 1</code>, and is valid only if
+ * <code>check[t] == s</code>.  A lookup is a couple of array reads per
+ * character, with no object graph to chase.
+ *
+ * <p>
+ * Accepting states use a transition on code <code>0</code> to a terminal cell,
+ * whose <code>base</code> holds the encoded index of the value.  Instances are
+ * created by {@link StringTrieMap#freeze()} or {@link CharSequenceTrieMap#freeze()}.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class DoubleArrayTrieMap<V> {
+
+    /** The state every lookup starts from. */
+    private static final int ROOT = 0;
+
+    /** Marks a cell of the check array as unused. */
+    private static final int FREE = -1;
+
+    private final int[] base;
+    private final int[] check;
+    private final Object[] values;
+    private final long sourceEstimatedBytes;
+
+    /**
+     * Constructor.
+     */
+    private DoubleArrayTrieMap(int[] base, int[] check, Object[] values, long sourceEstimatedBytes) {
+        this.base = base;
+        this.check = check;
+        this.values = values;
+        this.sourceEstimatedBytes = sourceEstimatedBytes;
+    }
+
+    public boolean contains(CharSequence key) {
+        return valueIndex(key) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    public V get(CharSequence key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(CharSequence key, V defaultValue) {
+        int idx = valueIndex(key);
+        if (idx >= 0) {
+            return (V) values[idx];
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Estimate the heap used by this trie, excluding the values themselves.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long estimatedBytes() {
+        return MemoryEstimator.object(3, 8)
+                + MemoryEstimator.array(base.length, 4)
+                + MemoryEstimator.array(check.length, 4)
+                + MemoryEstimator.array(values.length, MemoryEstimator.REFERENCE);
+    }
+
+    /**
+     * Estimate the heap used by the trie this was compiled from, excluding the
+     * values themselves, at the time it was compiled.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long sourceEstimatedBytes() {
+        return sourceEstimatedBytes;
+    }
+
+    /**
+     * Estimate how much heap was saved by compiling the source trie.
+     *
+     * @return The estimated number of bytes saved, negative if this uses more.
+     */
+    public long savedBytes() {
+        return sourceEstimatedBytes - estimatedBytes();
+    }
+
+    /**
+     * Walk the key and return the index of its value.
+     *
+     * @param key The key to look up.
+     * @return The index into {@link #values}, or <code>-1</code> if the key is
+     *         not contained.
+     */
+    private int valueIndex(CharSequence key) {
+        int[] base = this.base;
+        int[] check = this.check;
+        int len = key.length();
+        int state = ROOT;
+
+        for (int i = 0; i < len; ++i) {
+            int next = base[state] + key.charAt(i) + 1;
+            if (next >= check.length || check[next] != state) {
+                return -1;
+            }
+            state = next;
+        }
+
+        int terminal = base[state];
+        if (terminal < check.length && check[terminal] == state && terminal != state) {
+            return -base[terminal] - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Compile a trie into its double-array form.
+     *
+     * @param <V> The type contained by the Trie.
+     * @param root The root of the trie to compile.
+     * @return The compiled trie.
+     */
+    static <V> DoubleArrayTrieMap<V> compile(CharTrieView<V> root) {
+        return new Builder<V>().build(root);
+    }
+
+    /**
+     * Assigns states breadth first, placing the children of each state at the
+     * first base which fits all of them.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class Builder<V> {
+        private int[] base = new int[1024];
+        private int[] check = new int[1024];
+        private final List<Object> values = new ArrayList<Object>();
+        private int nextCheckPos = 1;
+        private int maxUsed = ROOT;
+        private long sourceBytes;
+
+        Builder() {
+            Arrays.fill(check, FREE);
+        }
+
+        DoubleArrayTrieMap<V> build(CharTrieView<V> root) {
+            ArrayDeque<CharTrieView<V>> nodes = new ArrayDeque<CharTrieView<V>>();
+            ArrayDeque<Integer> states = new ArrayDeque<Integer>();
+            int[] codes = new int[16];
+
+            check[ROOT] = ROOT;
+            nodes.add(root);
+            states.add(ROOT);
+
+            while (!nodes.isEmpty()) {
+                CharTrieView<V> node = nodes.poll();
+                int state = states.poll();
+                sourceBytes += node.estimatedBytes();
+
+                int fanout = node.fanout();
+                int count = 0;
+                if (codes.length <= fanout) {
+                    codes = new int[fanout + 1];
+                }
+                if (node.isAccepting()) {
+                    codes[count++] = 0;
+                }
+                for (int i = 0; i < fanout; ++i) {
+                    codes[count++] = node.label(i) + 1;
+                }
+                if (count == 0) {
+                    continue;
+                }
+
+                int b = findBase(codes, count);
+                base[state] = b;
+                for (int i = 0; i < count; ++i) {
+                    check[b + codes[i]] = state;
+                }
+                maxUsed = Math.max(maxUsed, b + codes[count - 1]);
+
+                int i = 0;
+                if (node.isAccepting()) {
+                    base[b] = -values.size() - 1;
+                    values.add(node.value());
+                    i = 1;
+                }
+                for (int c = 0; i < count; ++i, ++c) {
+                    nodes.add(node.child(c));
+                    states.add(b + codes[i]);
+                }
+            }
+
+            int length = maxUsed + 1;
+            return new DoubleArrayTrieMap<V>(Arrays.copyOf(base, length), Arrays.copyOf(check, length),
+                    values.toArray(), sourceBytes);
+        }
+
+        /**
+         * Find the first base where every code lands on a free cell.
+         *
+         * @param codes The sorted codes of the transitions.
+         * @param count The number of valid codes.
+         * @return The base to use.
+         */
+        private int findBase(int[] codes, int count) {
+            while (nextCheckPos < check.length && check[nextCheckPos] != FREE) {
+                ++nextCheckPos;
+            }
+
+            int pos = Math.max(nextCheckPos, codes[0] + 1);
+            while (true) {
+                ensureCapacity(pos + codes[count - 1] - codes[0] + 1);
+                if (check[pos] == FREE) {
+                    int b = pos - codes[0];
+                    boolean fits = true;
+                    for (int i = 1; i < count; ++i) {
+                        if (check[b + codes[i]] != FREE) {
+                            fits = false;
+                            break;
+                        }
+                    }
+                    if (fits) {
+                        return b;
+                    }
+                }
+                ++pos;
+            }
+        }
+
+        private void ensureCapacity(int size) {
+            if (size <= check.length) {
+                return;
+            }
+            int capacity = check.length;
+            while (capacity < size) {
+                capacity <<= 1;
+            }
+            base = Arrays.copyOf(base, capacity);
+            int oldLength = check.length;
+            check = Arrays.copyOf(check, capacity);
+            Arrays.fill(check, oldLength, capacity, FREE);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * A key found by a fuzzy search, along with its value and its edit distance
+ * from the query.
+ *
+ * @param <V> The type of value associated with the key.
+ *
+ * @author kbohling
+ */
+@ThreadSafe
+public final class FuzzyMatch<V> {
+
+    private final String key;
+    private final V value;
+    private final int distance;
+
+    /**
+     * Constructor.
+     *
+     * @param key The matched key.
+     * @param value The value associated with the key.
+     * @param distance The edit distance between the key and the query.
+     */
+    FuzzyMatch(String key, V value, int distance) {
+        this.key = key;
+        this.value = value;
+        this.distance = distance;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public V value() {
+        return value;
+    }
+
+    /**
+     * Getter for the distance.
+     *
+     * @return The Levenshtein distance between the key and the query.
+     */
+    public int distance() {
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FuzzyMatch)) {
+            return false;
+        }
+        FuzzyMatch<?> other = (FuzzyMatch<?>) obj;
+        return distance == other.distance && key.equals(other.key)
+            && (value == null ? other.value == null : value.equals(other.value));
+    }
+
+    @Override
+    public int hashCode() {
+        return (key.hashCode() * 31 + distance) * 31 + (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + value + " (" + distance + ")";
+    }
+}
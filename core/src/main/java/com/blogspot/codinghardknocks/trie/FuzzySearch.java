@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * Finds the keys of a trie within a bounded
+ * <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">Levenshtein distance</a>
+ * of a query.  The search walks the trie depth first, computing one row of the
+ * dynamic programming table per node from the row of its parent, so the work
+ * for a shared prefix is only done once.  A subtree is skipped as soon as the
+ * smallest entry of its row exceeds the bound, since no key below it can be
+ * any closer.
+ *
+ * <p>
+ * When only the best <code>limit</code> matches are wanted they are kept in a
+ * bounded heap, and once it is full the bound tightens to the worst distance
+ * in the heap, which prunes more of the trie as better matches are found.
+ * </p>
+ *
+ * @param <V> The type of value stored in the trie.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+final class FuzzySearch<V> {
+
+    /**
+     * The number of rows allocated up front.  {@link #visit} adds rows as the
+     * search goes deeper, so a long query only pays for the depths reached.
+     */
+    private static final int INITIAL_ROWS = 16;
+
+    /** Orders matches by distance, then by key. */
+    private static final Comparator<FuzzyMatch<?>> BY_DISTANCE = new Comparator<FuzzyMatch<?>>() {
+        @Override
+        public int compare(FuzzyMatch<?> a, FuzzyMatch<?> b) {
+            if (a.distance() != b.distance()) {
+                return a.distance() < b.distance() ? -1 : 1;
+            }
+            return a.key().compareTo(b.key());
+        }
+    };
+
+    private final CharSequence query;
+    private final int limit;
+    private final PriorityQueue<FuzzyMatch<V>> worstFirst;
+    private int bound;
+    private int[][] rows;
+    private char[] key;
+
+    /**
+     * Constructor.
+     *
+     * @param query The query to compare the keys against.
+     * @param maxDistance The largest distance to return.
+     * @param limit The maximum number of matches to return.
+     * @throws IllegalArgumentException If the distance or limit is negative.
+     */
+    FuzzySearch(CharSequence query, int maxDistance, int limit) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Distance must not be negative: " + maxDistance);
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.query = query;
+        this.limit = limit;
+        this.bound = maxDistance;
+        this.worstFirst = new PriorityQueue<FuzzyMatch<V>>(11, Collections.reverseOrder(BY_DISTANCE));
+        this.rows = new int[INITIAL_ROWS][query.length() + 1];
+        this.key = new char[rows.length];
+    }
+
+    /**
+     * Search the trie.
+     *
+     * @param root The root of the trie, whose labels must be sorted.
+     * @return The matches, ordered by distance and then by key.
+     */
+    List<FuzzyMatch<V>> search(CharTrieView<V> root) {
+        if (limit > 0) {
+            int[] first = rows[0];
+            for (int j = 0; j < first.length; ++j) {
+                first[j] = j;
+            }
+            if (root.isAccepting()) {
+                offer(root, 0);
+            }
+            visitChildren(root, 1);
+        }
+
+        List<FuzzyMatch<V>> result = new ArrayList<FuzzyMatch<V>>(worstFirst);
+        Collections.sort(result, BY_DISTANCE);
+        return result;
+    }
+
+    private void visitChildren(CharTrieView<V> node, int depth) {
+        int fanout = node.fanout();
+        for (int i = 0; i < fanout && bound >= 0; ++i) {
+            visit(node.child(i), node.label(i), depth);
+        }
+    }
+
+    private void visit(CharTrieView<V> node, char c, int depth) {
+        if (depth == rows.length) {
+            rows = Arrays.copyOf(rows, depth << 1);
+            for (int i = depth; i < rows.length; ++i) {
+                rows[i] = new int[query.length() + 1];
+            }
+            key = Arrays.copyOf(key, rows.length);
+        }
+        key[depth - 1] = c;
+
+        int[] prev = rows[depth - 1];
+        int[] curr = rows[depth];
+        int m = query.length();
+        curr[0] = depth;
+        int min = depth;
+        for (int j = 1; j <= m; ++j) {
+            int cost = query.charAt(j - 1) == c ? 0 : 1;
+            int d = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+            curr[j] = d;
+            if (d < min) {
+                min = d;
+            }
+        }
+
+        if (node.isAccepting() && curr[m] <= bound) {
+            offer(node, depth);
+        }
+        if (min <= bound) {
+            visitChildren(node, depth + 1);
+        }
+    }
+
+    private void offer(CharTrieView<V> node, int depth) {
+        int distance = rows[depth][query.length()];
+        worstFirst.add(new FuzzyMatch<V>(new String(key, 0, depth), node.value(), distance));
+        if (worstFirst.size() > limit) {
+            worstFirst.poll();
+        }
+        if (worstFirst.size() == limit) {
+            // Keys are visited in ascending order, so a later key at the
+            // worst distance in the heap would lose the tie.
+            bound = Math.min(bound, worstFirst.peek().distance() - 1);
+        }
+    }
+}
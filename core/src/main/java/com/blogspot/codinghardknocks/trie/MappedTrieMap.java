@@ -0,0 +1,226 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * A read-only <a href="http://en.wikipedia.org/wiki/Trie">Trie</a> which is
+ * queried directly from a memory-mapped file written by {@link MappedTrieWriter}.
+ * Nothing is deserialized when the file is opened: every lookup reads the
+ * nodes straight out of the {@link MappedByteBuffer}, so the trie lives off
+ * heap and several processes opening the same file share it through the page
+ * cache.
+ *
+ * <p>
+ * The file layout, all big-endian, is:
+ * </p>
+ * <pre>
+ * header:  int magic, int version, int size, int nodeCount, int rootOffset, int valueTableOffset
+ * node:    int valueIndex (-1 if not accepting), int fanout,
+ *          char[fanout] labels (sorted), padding to 4 bytes, int[fanout] child offsets
+ * values:  {int offset, int length (-1 for null)}[size], followed by the encoded values
+ * </pre>
+ * <p>
+ * Nodes are written in post-order, so children always precede their parent.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class MappedTrieMap<V> {
+
+    /** Identifies a trie file, "TRIE" in ASCII. */
+    static final int MAGIC = 0x54524945;
+
+    /** The current version of the file layout. */
+    static final int VERSION = 1;
+
+    /** The size of the header in bytes. */
+    static final int HEADER_SIZE = 24;
+
+    /** The value index of a node which is not accepting. */
+    static final int NOT_ACCEPTING = -1;
+
+    /** The length recorded for a <code>null</code> value. */
+    static final int NULL_VALUE = -1;
+
+    private final ByteBuffer buffer;
+    private final TrieValueCodec<V> codec;
+    private final int size;
+    private final int nodeCount;
+    private final int root;
+    private final int valueTable;
+
+    /**
+     * Constructor.
+     */
+    private MappedTrieMap(ByteBuffer buffer, TrieValueCodec<V> codec) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a trie file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported trie file version: " + buffer.getInt(4));
+        }
+
+        this.buffer = buffer;
+        this.codec = codec;
+        size = buffer.getInt(8);
+        nodeCount = buffer.getInt(12);
+        root = buffer.getInt(16);
+        valueTable = buffer.getInt(20);
+    }
+
+    /**
+     * Map a trie file into memory.
+     *
+     * @param <V> The type contained by the Trie.
+     * @param file The file written by {@link MappedTrieWriter}.
+     * @param codec The codec used to decode the values, must match the one
+     *        used to write the file.
+     * @return The read-only trie.
+     * @throws IOException if the file cannot be mapped or is not a trie file.
+     */
+    public static <V> MappedTrieMap<V> open(File file, TrieValueCodec<V> codec) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // The mapping stays valid after the channel is closed.
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedTrieMap<V>(buffer, codec);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Wrap a buffer already holding a trie file, for example one mapped by the caller.
+     *
+     * @param <V> The type contained by the Trie.
+     * @param buffer The buffer holding the file, starting at index <code>0</code>.
+     * @param codec The codec used to decode the values.
+     * @return The read-only trie.
+     * @throws IOException if the buffer does not hold a trie file.
+     */
+    public static <V> MappedTrieMap<V> wrap(ByteBuffer buffer, TrieValueCodec<V> codec) throws IOException {
+        return new MappedTrieMap<V>(buffer, codec);
+    }
+
+    public boolean contains(CharSequence key) {
+        int node = walk(key);
+        return node >= 0 && buffer.getInt(node) != NOT_ACCEPTING;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(CharSequence key) {
+        return get(key, null);
+    }
+
+    public V get(CharSequence key, V defaultValue) {
+        int node = walk(key);
+        if (node < 0) {
+            return defaultValue;
+        }
+
+        int valueIndex = buffer.getInt(node);
+        if (valueIndex == NOT_ACCEPTING) {
+            return defaultValue;
+        }
+
+        int entry = valueTable + 8 * valueIndex;
+        int length = buffer.getInt(entry + 4);
+        if (length == NULL_VALUE) {
+            return null;
+        }
+        return codec.decode(buffer, buffer.getInt(entry), length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return The number of nodes stored in the file.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Walk the key from the root.
+     *
+     * @param key The key to walk.
+     * @return The offset of the final node, or <code>-1</code> if the path does not exist.
+     */
+    private int walk(CharSequence key) {
+        ByteBuffer buf = buffer;
+        int len = key.length();
+        int node = root;
+
+        for (int i = 0; i < len; ++i) {
+            char c = key.charAt(i);
+            int fanout = buf.getInt(node + 4);
+            int labels = node + 8;
+
+            int low = 0;
+            int high = fanout - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midVal = buf.getChar(labels + 2 * mid);
+
+                if (midVal < c) {
+                    low = mid + 1;
+                } else if (midVal > c) {
+                    high = mid - 1;
+                } else {
+                    found = mid;
+                    break;
+                }
+            }
+            if (found < 0) {
+                return -1;
+            }
+            node = buf.getInt(childOffsets(node, fanout) + 4 * found);
+        }
+        return node;
+    }
+
+    /**
+     * Compute where the child offsets of a node start.
+     *
+     * @param node The offset of the node.
+     * @param fanout The number of children of the node.
+     * @return The offset of the first child offset.
+     */
+    static int childOffsets(int node, int fanout) {
+        return (node + 8 + 2 * fanout + 3) & ~3;
+    }
+}
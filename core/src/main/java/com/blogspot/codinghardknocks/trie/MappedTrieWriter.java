@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * Writes a populated trie to a file which can be opened as a {@link MappedTrieMap}.
+ * See {@link MappedTrieMap} for the file layout.
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class MappedTrieWriter {
+
+    /** The size of the buffer used to write the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Constructor.
+     */
+    private MappedTrieWriter() {
+    }
+
+    /**
+     * Write the trie to a file, replacing any existing contents.
+     *
+     * @param <V> The type contained by the Trie.
+     * @param trie The trie to write.
+     * @param codec The codec used to encode the values.
+     * @param file The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static <V> void write(StringTrieMap<V> trie, TrieValueCodec<? super V> codec, File file)
+            throws IOException {
+        write(trie.rootView(), codec, file);
+    }
+
+    /**
+     * Write the trie to a file, replacing any existing contents.
+     *
+     * @param <V> The type contained by the Trie.
+     * @param trie The trie to write.
+     * @param codec The codec used to encode the values.
+     * @param file The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static <V> void write(CharSequenceTrieMap<V> trie, TrieValueCodec<? super V> codec, File file)
+            throws IOException {
+        write(trie.rootView(), codec, file);
+    }
+
+    private static <V> void write(CharTrieView<V> root, TrieValueCodec<? super V> codec, File file)
+            throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            Output out = new Output(stream.getChannel());
+            out.skip(MappedTrieMap.HEADER_SIZE);
+
+            List<byte[]> values = new ArrayList<byte[]>();
+            int nodeCount = 0;
+            int rootOffset = 0;
+
+            // Post-order, so each node's children are written before it.
+            List<CharTrieView<V>> nodes = new ArrayList<CharTrieView<V>>();
+            List<int[]> childOffsets = new ArrayList<int[]>();
+            List<Integer> nextChild = new ArrayList<Integer>();
+            nodes.add(root);
+            childOffsets.add(new int[root.fanout()]);
+            nextChild.add(0);
+
+            while (!nodes.isEmpty()) {
+                int top = nodes.size() - 1;
+                CharTrieView<V> node = nodes.get(top);
+                int next = nextChild.get(top);
+
+                if (next < node.fanout()) {
+                    nextChild.set(top, next + 1);
+                    CharTrieView<V> child = node.child(next);
+                    nodes.add(child);
+                    childOffsets.add(new int[child.fanout()]);
+                    nextChild.add(0);
+                    continue;
+                }
+
+                int offset = out.position();
+                int valueIndex = MappedTrieMap.NOT_ACCEPTING;
+                if (node.isAccepting()) {
+                    valueIndex = values.size();
+                    V value = node.value();
+                    values.add(value == null ? null : codec.encode(value));
+                }
+                writeNode(out, node, valueIndex, childOffsets.get(top));
+                ++nodeCount;
+
+                nodes.remove(top);
+                childOffsets.remove(top);
+                nextChild.remove(top);
+                if (top > 0) {
+                    childOffsets.get(top - 1)[nextChild.get(top - 1) - 1] = offset;
+                } else {
+                    rootOffset = offset;
+                }
+            }
+
+            int valueTable = out.position();
+            int dataOffset = valueTable + 8 * values.size();
+            for (byte[] value : values) {
+                out.putInt(dataOffset);
+                out.putInt(value == null ? MappedTrieMap.NULL_VALUE : value.length);
+                dataOffset += value == null ? 0 : value.length;
+            }
+            for (byte[] value : values) {
+                if (value != null) {
+                    out.put(value);
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(MappedTrieMap.HEADER_SIZE);
+            header.putInt(MappedTrieMap.MAGIC);
+            header.putInt(MappedTrieMap.VERSION);
+            header.putInt(values.size());
+            header.putInt(nodeCount);
+            header.putInt(rootOffset);
+            header.putInt(valueTable);
+            header.flip();
+            out.channel.write(header, 0);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static <V> void writeNode(Output out, CharTrieView<V> node, int valueIndex, int[] children)
+            throws IOException {
+        int fanout = node.fanout();
+        int start = out.position();
+        out.putInt(valueIndex);
+        out.putInt(fanout);
+        for (int i = 0; i < fanout; ++i) {
+            out.putChar(node.label(i));
+        }
+        out.skip(MappedTrieMap.childOffsets(start, fanout) - out.position());
+        for (int child : children) {
+            out.putInt(child);
+        }
+    }
+
+    /**
+     * A buffered writer which tracks the offset in the file.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long flushed;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int position() throws IOException {
+            long position = flushed + buffer.position();
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException("Trie file exceeds 2GB");
+            }
+            return (int) position;
+        }
+
+        void skip(int count) throws IOException {
+            for (int i = 0; i < count; ++i) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putChar(char value) throws IOException {
+            ensure(2);
+            buffer.putChar(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
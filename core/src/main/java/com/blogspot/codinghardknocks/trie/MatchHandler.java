@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+/**
+ * Receives the matches found by an {@link AhoCorasickMatcher}.
+ *
+ * @param <V> The type of value associated with the matched keys.
+ *
+ * @author kbohling
+ */
+public interface MatchHandler<V> {
+
+    /**
+     * Called for every occurrence of a key in the scanned text.  Matches are
+     * reported in order of their end offset, and the matches ending at the
+     * same offset from the longest to the shortest.
+     *
+     * @param start The offset of the first character of the match.
+     * @param end The offset just past the last character of the match.
+     * @param value The value associated with the matched key.
+     * @return <code>true</code> to continue scanning, <code>false</code> to stop.
+     */
+    boolean onMatch(long start, long end, V value);
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * Rough heap size estimates for the structures used by the tries.  The numbers
+ * assume a 64-bit JVM with compressed object pointers: a 12 byte object
+ * header, 16 byte array header, 4 byte references and 8 byte alignment.  They
+ * are meant for comparing representations, not as exact measurements.
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+final class MemoryEstimator {
+
+    /** Size of an object header. */
+    static final int OBJECT_HEADER = 12;
+
+    /** Size of an array header, including the length. */
+    static final int ARRAY_HEADER = 16;
+
+    /** Size of a reference. */
+    static final int REFERENCE = 4;
+
+    /** Size of a boxed {@link Character}, which are only cached up to 127. */
+    private static final int BOXED_CHARACTER = 16;
+
+    /**
+     * Constructor.
+     */
+    private MemoryEstimator() {
+    }
+
+    /**
+     * Round the size up to the object alignment.
+     *
+     * @param size The unaligned size.
+     * @return The aligned size.
+     */
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Estimate the size of an object.
+     *
+     * @param references The number of reference fields.
+     * @param primitiveBytes The number of bytes used by primitive fields.
+     * @return The estimated number of bytes.
+     */
+    static long object(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER + references * REFERENCE + primitiveBytes);
+    }
+
+    /**
+     * Estimate the size of an array.
+     *
+     * @param length The length of the array.
+     * @param elementBytes The size of each element.
+     * @return The estimated number of bytes.
+     */
+    static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * Estimate the size of a {@link java.util.TreeMap} including its entries.
+     *
+     * @param size The number of entries.
+     * @return The estimated number of bytes.
+     */
+    static long treeMap(int size) {
+        return object(5, 8) + size * object(5, 1);
+    }
+
+    /**
+     * Estimate the size of a {@link java.util.HashMap} including its table and
+     * entries.
+     *
+     * @param size The number of entries.
+     * @return The estimated number of bytes.
+     */
+    static long hashMap(int size) {
+        return hashMap(size, size);
+    }
+
+    /**
+     * Estimate the size of a {@link java.util.HashMap} whose table grew for
+     * more entries than it holds now, since the table never shrinks.
+     *
+     * @param size The number of entries.
+     * @param peak The largest number of entries the map has held.
+     * @return The estimated number of bytes.
+     */
+    static long hashMap(int size, int peak) {
+        int table = 16;
+        while (table * 3 / 4 < peak) {
+            table <<= 1;
+        }
+        return object(6, 16) + array(table, REFERENCE) + size * object(3, 4);
+    }
+
+    /**
+     * Estimate the size of boxing a character.
+     *
+     * @param c The character to box.
+     * @return The estimated number of bytes, zero for cached values.
+     */
+    static long boxedCharacter(char c) {
+        return c <= 127 ? 0 : BOXED_CHARACTER;
+    }
+}
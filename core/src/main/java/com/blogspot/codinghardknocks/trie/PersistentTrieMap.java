@@ -0,0 +1,470 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+
+/**
+ * An immutable <a href="http://en.wikipedia.org/wiki/Trie">Trie</a> which
+ * associates a {@link CharSequence} with a specific value.  Every update
+ * returns a new version of the map and leaves the old one untouched.  Only
+ * the nodes along the updated key are copied, so a version shares every other
+ * node with the version it was made from, and an update allocates
+ * O(|key| + fanout) rather than a copy of the whole trie.
+ *
+ * <p>
+ * Since nothing is ever modified after construction, a version can be handed
+ * to any number of reader threads without locking while a writer derives the
+ * next one.  An old version, and the nodes only it refers to, can be garbage
+ * collected once no reader refers to it.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class PersistentTrieMap<V> {
+
+    private static final char[] NO_LABELS = new char[0];
+
+    private final Node<V> root;
+
+    /**
+     * Constructor for an empty map.
+     */
+    public PersistentTrieMap() {
+        this(Node.<V>empty());
+    }
+
+    private PersistentTrieMap(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Return a version of this map with the key associated with the value,
+     * replacing any existing value.
+     *
+     * @param key The key to add.
+     * @param value The value to associate with the key.
+     * @return The new version, or this map if the key already had exactly
+     *         this value.
+     */
+    public PersistentTrieMap<V> put(CharSequence key, V value) {
+        int len = key.length();
+        Node<V>[] path = path(key);
+        int depth = 0;
+        while (depth < len && path[depth + 1] != null) {
+            ++depth;
+        }
+
+        Node<V> node;
+        int delta;
+        if (depth == len) {
+            Node<V> old = path[len];
+            if (old.accepting && old.value == value) {
+                return this;
+            }
+            delta = old.accepting ? 0 : 1;
+            node = new Node<V>(true, value, old.labels, old.children, old.count + delta);
+        } else {
+            // Build the missing tail of the key from the bottom up.
+            delta = 1;
+            node = new Node<V>(true, value, NO_LABELS, Node.<V>noChildren(), 1);
+            for (int i = len - 1; i > depth; --i) {
+                node = Node.single(key.charAt(i), node);
+            }
+            node = path[depth].withChild(key.charAt(depth), node, delta);
+        }
+        return new PersistentTrieMap<V>(copyPath(key, path, depth, node, delta));
+    }
+
+    /**
+     * Return a version of this map without the key.
+     *
+     * @param key The key to remove.
+     * @return The new version, or this map if the key was not present.
+     */
+    public PersistentTrieMap<V> remove(CharSequence key) {
+        int len = key.length();
+        Node<V>[] path = path(key);
+        if (path[len] == null || !path[len].accepting) {
+            return this;
+        }
+
+        Node<V> old = path[len];
+        if (old.children.length > 0 || len == 0) {
+            Node<V> node = new Node<V>(false, null, old.labels, old.children, old.count - 1);
+            return new PersistentTrieMap<V>(copyPath(key, path, len, node, -1));
+        }
+
+        // Cut the path at the highest node which no longer leads to a key.
+        int depth = len - 1;
+        while (depth > 0 && path[depth].count == 1) {
+            --depth;
+        }
+        Node<V> node = path[depth].withoutChild(key.charAt(depth));
+        return new PersistentTrieMap<V>(copyPath(key, path, depth, node, -1));
+    }
+
+    public boolean contains(CharSequence key) {
+        Node<V> node = walk(key);
+        return (node != null && node.accepting);
+    }
+
+    public boolean isEmpty() {
+        return root.count == 0;
+    }
+
+    public V get(CharSequence key) {
+        return get(key, null);
+    }
+
+    public V get(CharSequence key, V defaultValue) {
+        Node<V> node = walk(key);
+        if (node != null && node.accepting) {
+            return node.value;
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return root.count;
+    }
+
+    /**
+     * Returns the number of keys starting with the given prefix, in O(|prefix|).
+     *
+     * @param prefix The prefix of the keys to count.
+     * @return The number of keys starting with the prefix, including the prefix itself.
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        Node<V> node = walk(prefix);
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * ascending key order.  The iterator reads this version, so it is not
+     * affected by later updates.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix) {
+        return new EntryIterator<V>(walk(prefix), prefix);
+    }
+
+    /**
+     * Gather statistics about the shape and estimated size of this version.
+     * Nodes shared with other versions are counted in full.
+     *
+     * @return The statistics.
+     */
+    public TrieStatistics statistics() {
+        return TrieStatistics.of(root);
+    }
+
+    /**
+     * Compile this version into a {@link DoubleArrayTrieMap}.
+     *
+     * @return The compiled trie.
+     */
+    public DoubleArrayTrieMap<V> freeze() {
+        return DoubleArrayTrieMap.compile(root);
+    }
+
+    /**
+     * Getter for a read-only view of the root node.
+     *
+     * @return The view of the root node.
+     */
+    CharTrieView<V> rootView() {
+        return root;
+    }
+
+    private Node<V> walk(CharSequence key) {
+        int len = key.length();
+        Node<V> curr = root;
+        for (int i = 0; i < len; ++i) {
+            curr = curr.next(key.charAt(i));
+            if (null == curr) {
+                return null;
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * Collect the nodes along the key.
+     *
+     * @param key The key to walk.
+     * @return The nodes, starting with the root, padded with <code>null</code>
+     *         after the last node found.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<V>[] path(CharSequence key) {
+        int len = key.length();
+        Node<V>[] path = new Node[len + 1];
+        Node<V> curr = root;
+        path[0] = curr;
+        for (int i = 0; i < len && curr != null; ++i) {
+            curr = curr.next(key.charAt(i));
+            path[i + 1] = curr;
+        }
+        return path;
+    }
+
+    /**
+     * Copy the nodes above a replaced node, sharing everything off the path.
+     *
+     * @param key The key being updated.
+     * @param path The nodes along the key.
+     * @param depth The depth of the replaced node.
+     * @param node The replacement.
+     * @param delta The change in the number of keys.
+     * @return The new root.
+     */
+    private static <V> Node<V> copyPath(CharSequence key, Node<V>[] path, int depth, Node<V> node, int delta) {
+        Node<V> curr = node;
+        for (int i = depth - 1; i >= 0; --i) {
+            curr = path[i].withChild(key.charAt(i), curr, delta);
+        }
+        return curr;
+    }
+
+    /**
+     * An immutable node.  The transitions are sorted parallel arrays, as in
+     * {@link CharTrieNode}, which are never written after construction and
+     * are shared between versions whenever the labels did not change.
+     *
+     * @param <V> The type of value associated with this node.
+     */
+    private static final class Node<V> implements CharTrieView<V> {
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        private static final Node EMPTY = new Node<Object>(false, null, NO_LABELS, new Node[0], 0);
+
+        final boolean accepting;
+        final V value;
+        final char[] labels;
+        final Node<V>[] children;
+
+        /** The number of accepting nodes in the subtree rooted at this node, including this node. */
+        final int count;
+
+        Node(boolean accepting, V value, char[] labels, Node<V>[] children, int count) {
+            this.accepting = accepting;
+            this.value = value;
+            this.labels = labels;
+            this.children = children;
+            this.count = count;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> Node<V> empty() {
+            return EMPTY;
+        }
+
+        static <V> Node<V>[] noChildren() {
+            return Node.<V>empty().children;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> Node<V> single(char c, Node<V> child) {
+            return new Node<V>(false, null, new char[] {c}, new Node[] {child}, child.count);
+        }
+
+        Node<V> next(char c) {
+            int idx = Arrays.binarySearch(labels, c);
+            return idx >= 0 ? children[idx] : null;
+        }
+
+        /**
+         * Copy this node with a child added or replaced.
+         *
+         * @param c The label of the child.
+         * @param child The new child.
+         * @param delta The change in the number of keys below this node.
+         * @return The copy.
+         */
+        @SuppressWarnings("unchecked")
+        Node<V> withChild(char c, Node<V> child, int delta) {
+            int idx = Arrays.binarySearch(labels, c);
+            if (idx >= 0) {
+                Node<V>[] newChildren = children.clone();
+                newChildren[idx] = child;
+                return new Node<V>(accepting, value, labels, newChildren, count + delta);
+            }
+
+            int pos = -(idx + 1);
+            char[] newLabels = new char[labels.length + 1];
+            Node<V>[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            newLabels[pos] = c;
+            newChildren[pos] = child;
+            System.arraycopy(labels, pos, newLabels, pos + 1, labels.length - pos);
+            System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+            return new Node<V>(accepting, value, newLabels, newChildren, count + delta);
+        }
+
+        /**
+         * Copy this node without a child, which must exist, and one key fewer.
+         *
+         * @param c The label of the child.
+         * @return The copy.
+         */
+        @SuppressWarnings("unchecked")
+        Node<V> withoutChild(char c) {
+            int pos = Arrays.binarySearch(labels, c);
+            if (labels.length == 1) {
+                return new Node<V>(accepting, value, NO_LABELS, Node.<V>noChildren(), count - 1);
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node<V>[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            System.arraycopy(labels, pos + 1, newLabels, pos, newLabels.length - pos);
+            System.arraycopy(children, pos + 1, newChildren, pos, newChildren.length - pos);
+            return new Node<V>(accepting, value, newLabels, newChildren, count - 1);
+        }
+
+        @Override
+        public boolean isAccepting() {
+            return accepting;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public int fanout() {
+            return labels.length;
+        }
+
+        @Override
+        public char label(int index) {
+            return labels[index];
+        }
+
+        @Override
+        public Node<V> child(int index) {
+            return children[index];
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return MemoryEstimator.object(3, 5) + MemoryEstimator.array(labels.length, 2)
+                + MemoryEstimator.array(children.length, MemoryEstimator.REFERENCE);
+        }
+    }
+
+    /**
+     * Enumerates the accepting nodes below a node in key order, with a depth
+     * first search over an explicit stack.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    private static final class EntryIterator<V> implements Iterator<Map.Entry<String, V>> {
+
+        private final int prefixLength;
+        private Node<V>[] nodes;
+        private int[] next;
+        private char[] buffer;
+        private int top;
+        private Map.Entry<String, V> pending;
+
+        @SuppressWarnings("unchecked")
+        EntryIterator(Node<V> start, CharSequence prefix) {
+            prefixLength = prefix.length();
+            nodes = new Node[16];
+            next = new int[16];
+            buffer = new char[prefixLength + 16];
+            for (int i = 0; i < prefixLength; ++i) {
+                buffer[i] = prefix.charAt(i);
+            }
+            if (start == null) {
+                top = -1;
+                return;
+            }
+            nodes[0] = start;
+            pending = start.accepting ? entry(prefixLength, start.value) : advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (pending == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, V> result = pending;
+            pending = advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private Map.Entry<String, V> entry(int length, V value) {
+            return new AbstractMap.SimpleImmutableEntry<String, V>(new String(buffer, 0, length), value);
+        }
+
+        private Map.Entry<String, V> advance() {
+            while (top >= 0) {
+                Node<V> node = nodes[top];
+                int i = next[top];
+                if (i == node.labels.length) {
+                    nodes[top--] = null;
+                    continue;
+                }
+
+                next[top] = i + 1;
+                Node<V> child = node.children[i];
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    next = Arrays.copyOf(next, top << 1);
+                }
+                if (prefixLength + top > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1);
+                }
+                buffer[prefixLength + top - 1] = node.labels[i];
+                nodes[top] = child;
+                next[top] = 0;
+
+                if (child.accepting) {
+                    return entry(prefixLength + top, child.value);
+                }
+            }
+            return null;
+        }
+    }
+}
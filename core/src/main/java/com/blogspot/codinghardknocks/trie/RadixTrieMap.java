@@ -0,0 +1,584 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements a <a href="http://en.wikipedia.org/wiki/Radix_tree">radix tree</a>
+ * (a Patricia trie) which associates a {@link CharSequence} with a specific value.
+ *
+ * <p>
+ * Chains of nodes with a single child are collapsed into one edge, so a
+ * node only exists where keys branch or end.  An edge label is not copied: it
+ * is an offset and length into the key which created the edge, and the chars
+ * of that key before the offset always spell the path to the edge.  Adding a
+ * key which diverges inside an edge splits the edge, and removing a key
+ * merges a node left with a single child back into its parent's edge.  This
+ * suits long keys with long shared prefixes, like URLs and file paths, where
+ * most trie nodes would have a single child.
+ * </p>
+ *
+ * <p>
+ * Every node also counts the keys in its subtree, so
+ * {@link #countWithPrefix(CharSequence)} is a single walk.  A prefix may end
+ * part way along an edge, in which case every key below that edge starts
+ * with it.  Since the path to a node is a prefix of its edge's source, the
+ * prefix iterators return each key as a substring of that source rather than
+ * building it a character at a time.
+ * </p>
+ *
+ * <p>
+ * Since the labels refer to the keys, an edge may keep a removed key's
+ * String reachable while a longer key still uses it as a label.  Keys which
+ * are not Strings are copied into one when they create an edge.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class RadixTrieMap<V> {
+
+    private final Node<V> root;
+    private int size;
+    private int nodeCount;
+
+    /**
+     * Constructor.
+     */
+    public RadixTrieMap() {
+        root = new Node<V>("", 0, 0);
+        nodeCount = 1;
+    }
+
+    public V addIfAbsent(CharSequence key, V value) {
+        int len = key.length();
+        Node<V> node = root;
+        int depth = 0;
+
+        while (depth < len) {
+            int idx = node.indexOf(key.charAt(depth));
+            if (idx < 0) {
+                Node<V> leaf = new Node<V>(key.toString(), depth, len - depth);
+                leaf.accepting = true;
+                leaf.value = value;
+                node.insertAt(-(idx + 1), key.charAt(depth), leaf);
+                ++nodeCount;
+                ++size;
+                adjustCounts(key, 1);
+                return value;
+            }
+
+            Node<V> child = node.children[idx];
+            int matched = child.match(key, depth);
+            if (matched < child.length) {
+                // The key diverges or ends inside the edge, split it.
+                Node<V> mid = new Node<V>(child.source, child.offset, matched);
+                mid.count = child.count;
+                child.offset += matched;
+                child.length -= matched;
+                mid.insertAt(0, child.source.charAt(child.offset), child);
+                node.children[idx] = mid;
+                ++nodeCount;
+                child = mid;
+            }
+            node = child;
+            depth += matched;
+        }
+
+        if (!node.accepting) {
+            node.accepting = true;
+            node.value = value;
+            ++size;
+            adjustCounts(key, 1);
+        }
+        return node.value;
+    }
+
+    public void clear() {
+        root.clear();
+        size = 0;
+        nodeCount = 1;
+    }
+
+    public boolean contains(CharSequence key) {
+        Node<V> node = walk(key);
+        return node != null && node.accepting;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(CharSequence key) {
+        return get(key, null);
+    }
+
+    public V get(CharSequence key, V defaultValue) {
+        Node<V> node = walk(key);
+        if (node != null && node.accepting) {
+            return node.value;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Remove the key, merging any node left with a single child into the edge
+     * above it.
+     *
+     * @param key The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(CharSequence key) {
+        int len = key.length();
+        Node<V> grandparent = null;
+        Node<V> parent = null;
+        Node<V> node = root;
+        int depth = 0;
+
+        while (depth < len) {
+            int idx = node.indexOf(key.charAt(depth));
+            if (idx < 0) {
+                return null;
+            }
+            Node<V> child = node.children[idx];
+            if (child.match(key, depth) < child.length) {
+                return null;
+            }
+            grandparent = parent;
+            parent = node;
+            node = child;
+            depth += child.length;
+        }
+        if (!node.accepting) {
+            return null;
+        }
+
+        V value = node.value;
+        adjustCounts(key, -1);
+        node.accepting = false;
+        node.value = null;
+        --size;
+
+        if (parent == null) {
+            return value;
+        }
+        if (node.fanout == 0) {
+            parent.removeAt(parent.indexOf(node.firstChar()));
+            --nodeCount;
+            if (grandparent != null) {
+                mergeIfChain(grandparent, parent);
+            }
+        } else {
+            mergeIfChain(parent, node);
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of keys starting with the given prefix, in O(|prefix|).
+     *
+     * @param prefix The prefix of the keys to count.
+     * @return The number of keys starting with the prefix, including the prefix itself.
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        Node<V> node = seek(prefix);
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * Lazily enumerate the keys starting with the given prefix, in ascending
+     * order.  The trie must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The keys starting with the prefix.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> keys starting with the given
+     * prefix, in ascending order.  The trie must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of keys to return.
+     * @return The keys starting with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix, int limit) {
+        return new PrefixIterator<String>(seek(prefix), limit) {
+            @Override
+            String emit(String key, V value) {
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * ascending key order.  The trie must not be modified while the iterator
+     * is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix) {
+        return entriesWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> entries whose key starts with
+     * the given prefix, in ascending key order.  The trie must not be modified
+     * while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of entries to return.
+     * @return The entries whose key starts with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix, int limit) {
+        return new PrefixIterator<Map.Entry<String, V>>(seek(prefix), limit) {
+            @Override
+            Map.Entry<String, V> emit(String key, V value) {
+                return new AbstractMap.SimpleImmutableEntry<String, V>(key, value);
+            }
+        };
+    }
+
+    /**
+     * Return the number of nodes, including the root.
+     *
+     * @return The number of nodes.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Estimate the memory used by the nodes, not counting the keys, values or
+     * the Strings the labels refer to.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        return estimatedBytes(root);
+    }
+
+    private static <V> long estimatedBytes(Node<V> node) {
+        long bytes = MemoryEstimator.object(4, 17);
+        if (node.firsts != null) {
+            bytes += MemoryEstimator.array(node.firsts.length, 2);
+            bytes += MemoryEstimator.array(node.children.length, MemoryEstimator.REFERENCE);
+        }
+        for (int i = 0; i < node.fanout; ++i) {
+            bytes += estimatedBytes(node.children[i]);
+        }
+        return bytes;
+    }
+
+    /**
+     * Merge a non-accepting node with a single child into that child, so the
+     * child's edge covers both labels.
+     *
+     * @param parent The parent of the node.
+     * @param node The node to merge.
+     */
+    private void mergeIfChain(Node<V> parent, Node<V> node) {
+        if (node.accepting || node.fanout != 1) {
+            return;
+        }
+        Node<V> child = node.children[0];
+        // The child's source spells the whole path to it, including the node's label.
+        child.offset -= node.length;
+        child.length += node.length;
+        parent.children[parent.indexOf(node.firstChar())] = child;
+        --nodeCount;
+    }
+
+    private Node<V> walk(CharSequence key) {
+        int len = key.length();
+        Node<V> node = root;
+        int depth = 0;
+        while (depth < len) {
+            int idx = node.indexOf(key.charAt(depth));
+            if (idx < 0) {
+                return null;
+            }
+            node = node.children[idx];
+            if (node.match(key, depth) < node.length) {
+                return null;
+            }
+            depth += node.length;
+        }
+        return node;
+    }
+
+    /**
+     * Find the highest node whose subtree holds every key starting with the
+     * prefix.  The prefix may end part way along the edge into that node.
+     *
+     * @return The node, or <code>null</code> if no key starts with the prefix.
+     */
+    private Node<V> seek(CharSequence prefix) {
+        int len = prefix.length();
+        Node<V> node = root;
+        int depth = 0;
+        while (depth < len) {
+            int idx = node.indexOf(prefix.charAt(depth));
+            if (idx < 0) {
+                return null;
+            }
+            node = node.children[idx];
+            int matched = node.match(prefix, depth);
+            depth += matched;
+            if (depth < len && matched < node.length) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Add <code>delta</code> to the count of every node on the path of a key
+     * which ends on a node.
+     */
+    private void adjustCounts(CharSequence key, int delta) {
+        int len = key.length();
+        Node<V> node = root;
+        node.count += delta;
+        int depth = 0;
+        while (depth < len) {
+            node = node.children[node.indexOf(key.charAt(depth))];
+            node.count += delta;
+            depth += node.length;
+        }
+    }
+
+    /**
+     * Lazily enumerates the accepting nodes below a node in key order, with
+     * a depth first search over an explicit stack.
+     *
+     * @param <T> The type of result returned by the iterator.
+     */
+    private abstract class PrefixIterator<T> implements Iterator<T> {
+        private Node<V>[] nodes;
+        private int[] next;
+        private int top;
+        private int remaining;
+        private T pending;
+
+        @SuppressWarnings("unchecked")
+        PrefixIterator(Node<V> start, int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative: " + limit);
+            }
+            nodes = new Node[16];
+            next = new int[16];
+            remaining = limit;
+
+            if (start == null || limit == 0) {
+                top = -1;
+                return;
+            }
+            nodes[0] = start;
+            pending = start.accepting ? emit(start.key(), start.value) : advance();
+        }
+
+        abstract T emit(String key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 && top >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = pending;
+            if (--remaining > 0) {
+                pending = advance();
+            } else {
+                pending = null;
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private T advance() {
+            while (top >= 0) {
+                Node<V> node = nodes[top];
+                int i = next[top];
+                if (i == node.fanout) {
+                    nodes[top--] = null;
+                    continue;
+                }
+
+                next[top] = i + 1;
+                Node<V> child = node.children[i];
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    next = Arrays.copyOf(next, top << 1);
+                }
+                nodes[top] = child;
+                next[top] = 0;
+
+                if (child.accepting) {
+                    return emit(child.key(), child.value);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A node along with the label of the edge leading to it.
+     *
+     * @param <V> The type contained by the Trie.
+     */
+    private static final class Node<V> {
+        private static final int INITIAL_CAPACITY = 2;
+
+        /** The key the label is taken from. */
+        String source;
+        /** The offset of the label in {@link #source}. */
+        int offset;
+        /** The length of the label. */
+        int length;
+        boolean accepting;
+        V value;
+        /** The number of keys in the subtree, including this node. */
+        int count;
+        /** The first char of each child's label, sorted ascending. */
+        char[] firsts;
+        Node<V>[] children;
+        int fanout;
+
+        Node(String source, int offset, int length) {
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        char firstChar() {
+            return source.charAt(offset);
+        }
+
+        /**
+         * Return the key spelled by the path to this node.
+         */
+        String key() {
+            return source.substring(0, offset + length);
+        }
+
+        /**
+         * Count how many chars of the label match the key from the given depth.
+         */
+        int match(CharSequence key, int depth) {
+            int max = Math.min(length, key.length() - depth);
+            int i = 0;
+            while (i < max && source.charAt(offset + i) == key.charAt(depth + i)) {
+                ++i;
+            }
+            return i;
+        }
+
+        int indexOf(char c) {
+            int low = 0;
+            int high = fanout - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midVal = firsts[mid];
+                if (midVal < c) {
+                    low = mid + 1;
+                } else if (midVal > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        void insertAt(int pos, char c, Node<V> node) {
+            if (firsts == null) {
+                firsts = new char[INITIAL_CAPACITY];
+                children = new Node[INITIAL_CAPACITY];
+            } else if (fanout == firsts.length) {
+                int capacity = fanout << 1;
+                char[] newFirsts = new char[capacity];
+                Node<V>[] newChildren = new Node[capacity];
+                System.arraycopy(firsts, 0, newFirsts, 0, fanout);
+                System.arraycopy(children, 0, newChildren, 0, fanout);
+                firsts = newFirsts;
+                children = newChildren;
+            }
+
+            int moved = fanout - pos;
+            if (moved > 0) {
+                System.arraycopy(firsts, pos, firsts, pos + 1, moved);
+                System.arraycopy(children, pos, children, pos + 1, moved);
+            }
+            firsts[pos] = c;
+            children[pos] = node;
+            ++fanout;
+        }
+
+        void removeAt(int pos) {
+            --fanout;
+            if (fanout == 0) {
+                firsts = null;
+                children = null;
+                return;
+            }
+            int moved = fanout - pos;
+            System.arraycopy(firsts, pos + 1, firsts, pos, moved);
+            System.arraycopy(children, pos + 1, children, pos, moved);
+            children[fanout] = null;
+        }
+
+        void clear() {
+            accepting = false;
+            value = null;
+            count = 0;
+            firsts = null;
+            children = null;
+            fanout = 0;
+        }
+    }
+}
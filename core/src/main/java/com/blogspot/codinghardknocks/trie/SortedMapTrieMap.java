@@ -38,6 +38,11 @@ public class SortedMapTrieMap<K, V>  extends AbstractTrieMap<K, V> {
             return new TreeMap<K, AbstractTrieMapUsingMapNode<K, V>>();
         }
 
+        @Override
+        protected AbstractTrieMapUsingMapNode<K, V> createNode() {
+            return new TrieMapUsedSortedMapNode<K, V>(false, null);
+        }
+
     }
 }
 
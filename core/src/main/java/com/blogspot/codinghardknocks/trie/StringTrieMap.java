@@ -15,8 +15,10 @@
  */
 package com.blogspot.codinghardknocks.trie;
 
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 
@@ -25,6 +27,10 @@ import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
  * Class implements a <a href="http://en.wikipedia.org/wiki/Trie">Trie</a>
  * which associates a {@link CharSequence} with a specific value.  It is expected to primarily
  * be used with {@link String} objects, but only uses the {@link CharSequence} interface.
+ * Transitions are stored in {@link CharTrieNode}s, so walking a key never boxes a character.
+ * Every node tracks the number of keys below it, so {@link #size()} and
+ * {@link #countWithPrefix(String)} are cheap and the keys can be addressed by
+ * their position in sorted order with {@link #rank(String)} and {@link #select(int)}.
  *
  * @param <V> The type contained by the Trie.
  * @author kbohling
@@ -33,88 +39,317 @@ import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
 @NotThreadSafe
 public class StringTrieMap<V> {
 
-    private Node<V> root;
+    private final CharTrieNode<V> root;
 
     /**
      * Constructor.
      */
     public StringTrieMap() {
-        root = new Node<V>();
+        root = new CharTrieNode<V>();
     }
 
-    public V addIfAbsent(String key, V value) {
-        Node<V> node = walkAndAdd(key, root);
+    /**
+     * Constructor for a trie whose nodes were built elsewhere.
+     *
+     * @param root The root node, whose counts must be correct.
+     */
+    StringTrieMap(CharTrieNode<V> root) {
+        this.root = root;
+    }
+
+    public V addIfAbsent(CharSequence key, V value) {
+        CharTrieNode<V> node = walkAndAdd(key, root);
         if (!node.accepting) {
             node.accepting = true;
-            node.setValue(value);
+            node.value = value;
+            adjustCounts(key, 1);
+        }
+        return node.value;
+    }
+
+    /**
+     * Remove the key, pruning any nodes which no longer lead to a key.
+     *
+     * @param key The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(CharSequence key) {
+        CharTrieNode<V> node = walk(key, root);
+        if (node == null || !node.accepting) {
+            return null;
+        }
+
+        V value = node.value;
+        node.accepting = false;
+        node.value = null;
+        adjustCounts(key, -1);
+
+        // Cut the path at the highest node which no longer leads to a key.
+        int len = key.length();
+        CharTrieNode<V> curr = root;
+        for (int i = 0; i < len; ++i) {
+            int idx = curr.indexOf(key.charAt(i));
+            CharTrieNode<V> child = curr.children[idx];
+            if (child.count == 0) {
+                curr.removeAt(idx);
+                break;
+            }
+            curr = child;
         }
-        return node.value();
+        return value;
     }
 
     public void clear() {
         root.clear();
     }
 
-    public boolean contains(String key) {
-        Node<V> node = walk(key, root);
+    public boolean contains(CharSequence key) {
+        CharTrieNode<V> node = walk(key, root);
         return (node != null && node.accepting);
     }
 
     public boolean isEmpty() {
-        return isEmpty(root);
+        return root.count == 0;
+    }
+
+    public V get(CharSequence key) {
+        return get(key, null);
+    }
+
+    public V get(CharSequence key, V defaultValue) {
+        CharTrieNode<V> node = walk(key, root);
+        if (node != null && node.accepting) {
+            return node.value;
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return root.count;
+    }
+
+    /**
+     * Returns the number of keys starting with the given prefix, in O(|prefix|).
+     *
+     * @param prefix The prefix of the keys to count.
+     * @return The number of keys starting with the prefix, including the prefix itself.
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        CharTrieNode<V> node = walk(prefix, root);
+        return node == null ? 0 : node.count;
     }
 
-    private boolean isEmpty(Node<V> node) {
-        if (node.accepting) {
-            return false;
+    /**
+     * Returns the number of keys which sort before the given key.  The key does
+     * not need to be in the trie.
+     *
+     * @param key The key to rank.
+     * @return The number of keys less than <code>key</code>, which is the
+     *         index of <code>key</code> in sorted order if it is present.
+     */
+    public int rank(CharSequence key) {
+        int rank = 0;
+        CharTrieNode<V> node = root;
+        int len = key.length();
+        for (int i = 0; i < len; ++i) {
+            // A proper prefix sorts before the key.
+            if (node.accepting) {
+                ++rank;
+            }
+            if (node.fanout == 0) {
+                return rank;
+            }
+
+            int idx = node.indexOf(key.charAt(i));
+            int smaller = idx >= 0 ? idx : -(idx + 1);
+            for (int j = 0; j < smaller; ++j) {
+                rank += node.children[j].count;
+            }
+            if (idx < 0) {
+                return rank;
+            }
+            node = node.children[idx];
         }
+        return rank;
+    }
 
-        if (node.next == null) {
-            return false;
+    /**
+     * Returns the key at the given position in sorted order.
+     *
+     * @param index The position of the key, starting from zero.
+     * @return The key, <code>rank(select(index)) == index</code>.
+     * @throws IndexOutOfBoundsException If the index is negative or not less
+     *         than {@link #size()}.
+     */
+    public String select(int index) {
+        if (index < 0 || index >= root.count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + root.count);
         }
 
-        for (Node<V> n : node.next.values()) {
-            if (!isEmpty(n)) {
-                return false;
+        StringBuilder key = new StringBuilder();
+        CharTrieNode<V> node = root;
+        int remaining = index;
+        while (true) {
+            if (node.accepting) {
+                if (remaining == 0) {
+                    return key.toString();
+                }
+                --remaining;
+            }
+            for (int i = 0; i < node.fanout; ++i) {
+                CharTrieNode<V> child = node.children[i];
+                if (remaining < child.count) {
+                    key.append(node.labels[i]);
+                    node = child;
+                    break;
+                }
+                remaining -= child.count;
             }
         }
+    }
 
-        return true;
+    /**
+     * Lazily enumerate the keys starting with the given prefix, in ascending
+     * order.  The trie must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The keys starting with the prefix.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
     }
 
-    public V get(String key) {
-        return get(key, null);
+    /**
+     * Lazily enumerate at most <code>limit</code> keys starting with the given
+     * prefix, in ascending order.  The trie must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of keys to return.
+     * @return The keys starting with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix, int limit) {
+        return new CharTrieIterator<V, String>(walk(prefix, root), prefix, limit) {
+            @Override
+            String emit(char[] key, int length, V value) {
+                return new String(key, 0, length);
+            }
+        };
     }
 
-    public V get(String key, V defaultValue) {
-        Node<V> node = walk(key, root);
-        if (node.accepting) {
-            return node.value();
-        }
-        return defaultValue;
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * ascending key order.  The trie must not be modified while the iterator
+     * is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix) {
+        return entriesWithPrefix(prefix, Integer.MAX_VALUE);
     }
 
-    public int size() {
-        return size(root);
+    /**
+     * Lazily enumerate at most <code>limit</code> entries whose key starts with
+     * the given prefix, in ascending key order.  The trie must not be modified
+     * while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of entries to return.
+     * @return The entries whose key starts with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix, int limit) {
+        return new CharTrieIterator<V, Map.Entry<String, V>>(walk(prefix, root), prefix, limit) {
+            @Override
+            Map.Entry<String, V> emit(char[] key, int length, V value) {
+                return new AbstractMap.SimpleImmutableEntry<String, V>(new String(key, 0, length), value);
+            }
+        };
     }
 
-    private int size(Node<V> node) {
-        int count = node.accepting ? 1 : 0;
+    /**
+     * Create a cursor positioned at the root of this trie, which walks keys
+     * one character at a time without allocating.
+     *
+     * @return A new cursor.
+     */
+    public CharTrieCursor<V> cursor() {
+        return new CharTrieNodeCursor<V>(root);
+    }
 
-        if (node.next == null) {
-            return count;
-        }
+    /**
+     * Gather statistics about the shape and estimated size of this trie.  This
+     * walks every node, so it is O(nodes).
+     *
+     * @return The statistics.
+     */
+    public TrieStatistics statistics() {
+        return TrieStatistics.of(root);
+    }
 
-        for (Node<V> n : node.next.values()) {
-            count += size(n);
-        }
+    /**
+     * Find every key within the given edit distance of the query.
+     *
+     * @param query The query to compare the keys against.
+     * @param maxDistance The largest Levenshtein distance to return.
+     * @return The matches, ordered by distance and then by key.
+     * @throws IllegalArgumentException If the distance is negative.
+     */
+    public List<FuzzyMatch<V>> fuzzySearch(CharSequence query, int maxDistance) {
+        return fuzzySearch(query, maxDistance, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the <code>limit</code> keys closest to the query, within the given
+     * edit distance.  Ties are broken by key, and the search stops exploring
+     * a branch once it cannot improve on the matches already found.
+     *
+     * @param query The query to compare the keys against.
+     * @param maxDistance The largest Levenshtein distance to return.
+     * @param limit The maximum number of matches to return.
+     * @return The matches, ordered by distance and then by key.
+     * @throws IllegalArgumentException If the distance or limit is negative.
+     */
+    public List<FuzzyMatch<V>> fuzzySearch(CharSequence query, int maxDistance, int limit) {
+        return new FuzzySearch<V>(query, maxDistance, limit).search(root);
+    }
+
+    /**
+     * Compile the current contents into an immutable {@link DoubleArrayTrieMap}.
+     * Later changes to this trie are not reflected in the result.
+     *
+     * @return The compiled read-only trie.
+     */
+    public DoubleArrayTrieMap<V> freeze() {
+        return DoubleArrayTrieMap.compile(root);
+    }
+
+    /**
+     * Compile the current keys into an {@link AhoCorasickMatcher}, which finds
+     * every occurrence of the keys in a text.  Later changes to this trie are
+     * not reflected in the result.
+     *
+     * @return The compiled matcher.
+     */
+    public AhoCorasickMatcher<V> compileMatcher() {
+        return AhoCorasickMatcher.compile(root);
+    }
 
-        return count;
+    /**
+     * Getter for a read-only view of the root node.
+     *
+     * @return The view of the root node.
+     */
+    CharTrieView<V> rootView() {
+        return root;
     }
 
-    private static <V> Node<V> walk(String key, Node<V> root) {
+    private static <V> CharTrieNode<V> walk(CharSequence key, CharTrieNode<V> root) {
         int len = key.length();
-        Node<V> curr = root;
+        CharTrieNode<V> curr = root;
         for (int i = 0; i < len; ++i) {
             curr = curr.next(key.charAt(i));
             if (null == curr) {
@@ -124,65 +359,29 @@ public class StringTrieMap<V> {
         return curr;
     }
 
-    private static <V> Node<V> walkAndAdd(String key, Node<V> root) {
+    /**
+     * Adjust the count of every node along the path of a key.
+     *
+     * @param key The key whose accepting state changed, the path must exist.
+     * @param delta The change in the number of keys.
+     */
+    private void adjustCounts(CharSequence key, int delta) {
         int len = key.length();
-        Node<V> curr = root;
+        CharTrieNode<V> curr = root;
+        curr.count += delta;
         for (int i = 0; i < len; ++i) {
-            curr = curr.addIfAbsent(key.charAt(i));
+            curr = curr.next(key.charAt(i));
+            curr.count += delta;
         }
-        return curr;
     }
 
-
-    private static class Node<V> {
-        private boolean accepting;
-        private SortedMap<Character, Node<V>> next;
-        private V value;
-
-        public Node() {
-        }
-
-        private static <V> SortedMap<Character, Node<V>> createNext() {
-            return new TreeMap<Character, Node<V>>();
-        }
-
-        public Node<V> addIfAbsent(char charAt) {
-            if (null == next) {
-                next = createNext();
-                Node<V> node = new Node<V>();
-                next.put(charAt, node);
-                return node;
-            }
-
-            Node<V> node = next.get(charAt);
-            if (node == null) {
-                node = new Node<V>();
-                next.put(charAt, node);
-            }
-            return node;
-        }
-
-        public void clear() {
-            accepting = false;
-            next = null;
-            value = null;
-        }
-
-        public void setValue(V obj) {
-            this.value = obj;
-        }
-
-        public V value() {
-            return value;
-        }
-
-        public Node<V> next(char c) {
-            if (next == null) {
-                return null;
-            }
-            return next.get(c);
+    private static <V> CharTrieNode<V> walkAndAdd(CharSequence key, CharTrieNode<V> root) {
+        int len = key.length();
+        CharTrieNode<V> curr = root;
+        for (int i = 0; i < len; ++i) {
+            curr = curr.addIfAbsent(key.charAt(i));
         }
+        return curr;
     }
 
-
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * Loads a {@link StringTrieMap} straight from a text file with one key per
+ * record, such as a word list.  The file is read through a
+ * {@link FileChannel} into a fixed size buffer and decoded a chunk at a time,
+ * and each character is fed directly into the trie as it is decoded.  No
+ * <code>String</code> is created per record and the file is never held in
+ * memory, so the memory used beyond the trie itself is the two buffers,
+ * however large the file.
+ *
+ * <p>
+ * Records end at the record delimiter, a newline by default, which also
+ * accepts <code>"\r\n"</code>.  Empty records are ignored, and do not count
+ * towards {@link #skipRecords(int)}.  If a {@link ValueParser} is given,
+ * each record is split at the first field delimiter, a tab by default, and
+ * the rest of the record is parsed into the value, for example
+ * <code>"word\tweight"</code>.  Without one the whole
+ * record is the key and the values are <code>null</code>.  As with
+ * {@link StringTrieMap#addIfAbsent(CharSequence, Object)}, the first value
+ * given for a key is the one kept, and later duplicates are not parsed.
+ * </p>
+ *
+ * <pre>
+ * StringTrieMap&lt;Integer&gt; trie = new StringTrieMapFileLoader&lt;Integer&gt;()
+ *     .valueParser(parser)
+ *     .skipRecords(1)
+ *     .load(file);
+ * </pre>
+ *
+ * @param <V> The type of value stored in the trie.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+public class StringTrieMapFileLoader<V> {
+
+    /** The default size of the read buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private Charset charset = Charset.forName("UTF-8");
+    private char recordDelimiter = '\n';
+    private char fieldDelimiter = '\t';
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int skipRecords;
+    private ValueParser<? extends V> valueParser;
+    private ProgressListener progressListener;
+
+    /**
+     * Constructor.
+     */
+    public StringTrieMapFileLoader() {
+    }
+
+    /**
+     * Setter for the encoding of the file, UTF-8 by default.
+     *
+     * @param charset The encoding.
+     * @return This loader.
+     */
+    public StringTrieMapFileLoader<V> charset(Charset charset) {
+        if (charset == null) {
+            throw new NullPointerException("charset");
+        }
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Setter for the character which ends a record, a newline by default.
+     *
+     * @param delimiter The delimiter.
+     * @return This loader.
+     */
+    public StringTrieMapFileLoader<V> recordDelimiter(char delimiter) {
+        this.recordDelimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Setter for the character which separates the key from the value, a tab
+     * by default.  It is only used if there is a {@link ValueParser}.
+     *
+     * @param delimiter The delimiter.
+     * @return This loader.
+     */
+    public StringTrieMapFileLoader<V> fieldDelimiter(char delimiter) {
+        this.fieldDelimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Setter for the size of the read buffer, which bounds the memory used
+     * while loading.
+     *
+     * @param size The size in bytes.
+     * @return This loader.
+     * @throws IllegalArgumentException If the size is less than 16 bytes.
+     */
+    public StringTrieMapFileLoader<V> bufferSize(int size) {
+        if (size < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16: " + size);
+        }
+        this.bufferSize = size;
+        return this;
+    }
+
+    /**
+     * Setter for the number of leading records to ignore, such as a header.
+     *
+     * @param count The number of records.
+     * @return This loader.
+     * @throws IllegalArgumentException If the count is negative.
+     */
+    public StringTrieMapFileLoader<V> skipRecords(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        this.skipRecords = count;
+        return this;
+    }
+
+    /**
+     * Setter for the parser of the value field.
+     *
+     * @param parser The parser, or <code>null</code> to load keys only.
+     * @return This loader.
+     */
+    public StringTrieMapFileLoader<V> valueParser(ValueParser<? extends V> parser) {
+        this.valueParser = parser;
+        return this;
+    }
+
+    /**
+     * Setter for the listener told about progress after every chunk read.
+     *
+     * @param listener The listener, or <code>null</code> for none.
+     * @return This loader.
+     */
+    public StringTrieMapFileLoader<V> progressListener(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * Load the file into a new trie.
+     *
+     * @param file The file to read.
+     * @return The trie.
+     * @throws IOException If the file cannot be read, or is not valid in the
+     *         configured charset.
+     */
+    public StringTrieMap<V> load(File file) throws IOException {
+        CharTrieNode<V> root = new CharTrieNode<V>();
+        Records<V> records = new Records<V>(root, this);
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long total = channel.size();
+            long read = 0;
+            CharsetDecoder decoder = charset.newDecoder();
+            ByteBuffer bytes = ByteBuffer.allocateDirect(bufferSize);
+            CharBuffer chars = CharBuffer.allocate(bufferSize);
+
+            boolean eof = false;
+            while (!eof) {
+                int n = channel.read(bytes);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    read += n;
+                }
+                bytes.flip();
+                decode(decoder, bytes, chars, eof, records);
+                bytes.compact();
+                if (progressListener != null && (n > 0 || eof)) {
+                    progressListener.onProgress(read, total, records.keys);
+                }
+            }
+            while (decoder.flush(chars) == CoderResult.OVERFLOW) {
+                records.feed(chars);
+            }
+            records.feed(chars);
+            records.endRecord();
+        } finally {
+            in.close();
+        }
+
+        StringTrieMapLoader.countKeys(root);
+        return new StringTrieMap<V>(root);
+    }
+
+    /**
+     * Decode the available bytes, feeding the characters to the records
+     * whenever the character buffer fills up.
+     */
+    private static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean eof,
+            Records<?> records) throws IOException {
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, eof);
+            if (result.isError()) {
+                result.throwException();
+            }
+            records.feed(chars);
+            if (result.isUnderflow()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parses the value field of a record.
+     *
+     * @param <V> The type of value produced.
+     */
+    public interface ValueParser<V> {
+
+        /**
+         * Parse a value.  The field is a view of a buffer which is reused for
+         * the next record, so it must not be kept.
+         *
+         * @param field The text after the field delimiter, empty if the
+         *        record had no delimiter.
+         * @return The value.
+         */
+        V parse(CharSequence field);
+    }
+
+    /**
+     * Told how far a load has got.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after every chunk of the file is processed.
+         *
+         * @param bytesRead The number of bytes read so far.
+         * @param totalBytes The size of the file.
+         * @param keys The number of distinct keys loaded so far.
+         */
+        void onProgress(long bytesRead, long totalBytes, int keys);
+    }
+
+    /**
+     * The state of the record being read: the trie node reached by its key so
+     * far, and the value field if it has started.
+     *
+     * @param <V> The type of value stored in the trie.
+     */
+    private static final class Records<V> {
+
+        private final CharTrieNode<V> root;
+        private final char recordDelimiter;
+        private final char fieldDelimiter;
+        private final ValueParser<? extends V> valueParser;
+        private final StringBuilder field = new StringBuilder();
+        private int skip;
+        private CharTrieNode<V> node;
+        private boolean empty = true;
+        private boolean inValue;
+        int keys;
+
+        Records(CharTrieNode<V> root, StringTrieMapFileLoader<V> loader) {
+            this.root = root;
+            this.recordDelimiter = loader.recordDelimiter;
+            this.fieldDelimiter = loader.fieldDelimiter;
+            this.valueParser = loader.valueParser;
+            this.skip = loader.skipRecords;
+            this.node = root;
+        }
+
+        /**
+         * Consume the decoded characters, leaving the buffer empty and ready
+         * for writing.
+         */
+        void feed(CharBuffer chars) {
+            chars.flip();
+            char[] array = chars.array();
+            int end = chars.arrayOffset() + chars.limit();
+            for (int i = chars.arrayOffset() + chars.position(); i < end; ++i) {
+                char c = array[i];
+                if (c == recordDelimiter || (c == '\r' && recordDelimiter == '\n')) {
+                    endRecord();
+                } else if (skip > 0) {
+                    empty = false;
+                } else if (inValue) {
+                    field.append(c);
+                } else if (c == fieldDelimiter && valueParser != null) {
+                    inValue = true;
+                    empty = false;
+                } else {
+                    node = node.addIfAbsent(c);
+                    empty = false;
+                }
+            }
+            chars.clear();
+        }
+
+        void endRecord() {
+            if (empty) {
+                return;
+            }
+            if (skip > 0) {
+                --skip;
+                empty = true;
+                return;
+            }
+            if (!node.accepting) {
+                node.accepting = true;
+                node.value = valueParser == null ? null : valueParser.parse(field);
+                ++keys;
+            }
+            node = root;
+            empty = true;
+            inValue = false;
+            field.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * Builds a {@link StringTrieMap} from many entries at once, faster than
+ * calling {@link StringTrieMap#addIfAbsent(CharSequence, Object)} for each of them.
+ *
+ * <p>
+ * Sorted input is loaded in a single streaming pass.  The path to the previous
+ * key is kept on a stack, so each key only walks the part which differs from
+ * its predecessor, and its new transitions are always appended after the
+ * existing ones without a search.  Unsorted input is partitioned by its
+ * leading characters, recursively until the partitions are small, and the
+ * subtries of the partitions are built in parallel on a {@link ForkJoinPool}
+ * before being stitched under their parents.  Characters shared by every key
+ * of a partition are added as a chain in a loop, so a long common prefix does
+ * not nest a task per character.
+ * </p>
+ *
+ * <p>
+ * As with {@link StringTrieMap#addIfAbsent(CharSequence, Object)}, the first value
+ * given for a key is the one kept.
+ * </p>
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class StringTrieMapLoader {
+
+    /** Partitions with at most this many entries are built by a single task. */
+    private static final int PARALLEL_TASK_SIZE = 8192;
+
+    /**
+     * Constructor.
+     */
+    private StringTrieMapLoader() {
+    }
+
+    /**
+     * Load entries whose keys are in ascending order, as given by
+     * {@link String#compareTo(String)}, for example the entries of a
+     * {@link java.util.SortedMap}.  The entries are only iterated once.
+     *
+     * @param <V> The type of value stored in the trie.
+     * @param entries The entries to load.
+     * @return The trie.
+     * @throws IllegalArgumentException If the keys are not sorted.
+     */
+    public static <V> StringTrieMap<V> loadSorted(Iterable<? extends Map.Entry<String, ? extends V>> entries) {
+        CharTrieNode<V> root = new CharTrieNode<V>();
+        @SuppressWarnings("unchecked")
+        CharTrieNode<V>[] path = new CharTrieNode[16];
+        path[0] = root;
+        String previous = null;
+
+        for (Map.Entry<String, ? extends V> entry : entries) {
+            String key = entry.getKey();
+            int len = key.length();
+            int common = 0;
+            if (previous != null) {
+                int max = Math.min(len, previous.length());
+                while (common < max && key.charAt(common) == previous.charAt(common)) {
+                    ++common;
+                }
+                if (common < max ? key.charAt(common) < previous.charAt(common) : len < previous.length()) {
+                    throw new IllegalArgumentException("Keys are not sorted: " + key + " after " + previous);
+                }
+            }
+
+            if (len >= path.length) {
+                path = Arrays.copyOf(path, Math.max(path.length << 1, len + 1));
+            }
+            CharTrieNode<V> node = path[common];
+            for (int i = common; i < len; ++i) {
+                CharTrieNode<V> child = new CharTrieNode<V>();
+                // Sorted input only ever adds the largest label so far.
+                node.insertAt(node.fanout, key.charAt(i), child);
+                node = child;
+                path[i + 1] = node;
+            }
+            if (!node.accepting) {
+                node.accepting = true;
+                node.value = entry.getValue();
+            }
+            previous = key;
+        }
+
+        countKeys(root);
+        return new StringTrieMap<V>(root);
+    }
+
+    /**
+     * Load entries in any order, building the subtries in parallel using a
+     * pool sized to the number of available processors.
+     *
+     * @param <V> The type of value stored in the trie.
+     * @param entries The entries to load.
+     * @return The trie.
+     */
+    public static <V> StringTrieMap<V> load(Iterable<? extends Map.Entry<String, ? extends V>> entries) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return load(entries, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Load entries in any order, building the subtries in parallel.
+     *
+     * @param <V> The type of value stored in the trie.
+     * @param entries The entries to load.
+     * @param pool The pool used to build the subtries.
+     * @return The trie.
+     */
+    public static <V> StringTrieMap<V> load(Iterable<? extends Map.Entry<String, ? extends V>> entries,
+            ForkJoinPool pool) {
+        List<Map.Entry<String, ? extends V>> list = new ArrayList<Map.Entry<String, ? extends V>>();
+        for (Map.Entry<String, ? extends V> entry : entries) {
+            list.add(entry);
+        }
+        @SuppressWarnings("unchecked")
+        Map.Entry<String, ? extends V>[] array = list.toArray(new Map.Entry[list.size()]);
+        return new StringTrieMap<V>(pool.invoke(new BuildTask<V>(array, 0, array.length, 0)));
+    }
+
+    /**
+     * Set the count of every node from its subtree, after the nodes were
+     * linked without maintaining them.  The walk is a post-order traversal
+     * over an explicit stack, since a key can be far longer than the call
+     * stack is deep.
+     *
+     * @return The count of the node.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> int countKeys(CharTrieNode<V> root) {
+        CharTrieNode<V>[] nodes = new CharTrieNode[16];
+        int[] next = new int[16];
+        int top = 0;
+        nodes[0] = root;
+        while (top >= 0) {
+            CharTrieNode<V> node = nodes[top];
+            int i = next[top];
+            if (i < node.fanout) {
+                next[top] = i + 1;
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top << 1);
+                    next = Arrays.copyOf(next, top << 1);
+                }
+                nodes[top] = node.children[i];
+                next[top] = 0;
+                continue;
+            }
+
+            // Every child has been counted.
+            int count = node.accepting ? 1 : 0;
+            for (int j = 0; j < node.fanout; ++j) {
+                count += node.children[j].count;
+            }
+            node.count = count;
+            nodes[top--] = null;
+        }
+        return root.count;
+    }
+
+    /**
+     * Builds the subtrie for a range of entries sharing their first
+     * <code>depth</code> characters.  Every task works on its own range of one
+     * shared array, so partitioning moves entries around within the range
+     * instead of copying them into new lists.
+     *
+     * @param <V> The type of value stored in the trie.
+     */
+    private static final class BuildTask<V> extends RecursiveTask<CharTrieNode<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map.Entry<String, ? extends V>[] entries;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        BuildTask(Map.Entry<String, ? extends V>[] entries, int from, int to, int depth) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected CharTrieNode<V> compute() {
+            CharTrieNode<V> node = new CharTrieNode<V>();
+            List<CharTrieNode<V>> chain = new ArrayList<CharTrieNode<V>>();
+            CharTrieNode<V> curr = node;
+            int end = to;
+            int d = depth;
+
+            // While every remaining key continues with the same character,
+            // extend a chain of single child nodes rather than forking a task
+            // per character.  Keys ending on the chain are dropped from the
+            // range, keeping the rest in input order so the first value for a
+            // key still wins.
+            while (end - from > PARALLEL_TASK_SIZE) {
+                int kept = from;
+                boolean shared = true;
+                char c = 0;
+                for (int i = from; i < end; ++i) {
+                    Map.Entry<String, ? extends V> entry = entries[i];
+                    String key = entry.getKey();
+                    if (key.length() == d) {
+                        accept(curr, entry);
+                        continue;
+                    }
+                    char k = key.charAt(d);
+                    if (kept == from) {
+                        c = k;
+                    } else if (k != c) {
+                        shared = false;
+                    }
+                    entries[kept++] = entry;
+                }
+                end = kept;
+                if (!shared || end == from) {
+                    break;
+                }
+                CharTrieNode<V> child = new CharTrieNode<V>();
+                curr.insertAt(0, c, child);
+                chain.add(curr);
+                curr = child;
+                ++d;
+            }
+
+            if (end - from <= PARALLEL_TASK_SIZE) {
+                for (int i = from; i < end; ++i) {
+                    Map.Entry<String, ? extends V> entry = entries[i];
+                    String key = entry.getKey();
+                    CharTrieNode<V> n = curr;
+                    for (int j = d; j < key.length(); ++j) {
+                        n = n.addIfAbsent(key.charAt(j));
+                    }
+                    accept(n, entry);
+                }
+                countKeys(curr);
+            } else {
+                split(curr, end, d);
+            }
+
+            for (int i = chain.size() - 1; i >= 0; --i) {
+                CharTrieNode<V> link = chain.get(i);
+                link.count = (link.accepting ? 1 : 0) + link.children[0].count;
+            }
+            return node;
+        }
+
+        /**
+         * Partition the range by the character at <code>d</code> and build the
+         * subtries of the partitions in parallel.  Every key in the range is
+         * longer than <code>d</code>.
+         */
+        private void split(CharTrieNode<V> node, int end, int d) {
+            // A stable sort on the character, keeping the input order within
+            // each partition in the low bits.
+            int size = end - from;
+            long[] order = new long[size];
+            for (int i = 0; i < size; ++i) {
+                order[i] = ((long) entries[from + i].getKey().charAt(d) << 32) | i;
+            }
+            Arrays.sort(order);
+            Map.Entry<String, ? extends V>[] copy = Arrays.copyOfRange(entries, from, end);
+            for (int i = 0; i < size; ++i) {
+                entries[from + i] = copy[(int) order[i]];
+            }
+
+            List<BuildTask<V>> tasks = new ArrayList<BuildTask<V>>();
+            StringBuilder labels = new StringBuilder();
+            int start = 0;
+            for (int i = 1; i <= size; ++i) {
+                if (i == size || (order[i] >>> 32) != (order[start] >>> 32)) {
+                    labels.append((char) (order[start] >>> 32));
+                    tasks.add(new BuildTask<V>(entries, from + start, from + i, d + 1));
+                    start = i;
+                }
+            }
+            invokeAll(tasks);
+
+            int count = node.accepting ? 1 : 0;
+            for (int i = 0; i < tasks.size(); ++i) {
+                CharTrieNode<V> child = tasks.get(i).join();
+                node.insertAt(node.fanout, labels.charAt(i), child);
+                count += child.count;
+            }
+            node.count = count;
+        }
+
+        private void accept(CharTrieNode<V> node, Map.Entry<String, ? extends V> entry) {
+            if (!node.accepting) {
+                node.accepting = true;
+                node.value = entry.getValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,742 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements a <a href="http://en.wikipedia.org/wiki/Ternary_search_tree">Ternary Search Tree</a>
+ * (Bentley and Sedgewick, 1997) which associates a {@link CharSequence} with a specific value.
+ *
+ * <p>
+ * Each node holds one character and three children: the nodes for smaller
+ * and larger characters at the same position, and the node for the next
+ * position.  There is no per-node map or array of transitions, so a node
+ * costs the same whatever its fanout.  The nodes are not objects: they are
+ * indexes into parallel primitive arrays, with index <code>0</code> standing
+ * for no node, so the characters are stored unboxed and the whole tree is a
+ * handful of arrays.
+ * </p>
+ *
+ * <p>
+ * The shape of the tree depends on the insertion order, so inserting sorted
+ * keys one at a time builds long chains of smaller/larger links.
+ * {@link #addAllSorted(List)} inserts sorted keys middle-out instead, which
+ * keeps the tree balanced.
+ * </p>
+ *
+ * <p>
+ * Every node also records how many keys are below it, through all three
+ * links, so {@link #countWithPrefix(CharSequence)}, {@link #rank(CharSequence)}
+ * and {@link #select(int)} take time proportional to the length of the path
+ * rather than to the number of keys.  Unlike {@link CharSequenceTrieMap} there
+ * is no fuzzy search, freezing or compiled matcher.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class TernarySearchTreeMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Index of no node. */
+    private static final int NIL = 0;
+
+    private char[] split;
+    private int[] lo;
+    private int[] eq;
+    private int[] hi;
+    private boolean[] accepting;
+    private Object[] values;
+    /** The number of keys in the subtree of each node, including the node. */
+    private int[] count;
+
+    /** The next never used node index. */
+    private int next;
+    /** Head of the list of freed nodes, chained through {@link #eq}. */
+    private int free;
+    private int root;
+    private int size;
+
+    /** The empty key does not have a node. */
+    private boolean emptyAccepting;
+    private V emptyValue;
+
+    /**
+     * Constructor.
+     */
+    public TernarySearchTreeMap() {
+        clear();
+    }
+
+    public V addIfAbsent(CharSequence keys, V value) {
+        int len = keys.length();
+        if (len == 0) {
+            if (!emptyAccepting) {
+                emptyAccepting = true;
+                emptyValue = value;
+                ++size;
+            }
+            return emptyValue;
+        }
+
+        if (root == NIL) {
+            root = allocate(keys.charAt(0));
+        }
+        int n = root;
+        int i = 0;
+        char c = keys.charAt(0);
+        while (true) {
+            char s = split[n];
+            if (c < s) {
+                if (lo[n] == NIL) {
+                    int m = allocate(c);
+                    lo[n] = m;
+                }
+                n = lo[n];
+            } else if (c > s) {
+                if (hi[n] == NIL) {
+                    int m = allocate(c);
+                    hi[n] = m;
+                }
+                n = hi[n];
+            } else if (++i < len) {
+                c = keys.charAt(i);
+                if (eq[n] == NIL) {
+                    int m = allocate(c);
+                    eq[n] = m;
+                }
+                n = eq[n];
+            } else {
+                break;
+            }
+        }
+
+        if (!accepting[n]) {
+            accepting[n] = true;
+            values[n] = value;
+            ++size;
+            adjustCounts(keys, 1);
+            return value;
+        }
+        return value(n);
+    }
+
+    /**
+     * Add entries whose keys are in ascending order, inserting the middle
+     * entry of each range before the two halves, so the tree stays balanced.
+     * Entries which are not sorted are still added, but the tree may not be
+     * balanced.
+     *
+     * @param entries The entries, sorted by key.
+     */
+    public void addAllSorted(List<? extends Map.Entry<? extends CharSequence, ? extends V>> entries) {
+        addAllSorted(entries, 0, entries.size());
+    }
+
+    private void addAllSorted(List<? extends Map.Entry<? extends CharSequence, ? extends V>> entries,
+            int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        Map.Entry<? extends CharSequence, ? extends V> entry = entries.get(mid);
+        addIfAbsent(entry.getKey(), entry.getValue());
+        addAllSorted(entries, from, mid);
+        addAllSorted(entries, mid + 1, to);
+    }
+
+    public void clear() {
+        split = new char[INITIAL_CAPACITY];
+        lo = new int[INITIAL_CAPACITY];
+        eq = new int[INITIAL_CAPACITY];
+        hi = new int[INITIAL_CAPACITY];
+        accepting = new boolean[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        count = new int[INITIAL_CAPACITY];
+        next = 1;
+        free = NIL;
+        root = NIL;
+        size = 0;
+        emptyAccepting = false;
+        emptyValue = null;
+    }
+
+    public boolean contains(CharSequence keys) {
+        if (keys.length() == 0) {
+            return emptyAccepting;
+        }
+        int n = find(keys);
+        return n != NIL && accepting[n];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(CharSequence keys) {
+        return get(keys, null);
+    }
+
+    public V get(CharSequence keys, V defaultValue) {
+        if (keys.length() == 0) {
+            return emptyAccepting ? emptyValue : defaultValue;
+        }
+        int n = find(keys);
+        if (n != NIL && accepting[n]) {
+            return value(n);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Remove the key.  Nodes left without a key or any children are freed for
+     * reuse; a node which still has smaller or larger siblings hanging off it
+     * is kept, since removing it would mean rebuilding that part of the tree.
+     *
+     * @param keys The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(CharSequence keys) {
+        int len = keys.length();
+        if (len == 0) {
+            V value = emptyValue;
+            if (emptyAccepting) {
+                emptyAccepting = false;
+                emptyValue = null;
+                --size;
+            }
+            return value;
+        }
+
+        // The path, as the nodes visited and the link followed into each.
+        int[] path = new int[len * 2 + 8];
+        int depth = 0;
+        int n = root;
+        int i = 0;
+        while (n != NIL) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth << 1);
+            }
+            path[depth++] = n;
+            char c = keys.charAt(i);
+            char s = split[n];
+            if (c < s) {
+                n = lo[n];
+            } else if (c > s) {
+                n = hi[n];
+            } else if (++i < len) {
+                n = eq[n];
+            } else {
+                break;
+            }
+        }
+        if (n == NIL || !accepting[n]) {
+            return null;
+        }
+
+        V value = value(n);
+        accepting[n] = false;
+        values[n] = null;
+        --size;
+        for (int d = 0; d < depth; ++d) {
+            --count[path[d]];
+        }
+
+        for (int d = depth - 1; d >= 0; --d) {
+            int m = path[d];
+            if (accepting[m] || lo[m] != NIL || eq[m] != NIL || hi[m] != NIL) {
+                break;
+            }
+            if (d == 0) {
+                root = NIL;
+            } else {
+                int parent = path[d - 1];
+                if (lo[parent] == m) {
+                    lo[parent] = NIL;
+                } else if (hi[parent] == m) {
+                    hi[parent] = NIL;
+                } else {
+                    eq[parent] = NIL;
+                }
+            }
+            release(m);
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of keys starting with the given prefix, in O(|prefix|)
+     * node visits.
+     *
+     * @param prefix The prefix of the keys to count.
+     * @return The number of keys starting with the prefix, including the prefix itself.
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        if (prefix.length() == 0) {
+            return size;
+        }
+        int n = find(prefix);
+        if (n == NIL) {
+            return 0;
+        }
+        return (accepting[n] ? 1 : 0) + count[eq[n]];
+    }
+
+    /**
+     * Returns the number of keys which sort before the given key.  The key does
+     * not need to be in the tree.
+     *
+     * @param key The key to rank.
+     * @return The number of keys less than <code>key</code>, which is the
+     *         index of <code>key</code> in sorted order if it is present.
+     */
+    public int rank(CharSequence key) {
+        int len = key.length();
+        if (len == 0) {
+            return 0;
+        }
+        int rank = emptyAccepting ? 1 : 0;
+        int n = root;
+        int i = 0;
+        while (n != NIL) {
+            char c = key.charAt(i);
+            char s = split[n];
+            if (c < s) {
+                n = lo[n];
+            } else if (c > s) {
+                // Everything but the larger characters sorts first.
+                rank += count[n] - count[hi[n]];
+                n = hi[n];
+            } else {
+                rank += count[lo[n]];
+                if (++i == len) {
+                    break;
+                }
+                if (accepting[n]) {
+                    ++rank;
+                }
+                n = eq[n];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the key at the given position in sorted order.
+     *
+     * @param index The position of the key, starting from zero.
+     * @return The key, <code>rank(select(index)) == index</code>.
+     * @throws IndexOutOfBoundsException If the index is negative or not less
+     *         than {@link #size()}.
+     */
+    public String select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (emptyAccepting) {
+            if (index == 0) {
+                return "";
+            }
+            --index;
+        }
+        StringBuilder key = new StringBuilder();
+        int n = root;
+        while (true) {
+            int smaller = count[lo[n]];
+            if (index < smaller) {
+                n = lo[n];
+                continue;
+            }
+            index -= smaller;
+            // The keys through this node: its own, then those continuing below it.
+            int equal = count[n] - smaller - count[hi[n]];
+            if (index >= equal) {
+                index -= equal;
+                n = hi[n];
+                continue;
+            }
+            key.append(split[n]);
+            if (accepting[n]) {
+                if (index == 0) {
+                    return key.toString();
+                }
+                --index;
+            }
+            n = eq[n];
+        }
+    }
+
+    /**
+     * Lazily enumerate the keys starting with the given prefix, in ascending
+     * order.  The tree must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The keys starting with the prefix.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix) {
+        return keysWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> keys starting with the given
+     * prefix, in ascending order.  The tree must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of keys to return.
+     * @return The keys starting with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<String> keysWithPrefix(CharSequence prefix, int limit) {
+        return new PrefixIterator<String>(prefix, limit) {
+            @Override
+            String emit(char[] key, int length, V value) {
+                return new String(key, 0, length);
+            }
+        };
+    }
+
+    /**
+     * Lazily enumerate the entries whose key starts with the given prefix, in
+     * ascending key order.  The tree must not be modified while the iterator
+     * is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @return The entries whose key starts with the prefix.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix) {
+        return entriesWithPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lazily enumerate at most <code>limit</code> entries whose key starts with
+     * the given prefix, in ascending key order.  The tree must not be modified
+     * while the iterator is in use.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param limit The maximum number of entries to return.
+     * @return The entries whose key starts with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public Iterator<Map.Entry<String, V>> entriesWithPrefix(CharSequence prefix, int limit) {
+        return new PrefixIterator<Map.Entry<String, V>>(prefix, limit) {
+            @Override
+            Map.Entry<String, V> emit(char[] key, int length, V value) {
+                return new AbstractMap.SimpleImmutableEntry<String, V>(new String(key, 0, length), value);
+            }
+        };
+    }
+
+    /**
+     * Return the number of nodes in use.
+     *
+     * @return The number of nodes.
+     */
+    public int nodeCount() {
+        int count = next - 1;
+        for (int n = free; n != NIL; n = eq[n]) {
+            --count;
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of nodes on the longest path from the root, which is
+     * the worst case number of comparisons for a lookup.
+     *
+     * @return The height of the tree.
+     */
+    int height() {
+        int height = 0;
+        int[] nodes = new int[16];
+        int[] depths = new int[16];
+        int top = -1;
+        if (root != NIL) {
+            nodes[++top] = root;
+            depths[top] = 1;
+        }
+        while (top >= 0) {
+            int n = nodes[top];
+            int depth = depths[top--];
+            height = Math.max(height, depth);
+            if (top + 3 >= nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length << 1);
+                depths = Arrays.copyOf(depths, depths.length << 1);
+            }
+            if (lo[n] != NIL) {
+                nodes[++top] = lo[n];
+                depths[top] = depth + 1;
+            }
+            if (eq[n] != NIL) {
+                nodes[++top] = eq[n];
+                depths[top] = depth + 1;
+            }
+            if (hi[n] != NIL) {
+                nodes[++top] = hi[n];
+                depths[top] = depth + 1;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Estimate the memory used by the node arrays, not counting the values.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        int capacity = split.length;
+        return MemoryEstimator.object(8, 17)
+            + MemoryEstimator.array(capacity, 2)
+            + 4 * MemoryEstimator.array(capacity, 4)
+            + MemoryEstimator.array(capacity, 1)
+            + MemoryEstimator.array(capacity, MemoryEstimator.REFERENCE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int n) {
+        return (V) values[n];
+    }
+
+    /**
+     * Find the node of the last character of a non-empty key.
+     *
+     * @return The node, or {@link #NIL} if the key is not in the tree.
+     */
+    private int find(CharSequence keys) {
+        int len = keys.length();
+        int n = root;
+        int i = 0;
+        char c = keys.charAt(0);
+        while (n != NIL) {
+            char s = split[n];
+            if (c < s) {
+                n = lo[n];
+            } else if (c > s) {
+                n = hi[n];
+            } else if (++i < len) {
+                c = keys.charAt(i);
+                n = eq[n];
+            } else {
+                return n;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * Add <code>delta</code> to the count of every node on the path of a
+     * non-empty key which is in the tree.
+     */
+    private void adjustCounts(CharSequence keys, int delta) {
+        int len = keys.length();
+        int n = root;
+        int i = 0;
+        char c = keys.charAt(0);
+        while (true) {
+            count[n] += delta;
+            char s = split[n];
+            if (c < s) {
+                n = lo[n];
+            } else if (c > s) {
+                n = hi[n];
+            } else if (++i < len) {
+                c = keys.charAt(i);
+                n = eq[n];
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int allocate(char c) {
+        int n;
+        if (free != NIL) {
+            n = free;
+            free = eq[n];
+            eq[n] = NIL;
+        } else {
+            if (next == split.length) {
+                int capacity = next << 1;
+                split = Arrays.copyOf(split, capacity);
+                lo = Arrays.copyOf(lo, capacity);
+                eq = Arrays.copyOf(eq, capacity);
+                hi = Arrays.copyOf(hi, capacity);
+                accepting = Arrays.copyOf(accepting, capacity);
+                values = Arrays.copyOf(values, capacity);
+                count = Arrays.copyOf(count, capacity);
+            }
+            n = next++;
+        }
+        split[n] = c;
+        return n;
+    }
+
+    private void release(int n) {
+        split[n] = 0;
+        lo[n] = NIL;
+        hi[n] = NIL;
+        eq[n] = free;
+        free = n;
+    }
+
+    /**
+     * Lazily enumerates the keys below a prefix with an in-order walk, using
+     * an explicit stack and a single reused <code>char[]</code>.
+     *
+     * @param <T> The type of result returned by the iterator.
+     */
+    private abstract class PrefixIterator<T> implements Iterator<T> {
+        /** Next visit the smaller characters. */
+        private static final byte LOWER = 0;
+        /** Next report the node and visit the next position. */
+        private static final byte EQUAL = 1;
+        /** Next visit the larger characters. */
+        private static final byte HIGHER = 2;
+
+        private int[] nodes = new int[16];
+        private int[] depths = new int[16];
+        private byte[] states = new byte[16];
+        private int top = -1;
+        private char[] buffer;
+        private int remaining;
+        private T pending;
+        private boolean done;
+
+        PrefixIterator(CharSequence prefix, int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative: " + limit);
+            }
+            int len = prefix.length();
+            buffer = new char[len + 16];
+            for (int i = 0; i < len; ++i) {
+                buffer[i] = prefix.charAt(i);
+            }
+            remaining = limit;
+
+            T first = null;
+            if (len == 0) {
+                push(root, 0);
+                if (emptyAccepting) {
+                    first = emit(buffer, 0, emptyValue);
+                }
+            } else {
+                int n = find(prefix);
+                if (n != NIL) {
+                    push(eq[n], len);
+                    if (accepting[n]) {
+                        first = emit(buffer, len, value(n));
+                    }
+                }
+            }
+            if (limit == 0) {
+                done = true;
+            } else if (first != null) {
+                pending = first;
+            } else {
+                pending = advance();
+            }
+        }
+
+        abstract T emit(char[] key, int length, V value);
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 && !done;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = pending;
+            if (--remaining > 0) {
+                pending = advance();
+            } else {
+                pending = null;
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void push(int n, int depth) {
+            if (n == NIL) {
+                return;
+            }
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top << 1);
+                depths = Arrays.copyOf(depths, top << 1);
+                states = Arrays.copyOf(states, top << 1);
+            }
+            nodes[top] = n;
+            depths[top] = depth;
+            states[top] = LOWER;
+        }
+
+        private T advance() {
+            while (top >= 0) {
+                int n = nodes[top];
+                int depth = depths[top];
+                switch (states[top]) {
+                    case LOWER:
+                        states[top] = EQUAL;
+                        push(lo[n], depth);
+                        break;
+                    case EQUAL:
+                        states[top] = HIGHER;
+                        if (depth == buffer.length) {
+                            buffer = Arrays.copyOf(buffer, depth << 1);
+                        }
+                        buffer[depth] = split[n];
+                        push(eq[n], depth + 1);
+                        if (accepting[n]) {
+                            return emit(buffer, depth + 1, value(n));
+                        }
+                        break;
+                    default:
+                        // The larger characters replace this node on the stack.
+                        --top;
+                        push(hi[n], depth);
+                        break;
+                }
+            }
+            done = true;
+            return null;
+        }
+    }
+}
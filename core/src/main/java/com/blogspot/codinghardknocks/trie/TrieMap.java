@@ -16,6 +16,8 @@
 package com.blogspot.codinghardknocks.trie;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The interface for a <a href="http://en.wikipedia.org/wiki/Trie">Trie</a>
@@ -42,6 +44,16 @@ public interface TrieMap<K, V> {
      */
     V addIfAbsent(Iterator<K> keys, V value);
 
+    /**
+     * Remove the key sequence, pruning any nodes which no longer lead to a
+     * key sequence.
+     *
+     * @param keys The key sequence to remove.
+     * @return The value which was associated with the key sequence, or
+     *         <code>null</code> if there was none.
+     */
+    V remove(Iterator<K> keys);
+
     /**
      * Remove all key sequences associated with the nodes.
      */
@@ -94,4 +106,54 @@ public interface TrieMap<K, V> {
      */
     int size();
 
+    /**
+     * Returns the number of key sequences starting with the given prefix.
+     *
+     * @param prefix The prefix of the key sequences to count.
+     * @return The number of key sequences starting with the prefix, including
+     *         the prefix itself.
+     */
+    int countWithPrefix(Iterator<K> prefix);
+
+    /**
+     * Lazily enumerate the key sequences starting with the given prefix.  The
+     * trie must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the key sequences to return.
+     * @return The key sequences starting with the prefix.
+     */
+    Iterator<List<K>> keysWithPrefix(Iterator<K> prefix);
+
+    /**
+     * Lazily enumerate at most <code>limit</code> key sequences starting with
+     * the given prefix.  The trie must not be modified while the iterator is
+     * in use.
+     *
+     * @param prefix The prefix of the key sequences to return.
+     * @param limit The maximum number of key sequences to return.
+     * @return The key sequences starting with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    Iterator<List<K>> keysWithPrefix(Iterator<K> prefix, int limit);
+
+    /**
+     * Lazily enumerate the entries whose key sequence starts with the given
+     * prefix.  The trie must not be modified while the iterator is in use.
+     *
+     * @param prefix The prefix of the key sequences to return.
+     * @return The entries whose key sequence starts with the prefix.
+     */
+    Iterator<Map.Entry<List<K>, V>> entriesWithPrefix(Iterator<K> prefix);
+
+    /**
+     * Lazily enumerate at most <code>limit</code> entries whose key sequence
+     * starts with the given prefix.  The trie must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix The prefix of the key sequences to return.
+     * @param limit The maximum number of entries to return.
+     * @return The entries whose key sequence starts with the prefix.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    Iterator<Map.Entry<List<K>, V>> entriesWithPrefix(Iterator<K> prefix, int limit);
 }
@@ -15,6 +15,8 @@
  */
 package com.blogspot.codinghardknocks.trie;
 
+import java.util.Map;
+
 /**
  * Interface representing a TrieNode which contains data.
  *
@@ -58,6 +60,24 @@ public interface TrieMapNode<K, V> {
      */
     public TrieMapNode<K, V> addTransition(K input);
 
+    /**
+     * Remove the transition for the given input, along with everything
+     * reachable through it.
+     *
+     * @param input The input to remove the transition for.
+     * @return The node the transition led to, or <code>null</code> if no such
+     *         transition exists.
+     */
+    public TrieMapNode<K, V> removeTransition(K input);
+
+    /**
+     * Return the transitions out of this node.
+     *
+     * @return An unmodifiable view of the transitions, keyed by the input
+     *         which selects each next node.
+     */
+    public Map<K, ? extends TrieMapNode<K, V>> transitions();
+
     /**
      * Getter to check if the node is an accepting state.
      * @return <code>true</code> if the node is accepting, <code>false</code>
@@ -66,18 +86,30 @@ public interface TrieMapNode<K, V> {
     public boolean isAccepting();
 
     /**
-     * Set the accepting state of the node.
+     * Set the accepting state of the node.  This also updates the count of
+     * accepting states returned by {@link #countAccepting()} for this node,
+     * but the caller must adjust the count of every ancestor with
+     * {@link #adjustCount(int)}.
      * @param state The new state of the node.
      */
     public void setAccepting(boolean state);
 
     /**
-     * Count the number of accepting states reachable from this node.
+     * Count the number of accepting states reachable from this node, including
+     * this node.  The count is maintained incrementally, so this is O(1).
      *
      * @return The number of accepting nodes reachable from this node.
      */
     public int countAccepting();
 
+    /**
+     * Adjust the number of accepting states reachable from this node after a
+     * descendant changed its accepting state.
+     *
+     * @param delta The change in the number of accepting states.
+     */
+    public void adjustCount(int delta);
+
     /**
      * Computes if there is any accepting states reachable from this node.
      * @return <code>true</code> if there is any accepting state,
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * A {@link TrieCursor} over {@link TrieMapNode}s.  The path from the root is
+ * kept in an array which only grows, so once it is as deep as the longest key
+ * stepping the cursor never allocates.
+ *
+ * @param <K> The key type.
+ * @param <V> The value associated with a key sequence.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+final class TrieMapNodeCursor<K, V> implements TrieCursor<K, V> {
+
+    private TrieMapNode<K, V>[] path;
+    private int depth;
+
+    /**
+     * Constructor.
+     *
+     * @param root The root of the trie.
+     */
+    @SuppressWarnings("unchecked")
+    TrieMapNodeCursor(TrieMapNode<K, V> root) {
+        path = new TrieMapNode[16];
+        path[0] = root;
+    }
+
+    @Override
+    public boolean advance(K input) {
+        TrieMapNode<K, V> next = path[depth].next(input);
+        if (next == null) {
+            return false;
+        }
+        if (++depth == path.length) {
+            path = Arrays.copyOf(path, depth << 1);
+        }
+        path[depth] = next;
+        return true;
+    }
+
+    @Override
+    public boolean retreat() {
+        if (depth == 0) {
+            return false;
+        }
+        path[depth--] = null;
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        while (depth > 0) {
+            path[depth--] = null;
+        }
+    }
+
+    @Override
+    public int depth() {
+        return depth;
+    }
+
+    @Override
+    public boolean isAccepting() {
+        return path[depth].isAccepting();
+    }
+
+    @Override
+    public V value() {
+        TrieMapNode<K, V> node = path[depth];
+        return node.isAccepting() ? node.value() : null;
+    }
+
+    @Override
+    public int count() {
+        return path[depth].countAccepting();
+    }
+}
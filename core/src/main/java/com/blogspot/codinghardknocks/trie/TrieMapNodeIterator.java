@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * Lazily enumerates the accepting nodes below a {@link TrieMapNode}, in the
+ * order of {@link TrieMapNode#transitions()}.  The walk is a depth first search
+ * using an explicit stack, and the current key sequence is kept in a single
+ * reused list.
+ *
+ * @param <K> The key type.
+ * @param <V> The type of value stored in the trie.
+ * @param <T> The type of result returned by the iterator.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+abstract class TrieMapNodeIterator<K, V, T> implements Iterator<T> {
+
+    private final List<Iterator<? extends Map.Entry<K, ? extends TrieMapNode<K, V>>>> stack;
+    private final List<K> path;
+    private int remaining;
+    private T pending;
+    private boolean done;
+
+    /**
+     * Constructor.
+     *
+     * @param start The node reached by the prefix, can be <code>null</code>.
+     * @param prefix The prefix leading to <code>start</code>.
+     * @param limit The maximum number of results to return.
+     */
+    TrieMapNodeIterator(TrieMapNode<K, V> start, List<K> prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+
+        stack = new ArrayList<Iterator<? extends Map.Entry<K, ? extends TrieMapNode<K, V>>>>();
+        path = prefix;
+        remaining = limit;
+
+        if (start == null || limit == 0) {
+            done = true;
+            return;
+        }
+        stack.add(start.transitions().entrySet().iterator());
+        if (start.isAccepting()) {
+            pending = emit(path, start.value());
+        } else {
+            pending = advance();
+        }
+    }
+
+    /**
+     * Create the result for an accepting node.
+     *
+     * @param keys The key sequence, only valid until this returns.
+     * @param value The value associated with the key sequence.
+     * @return The result.
+     */
+    abstract T emit(List<K> keys, V value);
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && !done;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = pending;
+        if (--remaining > 0) {
+            pending = advance();
+        } else {
+            pending = null;
+        }
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Move to the next accepting node.
+     *
+     * @return The next result, if there is none <code>done</code> is set.
+     */
+    private T advance() {
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            Iterator<? extends Map.Entry<K, ? extends TrieMapNode<K, V>>> iter = stack.get(top);
+            if (!iter.hasNext()) {
+                stack.remove(top);
+                if (top > 0) {
+                    path.remove(path.size() - 1);
+                }
+                continue;
+            }
+
+            Map.Entry<K, ? extends TrieMapNode<K, V>> entry = iter.next();
+            TrieMapNode<K, V> child = entry.getValue();
+            path.add(entry.getKey());
+            stack.add(child.transitions().entrySet().iterator());
+
+            if (child.isAccepting()) {
+                return emit(path, child.value());
+            }
+        }
+        done = true;
+        return null;
+    }
+}
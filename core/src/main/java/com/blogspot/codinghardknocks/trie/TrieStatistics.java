@@ -0,0 +1,246 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * A snapshot of the shape and estimated size of a trie, for choosing between
+ * the implementations based on real data.  The statistics are gathered with a
+ * single walk over every node, so they cost O(nodes) to compute, and do not
+ * change when the trie does.
+ *
+ * <p>
+ * The byte estimates come from {@link MemoryEstimator}: the nodes and their
+ * transition arrays or maps, including boxed keys, but not the values.
+ * </p>
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class TrieStatistics {
+
+    private final int nodeCount;
+    private final int acceptingCount;
+    private final int maxDepth;
+    private final double averageDepth;
+    private final long estimatedBytes;
+    private final int singleChildCount;
+    private final SortedMap<Integer, Integer> fanoutHistogram;
+
+    private TrieStatistics(Collector collector) {
+        nodeCount = collector.nodeCount;
+        acceptingCount = collector.acceptingCount;
+        maxDepth = collector.maxDepth;
+        averageDepth = acceptingCount == 0 ? 0 : (double) collector.acceptingDepth / acceptingCount;
+        estimatedBytes = collector.estimatedBytes;
+        singleChildCount = collector.singleChildCount;
+        fanoutHistogram = Collections.unmodifiableSortedMap(collector.fanoutHistogram);
+    }
+
+    /**
+     * Gather the statistics of a trie of <code>char</code> transitions.
+     *
+     * @param root The root of the trie.
+     * @return The statistics.
+     */
+    static TrieStatistics of(CharTrieView<?> root) {
+        Collector collector = new Collector();
+        Deque<CharTrieView<?>> nodes = new ArrayDeque<CharTrieView<?>>();
+        Deque<Integer> depths = new ArrayDeque<Integer>();
+        nodes.push(root);
+        depths.push(0);
+        while (!nodes.isEmpty()) {
+            CharTrieView<?> node = nodes.pop();
+            int depth = depths.pop();
+            int fanout = node.fanout();
+            collector.visit(depth, fanout, node.isAccepting(), node.estimatedBytes());
+            for (int i = 0; i < fanout; ++i) {
+                nodes.push(node.child(i));
+                depths.push(depth + 1);
+            }
+        }
+        return new TrieStatistics(collector);
+    }
+
+    /**
+     * Gather the statistics of a trie of {@link TrieMapNode}s.
+     *
+     * @param root The root of the trie.
+     * @return The statistics.
+     */
+    static TrieStatistics of(TrieMapNode<?, ?> root) {
+        Collector collector = new Collector();
+        Deque<TrieMapNode<?, ?>> nodes = new ArrayDeque<TrieMapNode<?, ?>>();
+        Deque<Integer> depths = new ArrayDeque<Integer>();
+        nodes.push(root);
+        depths.push(0);
+        while (!nodes.isEmpty()) {
+            TrieMapNode<?, ?> node = nodes.pop();
+            int depth = depths.pop();
+            Map<?, ? extends TrieMapNode<?, ?>> transitions = node.transitions();
+            long bytes = node instanceof AbstractTrieMapNode
+                ? ((AbstractTrieMapNode<?, ?>) node).estimatedBytes() : 0;
+            collector.visit(depth, transitions.size(), node.isAccepting(), bytes);
+            for (TrieMapNode<?, ?> child : transitions.values()) {
+                nodes.push(child);
+                depths.push(depth + 1);
+            }
+        }
+        return new TrieStatistics(collector);
+    }
+
+    /**
+     * Getter for the number of nodes, including the root.
+     *
+     * @return The number of nodes.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Getter for the number of accepting nodes, which is the number of keys.
+     *
+     * @return The number of accepting nodes.
+     */
+    public int acceptingCount() {
+        return acceptingCount;
+    }
+
+    /**
+     * Getter for the depth of the deepest node, which is the length of the
+     * longest key.
+     *
+     * @return The maximum depth, zero for an empty trie.
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Getter for the average depth of the accepting nodes, which is the average
+     * key length.
+     *
+     * @return The average depth, zero for an empty trie.
+     */
+    public double averageDepth() {
+        return averageDepth;
+    }
+
+    /**
+     * Getter for the estimated heap used by the nodes and their transitions,
+     * not counting the values.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Getter for the number of nodes in single-child chains: nodes which are
+     * not accepting and have exactly one child, which a path-compressed trie
+     * such as {@link RadixTrieMap} would merge away.
+     *
+     * @return The number of single-child nodes.
+     */
+    public int singleChildCount() {
+        return singleChildCount;
+    }
+
+    /**
+     * Getter for the share of the nodes counted by {@link #singleChildCount()}.
+     *
+     * @return The share, between zero and one.
+     */
+    public double singleChildShare() {
+        return nodeCount == 0 ? 0 : (double) singleChildCount / nodeCount;
+    }
+
+    /**
+     * Getter for the fanout distribution.
+     *
+     * @return An unmodifiable map from fanout to the number of nodes with that
+     *         fanout, only fanouts which occur are present.
+     */
+    public SortedMap<Integer, Integer> fanoutHistogram() {
+        return fanoutHistogram;
+    }
+
+    /**
+     * Export the statistics as flat metrics, for a metrics registry or a log
+     * line.  The fanout histogram is exported as one <code>fanout.N</code>
+     * entry per fanout which occurs.
+     *
+     * @return A new map from metric name to value, in a stable order.
+     */
+    public Map<String, Number> toMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<String, Number>();
+        metrics.put("nodes", nodeCount);
+        metrics.put("accepting", acceptingCount);
+        metrics.put("depth.max", maxDepth);
+        metrics.put("depth.average", averageDepth);
+        metrics.put("bytes", estimatedBytes);
+        metrics.put("singleChild.count", singleChildCount);
+        metrics.put("singleChild.share", singleChildShare());
+        for (Map.Entry<Integer, Integer> entry : fanoutHistogram.entrySet()) {
+            metrics.put("fanout." + entry.getKey(), entry.getValue());
+        }
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return "TrieStatistics" + toMetrics();
+    }
+
+    /**
+     * Accumulates the statistics during the walk.
+     */
+    private static final class Collector {
+        int nodeCount;
+        int acceptingCount;
+        int maxDepth;
+        long acceptingDepth;
+        long estimatedBytes;
+        int singleChildCount;
+        final SortedMap<Integer, Integer> fanoutHistogram = new TreeMap<Integer, Integer>();
+
+        void visit(int depth, int fanout, boolean accepting, long bytes) {
+            ++nodeCount;
+            maxDepth = Math.max(maxDepth, depth);
+            if (accepting) {
+                ++acceptingCount;
+                acceptingDepth += depth;
+            } else if (fanout == 1) {
+                ++singleChildCount;
+            }
+            estimatedBytes += bytes;
+            Integer count = fanoutHistogram.get(fanout);
+            fanoutHistogram.put(fanout, count == null ? 1 : count + 1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the values of a trie to and from bytes, so they can be stored in a
+ * {@link MappedTrieMap} file.  See {@link TrieValueCodecs} for common codecs.
+ *
+ * @param <V> The type of value being converted.
+ *
+ * @author kbohling
+ */
+public interface TrieValueCodec<V> {
+
+    /**
+     * Convert a value to bytes.
+     *
+     * @param value The value to encode, never <code>null</code>.
+     * @return The encoded value.
+     */
+    byte[] encode(V value);
+
+    /**
+     * Convert bytes back to a value.  Implementations must only use the
+     * absolute get methods, so the buffer can be shared between threads.
+     *
+     * @param buffer The buffer holding the encoded value.
+     * @param offset The offset of the first byte of the value.
+     * @param length The number of bytes in the value.
+     * @return The decoded value.
+     */
+    V decode(ByteBuffer buffer, int offset, int length);
+}
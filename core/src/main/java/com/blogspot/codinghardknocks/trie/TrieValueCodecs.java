@@ -0,0 +1,108 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import com.blogspot.codinghardknocks.annotations.ThreadSafe;
+
+/**
+ * Common {@link TrieValueCodec} implementations.
+ *
+ * @author kbohling
+ *
+ */
+@ThreadSafe
+public final class TrieValueCodecs {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final TrieValueCodec<Object> NONE = new TrieValueCodec<Object>() {
+        @Override
+        public byte[] encode(Object value) {
+            return new byte[0];
+        }
+
+        @Override
+        public Object decode(ByteBuffer buffer, int offset, int length) {
+            return null;
+        }
+    };
+
+    private static final TrieValueCodec<String> STRING = new TrieValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer, int offset, int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; ++i) {
+                bytes[i] = buffer.get(offset + i);
+            }
+            return new String(bytes, UTF_8);
+        }
+    };
+
+    private static final TrieValueCodec<Integer> INTEGER = new TrieValueCodec<Integer>() {
+        @Override
+        public byte[] encode(Integer value) {
+            return ByteBuffer.allocate(4).putInt(value).array();
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer, int offset, int length) {
+            return buffer.getInt(offset);
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    private TrieValueCodecs() {
+    }
+
+    /**
+     * A codec which drops the values, for tries which are only used as sets.
+     *
+     * @param <V> The type of value.
+     * @return A codec which stores nothing and always decodes <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> TrieValueCodec<V> none() {
+        return (TrieValueCodec<V>) NONE;
+    }
+
+    /**
+     * A codec which stores strings as UTF-8.
+     *
+     * @return The codec.
+     */
+    public static TrieValueCodec<String> utf8() {
+        return STRING;
+    }
+
+    /**
+     * A codec which stores integers as four big-endian bytes.
+     *
+     * @return The codec.
+     */
+    public static TrieValueCodec<Integer> integer() {
+        return INTEGER;
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+
+/**
+ * Class implements a <a href="http://en.wikipedia.org/wiki/Trie">Trie</a>
+ * which associates a {@link CharSequence} with a value and a score, and
+ * answers "the k best completions of this prefix" without visiting every key
+ * below the prefix.
+ *
+ * <p>
+ * Every node caches the highest score in its subtree.  {@link #topK} runs a
+ * best-first search from the prefix: a priority queue holds the frontier of
+ * subtrees ordered by their cached best score, and a key is only returned
+ * once nothing left in the queue can beat it.  Finding k completions
+ * therefore expands roughly k paths rather than the whole subtree.  Changing
+ * a score walks back up the key's path, stopping at the first node whose
+ * cached maximum is unaffected.
+ * </p>
+ *
+ * <p>
+ * A subtree without keys caches a best score of negative infinity, so that
+ * score is reserved and cannot be given to a key.
+ * </p>
+ *
+ * @param <V> The type contained by the Trie.
+ * @author kbohling
+ *
+ */
+@NotThreadSafe
+public class WeightedTrieMap<V> {
+
+    private final WeightedTrieNode<V> root;
+    private int size;
+
+    /** Scratch space for the nodes along a key, reused between calls. */
+    private WeightedTrieNode<V>[] path;
+
+    /**
+     * Constructor.
+     */
+    @SuppressWarnings("unchecked")
+    public WeightedTrieMap() {
+        root = new WeightedTrieNode<V>();
+        path = new WeightedTrieNode[16];
+    }
+
+    /**
+     * Add the key with the given value and score, if it is not already
+     * present.  The score of an existing key is left alone, use
+     * {@link #setScore(CharSequence, double)} to change it.
+     *
+     * @param key The key to add.
+     * @param value The value to associate with the key.
+     * @param score The score of the key.
+     * @return The value now associated with the key.
+     * @throws IllegalArgumentException If the score is NaN or negative infinity.
+     */
+    public V addIfAbsent(CharSequence key, V value, double score) {
+        checkScore(score);
+        int len = key.length();
+        WeightedTrieNode<V>[] nodes = pathFor(len);
+        WeightedTrieNode<V> curr = root;
+        nodes[0] = curr;
+        for (int i = 0; i < len; ++i) {
+            curr = curr.addIfAbsent(key.charAt(i));
+            nodes[i + 1] = curr;
+        }
+        if (curr.accepting) {
+            return curr.value;
+        }
+
+        curr.accepting = true;
+        curr.value = value;
+        curr.score = score;
+        ++size;
+        propagate(nodes, len);
+        return value;
+    }
+
+    /**
+     * Change the score of a key.
+     *
+     * @param key The key to update.
+     * @param score The new score.
+     * @return <code>true</code> if the key was present.
+     * @throws IllegalArgumentException If the score is NaN or negative infinity.
+     */
+    public boolean setScore(CharSequence key, double score) {
+        checkScore(score);
+        int len = key.length();
+        if (walkPath(key) <= len || !path[len].accepting) {
+            return false;
+        }
+        path[len].score = score;
+        propagate(path, len);
+        return true;
+    }
+
+    /**
+     * Return the score of a key.
+     *
+     * @param key The key to look up.
+     * @return The score, or NaN if the key is not present.
+     */
+    public double score(CharSequence key) {
+        WeightedTrieNode<V> node = walk(key);
+        return node != null && node.accepting ? node.score : Double.NaN;
+    }
+
+    /**
+     * Remove the key, pruning any nodes which no longer lead to a key.
+     *
+     * @param key The key to remove.
+     * @return The value which was associated with the key, or <code>null</code>
+     *         if there was none.
+     */
+    public V remove(CharSequence key) {
+        int len = key.length();
+        if (walkPath(key) <= len || !path[len].accepting) {
+            return null;
+        }
+
+        WeightedTrieNode<V> node = path[len];
+        V value = node.value;
+        node.accepting = false;
+        node.value = null;
+        --size;
+
+        // Cut the path at the highest node which no longer leads to a key.
+        int depth = len;
+        while (depth > 0 && !path[depth].accepting && path[depth].fanout == 0) {
+            --depth;
+            path[depth].removeAt(path[depth].indexOf(key.charAt(depth)));
+        }
+        propagate(path, depth);
+        return value;
+    }
+
+    public void clear() {
+        root.clear();
+        size = 0;
+    }
+
+    public boolean contains(CharSequence key) {
+        WeightedTrieNode<V> node = walk(key);
+        return (node != null && node.accepting);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(CharSequence key) {
+        return get(key, null);
+    }
+
+    public V get(CharSequence key, V defaultValue) {
+        WeightedTrieNode<V> node = walk(key);
+        if (node != null && node.accepting) {
+            return node.value;
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the <code>k</code> highest scoring keys starting with the prefix.
+     *
+     * @param prefix The prefix of the keys to return.
+     * @param k The maximum number of keys to return.
+     * @return The completions, by descending score and then ascending key.
+     * @throws IllegalArgumentException If <code>k</code> is negative.
+     */
+    public List<Completion<V>> topK(CharSequence prefix, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        List<Completion<V>> result = new ArrayList<Completion<V>>(Math.min(k, 16));
+        WeightedTrieNode<V> start = walk(prefix);
+        if (k == 0 || start == null || start.best == Double.NEGATIVE_INFINITY) {
+            return result;
+        }
+
+        PriorityQueue<Candidate<V>> queue = new PriorityQueue<Candidate<V>>();
+        queue.add(new Candidate<V>(start, prefix.toString()));
+        while (!queue.isEmpty()) {
+            Candidate<V> candidate = queue.poll();
+            WeightedTrieNode<V> node = candidate.node;
+            if (candidate.complete) {
+                result.add(new Completion<V>(candidate.key(), node.value, node.score));
+                if (result.size() == k) {
+                    break;
+                }
+                continue;
+            }
+
+            if (node.accepting) {
+                queue.add(new Candidate<V>(candidate));
+            }
+            for (int i = 0; i < node.fanout; ++i) {
+                queue.add(new Candidate<V>(node.children[i], candidate, node.labels[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gather statistics about the shape and estimated size of this trie.  This
+     * walks every node, so it is O(nodes).
+     *
+     * @return The statistics.
+     */
+    public TrieStatistics statistics() {
+        return TrieStatistics.of(root);
+    }
+
+    private WeightedTrieNode<V> walk(CharSequence key) {
+        int len = key.length();
+        WeightedTrieNode<V> curr = root;
+        for (int i = 0; i < len; ++i) {
+            curr = curr.next(key.charAt(i));
+            if (null == curr) {
+                return null;
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * Fill {@link #path} with the nodes along the key, starting with the root.
+     *
+     * @param key The key to walk.
+     * @return The number of nodes found, <code>key.length() + 1</code> if the
+     *         whole key is present.
+     */
+    private int walkPath(CharSequence key) {
+        int len = key.length();
+        WeightedTrieNode<V>[] nodes = pathFor(len);
+        WeightedTrieNode<V> curr = root;
+        nodes[0] = curr;
+        for (int i = 0; i < len; ++i) {
+            curr = curr.next(key.charAt(i));
+            if (null == curr) {
+                return i + 1;
+            }
+            nodes[i + 1] = curr;
+        }
+        return len + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private WeightedTrieNode<V>[] pathFor(int len) {
+        if (path.length <= len) {
+            path = new WeightedTrieNode[Math.max(len + 1, path.length << 1)];
+        }
+        return path;
+    }
+
+    /**
+     * Recompute the cached maxima from a changed node up towards the root,
+     * stopping once a node's maximum is unaffected.
+     *
+     * @param nodes The nodes along the path, starting with the root.
+     * @param depth The index of the deepest changed node.
+     */
+    private static <V> void propagate(WeightedTrieNode<V>[] nodes, int depth) {
+        int i = depth;
+        while (i >= 0 && nodes[i].refreshBest()) {
+            --i;
+        }
+    }
+
+    private static void checkScore(double score) {
+        if (Double.isNaN(score) || score == Double.NEGATIVE_INFINITY) {
+            throw new IllegalArgumentException("score must not be NaN or negative infinity: " + score);
+        }
+    }
+
+    /**
+     * An entry in the best-first search: either a subtree, ranked by the best
+     * score below it, or a key ready to be returned, ranked by its own score.
+     * Keys are rebuilt from the parent links, and only when needed, so
+     * expanding a node allocates just one small object per child.
+     *
+     * @param <V> The type of value associated with the keys.
+     */
+    private static final class Candidate<V> implements Comparable<Candidate<V>> {
+
+        final WeightedTrieNode<V> node;
+        final boolean complete;
+        final double priority;
+        private final Candidate<V> parent;
+        private final char label;
+        private String key;
+
+        /**
+         * Constructor for the subtree at the prefix.
+         */
+        Candidate(WeightedTrieNode<V> node, String prefix) {
+            this.node = node;
+            this.complete = false;
+            this.priority = node.best;
+            this.parent = null;
+            this.label = 0;
+            this.key = prefix;
+        }
+
+        /**
+         * Constructor for the subtree reached by a transition.
+         */
+        Candidate(WeightedTrieNode<V> node, Candidate<V> parent, char label) {
+            this.node = node;
+            this.complete = false;
+            this.priority = node.best;
+            this.parent = parent;
+            this.label = label;
+        }
+
+        /**
+         * Constructor for the key ending at a subtree's node.
+         */
+        Candidate(Candidate<V> subtree) {
+            this.node = subtree.node;
+            this.complete = true;
+            this.priority = subtree.node.score;
+            this.parent = subtree.parent;
+            this.label = subtree.label;
+            this.key = subtree.key;
+        }
+
+        String key() {
+            if (key == null) {
+                int length = 0;
+                Candidate<V> curr = this;
+                while (curr.key == null) {
+                    ++length;
+                    curr = curr.parent;
+                }
+                String prefix = curr.key;
+                char[] chars = new char[prefix.length() + length];
+                prefix.getChars(0, prefix.length(), chars, 0);
+                curr = this;
+                for (int i = chars.length - 1; curr.key == null; --i) {
+                    chars[i] = curr.label;
+                    curr = curr.parent;
+                }
+                key = new String(chars);
+            }
+            return key;
+        }
+
+        @Override
+        public int compareTo(Candidate<V> other) {
+            int cmp = Double.compare(other.priority, priority);
+            if (cmp != 0) {
+                return cmp;
+            }
+            // Ties go to the smaller key, so a subtree is expanded before an
+            // equal key which might sort after one of its keys.
+            cmp = key().compareTo(other.key());
+            if (cmp != 0) {
+                return cmp;
+            }
+            return complete == other.complete ? 0 : (complete ? -1 : 1);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import com.blogspot.codinghardknocks.annotations.NotThreadSafe;
+
+/**
+ * A trie node for a {@link WeightedTrieMap}, which also carries the score of
+ * its key and the best score found anywhere in its subtree.  The transitions
+ * are the same sorted parallel arrays as a {@link CharTrieNode}'s, managed by
+ * {@link AbstractCharTrieNode}.
+ *
+ * @param <V> The type of value associated with this node.
+ *
+ * @author kbohling
+ */
+@NotThreadSafe
+final class WeightedTrieNode<V> extends AbstractCharTrieNode<V, WeightedTrieNode<V>> {
+
+    /** The score of the key ending at this node, only valid if {@link #accepting}. */
+    double score;
+
+    /**
+     * The highest score of any key in the subtree rooted at this node,
+     * including this node, or negative infinity if there are no keys.
+     */
+    double best = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor.
+     */
+    WeightedTrieNode() {
+    }
+
+    @Override
+    WeightedTrieNode<V> newNode() {
+        return new WeightedTrieNode<V>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    WeightedTrieNode<V>[] newChildren(int capacity) {
+        return new WeightedTrieNode[capacity];
+    }
+
+    /**
+     * Recompute {@link #best} from this node's score and its children.
+     *
+     * @return <code>true</code> if the best score changed.
+     */
+    boolean refreshBest() {
+        double max = accepting ? score : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < fanout; ++i) {
+            max = Math.max(max, children[i].best);
+        }
+        if (max == best) {
+            return false;
+        }
+        best = max;
+        return true;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return MemoryEstimator.object(3, 21) + transitionBytes();
+    }
+
+    /**
+     * Remove all children and reset the state of this node.
+     */
+    @Override
+    void clear() {
+        super.clear();
+        score = 0;
+        best = Double.NEGATIVE_INFINITY;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link BurstSort}.
+ *
+ * @author kbohling
+ *
+ */
+public class BurstSortTest {
+
+    @Test
+    public void testSmallThreshold() {
+        for (int threshold : new int[] {1, 2, 7, BurstSort.DEFAULT_THRESHOLD}) {
+            String[] strings = randomStrings(new Random(threshold), 5000);
+            String[] expected = strings.clone();
+            Arrays.sort(expected);
+
+            BurstSort.sort(strings, threshold);
+            Assert.assertArrayEquals(expected, strings);
+        }
+    }
+
+    @Test
+    public void testList() {
+        List<String> strings = new ArrayList<String>(Arrays.asList(randomStrings(new Random(1), 20000)));
+        List<String> expected = new ArrayList<String>(strings);
+        Collections.sort(expected);
+
+        BurstSort.sort(strings);
+        Assert.assertEquals(expected, strings);
+
+        Collections.shuffle(strings, new Random(2));
+        BurstSort.parallelSort(strings);
+        Assert.assertEquals(expected, strings);
+    }
+
+    @Test
+    public void testParallel() {
+        String[] strings = randomStrings(new Random(3), 100000);
+        String[] expected = strings.clone();
+        Arrays.sort(expected);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BurstSort.parallelSort(strings, pool);
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertArrayEquals(expected, strings);
+    }
+
+    @Test
+    public void testLongSharedPrefix() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            builder.append((char) ('a' + i % 26));
+        }
+        String prefix = builder.toString();
+        Random random = new Random(4);
+        String[] strings = new String[200];
+        for (int i = 0; i < strings.length; ++i) {
+            strings[i] = prefix.substring(0, prefix.length() - random.nextInt(3)) + random.nextInt(50);
+        }
+        strings[0] = prefix;
+        strings[1] = prefix;
+        String[] expected = strings.clone();
+        Arrays.sort(expected);
+
+        for (int threshold : new int[] {1, 4}) {
+            String[] sorted = strings.clone();
+            BurstSort.sort(sorted, threshold);
+            Assert.assertArrayEquals(expected, sorted);
+        }
+    }
+
+    @Test
+    public void testEdgeCases() {
+        String[] strings = {"", "b", "", "￿", "a", "ab", "a\u0000", "a", "Ā"};
+        String[] expected = strings.clone();
+        Arrays.sort(expected);
+
+        BurstSort.sort(strings, 1);
+        Assert.assertArrayEquals(expected, strings);
+
+        BurstSort.sort(new String[0]);
+    }
+
+    /**
+     * Generate strings with a small alphabet and lots of shared prefixes and duplicates.
+     */
+    private static String[] randomStrings(Random random, int count) {
+        String[] strings = new String[count];
+        for (int i = 0; i < count; ++i) {
+            int len = random.nextInt(12);
+            StringBuilder builder = new StringBuilder(len);
+            for (int j = 0; j < len; ++j) {
+                builder.append((char) ('a' + random.nextInt(j < 3 ? 3 : 26)));
+            }
+            strings[i] = builder.toString();
+        }
+        return strings;
+    }
+}
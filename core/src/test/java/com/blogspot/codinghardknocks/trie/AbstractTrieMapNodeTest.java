@@ -16,6 +16,7 @@
 package com.blogspot.codinghardknocks.trie;
 
 import java.util.Collection;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -44,6 +45,27 @@ public class AbstractTrieMapNodeTest {
 
     }
 
+    @Test
+    public void testMapShrinksAfterRemovals() {
+        AbstractTrieMapUsingMapNode<Integer, Object> grown = new AbstractTrieMapUsingMapNode<Integer, Object>(false, null);
+        AbstractTrieMapUsingMapNode<Integer, Object> fresh = new AbstractTrieMapUsingMapNode<Integer, Object>(false, null);
+        for (int i = 0; i < 1000; ++i) {
+            grown.addTransition(i);
+        }
+        long full = grown.estimatedBytes();
+        for (int i = 2; i < 1000; ++i) {
+            Assert.assertNotNull(grown.removeTransition(i));
+        }
+        fresh.addTransition(0);
+        fresh.addTransition(1);
+
+        Assert.assertEquals(2, grown.transitions().size());
+        Assert.assertNotNull(grown.next(0));
+        Assert.assertNotNull(grown.next(1));
+        Assert.assertTrue(grown.estimatedBytes() < full);
+        Assert.assertEquals(fresh.estimatedBytes(), grown.estimatedBytes());
+    }
+
     private static <K, V> AbstractTrieMapNode<K, V> createTest(boolean accepting, V value) {
         return new AbstractTrieMapNode<K, V>(accepting, value) {
             @Override
@@ -56,6 +78,16 @@ public class AbstractTrieMapNodeTest {
                 throw new UnsupportedOperationException();
             }
 
+            @Override
+            public TrieMapNode<K, V> removeTransition(K input) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Map<K, ? extends TrieMapNode<K, V>> transitions() {
+                throw new UnsupportedOperationException();
+            }
+
             @Override
             protected Collection<? extends AbstractTrieMapUsingMapNode<K, V>> nextNodes() {
                 throw new UnsupportedOperationException();
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link AdaptiveRadixTreeMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class AdaptiveRadixTreeMapTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Comparator<byte[]> UNSIGNED = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            return ByteTrieMap.compare(a, 0, a.length, b, 0, b.length);
+        }
+    };
+
+    @Test
+    public void testBasicOperations() {
+        AdaptiveRadixTreeMap<Integer> tree = new AdaptiveRadixTreeMap<Integer>();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertEquals(Integer.valueOf(1), tree.addIfAbsent(utf8("CATS"), 1));
+        // A lone key is a single leaf.
+        Assert.assertTrue(tree.root() instanceof ArtNode.Leaf);
+        Assert.assertEquals(Integer.valueOf(2), tree.addIfAbsent(utf8("xxCARxx"), 2, 3, 2));
+        Assert.assertEquals(Integer.valueOf(3), tree.addIfAbsent(ByteBuffer.wrap(utf8("CA")), 3));
+        Assert.assertEquals(Integer.valueOf(1), tree.addIfAbsent(utf8("CATS"), 4));
+        Assert.assertEquals(Integer.valueOf(5), tree.addIfAbsent(new byte[0], 5));
+        Assert.assertEquals(Integer.valueOf(6), tree.addIfAbsent(utf8("CAT"), 6));
+
+        Assert.assertEquals(5, tree.size());
+        Assert.assertEquals(Integer.valueOf(1), tree.get(utf8("CATS")));
+        Assert.assertEquals(Integer.valueOf(2), tree.get(utf8("CAR")));
+        Assert.assertEquals(Integer.valueOf(3), tree.get(utf8("xCAx"), 1, 2));
+        Assert.assertEquals(Integer.valueOf(5), tree.get(new byte[0]));
+        Assert.assertEquals(Integer.valueOf(6), tree.get(ByteBuffer.wrap(utf8("CAT"))));
+        ByteBuffer direct = ByteBuffer.allocateDirect(3);
+        direct.put(utf8("CAT")).flip();
+        Assert.assertEquals(Integer.valueOf(6), tree.get(direct));
+        Assert.assertEquals(0, direct.position());
+        Assert.assertFalse(tree.contains(utf8("C")));
+        Assert.assertFalse(tree.contains(utf8("CATSS")));
+        Assert.assertFalse(tree.contains(utf8("CB")));
+        Assert.assertFalse(tree.contains(utf8("DOG")));
+
+        tree.clear();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertFalse(tree.contains(utf8("CAT")));
+        Assert.assertEquals(0, tree.estimatedBytes());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadSlice() {
+        new AdaptiveRadixTreeMap<Object>().get(new byte[2], 1, 2);
+    }
+
+    @Test
+    public void testNodesGrowAndShrink() {
+        AdaptiveRadixTreeMap<Integer> tree = new AdaptiveRadixTreeMap<Integer>();
+        List<Class<?>> grown = new ArrayList<Class<?>>();
+        for (int b = 0; b < 256; ++b) {
+            tree.addIfAbsent(new byte[] {'k', (byte) b}, b);
+            grown.add(tree.root().getClass());
+        }
+        Assert.assertEquals(ArtNode.Node4.class, grown.get(3));
+        Assert.assertEquals(ArtNode.Node16.class, grown.get(4));
+        Assert.assertEquals(ArtNode.Node16.class, grown.get(15));
+        Assert.assertEquals(ArtNode.Node48.class, grown.get(16));
+        Assert.assertEquals(ArtNode.Node48.class, grown.get(47));
+        Assert.assertEquals(ArtNode.Node256.class, grown.get(48));
+        Assert.assertEquals(ArtNode.Node256.class, grown.get(255));
+        Assert.assertArrayEquals(new byte[] {'k'}, ((ArtNode.Inner<Integer>) tree.root()).prefix);
+
+        List<Class<?>> shrunk = new ArrayList<Class<?>>();
+        for (int b = 255; b >= 0; --b) {
+            Assert.assertEquals(Integer.valueOf(b), tree.remove(new byte[] {'k', (byte) b}));
+            shrunk.add(tree.root() == null ? null : tree.root().getClass());
+            for (int c = 0; c < b; c += 17) {
+                Assert.assertEquals(Integer.valueOf(c), tree.get(new byte[] {'k', (byte) c}));
+            }
+        }
+        // Fanout after each removal is 255 - i.
+        Assert.assertEquals(ArtNode.Node256.class, shrunk.get(255 - 41));
+        Assert.assertEquals(ArtNode.Node48.class, shrunk.get(255 - 40));
+        Assert.assertEquals(ArtNode.Node48.class, shrunk.get(255 - 13));
+        Assert.assertEquals(ArtNode.Node16.class, shrunk.get(255 - 12));
+        Assert.assertEquals(ArtNode.Node16.class, shrunk.get(255 - 4));
+        Assert.assertEquals(ArtNode.Node4.class, shrunk.get(255 - 3));
+        Assert.assertEquals(ArtNode.Node4.class, shrunk.get(255 - 2));
+        Assert.assertEquals(ArtNode.Leaf.class, shrunk.get(255 - 1));
+        Assert.assertNull(shrunk.get(255));
+        Assert.assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    public void testPathCompression() {
+        AdaptiveRadixTreeMap<Integer> tree = new AdaptiveRadixTreeMap<Integer>();
+        tree.addIfAbsent(utf8("compression"), 1);
+        tree.addIfAbsent(utf8("compressor"), 2);
+        tree.addIfAbsent(utf8("computer"), 3);
+
+        ArtNode.Inner<Integer> root = (ArtNode.Inner<Integer>) tree.root();
+        Assert.assertArrayEquals(utf8("comp"), root.prefix);
+        Assert.assertEquals(2, root.fanout);
+        ArtNode.Inner<Integer> inner = (ArtNode.Inner<Integer>) root.child('r');
+        Assert.assertArrayEquals(utf8("ess"), inner.prefix);
+        Assert.assertEquals(2, inner.fanout);
+
+        // Removing "computer" leaves "comp" with one child, which is merged into it.
+        Assert.assertEquals(Integer.valueOf(3), tree.remove(utf8("computer")));
+        root = (ArtNode.Inner<Integer>) tree.root();
+        Assert.assertArrayEquals(utf8("compress"), root.prefix);
+        Assert.assertNull(tree.remove(utf8("compress")));
+        Assert.assertNull(tree.remove(utf8("compressio")));
+        Assert.assertEquals(Integer.valueOf(2), tree.get(utf8("compressor")));
+        Assert.assertEquals(Integer.valueOf(1), tree.remove(utf8("compression")));
+        Assert.assertTrue(tree.root() instanceof ArtNode.Leaf);
+    }
+
+    @Test
+    public void testAgainstTreeMap() throws IOException {
+        List<byte[]> keys = new ArrayList<byte[]>();
+        for (String word : DoubleArrayTrieMapTest.readLexicon()) {
+            keys.add(utf8(word));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; ++i) {
+            byte[] key = new byte[random.nextInt(6)];
+            random.nextBytes(key);
+            keys.add(key);
+        }
+        Collections.shuffle(keys, random);
+
+        AdaptiveRadixTreeMap<Integer> tree = new AdaptiveRadixTreeMap<Integer>();
+        TreeMap<byte[], Integer> expected = new TreeMap<byte[], Integer>(UNSIGNED);
+        for (int i = 0; i < keys.size(); ++i) {
+            byte[] key = keys.get(i);
+            Integer previous = expected.get(key);
+            Assert.assertEquals(previous == null ? Integer.valueOf(i) : previous, tree.addIfAbsent(key, i));
+            if (previous == null) {
+                expected.put(key, i);
+            }
+        }
+        for (int i = 0; i < keys.size(); i += 3) {
+            byte[] key = keys.get(i);
+            Assert.assertEquals(expected.remove(key), tree.remove(key));
+        }
+
+        Assert.assertEquals(expected.size(), tree.size());
+        for (byte[] key : keys) {
+            Assert.assertEquals(expected.get(key), tree.get(key));
+        }
+        assertEntries(expected, tree.entriesWithPrefix(new byte[0]));
+        for (String prefix : new String[] {"a", "ab", "zy", "qqq"}) {
+            byte[] from = utf8(prefix);
+            byte[] to = from.clone();
+            ++to[to.length - 1];
+            assertEntries(expected.subMap(from, to), tree.entriesWithPrefix(from));
+            Iterator<byte[]> it = tree.keysWithPrefix(from);
+            for (byte[] key : expected.subMap(from, to).keySet()) {
+                Assert.assertArrayEquals(key, it.next());
+            }
+            Assert.assertFalse(it.hasNext());
+        }
+
+        // A byte at a time tree pays for a node per byte, the adaptive tree
+        // only per branch.
+        ByteTrieMap<Integer> trie = new ByteTrieMap<Integer>();
+        for (byte[] key : expected.keySet()) {
+            trie.addIfAbsent(key, 0);
+        }
+        Assert.assertTrue(tree.estimatedBytes() < trie.estimatedBytes());
+    }
+
+    private static void assertEntries(SortedMap<byte[], Integer> expected, Iterator<Map.Entry<byte[], Integer>> it) {
+        for (Map.Entry<byte[], Integer> entry : expected.entrySet()) {
+            Map.Entry<byte[], Integer> actual = it.next();
+            Assert.assertArrayEquals(entry.getKey(), actual.getKey());
+            Assert.assertEquals(entry.getValue(), actual.getValue());
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(UTF8);
+    }
+}
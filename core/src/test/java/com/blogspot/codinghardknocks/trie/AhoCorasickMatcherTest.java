@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link AhoCorasickMatcher}.
+ *
+ * @author kbohling
+ *
+ */
+public class AhoCorasickMatcherTest {
+
+    @Test
+    public void testClassicExample() {
+        StringTrieMap<String> trie = new StringTrieMap<String>();
+        for (String key : new String[] {"he", "she", "his", "hers", ""}) {
+            trie.addIfAbsent(key, key);
+        }
+        AhoCorasickMatcher<String> matcher = trie.compileMatcher();
+
+        Collector collector = new Collector();
+        Assert.assertTrue(matcher.scan("ushers", collector));
+        Assert.assertEquals(Arrays.asList("1-4:she", "2-4:he", "2-6:hers"), collector.matches);
+    }
+
+    @Test
+    public void testStopsEarly() {
+        StringTrieMap<String> trie = new StringTrieMap<String>();
+        trie.addIfAbsent("a", "a");
+        AhoCorasickMatcher<String> matcher = trie.compileMatcher();
+
+        final int[] count = new int[1];
+        Assert.assertFalse(matcher.scan("aaaa", new MatchHandler<String>() {
+            @Override
+            public boolean onMatch(long start, long end, String value) {
+                return ++count[0] < 2;
+            }
+        }));
+        Assert.assertEquals(2, count[0]);
+    }
+
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        Random random = new Random(42);
+        StringTrieMap<String> trie = new StringTrieMap<String>();
+        CharSequenceTrieMap<String> charSeqTrie = new CharSequenceTrieMap<String>();
+        int maxLength = 0;
+        for (int i = 0; i < 2000; ++i) {
+            String word = words.get(random.nextInt(words.size()));
+            maxLength = Math.max(maxLength, word.length());
+            trie.addIfAbsent(word, word);
+            charSeqTrie.addIfAbsent(word, word);
+        }
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 20000) {
+            text.append(words.get(random.nextInt(words.size())));
+        }
+
+        List<String> expected = new ArrayList<String>();
+        for (int end = 1; end <= text.length(); ++end) {
+            for (int start = Math.max(0, end - maxLength); start < end; ++start) {
+                String candidate = text.substring(start, end);
+                if (trie.contains(candidate)) {
+                    expected.add(start + "-" + end + ":" + candidate);
+                }
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+
+        AhoCorasickMatcher<String> matcher = trie.compileMatcher();
+        Collector fromText = new Collector();
+        matcher.scan(text, fromText);
+        Assert.assertEquals(expected, fromText.matches);
+
+        Collector fromReader = new Collector();
+        matcher.scan(new StringReader(text.toString()), fromReader);
+        Assert.assertEquals(expected, fromReader.matches);
+
+        Collector fromCharSeq = new Collector();
+        charSeqTrie.compileMatcher().scan(text, fromCharSeq);
+        Assert.assertEquals(expected, fromCharSeq.matches);
+
+        Collector fromBuffer = new Collector();
+        CharBuffer buffer = CharBuffer.wrap(("XX" + text).toCharArray());
+        buffer.position(2);
+        matcher.scan(buffer, fromBuffer);
+        Assert.assertEquals(expected, fromBuffer.matches);
+        Assert.assertEquals(2, buffer.position());
+    }
+
+    private static final class Collector implements MatchHandler<String> {
+        final List<String> matches = new ArrayList<String>();
+
+        @Override
+        public boolean onMatch(long start, long end, String value) {
+            matches.add(start + "-" + end + ":" + value);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link BurstTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class BurstTrieMapTest {
+
+    @Test
+    public void testBurst() {
+        BurstTrieMap<Integer> trie = new BurstTrieMap<Integer>(2);
+        Assert.assertTrue(trie.isEmpty());
+
+        String[] keys = {"CAT", "CAR", "CA", "C", "CART", "CARTS", "DOG", "", "CATS"};
+        for (int i = 0; i < keys.length; ++i) {
+            Assert.assertEquals(Integer.valueOf(i), trie.addIfAbsent(keys[i], i));
+        }
+        Assert.assertEquals(Integer.valueOf(0), trie.addIfAbsent("CAT", 100));
+        Assert.assertEquals(keys.length, trie.size());
+
+        for (int i = 0; i < keys.length; ++i) {
+            Assert.assertEquals(Integer.valueOf(i), trie.get(keys[i]));
+        }
+        Assert.assertFalse(trie.contains("CATSS"));
+        Assert.assertFalse(trie.contains("DO"));
+        Assert.assertEquals(Integer.valueOf(-1), trie.get("COW", -1));
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertFalse(trie.contains("CAT"));
+    }
+
+    @Test
+    public void testLongSharedPrefix() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            builder.append((char) ('a' + i % 26));
+        }
+        String prefix = builder.toString();
+        for (int threshold : new int[] {4, BurstTrieMap.DEFAULT_THRESHOLD}) {
+            BurstTrieMap<Integer> trie = new BurstTrieMap<Integer>(threshold);
+            trie.addIfAbsent(prefix.substring(0, 10), -1);
+            for (int i = 0; i < 100; ++i) {
+                trie.addIfAbsent(prefix + i, i);
+            }
+            trie.addIfAbsent(prefix, -2);
+
+            Assert.assertEquals(102, trie.size());
+            for (int i = 0; i < 100; ++i) {
+                Assert.assertEquals(Integer.valueOf(i), trie.get(prefix + i));
+            }
+            Assert.assertEquals(Integer.valueOf(-1), trie.get(prefix.substring(0, 10)));
+            Assert.assertEquals(Integer.valueOf(-2), trie.get(prefix));
+            Assert.assertFalse(trie.contains(prefix.substring(0, 11)));
+        }
+    }
+
+    @Test
+    public void testLexicon() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        for (int threshold : new int[] {1, BurstTrieMap.DEFAULT_THRESHOLD, 1024}) {
+            BurstTrieMap<String> trie = new BurstTrieMap<String>(threshold);
+            for (String word : words) {
+                trie.addIfAbsent(word, word);
+            }
+            Assert.assertEquals(words.size(), trie.size());
+            for (String word : words) {
+                Assert.assertSame(word, trie.get(word));
+                Assert.assertFalse(trie.contains(word + "#"));
+            }
+        }
+    }
+}
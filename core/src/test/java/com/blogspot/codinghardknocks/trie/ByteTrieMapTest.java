@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link ByteTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class ByteTrieMapTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Comparator<byte[]> UNSIGNED = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            return ByteTrieMap.compare(a, 0, a.length, b, 0, b.length);
+        }
+    };
+
+    @Test
+    public void testKeySources() {
+        ByteTrieMap<Integer> trie = new ByteTrieMap<Integer>();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent(utf8("CAT"), 1));
+        Assert.assertEquals(Integer.valueOf(2), trie.addIfAbsent(utf8("xxCARxx"), 2, 3, 2));
+        Assert.assertEquals(Integer.valueOf(3), trie.addIfAbsent(ByteBuffer.wrap(utf8("CA")), 3));
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent(utf8("CAT"), 4));
+        Assert.assertEquals(Integer.valueOf(5), trie.addIfAbsent(new byte[0], 5));
+        Assert.assertEquals(4, trie.size());
+
+        Assert.assertEquals(Integer.valueOf(2), trie.get(utf8("CAR")));
+        Assert.assertEquals(Integer.valueOf(1), trie.get(utf8("SCATTER"), 1, 3));
+        Assert.assertEquals(Integer.valueOf(5), trie.get(new byte[0]));
+        Assert.assertFalse(trie.contains(utf8("C")));
+        Assert.assertFalse(trie.contains(utf8("CATS")));
+
+        ByteBuffer heap = ByteBuffer.wrap(utf8("xCATx"), 1, 3).slice();
+        Assert.assertEquals(Integer.valueOf(1), trie.get(heap));
+        Assert.assertEquals(Integer.valueOf(1), trie.get(heap.asReadOnlyBuffer()));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        direct.put(utf8("--CA--"));
+        direct.position(2).limit(4);
+        Assert.assertEquals(Integer.valueOf(3), trie.get(direct));
+        Assert.assertTrue(trie.contains(direct));
+        Assert.assertEquals(2, direct.position());
+        direct.limit(5);
+        Assert.assertNull(trie.get(direct));
+        Assert.assertEquals(Integer.valueOf(6), trie.addIfAbsent(direct, 6));
+        Assert.assertEquals(Integer.valueOf(6), trie.remove(direct));
+        Assert.assertEquals(2, direct.position());
+
+        Assert.assertEquals(3, trie.countWithPrefix(utf8("CA")));
+        Assert.assertEquals(Integer.valueOf(2), trie.remove(utf8("CAR")));
+        Assert.assertNull(trie.remove(utf8("CAR")));
+        Assert.assertEquals(3, trie.size());
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertNull(trie.get(utf8("CAT")));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadSlice() {
+        new ByteTrieMap<Object>().get(new byte[4], 2, 3);
+    }
+
+    @Test
+    public void testDenseNodes() {
+        ByteTrieMap<Integer> trie = new ByteTrieMap<Integer>();
+        trie.addIfAbsent(new byte[] {1}, -1);
+        long sparse = trie.estimatedBytes();
+        for (int b = 0; b < 256; ++b) {
+            trie.addIfAbsent(new byte[] {1, (byte) b}, b);
+        }
+        long dense = trie.estimatedBytes();
+        Assert.assertEquals(257, trie.size());
+
+        List<byte[]> keys = list(trie.keysWithPrefix(new byte[] {1}));
+        Assert.assertEquals(257, keys.size());
+        Assert.assertArrayEquals(new byte[] {1}, keys.get(0));
+        for (int b = 0; b < 256; ++b) {
+            Assert.assertArrayEquals(new byte[] {1, (byte) b}, keys.get(b + 1));
+            Assert.assertEquals(Integer.valueOf(b), trie.get(new byte[] {1, (byte) b}));
+        }
+
+        for (int b = 0; b < 256; ++b) {
+            Assert.assertEquals(Integer.valueOf(b), trie.remove(new byte[] {1, (byte) b}));
+            Assert.assertNull(trie.get(new byte[] {1, (byte) b}));
+            for (int c = b + 1; c < 256; c += 37) {
+                Assert.assertEquals(Integer.valueOf(c), trie.get(new byte[] {1, (byte) c}));
+            }
+        }
+        Assert.assertEquals(1, trie.size());
+        Assert.assertEquals(sparse, trie.estimatedBytes());
+        Assert.assertTrue(dense > sparse);
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+        Random random = new Random(17);
+        ByteTrieMap<Integer> trie = new ByteTrieMap<Integer>();
+        TreeMap<byte[], Integer> expected = new TreeMap<byte[], Integer>(UNSIGNED);
+        for (int i = 0; i < 20000; ++i) {
+            // A narrow first byte gives wide nodes near the root.
+            byte[] key = new byte[1 + random.nextInt(4)];
+            random.nextBytes(key);
+            key[0] = (byte) (key[0] & 0x83);
+            if (!expected.containsKey(key)) {
+                expected.put(key, i);
+            }
+            trie.addIfAbsent(key, i);
+        }
+        Iterator<byte[]> removals = new ArrayList<byte[]>(expected.keySet()).iterator();
+        while (removals.hasNext()) {
+            byte[] key = removals.next();
+            Assert.assertEquals(expected.remove(key), trie.remove(key));
+            if (removals.hasNext()) {
+                removals.next();
+            }
+        }
+        Assert.assertEquals(expected.size(), trie.size());
+
+        assertEntries(expected, trie.entriesInRange(null, null));
+        for (int i = 0; i < 50; ++i) {
+            byte[] from = new byte[random.nextInt(3)];
+            byte[] to = new byte[random.nextInt(3)];
+            random.nextBytes(from);
+            random.nextBytes(to);
+            if (UNSIGNED.compare(from, to) > 0) {
+                byte[] swap = from;
+                from = to;
+                to = swap;
+            }
+            assertEntries(expected.subMap(from, to), trie.entriesInRange(from, to));
+            assertEntries(expected.tailMap(from), trie.entriesInRange(from, null));
+            assertEntries(expected.headMap(to), trie.entriesInRange(null, to));
+        }
+        for (byte[] prefix : Arrays.asList(new byte[] {(byte) 0x83}, new byte[] {(byte) 0x83, (byte) 0xff},
+                new byte[] {0x02, 0x7f})) {
+            int count = 0;
+            for (byte[] key : list(trie.keysWithPrefix(prefix))) {
+                Assert.assertArrayEquals(prefix, Arrays.copyOf(key, prefix.length));
+                ++count;
+            }
+            Assert.assertEquals(count, trie.countWithPrefix(prefix));
+        }
+    }
+
+    @Test
+    public void testUtf8CodePointOrder() {
+        List<String> words = Arrays.asList("a", "z", "\u00e9", "\u4e2d", "\uffe0", "\ud83d\ude00", "\ud800\udc00",
+            "ab", "\u00e9t\u00e9");
+        ByteTrieMap<String> trie = new ByteTrieMap<String>();
+        for (String word : words) {
+            trie.addIfAbsent(utf8(word), word);
+        }
+
+        List<String> byCodePoint = new ArrayList<String>(words);
+        Collections.sort(byCodePoint, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int i = 0;
+                int j = 0;
+                while (i < a.length() && j < b.length()) {
+                    int ca = a.codePointAt(i);
+                    int cb = b.codePointAt(j);
+                    if (ca != cb) {
+                        return ca - cb;
+                    }
+                    i += Character.charCount(ca);
+                    j += Character.charCount(cb);
+                }
+                return (a.length() - i) - (b.length() - j);
+            }
+        });
+
+        List<String> actual = new ArrayList<String>();
+        Iterator<Map.Entry<byte[], String>> it = trie.entriesInRange(null, null);
+        while (it.hasNext()) {
+            Map.Entry<byte[], String> entry = it.next();
+            Assert.assertEquals(entry.getValue(), new String(entry.getKey(), UTF8));
+            actual.add(entry.getValue());
+        }
+        Assert.assertEquals(byCodePoint, actual);
+
+        // A range over the encoded keys is a range over the code points.
+        it = trie.entriesInRange(utf8("\u00e9"), utf8("\uffff"));
+        Assert.assertEquals("\u00e9", it.next().getValue());
+        Assert.assertEquals("\u00e9t\u00e9", it.next().getValue());
+        Assert.assertEquals("\u4e2d", it.next().getValue());
+        Assert.assertEquals("\uffe0", it.next().getValue());
+        Assert.assertFalse(it.hasNext());
+    }
+
+    private static void assertEntries(SortedMap<byte[], Integer> expected, Iterator<Map.Entry<byte[], Integer>> it) {
+        for (Map.Entry<byte[], Integer> entry : expected.entrySet()) {
+            Assert.assertTrue(it.hasNext());
+            Map.Entry<byte[], Integer> actual = it.next();
+            Assert.assertArrayEquals(entry.getKey(), actual.getKey());
+            Assert.assertEquals(entry.getValue(), actual.getValue());
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+
+    private static List<byte[]> list(Iterator<byte[]> it) {
+        List<byte[]> result = new ArrayList<byte[]>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(UTF8);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link CharSequenceTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class CharSequenceTrieMapTest {
+
+    @Test
+    public void testCountsRankAndSelect() throws Exception {
+        List<String> words = new ArrayList<String>(
+                new TreeSet<String>(DoubleArrayTrieMapTest.readLexicon().subList(0, 5000)));
+        CharSequenceTrieMap<Integer> trie = new CharSequenceTrieMap<Integer>();
+        for (int i = words.size() - 1; i >= 0; --i) {
+            trie.addIfAbsent(words.get(i), i);
+        }
+
+        Assert.assertEquals(words.size(), trie.size());
+        Assert.assertEquals(words.size(), trie.countWithPrefix(""));
+        for (int i = 0; i < words.size(); i += 37) {
+            Assert.assertEquals(words.get(i), trie.select(i));
+            Assert.assertEquals(i, trie.rank(words.get(i)));
+        }
+
+        String prefix = words.get(words.size() / 2).substring(0, 2);
+        int expected = 0;
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                ++expected;
+            }
+        }
+        Assert.assertEquals(expected, trie.countWithPrefix(prefix));
+        Assert.assertEquals(0, trie.countWithPrefix("\uffff"));
+    }
+
+    @Test
+    public void testHasAcceptingBelowFirstLevel() {
+        SortedMapTrieMap<Character, Integer> trie = new SortedMapTrieMap<Character, Integer>();
+        trie.addIfAbsent(Arrays.asList('A', 'B', 'C').iterator(), 1);
+        Assert.assertFalse(trie.isEmpty());
+        Assert.assertEquals(1, trie.size());
+        Assert.assertEquals(1, trie.countWithPrefix(Arrays.asList('A', 'B').iterator()));
+        Assert.assertEquals(0, trie.countWithPrefix(Arrays.asList('B').iterator()));
+    }
+
+    @Test
+    public void testRemove() {
+        CharSequenceTrieMap<Integer> trie = new CharSequenceTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        trie.addIfAbsent("CART", 2);
+        trie.addIfAbsent("CA", 3);
+
+        Assert.assertNull(trie.remove("CAR"));
+        Assert.assertEquals(Integer.valueOf(2), trie.remove("CART"));
+        Assert.assertNull(trie.remove("CART"));
+        Assert.assertEquals(2, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("CAT"));
+        Assert.assertEquals(Integer.valueOf(3), trie.get("CA"));
+        CharTrieView<Integer> ca = trie.rootView().child(0).child(0);
+        Assert.assertEquals(1, ca.fanout());
+        Assert.assertEquals('T', ca.label(0));
+
+        HashMapTrieMap<Character, Integer> hashTrie = new HashMapTrieMap<Character, Integer>();
+        hashTrie.addIfAbsent(Arrays.asList('A', 'B', 'C').iterator(), 1);
+        hashTrie.addIfAbsent(Arrays.asList('A', 'D').iterator(), 2);
+        Assert.assertEquals(Integer.valueOf(1), hashTrie.remove(Arrays.asList('A', 'B', 'C').iterator()));
+        Assert.assertEquals(1, hashTrie.root().next('A').transitions().size());
+        Assert.assertEquals(Integer.valueOf(2), hashTrie.remove(Arrays.asList('A', 'D').iterator()));
+        Assert.assertTrue(hashTrie.root().transitions().isEmpty());
+        Assert.assertTrue(hashTrie.isEmpty());
+    }
+}
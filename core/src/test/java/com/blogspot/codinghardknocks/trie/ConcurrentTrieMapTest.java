@@ -0,0 +1,293 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link ConcurrentTrieMap} and
+ * {@link ConcurrentCharSequenceTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class ConcurrentTrieMapTest {
+
+    private static final int THREADS = 4;
+
+    @Test
+    public void testGenericKeys() {
+        ConcurrentTrieMap<Integer, String> trie = new ConcurrentTrieMap<Integer, String>();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals("a", trie.addIfAbsent(keys(1, 2, 3), "a"));
+        Assert.assertEquals("b", trie.addIfAbsent(keys(1, 2), "b"));
+        Assert.assertEquals("a", trie.addIfAbsent(keys(1, 2, 3), "c"));
+
+        Assert.assertEquals(2, trie.size());
+        Assert.assertEquals("a", trie.get(keys(1, 2, 3)));
+        Assert.assertTrue(trie.contains(keys(1, 2)));
+        Assert.assertFalse(trie.contains(keys(1)));
+        Assert.assertEquals("d", trie.get(keys(4), "d"));
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+    }
+
+    @Test
+    public void testSnapshots() {
+        ConcurrentCharSequenceTrieMap<Integer> trie = new ConcurrentCharSequenceTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        trie.addIfAbsent("CAR", 2);
+
+        ConcurrentCharSequenceTrieMap<Integer> snapshot = trie.snapshot();
+        ConcurrentCharSequenceTrieMap<Integer> readOnly = trie.readOnlySnapshot();
+        trie.addIfAbsent("CARS", 3);
+        snapshot.addIfAbsent("CATS", 4);
+
+        Assert.assertEquals(3, trie.size());
+        Assert.assertFalse(trie.contains("CATS"));
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertFalse(snapshot.contains("CARS"));
+        Assert.assertEquals(Integer.valueOf(4), snapshot.get("CATS"));
+        Assert.assertEquals(2, readOnly.size());
+        Assert.assertTrue(readOnly.isReadOnly());
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(3, snapshot.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlySnapshot() {
+        new ConcurrentCharSequenceTrieMap<Object>().readOnlySnapshot().addIfAbsent("A", null);
+    }
+
+    @Test
+    public void testConcurrentAddIfAbsent() throws Exception {
+        final ConcurrentCharSequenceTrieMap<Integer> trie = new ConcurrentCharSequenceTrieMap<Integer>();
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 20000; ++i) {
+            keys.add(Integer.toString(i, 7));
+        }
+
+        List<Callable<Integer[]>> tasks = new ArrayList<Callable<Integer[]>>();
+        for (int t = 0; t < THREADS; ++t) {
+            final int thread = t;
+            tasks.add(new Callable<Integer[]>() {
+                @Override
+                public Integer[] call() {
+                    List<String> order = new ArrayList<String>(keys);
+                    Collections.shuffle(order);
+                    Integer[] results = new Integer[keys.size()];
+                    for (String key : order) {
+                        results[Integer.parseInt(key, 7)] = trie.addIfAbsent(key, thread);
+                    }
+                    return results;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer[]>> results = executor.invokeAll(tasks);
+            Assert.assertEquals(keys.size(), trie.size());
+            for (int i = 0; i < keys.size(); ++i) {
+                // Every thread must agree on which value won.
+                Integer winner = trie.get(keys.get(i));
+                for (Future<Integer[]> result : results) {
+                    Assert.assertEquals(winner, result.get()[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConsistentSnapshotsDuringWrites() throws Exception {
+        final ConcurrentCharSequenceTrieMap<Integer> trie = new ConcurrentCharSequenceTrieMap<Integer>();
+        final int count = 20000;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; ++i) {
+                        trie.addIfAbsent(Integer.toString(i), i);
+                    }
+                }
+            });
+
+            // Keys are added in order by a single writer, so any snapshot must
+            // hold exactly the first n keys.
+            while (!writer.isDone()) {
+                ConcurrentCharSequenceTrieMap<Integer> snapshot = trie.readOnlySnapshot();
+                int size = snapshot.size();
+                for (int i = 0; i < size; ++i) {
+                    Assert.assertTrue(snapshot.contains(Integer.toString(i)));
+                }
+                Assert.assertFalse(snapshot.contains(Integer.toString(size)));
+            }
+            writer.get();
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(count, trie.size());
+    }
+
+    @Test
+    public void testRemove() {
+        ConcurrentCharSequenceTrieMap<Integer> trie = new ConcurrentCharSequenceTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        trie.addIfAbsent("CART", 2);
+        trie.addIfAbsent("CA", 3);
+        ConcurrentCharSequenceTrieMap<Integer> snapshot = trie.readOnlySnapshot();
+
+        Assert.assertEquals(Integer.valueOf(2), trie.remove("CART"));
+        Assert.assertNull(trie.remove("CART"));
+        Assert.assertNull(trie.remove("CAR"));
+        Assert.assertNull(trie.lookup("CAR"));
+        Assert.assertEquals(Integer.valueOf(3), trie.remove("CA"));
+        Assert.assertEquals(Integer.valueOf(1), trie.remove("CAT"));
+        Assert.assertNull(trie.lookup("C"));
+        Assert.assertTrue(trie.isEmpty());
+
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertEquals(Integer.valueOf(2), snapshot.get("CART"));
+
+        ConcurrentTrieMap<Integer, String> generic = new ConcurrentTrieMap<Integer, String>();
+        generic.addIfAbsent(keys(1, 2, 3), "A");
+        generic.addIfAbsent(keys(1, 2), "B");
+        Assert.assertEquals("A", generic.remove(keys(1, 2, 3)));
+        Assert.assertEquals(1, generic.size());
+        Assert.assertEquals("B", generic.get(keys(1, 2)));
+    }
+
+    @Test
+    public void testConcurrentRemove() throws Exception {
+        final ConcurrentCharSequenceTrieMap<Integer> trie = new ConcurrentCharSequenceTrieMap<Integer>();
+        final int count = 20000;
+
+        // Each thread owns every THREADS-th key, but the keys of different
+        // threads share prefixes, so pruning races with insertion.
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < THREADS; ++t) {
+            final int thread = t;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int round = 0; round < 3; ++round) {
+                        for (int i = thread; i < count; i += THREADS) {
+                            trie.addIfAbsent(Integer.toString(i, 7), i);
+                        }
+                        for (int i = thread; i < count; i += THREADS) {
+                            Assert.assertEquals(Integer.valueOf(i), trie.remove(Integer.toString(i, 7)));
+                        }
+                    }
+                    for (int i = thread; i < count; i += THREADS) {
+                        if (i % 2 == 0) {
+                            trie.addIfAbsent(Integer.toString(i, 7), i);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(count / 2, trie.size());
+        for (int i = 0; i < count; ++i) {
+            Assert.assertEquals(i % 2 == 0, trie.contains(Integer.toString(i, 7)));
+        }
+    }
+
+    @Test
+    public void testReadersDuringPruning() throws Exception {
+        final ConcurrentCharSequenceTrieMap<Integer> chars = new ConcurrentCharSequenceTrieMap<Integer>();
+        final ConcurrentTrieMap<Integer, Integer> generic = new ConcurrentTrieMap<Integer, Integer>();
+        final int rounds = 20000;
+
+        // Writers keep adding and pruning sibling leaves, so readers walking
+        // past them run into removed leaves which are not yet cleaned up.
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < 2; ++t) {
+            final String key = t == 0 ? "ab" : "ac";
+            final int last = t == 0 ? 2 : 3;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = 0; i < rounds; ++i) {
+                        chars.addIfAbsent(key, i);
+                        generic.addIfAbsent(keys(1, last), i);
+                        chars.remove(key);
+                        generic.remove(keys(1, last));
+                    }
+                    return null;
+                }
+            });
+        }
+        tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() {
+                for (int i = 0; i < rounds; ++i) {
+                    Assert.assertNull(chars.get("abx"));
+                    Assert.assertFalse(chars.contains("acx"));
+                    Assert.assertNull(generic.get(keys(1, 2, 4)));
+                    Assert.assertFalse(generic.contains(keys(1, 3, 4)));
+                    Assert.assertEquals(0, generic.countWithPrefix(keys(1, 2, 4)));
+                    Assert.assertTrue(generic.countWithPrefix(keys(1, 3)) <= 1);
+                }
+                return null;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(chars.isEmpty());
+        Assert.assertTrue(generic.isEmpty());
+    }
+
+    private static Iterator<Integer> keys(Integer... keys) {
+        return Arrays.asList(keys).iterator();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link CritBitLongMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class CritBitLongMapTest {
+
+    private static final Comparator<Long> UNSIGNED = new Comparator<Long>() {
+        @Override
+        public int compare(Long a, Long b) {
+            long x = a + Long.MIN_VALUE;
+            long y = b + Long.MIN_VALUE;
+            return x < y ? -1 : (x == y ? 0 : 1);
+        }
+    };
+
+    @Test
+    public void testBasicOperations() {
+        CritBitLongMap<String> tree = new CritBitLongMap<String>();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertNull(tree.get(1));
+        Assert.assertNull(tree.remove(1));
+        Assert.assertNull(tree.ceilingKey(1));
+
+        Assert.assertNull(tree.put(5, "five"));
+        Assert.assertNull(tree.put(-1, "max"));
+        Assert.assertNull(tree.put(0, "zero"));
+        Assert.assertEquals("five", tree.put(5, "FIVE"));
+        Assert.assertEquals(3, tree.size());
+
+        Assert.assertEquals("FIVE", tree.get(5));
+        Assert.assertTrue(tree.containsKey(-1));
+        Assert.assertFalse(tree.containsKey(4));
+        Assert.assertEquals("none", tree.get(4, "none"));
+
+        // Unsigned order puts -1 last.
+        Assert.assertEquals(Long.valueOf(5), tree.ceilingKey(1));
+        Assert.assertEquals(Long.valueOf(-1), tree.ceilingKey(6));
+        Assert.assertEquals(Long.valueOf(0), tree.floorKey(4));
+        Assert.assertEquals(Long.valueOf(5), tree.floorKey(Long.MAX_VALUE));
+
+        Assert.assertEquals("zero", tree.remove(0));
+        Assert.assertNull(tree.floorKey(4));
+        Assert.assertEquals("max", tree.remove(-1));
+        Assert.assertEquals("FIVE", tree.remove(5));
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertFalse(tree.entries().hasNext());
+
+        tree.put(7, "seven");
+        tree.clear();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertNull(tree.get(7));
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+        Random random = new Random(3);
+        CritBitLongMap<Integer> tree = new CritBitLongMap<Integer>();
+        NavigableMap<Long, Integer> expected = new TreeMap<Long, Integer>(UNSIGNED);
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < 5000; ++i) {
+                long key = randomKey(random);
+                Assert.assertEquals(expected.put(key, i), tree.put(key, i));
+            }
+            List<Long> present = new ArrayList<Long>(expected.keySet());
+            for (int i = 0; i < 2000; ++i) {
+                long key = random.nextBoolean() ? present.get(random.nextInt(present.size())) : randomKey(random);
+                Assert.assertEquals(expected.remove(key), tree.remove(key));
+            }
+            Assert.assertEquals(expected.size(), tree.size());
+
+            for (int i = 0; i < 2000; ++i) {
+                long key = randomKey(random);
+                Assert.assertEquals(expected.get(key), tree.get(key));
+                Assert.assertEquals(expected.floorKey(key), tree.floorKey(key));
+                Assert.assertEquals(expected.ceilingKey(key), tree.ceilingKey(key));
+            }
+            for (Long key : expected.keySet()) {
+                Assert.assertEquals(key, tree.floorKey(key));
+                Assert.assertEquals(key, tree.ceilingKey(key));
+            }
+
+            assertEntries(expected, tree.entries());
+            for (int i = 0; i < 50; ++i) {
+                long from = randomKey(random);
+                long to = randomKey(random);
+                if (UNSIGNED.compare(from, to) > 0) {
+                    assertEntries(new TreeMap<Long, Integer>(UNSIGNED), tree.entriesInRange(from, to));
+                } else {
+                    assertEntries(expected.subMap(from, true, to, true), tree.entriesInRange(from, to));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNetworkPrefix() {
+        CritBitLongMap<String> routes = new CritBitLongMap<String>();
+        routes.put(ipv4(10, 0, 0, 1), "a");
+        routes.put(ipv4(10, 0, 255, 255), "b");
+        routes.put(ipv4(10, 1, 0, 0), "c");
+        routes.put(ipv4(192, 168, 1, 1), "d");
+        routes.put(ipv4(9, 255, 255, 255), "e");
+
+        Assert.assertEquals("ab", values(routes.entriesWithPrefix(ipv4(10, 0, 0, 0), 32 + 16)));
+        Assert.assertEquals("abc", values(routes.entriesWithPrefix(ipv4(10, 0, 0, 0), 32 + 8)));
+        Assert.assertEquals("d", values(routes.entriesWithPrefix(ipv4(192, 168, 0, 0), 32 + 16)));
+        Assert.assertEquals("", values(routes.entriesWithPrefix(ipv4(172, 16, 0, 0), 32 + 12)));
+        Assert.assertEquals("eabcd", values(routes.entriesWithPrefix(0, 0)));
+        Assert.assertEquals("a", values(routes.entriesWithPrefix(ipv4(10, 0, 0, 1), 64)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadPrefixLength() {
+        new CritBitLongMap<Object>().entriesWithPrefix(0, 65);
+    }
+
+    private static long randomKey(Random random) {
+        // Mostly clustered keys, so the tree has long shared prefixes.
+        return random.nextInt(4) == 0 ? random.nextLong() : (random.nextLong() & 0xf00000000000ffffL);
+    }
+
+    private static long ipv4(int a, int b, int c, int d) {
+        return ((long) a << 24) | (b << 16) | (c << 8) | d;
+    }
+
+    private static String values(Iterator<Map.Entry<Long, String>> it) {
+        StringBuilder result = new StringBuilder();
+        while (it.hasNext()) {
+            result.append(it.next().getValue());
+        }
+        return result.toString();
+    }
+
+    private static void assertEntries(NavigableMap<Long, Integer> expected, Iterator<Map.Entry<Long, Integer>> it) {
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertEquals(entry, it.next());
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link Dawg} and {@link DawgBuilder}.
+ *
+ * @author kbohling
+ *
+ */
+public class DawgTest {
+
+    @Test
+    public void testSharedSuffixes() {
+        List<String> words = Arrays.asList("", "TAP", "TAPS", "TOP", "TOPS");
+        Dawg dawg = Dawg.build(words);
+
+        Assert.assertEquals(5, dawg.size());
+        // Root, T, TA/TO, TAP/TOP, TAPS/TOPS.
+        Assert.assertEquals(5, dawg.stateCount());
+        for (int i = 0; i < words.size(); ++i) {
+            Assert.assertTrue(dawg.contains(words.get(i)));
+            Assert.assertEquals(i, dawg.indexOf(words.get(i)));
+            Assert.assertEquals(words.get(i), dawg.wordAt(i));
+        }
+        Assert.assertFalse(dawg.contains("TA"));
+        Assert.assertFalse(dawg.contains("TAPSS"));
+        Assert.assertEquals(-1, dawg.indexOf("TIP"));
+
+        List<String> enumerated = new ArrayList<String>();
+        for (String word : dawg) {
+            enumerated.add(word);
+        }
+        Assert.assertEquals(words, enumerated);
+    }
+
+    @Test
+    public void testEmpty() {
+        Dawg dawg = new DawgBuilder().build();
+        Assert.assertTrue(dawg.isEmpty());
+        Assert.assertFalse(dawg.contains(""));
+        Assert.assertFalse(dawg.iterator().hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsorted() {
+        new DawgBuilder().add("B").add("A");
+    }
+
+    @Test
+    public void testLexicon() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        Collections.sort(words);
+
+        Dawg dawg = Dawg.build(words);
+        StringTrieMap<Object> trie = new StringTrieMap<Object>();
+        for (String word : words) {
+            trie.addIfAbsent(word, null);
+        }
+
+        Assert.assertEquals(words.size(), dawg.size());
+        int i = 0;
+        for (String word : dawg) {
+            Assert.assertEquals(words.get(i), word);
+            Assert.assertEquals(i, dawg.indexOf(word));
+            ++i;
+        }
+        Assert.assertEquals(words.size(), i);
+        Assert.assertEquals(words.get(1000), dawg.wordAt(1000));
+
+        long trieBytes = trie.freeze().sourceEstimatedBytes();
+        Assert.assertTrue(dawg.estimatedBytes() * 4 < trieBytes);
+    }
+}
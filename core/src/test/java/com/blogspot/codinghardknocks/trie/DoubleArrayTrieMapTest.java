@@ -0,0 +1,106 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link DoubleArrayTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class DoubleArrayTrieMapTest {
+
+    @Test
+    public void testFreezeStringTrie() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        trie.addIfAbsent("CAR", 2);
+        trie.addIfAbsent("CA", 3);
+        trie.addIfAbsent("中文", 4);
+        trie.addIfAbsent("", 5);
+
+        DoubleArrayTrieMap<Integer> frozen = trie.freeze();
+        Assert.assertEquals(5, frozen.size());
+        Assert.assertEquals(Integer.valueOf(1), frozen.get("CAT"));
+        Assert.assertEquals(Integer.valueOf(2), frozen.get("CAR"));
+        Assert.assertEquals(Integer.valueOf(3), frozen.get("CA"));
+        Assert.assertEquals(Integer.valueOf(4), frozen.get("中文"));
+        Assert.assertEquals(Integer.valueOf(5), frozen.get(""));
+        Assert.assertFalse(frozen.contains("C"));
+        Assert.assertFalse(frozen.contains("CATS"));
+        Assert.assertFalse(frozen.contains("中"));
+        Assert.assertEquals(Integer.valueOf(-1), frozen.get("DOG", -1));
+    }
+
+    @Test
+    public void testFreezeEmpty() {
+        DoubleArrayTrieMap<Object> frozen = new CharSequenceTrieMap<Object>().freeze();
+        Assert.assertTrue(frozen.isEmpty());
+        Assert.assertFalse(frozen.contains(""));
+        Assert.assertFalse(frozen.contains("A"));
+    }
+
+    @Test
+    public void testFreezeLexicon() throws IOException {
+        List<String> words = readLexicon();
+        StringTrieMap<String> stringTrie = new StringTrieMap<String>();
+        CharSequenceTrieMap<String> charSeqTrie = new CharSequenceTrieMap<String>();
+        for (String word : words) {
+            stringTrie.addIfAbsent(word, word);
+            charSeqTrie.addIfAbsent(word, word);
+        }
+
+        DoubleArrayTrieMap<String> fromString = stringTrie.freeze();
+        DoubleArrayTrieMap<String> fromCharSeq = charSeqTrie.freeze();
+        Assert.assertEquals(words.size(), fromString.size());
+        Assert.assertEquals(words.size(), fromCharSeq.size());
+        for (String word : words) {
+            Assert.assertSame(word, fromString.get(word));
+            Assert.assertSame(word, fromCharSeq.get(word));
+            Assert.assertFalse(fromString.contains(word + "#"));
+        }
+        Assert.assertTrue(fromString.savedBytes() > 0);
+        // Both tries are built from the same primitive nodes.
+        Assert.assertEquals(fromString.savedBytes(), fromCharSeq.savedBytes());
+    }
+
+    static List<String> readLexicon() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                DoubleArrayTrieMapTest.class.getResourceAsStream("Lexicon.txt"), "UTF-8"));
+        try {
+            List<String> words = new ArrayList<String>();
+            // The first line is the word count.
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                words.add(line);
+            }
+            return words;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the fuzzy search of {@link StringTrieMap} and
+ * {@link CharSequenceTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class FuzzySearchTest {
+
+    private static List<String> words;
+    private static StringTrieMap<Integer> trie;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        words = DoubleArrayTrieMapTest.readLexicon();
+        trie = new StringTrieMap<Integer>();
+        for (int i = 0; i < words.size(); ++i) {
+            trie.addIfAbsent(words.get(i), i);
+        }
+    }
+
+    @Test
+    public void testSmallTrie() {
+        CharSequenceTrieMap<Integer> small = new CharSequenceTrieMap<Integer>();
+        for (String key : new String[] {"CAT", "CART", "CAST", "DOG", "CUT", "AT"}) {
+            small.addIfAbsent(key, key.length());
+        }
+
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch<Integer>("CAT", 3, 0),
+                new FuzzyMatch<Integer>("AT", 2, 1), new FuzzyMatch<Integer>("CART", 4, 1),
+                new FuzzyMatch<Integer>("CAST", 4, 1), new FuzzyMatch<Integer>("CUT", 3, 1)),
+                small.fuzzySearch("CAT", 1));
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch<Integer>("CAT", 3, 0),
+                new FuzzyMatch<Integer>("AT", 2, 1)), small.fuzzySearch("CAT", 2, 2));
+        Assert.assertEquals(Collections.emptyList(), small.fuzzySearch("CAT", 1, 0));
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch<Integer>("DOG", 3, 3)), small.fuzzySearch("DOGGIE", 3));
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        for (String query : new String[] {"ALGORITM", "TREI", "XYZZY", "QUIXOTIC"}) {
+            List<FuzzyMatch<Integer>> expected = bruteForce(query, 2);
+            Assert.assertEquals(expected, trie.fuzzySearch(query, 2));
+            Assert.assertEquals(expected.subList(0, Math.min(5, expected.size())), trie.fuzzySearch(query, 2, 5));
+        }
+    }
+
+    @Test
+    public void testLongQuery() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            builder.append((char) ('A' + i % 26));
+        }
+        String key = builder.toString();
+        CharSequenceTrieMap<Integer> small = new CharSequenceTrieMap<Integer>();
+        small.addIfAbsent(key, 1);
+        small.addIfAbsent(key.substring(0, 98), 2);
+
+        // Deeper than the rows allocated up front.
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch<Integer>(key.substring(0, 98), 2, 1),
+                new FuzzyMatch<Integer>(key, 1, 1)),
+                small.fuzzySearch(key.substring(0, 99), 1));
+        Assert.assertEquals(2, small.fuzzySearch(key + key, 200).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDistance() {
+        trie.fuzzySearch("CAT", -1);
+    }
+
+    private static List<FuzzyMatch<Integer>> bruteForce(String query, int maxDistance) {
+        List<FuzzyMatch<Integer>> matches = new ArrayList<FuzzyMatch<Integer>>();
+        for (int i = 0; i < words.size(); ++i) {
+            int distance = distance(query, words.get(i));
+            if (distance <= maxDistance) {
+                matches.add(new FuzzyMatch<Integer>(words.get(i), trie.get(words.get(i)), distance));
+            }
+        }
+        Collections.sort(matches, new Comparator<FuzzyMatch<Integer>>() {
+            @Override
+            public int compare(FuzzyMatch<Integer> a, FuzzyMatch<Integer> b) {
+                if (a.distance() != b.distance()) {
+                    return a.distance() - b.distance();
+                }
+                return a.key().compareTo(b.key());
+            }
+        });
+        return matches;
+    }
+
+    private static int distance(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); ++j) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); ++i) {
+            curr[0] = i;
+            for (int j = 1; j <= b.length(); ++j) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+            }
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return prev[b.length()];
+    }
+}
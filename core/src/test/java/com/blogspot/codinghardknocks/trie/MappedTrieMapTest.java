@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Unit tests to validate the behavior of {@link MappedTrieMap} and {@link MappedTrieWriter}.
+ *
+ * @author kbohling
+ *
+ */
+public class MappedTrieMapTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StringTrieMap<String> trie = new StringTrieMap<String>();
+        trie.addIfAbsent("CAT", "cat");
+        trie.addIfAbsent("CAR", "car");
+        trie.addIfAbsent("CA", null);
+        trie.addIfAbsent("中文", "chinese");
+        trie.addIfAbsent("", "empty");
+
+        File file = folder.newFile("small.trie");
+        MappedTrieWriter.write(trie, TrieValueCodecs.utf8(), file);
+        MappedTrieMap<String> mapped = MappedTrieMap.open(file, TrieValueCodecs.utf8());
+
+        Assert.assertEquals(5, mapped.size());
+        Assert.assertEquals("cat", mapped.get("CAT"));
+        Assert.assertEquals("car", mapped.get("CAR"));
+        Assert.assertTrue(mapped.contains("CA"));
+        Assert.assertNull(mapped.get("CA", "default"));
+        Assert.assertEquals("chinese", mapped.get("中文"));
+        Assert.assertEquals("empty", mapped.get(""));
+        Assert.assertFalse(mapped.contains("C"));
+        Assert.assertFalse(mapped.contains("CATS"));
+        Assert.assertEquals("default", mapped.get("DOG", "default"));
+    }
+
+    @Test
+    public void testLexicon() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        CharSequenceTrieMap<Integer> trie = new CharSequenceTrieMap<Integer>();
+        for (int i = 0; i < words.size(); ++i) {
+            trie.addIfAbsent(words.get(i), i);
+        }
+
+        File file = folder.newFile("lexicon.trie");
+        MappedTrieWriter.write(trie, TrieValueCodecs.integer(), file);
+        MappedTrieMap<Integer> mapped = MappedTrieMap.open(file, TrieValueCodecs.integer());
+
+        Assert.assertEquals(words.size(), mapped.size());
+        for (int i = 0; i < words.size(); ++i) {
+            Assert.assertEquals(Integer.valueOf(i), mapped.get(words.get(i)));
+            Assert.assertFalse(mapped.contains(words.get(i) + "#"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotATrie() throws IOException {
+        File file = folder.newFile("garbage.trie");
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(new byte[64]);
+        } finally {
+            stream.close();
+        }
+        MappedTrieMap.open(file, TrieValueCodecs.none());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link PersistentTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class PersistentTrieMapTest {
+
+    @Test
+    public void testVersions() {
+        PersistentTrieMap<Integer> empty = new PersistentTrieMap<Integer>();
+        PersistentTrieMap<Integer> v1 = empty.put("CAT", 1).put("CAR", 2);
+        PersistentTrieMap<Integer> v2 = v1.put("CA", 3).put("CAT", 4);
+        PersistentTrieMap<Integer> v3 = v2.remove("CAR").remove("DOG").put("", 5);
+
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertFalse(empty.contains("CAT"));
+
+        Assert.assertEquals(2, v1.size());
+        Assert.assertEquals(Integer.valueOf(1), v1.get("CAT"));
+        Assert.assertFalse(v1.contains("CA"));
+
+        Assert.assertEquals(3, v2.size());
+        Assert.assertEquals(Integer.valueOf(4), v2.get("CAT"));
+        Assert.assertEquals(Integer.valueOf(3), v2.get("CA"));
+        Assert.assertEquals(3, v2.countWithPrefix("C"));
+
+        Assert.assertEquals(3, v3.size());
+        Assert.assertFalse(v3.contains("CAR"));
+        Assert.assertEquals(Integer.valueOf(5), v3.get(""));
+        Assert.assertEquals(Integer.valueOf(-1), v3.get("C", -1));
+        Assert.assertEquals(Integer.valueOf(2), v2.get("CAR"));
+
+        // No-op updates return the same version.
+        Assert.assertSame(v3, v3.remove("CAR"));
+        Assert.assertSame(v3, v3.remove("C"));
+        Assert.assertSame(v3, v3.put("", v3.get("")));
+
+        PersistentTrieMap<Integer> cleared = v3.remove("").remove("CA").remove("CAT");
+        Assert.assertTrue(cleared.isEmpty());
+        Assert.assertEquals(1, cleared.statistics().nodeCount());
+        Assert.assertEquals(3, v3.size());
+    }
+
+    @Test
+    public void testStructuralSharing() {
+        PersistentTrieMap<Integer> v1 = new PersistentTrieMap<Integer>();
+        for (String key : new String[] {"apple", "banana", "cherry"}) {
+            v1 = v1.put(key, key.length());
+        }
+        PersistentTrieMap<Integer> v2 = v1.put("bandana", 7);
+
+        CharTrieView<Integer> root1 = v1.rootView();
+        CharTrieView<Integer> root2 = v2.rootView();
+        Assert.assertNotSame(root1, root2);
+        // "apple" and "cherry" are untouched, the "b" path was copied.
+        Assert.assertSame(root1.child(0), root2.child(0));
+        Assert.assertNotSame(root1.child(1), root2.child(1));
+        Assert.assertSame(root1.child(2), root2.child(2));
+
+        CharTrieView<Integer> ban1 = root1.child(1).child(0).child(0);
+        CharTrieView<Integer> ban2 = root2.child(1).child(0).child(0);
+        Assert.assertEquals(1, ban1.fanout());
+        Assert.assertEquals(2, ban2.fanout());
+        Assert.assertSame(ban1.child(0), ban2.child(0));
+    }
+
+    @Test
+    public void testAgainstTreeMap() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        List<String> shuffled = new ArrayList<String>(words);
+        Collections.shuffle(shuffled, new Random(42));
+
+        PersistentTrieMap<String> trie = new PersistentTrieMap<String>();
+        TreeMap<String, String> expected = new TreeMap<String, String>();
+        for (String word : shuffled) {
+            trie = trie.put(word, word);
+            expected.put(word, word);
+        }
+        PersistentTrieMap<String> full = trie;
+        for (int i = 0; i < shuffled.size(); i += 3) {
+            String word = shuffled.get(i);
+            trie = trie.remove(word);
+            expected.remove(word);
+        }
+
+        Assert.assertEquals(expected.size(), trie.size());
+        Assert.assertEquals(words.size(), full.size());
+        for (String word : words) {
+            Assert.assertEquals(expected.get(word), trie.get(word));
+            Assert.assertEquals(word, full.get(word));
+        }
+        for (String prefix : new String[] {"", "a", "ab", "zy", "qqq"}) {
+            Iterator<Map.Entry<String, String>> it = trie.entriesWithPrefix(prefix);
+            for (Map.Entry<String, String> entry : expected.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+                Assert.assertEquals(entry, it.next());
+            }
+            Assert.assertFalse(it.hasNext());
+            Assert.assertEquals(expected.subMap(prefix, prefix + Character.MAX_VALUE).size(),
+                trie.countWithPrefix(prefix));
+        }
+
+        DoubleArrayTrieMap<String> frozen = trie.freeze();
+        Assert.assertEquals(trie.size(), frozen.size());
+    }
+
+    @Test
+    public void testReadersSeeStableVersions() throws Exception {
+        final AtomicReference<PersistentTrieMap<Integer>> published =
+            new AtomicReference<PersistentTrieMap<Integer>>(new PersistentTrieMap<Integer>());
+        final int count = 20000;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Void> writer = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    PersistentTrieMap<Integer> version = published.get();
+                    for (int i = 0; i < count; ++i) {
+                        version = version.put(Integer.toString(i), i);
+                        published.set(version);
+                    }
+                    return null;
+                }
+            });
+
+            // Keys are published in order, so a version holds exactly the
+            // first n keys however long it is read for.
+            while (!writer.isDone()) {
+                PersistentTrieMap<Integer> version = published.get();
+                int size = version.size();
+                for (int i = 0; i < size; i += 97) {
+                    Assert.assertEquals(Integer.valueOf(i), version.get(Integer.toString(i)));
+                }
+                Assert.assertFalse(version.contains(Integer.toString(size)));
+                Assert.assertEquals(size, version.size());
+            }
+            writer.get();
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(count, published.get().size());
+    }
+}
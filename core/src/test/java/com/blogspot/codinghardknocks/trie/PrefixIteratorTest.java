@@ -0,0 +1,148 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the prefix enumeration of the trie implementations.
+ *
+ * @author kbohling
+ *
+ */
+public class PrefixIteratorTest {
+
+    private static final String[] WORDS = {"CA", "CAR", "CARD", "CART", "CAT", "DOG", ""};
+
+    @Test
+    public void testStringTrieMap() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        for (int i = 0; i < WORDS.length; ++i) {
+            trie.addIfAbsent(WORDS[i], i);
+        }
+
+        Assert.assertEquals(Arrays.asList("", "CA", "CAR", "CARD", "CART", "CAT", "DOG"),
+                toList(trie.keysWithPrefix("")));
+        Assert.assertEquals(Arrays.asList("CAR", "CARD", "CART"), toList(trie.keysWithPrefix("CAR")));
+        Assert.assertEquals(Arrays.asList("CA", "CAR"), toList(trie.keysWithPrefix("C", 2)));
+        Assert.assertEquals(Collections.emptyList(), toList(trie.keysWithPrefix("CAB")));
+        Assert.assertEquals(Collections.emptyList(), toList(trie.keysWithPrefix("CA", 0)));
+
+        Map.Entry<String, Integer> entry = trie.entriesWithPrefix("CART").next();
+        Assert.assertEquals("CART", entry.getKey());
+        Assert.assertEquals(Integer.valueOf(3), entry.getValue());
+    }
+
+    @Test
+    public void testCharSequenceTrieMap() {
+        CharSequenceTrieMap<Integer> trie = new CharSequenceTrieMap<Integer>();
+        for (int i = 0; i < WORDS.length; ++i) {
+            trie.addIfAbsent(WORDS[i], i);
+        }
+
+        Assert.assertEquals(Arrays.asList("", "CA", "CAR", "CARD", "CART", "CAT", "DOG"),
+                toList(trie.keysWithPrefix("")));
+        Assert.assertEquals(Arrays.asList("CAR", "CARD", "CART"),
+                toList(trie.keysWithPrefix(new StringBuilder("CAR"))));
+        Assert.assertEquals(Arrays.asList("CA", "CAR"), toList(trie.keysWithPrefix("C", 2)));
+        Assert.assertEquals(Collections.emptyList(), toList(trie.keysWithPrefix("CAB")));
+
+        Map.Entry<String, Integer> entry = trie.entriesWithPrefix("D").next();
+        Assert.assertEquals("DOG", entry.getKey());
+        Assert.assertEquals(Integer.valueOf(5), entry.getValue());
+    }
+
+    @Test
+    public void testSortedMapTrieMap() {
+        checkTrieMap(new SortedMapTrieMap<Character, Integer>());
+    }
+
+    @Test
+    public void testConcurrentTrieMap() {
+        ConcurrentTrieMap<Character, Integer> trie = new ConcurrentTrieMap<Character, Integer>();
+        checkTrieMap(trie);
+
+        Iterator<List<Character>> iter = trie.keysWithPrefix(chars("CAR"));
+        trie.addIfAbsent(chars("CARP"), 7);
+        Assert.assertEquals(3, toList(iter).size());
+        Assert.assertEquals(4, toList(trie.keysWithPrefix(chars("CAR"))).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new StringTrieMap<Integer>().keysWithPrefix("", -1);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testExhausted() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        Iterator<String> iter = trie.keysWithPrefix("CAT");
+        iter.next();
+        iter.next();
+    }
+
+    private static void checkTrieMap(TrieMap<Character, Integer> trie) {
+        for (int i = 0; i < WORDS.length; ++i) {
+            trie.addIfAbsent(chars(WORDS[i]), i);
+        }
+
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<List<Character>> iter = trie.keysWithPrefix(chars("CAR")); iter.hasNext();) {
+            StringBuilder key = new StringBuilder();
+            for (Character c : iter.next()) {
+                key.append(c.charValue());
+            }
+            keys.add(key.toString());
+        }
+        Collections.sort(keys);
+        Assert.assertEquals(Arrays.asList("CAR", "CARD", "CART"), keys);
+
+        Assert.assertEquals(WORDS.length, toList(trie.keysWithPrefix(chars(""))).size());
+        Assert.assertEquals(2, toList(trie.keysWithPrefix(chars("CA"), 2)).size());
+        Assert.assertEquals(Collections.emptyList(), toList(trie.keysWithPrefix(chars("X"))));
+
+        Map.Entry<List<Character>, Integer> entry = trie.entriesWithPrefix(chars("DOG")).next();
+        Assert.assertEquals(Arrays.asList('D', 'O', 'G'), entry.getKey());
+        Assert.assertEquals(Integer.valueOf(5), entry.getValue());
+    }
+
+    private static Iterator<Character> chars(String s) {
+        List<Character> list = new ArrayList<Character>();
+        for (int i = 0; i < s.length(); ++i) {
+            list.add(s.charAt(i));
+        }
+        return list.iterator();
+    }
+
+    private static <T> List<T> toList(Iterator<T> iter) {
+        List<T> list = new ArrayList<T>();
+        while (iter.hasNext()) {
+            list.add(iter.next());
+        }
+        return list;
+    }
+}
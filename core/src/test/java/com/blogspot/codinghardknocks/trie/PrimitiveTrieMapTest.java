@@ -0,0 +1,165 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of the primitive key tries generated
+ * from <code>PrimitiveTrieMap.java.template</code>: {@link IntTrieMap},
+ * {@link LongTrieMap} and {@link CharTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class PrimitiveTrieMapTest {
+
+    @Test
+    public void testNGrams() {
+        IntTrieMap<String> trie = new IntTrieMap<String>();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals("the cat", trie.addIfAbsent(new int[] {7, 42}, "the cat"));
+        Assert.assertEquals("the cat sat", trie.addIfAbsent(new int[] {7, 42, 3}, "the cat sat"));
+        Assert.assertEquals("the", trie.addIfAbsent(new int[] {99, 7, 99}, 1, 1, "the"));
+        Assert.assertEquals("the", trie.addIfAbsent(new int[] {7}, "a"));
+        Assert.assertEquals(3, trie.size());
+
+        int[] sentence = {5, 7, 42, 3, 8};
+        Assert.assertEquals("the cat", trie.get(sentence, 1, 2));
+        Assert.assertEquals("the cat sat", trie.get(sentence, 1, 3));
+        Assert.assertNull(trie.get(sentence, 1, 4));
+        Assert.assertFalse(trie.contains(new int[] {42}));
+        Assert.assertEquals(3, trie.countWithPrefix(new int[] {7}));
+        Assert.assertEquals(0, trie.countWithPrefix(new int[] {8}));
+
+        Assert.assertEquals("the cat", trie.remove(new int[] {7, 42}));
+        Assert.assertNull(trie.remove(new int[] {7, 42}));
+        Assert.assertEquals("the cat sat", trie.get(new int[] {7, 42, 3}));
+        Assert.assertEquals(2, trie.size());
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadSlice() {
+        new IntTrieMap<Object>().get(new int[2], 1, 2);
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(5);
+        IntTrieMap<Integer> trie = new IntTrieMap<Integer>();
+        Map<List<Integer>, Integer> expected = new HashMap<List<Integer>, Integer>();
+        List<int[]> keys = new ArrayList<int[]>();
+        for (int i = 0; i < 20000; ++i) {
+            int[] key = new int[1 + random.nextInt(5)];
+            for (int j = 0; j < key.length; ++j) {
+                key[j] = random.nextInt(50) - 25;
+            }
+            keys.add(key);
+            if (!expected.containsKey(boxed(key))) {
+                expected.put(boxed(key), i);
+            }
+            trie.addIfAbsent(key, i);
+        }
+        long bytes = trie.estimatedBytes();
+        for (int i = 0; i < keys.size(); i += 2) {
+            Assert.assertEquals(expected.remove(boxed(keys.get(i))), trie.remove(keys.get(i)));
+        }
+        Assert.assertTrue(trie.estimatedBytes() < bytes);
+
+        Assert.assertEquals(expected.size(), trie.size());
+        for (int[] key : keys) {
+            Assert.assertEquals(expected.get(boxed(key)), trie.get(key));
+        }
+
+        // Keys come back in ascending signed order.
+        int[] previous = null;
+        int count = 0;
+        Iterator<Map.Entry<int[], Integer>> it = trie.entriesWithPrefix(new int[0]);
+        while (it.hasNext()) {
+            Map.Entry<int[], Integer> entry = it.next();
+            Assert.assertEquals(expected.get(boxed(entry.getKey())), entry.getValue());
+            if (previous != null) {
+                Assert.assertTrue(compare(previous, entry.getKey()) < 0);
+            }
+            previous = entry.getKey();
+            ++count;
+        }
+        Assert.assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void testLongAndCharKeys() {
+        LongTrieMap<String> longs = new LongTrieMap<String>();
+        longs.addIfAbsent(new long[] {Long.MAX_VALUE, 1}, "max");
+        longs.addIfAbsent(new long[] {Long.MIN_VALUE}, "min");
+        longs.addIfAbsent(new long[] {0, -1}, "zero");
+        List<String> values = new ArrayList<String>();
+        Iterator<Map.Entry<long[], String>> it = longs.entriesWithPrefix(new long[0]);
+        while (it.hasNext()) {
+            values.add(it.next().getValue());
+        }
+        Assert.assertEquals(Arrays.asList("min", "zero", "max"), values);
+        Assert.assertEquals("max", longs.get(new long[] {Long.MAX_VALUE, 1}));
+
+        CharTrieMap<Integer> chars = new CharTrieMap<Integer>();
+        for (String word : Arrays.asList("CAT", "CA", "CART", "\uffffA", "DOG")) {
+            chars.addIfAbsent(word.toCharArray(), word.length());
+        }
+        List<String> words = new ArrayList<String>();
+        Iterator<char[]> keys = chars.keysWithPrefix(new char[0], 4);
+        while (keys.hasNext()) {
+            words.add(new String(keys.next()));
+        }
+        Assert.assertEquals(Arrays.asList("CA", "CART", "CAT", "DOG"), words);
+        Assert.assertTrue(chars.keysWithPrefix("\uffff".toCharArray()).hasNext());
+        Assert.assertFalse(chars.keysWithPrefix("CAB".toCharArray()).hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new LongTrieMap<Object>().keysWithPrefix(new long[0], -1);
+    }
+
+    private static List<Integer> boxed(int[] key) {
+        List<Integer> result = new ArrayList<Integer>(key.length);
+        for (int k : key) {
+            result.add(k);
+        }
+        return result;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length && i < b.length; ++i) {
+            if (a[i] != b[i]) {
+                return a[i] < b[i] ? -1 : 1;
+            }
+        }
+        return a.length - b.length;
+    }
+}
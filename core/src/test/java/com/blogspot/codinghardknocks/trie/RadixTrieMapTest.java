@@ -0,0 +1,174 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link RadixTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class RadixTrieMapTest {
+
+    @Test
+    public void testSplitAndMerge() {
+        RadixTrieMap<Integer> trie = new RadixTrieMap<Integer>();
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent("/usr/local/bin", 1));
+        Assert.assertEquals(2, trie.nodeCount());
+        Assert.assertEquals(Integer.valueOf(2), trie.addIfAbsent("/usr/local/lib", 2));
+        Assert.assertEquals(4, trie.nodeCount());
+        Assert.assertEquals(Integer.valueOf(3), trie.addIfAbsent("/usr", 3));
+        Assert.assertEquals(5, trie.nodeCount());
+        Assert.assertEquals(Integer.valueOf(3), trie.addIfAbsent("/usr", 4));
+        Assert.assertEquals(Integer.valueOf(5), trie.addIfAbsent("", 5));
+
+        Assert.assertEquals(4, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("/usr/local/bin"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("/usr/local/lib"));
+        Assert.assertEquals(Integer.valueOf(3), trie.get("/usr"));
+        Assert.assertEquals(Integer.valueOf(5), trie.get(""));
+        Assert.assertFalse(trie.contains("/usr/local"));
+        Assert.assertFalse(trie.contains("/usr/local/bi"));
+        Assert.assertFalse(trie.contains("/usr/local/bins"));
+        Assert.assertEquals(Integer.valueOf(-1), trie.get("/opt", -1));
+
+        Assert.assertNull(trie.remove("/usr/local"));
+        Assert.assertEquals(Integer.valueOf(2), trie.remove("/usr/local/lib"));
+        // "/usr/local/" is left with a single child and merged away.
+        Assert.assertEquals(3, trie.nodeCount());
+        Assert.assertEquals(Integer.valueOf(3), trie.remove("/usr"));
+        Assert.assertEquals(2, trie.nodeCount());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("/usr/local/bin"));
+        Assert.assertFalse(trie.contains("/usr"));
+        Assert.assertEquals(Integer.valueOf(5), trie.remove(""));
+        Assert.assertEquals(Integer.valueOf(1), trie.remove("/usr/local/bin"));
+        Assert.assertEquals(1, trie.nodeCount());
+        Assert.assertTrue(trie.isEmpty());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        RadixTrieMap<Integer> trie = new RadixTrieMap<Integer>();
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < 50000; ++i) {
+            StringBuilder key = new StringBuilder();
+            int len = random.nextInt(6);
+            for (int j = 0; j < len; ++j) {
+                key.append((char) ('a' + random.nextInt(3)));
+            }
+            String k = key.toString();
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(k), trie.remove(k));
+            } else {
+                if (!expected.containsKey(k)) {
+                    expected.put(k, i);
+                }
+                Assert.assertEquals(expected.get(k), trie.addIfAbsent(k, i));
+            }
+            Assert.assertEquals(expected.size(), trie.size());
+        }
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+        TreeMap<String, Integer> sorted = new TreeMap<String, Integer>(expected);
+        for (String prefix : new String[] {"", "a", "ab", "cab", "ccccc", "bbbbbb"}) {
+            SortedMap<String, Integer> below = sorted.subMap(prefix, prefix + Character.MAX_VALUE);
+            Assert.assertEquals(below.size(), trie.countWithPrefix(prefix));
+            Iterator<Map.Entry<String, Integer>> it = trie.entriesWithPrefix(prefix);
+            for (Map.Entry<String, Integer> entry : below.entrySet()) {
+                Assert.assertEquals(entry, it.next());
+            }
+            Assert.assertFalse(it.hasNext());
+        }
+        for (String key : expected.keySet()) {
+            trie.remove(key);
+        }
+        Assert.assertEquals(1, trie.nodeCount());
+    }
+
+    @Test
+    public void testPrefixInsideEdge() {
+        RadixTrieMap<Integer> trie = new RadixTrieMap<Integer>();
+        trie.addIfAbsent("/usr/local/bin", 1);
+        trie.addIfAbsent(new StringBuilder("/usr/local/lib"), 2);
+        trie.addIfAbsent("/usr", 3);
+        trie.addIfAbsent("/opt", 4);
+
+        Assert.assertEquals(4, trie.countWithPrefix(""));
+        Assert.assertEquals(3, trie.countWithPrefix("/us"));
+        Assert.assertEquals(3, trie.countWithPrefix("/usr"));
+        Assert.assertEquals(2, trie.countWithPrefix("/usr/lo"));
+        Assert.assertEquals(1, trie.countWithPrefix("/usr/local/l"));
+        Assert.assertEquals(0, trie.countWithPrefix("/usr/locale"));
+        Assert.assertEquals(0, trie.countWithPrefix("/usr/local/bins"));
+        Assert.assertEquals(Arrays.asList("/usr", "/usr/local/bin", "/usr/local/lib"), list(trie.keysWithPrefix("/u")));
+        Assert.assertEquals(Arrays.asList("/usr/local/bin"), list(trie.keysWithPrefix("/usr/loc", 1)));
+        Assert.assertEquals(Collections.<String>emptyList(), list(trie.keysWithPrefix("/usr/x")));
+        Assert.assertEquals(Collections.<String>emptyList(), list(trie.keysWithPrefix("", 0)));
+        Assert.assertEquals(Integer.valueOf(2), trie.get(new StringBuilder("/usr/local/lib")));
+
+        trie.remove("/usr/local/lib");
+        Assert.assertEquals(1, trie.countWithPrefix("/usr/lo"));
+        Assert.assertEquals(Arrays.asList("/opt", "/usr", "/usr/local/bin"), list(trie.keysWithPrefix("")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new RadixTrieMap<Object>().keysWithPrefix("", -1);
+    }
+
+    @Test
+    public void testLexiconNodeCount() throws Exception {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        RadixTrieMap<String> trie = new RadixTrieMap<String>();
+        StringTrieMap<String> stringTrie = new StringTrieMap<String>();
+        for (String word : words) {
+            trie.addIfAbsent(word, word);
+            stringTrie.addIfAbsent(word, word);
+        }
+        for (String word : words) {
+            Assert.assertEquals(word, trie.get(word));
+        }
+        Assert.assertEquals(stringTrie.size(), trie.size());
+        // Every radix node branches or ends a key, so there are fewer nodes than keys plus branches.
+        Assert.assertTrue(trie.nodeCount() < 2 * trie.size());
+        Assert.assertTrue(trie.estimatedBytes() < stringTrie.freeze().sourceEstimatedBytes());
+    }
+
+    private static List<String> list(Iterator<String> it) {
+        List<String> result = new ArrayList<String>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Unit tests to validate the behavior of {@link StringTrieMapFileLoader}.
+ *
+ * @author kbohling
+ *
+ */
+public class StringTrieMapFileLoaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final StringTrieMapFileLoader.ValueParser<Integer> INTEGER =
+        new StringTrieMapFileLoader.ValueParser<Integer>() {
+            @Override
+            public Integer parse(CharSequence field) {
+                return Integer.valueOf(field.toString());
+            }
+        };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testKeysOnly() throws IOException {
+        File file = write("count\r\nCAT\r\n\r\nCAR\r\nCA\nCAT\n\u00e9t\u00e9\nCA\tT");
+        StringTrieMap<Object> trie = new StringTrieMapFileLoader<Object>().skipRecords(1).load(file);
+        Assert.assertEquals(5, trie.size());
+        for (String key : new String[] {"CAT", "CAR", "CA", "\u00e9t\u00e9", "CA\tT"}) {
+            Assert.assertTrue(key, trie.contains(key));
+        }
+        Assert.assertFalse(trie.contains("count"));
+        Assert.assertFalse(trie.contains(""));
+        Assert.assertEquals(4, trie.countWithPrefix("CA"));
+    }
+
+    @Test
+    public void testValuesAndDelimiters() throws IOException {
+        File file = write("CAT=1;CAR=2;CAT=3;CA;=4;DOG=5");
+        StringTrieMap<Integer> trie = new StringTrieMapFileLoader<Integer>()
+            .recordDelimiter(';')
+            .fieldDelimiter('=')
+            .valueParser(new StringTrieMapFileLoader.ValueParser<Integer>() {
+                @Override
+                public Integer parse(CharSequence field) {
+                    return field.length() == 0 ? null : Integer.valueOf(field.toString());
+                }
+            })
+            .load(file);
+        Assert.assertEquals(5, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("CAT"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("CAR"));
+        Assert.assertTrue(trie.contains("CA"));
+        Assert.assertNull(trie.get("CA"));
+        Assert.assertEquals(Integer.valueOf(4), trie.get(""));
+        Assert.assertEquals(Integer.valueOf(5), trie.get("DOG"));
+    }
+
+    @Test
+    public void testSmallBuffersAndProgress() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words.size(); ++i) {
+            text.append(words.get(i)).append('\t').append(i).append('\n');
+        }
+        File file = write(text.toString());
+
+        final List<long[]> progress = new ArrayList<long[]>();
+        // A buffer smaller than some records, so multi-byte characters and
+        // records are split across reads.
+        StringTrieMap<Integer> trie = new StringTrieMapFileLoader<Integer>()
+            .valueParser(INTEGER)
+            .bufferSize(16)
+            .progressListener(new StringTrieMapFileLoader.ProgressListener() {
+                @Override
+                public void onProgress(long bytesRead, long totalBytes, int keys) {
+                    progress.add(new long[] {bytesRead, totalBytes, keys});
+                }
+            })
+            .load(file);
+
+        Assert.assertEquals(words.size(), trie.size());
+        for (int i = 0; i < words.size(); ++i) {
+            Assert.assertEquals(Integer.valueOf(i), trie.get(words.get(i)));
+        }
+        Iterator<Map.Entry<String, Integer>> it = trie.entriesWithPrefix("");
+        for (int i = 0; i < words.size(); ++i) {
+            Assert.assertTrue(it.hasNext());
+            it.next();
+        }
+        Assert.assertFalse(it.hasNext());
+
+        long[] last = progress.get(progress.size() - 1);
+        Assert.assertEquals(file.length(), last[0]);
+        Assert.assertEquals(file.length(), last[1]);
+        Assert.assertEquals(words.size(), last[2]);
+        for (int i = 1; i < progress.size(); ++i) {
+            Assert.assertTrue(progress.get(i)[0] >= progress.get(i - 1)[0]);
+        }
+    }
+
+    @Test
+    public void testLongRecord() throws IOException {
+        // A file without the expected delimiter is one long record.
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; ++i) {
+            text.append((char) ('a' + i % 26));
+        }
+        File file = write(text.toString());
+        StringTrieMap<Object> trie = new StringTrieMapFileLoader<Object>().recordDelimiter(';').load(file);
+        Assert.assertEquals(1, trie.size());
+        Assert.assertTrue(trie.contains(text));
+        Assert.assertEquals(1, trie.countWithPrefix(text.subSequence(0, 1000)));
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testMalformedInput() throws IOException {
+        File file = folder.newFile("bad.txt");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] {'A', '\n', (byte) 0xc3, '\n'});
+        } finally {
+            out.close();
+        }
+        new StringTrieMapFileLoader<Object>().load(file);
+    }
+
+    private File write(String text) throws IOException {
+        File file = folder.newFile("records.txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF8);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
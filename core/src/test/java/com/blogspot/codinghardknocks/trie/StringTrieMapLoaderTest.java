@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link StringTrieMapLoader}.
+ *
+ * @author kbohling
+ *
+ */
+public class StringTrieMapLoaderTest {
+
+    @Test
+    public void testLoadSorted() throws Exception {
+        TreeMap<String, Integer> sorted = new TreeMap<String, Integer>();
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        for (int i = 0; i < words.size(); ++i) {
+            sorted.put(words.get(i), i);
+        }
+        sorted.put("", -1);
+
+        StringTrieMap<Integer> trie = StringTrieMapLoader.loadSorted(sorted.entrySet());
+        checkContents(sorted, trie);
+    }
+
+    @Test
+    public void testLoadUnsorted() throws Exception {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        Collections.shuffle(words, new Random(42));
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        TreeMap<String, Integer> expected = new TreeMap<String, Integer>();
+        for (int i = 0; i < words.size(); ++i) {
+            entries.add(new AbstractMap.SimpleEntry<String, Integer>(words.get(i), i));
+            if (!expected.containsKey(words.get(i))) {
+                expected.put(words.get(i), i);
+            }
+        }
+        // Duplicates keep the first value.
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>(words.get(0), -1));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("", 7));
+
+        expected.put("", 7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            checkContents(expected, StringTrieMapLoader.load(entries, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDuplicatesInSortedInput() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("CA", 1));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("CAT", 2));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("CAT", 3));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("DOG", 4));
+
+        StringTrieMap<Integer> trie = StringTrieMapLoader.loadSorted(entries);
+        Assert.assertEquals(3, trie.size());
+        Assert.assertEquals(Integer.valueOf(2), trie.get("CAT"));
+        Assert.assertEquals(2, trie.countWithPrefix("CA"));
+    }
+
+    @Test
+    public void testLongKey() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 50000; ++i) {
+            builder.append((char) ('a' + i % 26));
+        }
+        String key = builder.toString();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>(key.substring(0, 10), 1));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>(key, 2));
+
+        StringTrieMap<Integer> trie = StringTrieMapLoader.loadSorted(entries);
+        Assert.assertEquals(2, trie.size());
+        Assert.assertEquals(Integer.valueOf(2), trie.get(key));
+        Assert.assertEquals(1, trie.countWithPrefix(key.substring(0, 20)));
+        Assert.assertEquals(2, StringTrieMapLoader.load(entries).size());
+    }
+
+    @Test
+    public void testLongSharedPrefix() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            builder.append((char) ('a' + i % 26));
+        }
+        String prefix = builder.toString();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        for (int i = 0; i < 10000; ++i) {
+            entries.add(new AbstractMap.SimpleEntry<String, Integer>(prefix + i, i));
+        }
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>(prefix.substring(0, 100), -1));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>(prefix + 7, -2));
+        Collections.shuffle(entries, new Random(42));
+
+        StringTrieMap<Integer> trie = StringTrieMapLoader.load(entries);
+        Assert.assertEquals(10001, trie.size());
+        Assert.assertEquals(10000, trie.countWithPrefix(prefix));
+        Assert.assertEquals(1111, trie.countWithPrefix(prefix + 1));
+        Assert.assertEquals(Integer.valueOf(-1), trie.get(prefix.substring(0, 100)));
+        Assert.assertEquals(Integer.valueOf(9999), trie.get(prefix + 9999));
+        Assert.assertNull(trie.get(prefix));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedInputRejected() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("CAT", 1));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("CA", 2));
+        StringTrieMapLoader.loadSorted(entries);
+    }
+
+    private static void checkContents(TreeMap<String, Integer> expected, StringTrieMap<Integer> trie) {
+        Assert.assertEquals(expected.size(), trie.size());
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(entry.getValue(), trie.get(entry.getKey()));
+            if (index % 101 == 0) {
+                Assert.assertEquals(entry.getKey(), trie.select(index));
+            }
+            ++index;
+        }
+        Assert.assertEquals(expected.tailMap("CAT").headMap("CAU").size(), trie.countWithPrefix("CAT"));
+
+        // The loaded trie must still accept the incremental operations.
+        trie.addIfAbsent("ZZZZZZ", 0);
+        Assert.assertEquals(expected.size() + 1, trie.size());
+        Assert.assertEquals(Integer.valueOf(0), trie.remove("ZZZZZZ"));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link StringTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class StringTrieMapTest {
+
+    @Test
+    public void testAddAndGet() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        Assert.assertTrue(trie.isEmpty());
+
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent("CAT", 1));
+        Assert.assertEquals(Integer.valueOf(2), trie.addIfAbsent("CAR", 2));
+        Assert.assertEquals(Integer.valueOf(3), trie.addIfAbsent("CA", 3));
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent("CAT", 4));
+        Assert.assertEquals(Integer.valueOf(5), trie.addIfAbsent("", 5));
+
+        Assert.assertFalse(trie.isEmpty());
+        Assert.assertEquals(4, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("CAT"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("CAR"));
+        Assert.assertEquals(Integer.valueOf(3), trie.get("CA"));
+        Assert.assertEquals(Integer.valueOf(5), trie.get(""));
+        Assert.assertTrue(trie.contains("CAR"));
+        Assert.assertFalse(trie.contains("C"));
+        Assert.assertFalse(trie.contains("CART"));
+        Assert.assertNull(trie.get("DOG"));
+        Assert.assertEquals(Integer.valueOf(-1), trie.get("DOG", -1));
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(0, trie.size());
+        Assert.assertFalse(trie.contains("CAT"));
+    }
+
+    @Test
+    public void testWideFanout() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        for (int c = Character.MAX_VALUE; c >= 0; c -= 7) {
+            trie.addIfAbsent(String.valueOf((char) c), c);
+        }
+        for (int c = Character.MAX_VALUE; c >= 0; --c) {
+            Integer expected = (Character.MAX_VALUE - c) % 7 == 0 ? Integer.valueOf(c) : null;
+            Assert.assertEquals(expected, trie.get(String.valueOf((char) c)));
+        }
+    }
+
+    @Test
+    public void testCountsRankAndSelect() {
+        String[] words = {"", "CA", "CAR", "CARD", "CART", "CAT", "DOG"};
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        for (int i = words.length - 1; i >= 0; --i) {
+            trie.addIfAbsent(words[i], i);
+        }
+        trie.addIfAbsent("CAT", -1);
+
+        Assert.assertEquals(words.length, trie.size());
+        Assert.assertEquals(5, trie.countWithPrefix("C"));
+        Assert.assertEquals(3, trie.countWithPrefix("CAR"));
+        Assert.assertEquals(0, trie.countWithPrefix("CAB"));
+        Assert.assertEquals(words.length, trie.countWithPrefix(""));
+
+        for (int i = 0; i < words.length; ++i) {
+            Assert.assertEquals(words[i], trie.select(i));
+            Assert.assertEquals(i, trie.rank(words[i]));
+        }
+        Assert.assertEquals(Arrays.binarySearch(words, "CARB"), -trie.rank("CARB") - 1);
+        Assert.assertEquals(Arrays.binarySearch(words, "CAB"), -trie.rank("CAB") - 1);
+        Assert.assertEquals(Arrays.binarySearch(words, "ZEBRA"), -trie.rank("ZEBRA") - 1);
+        Assert.assertEquals(Arrays.binarySearch(words, "DOGS"), -trie.rank("DOGS") - 1);
+
+        trie.clear();
+        Assert.assertEquals(0, trie.countWithPrefix(""));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        trie.select(1);
+    }
+
+    @Test
+    public void testRemove() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        for (int i = 0; i < 1000; ++i) {
+            trie.addIfAbsent(Integer.toString(i), i);
+        }
+        long populated = trie.rootView().estimatedBytes();
+
+        Assert.assertNull(trie.remove("1000"));
+        Assert.assertNull(trie.remove("DOG"));
+        for (int i = 999; i >= 0; i -= 2) {
+            Assert.assertEquals(Integer.valueOf(i), trie.remove(Integer.toString(i)));
+        }
+        Assert.assertEquals(500, trie.size());
+        Assert.assertEquals(55, trie.countWithPrefix("1"));
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(i % 2 == 0, trie.contains(Integer.toString(i)));
+        }
+
+        for (int i = 0; i < 1000; i += 2) {
+            trie.remove(Integer.toString(i));
+        }
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(0, trie.rootView().fanout());
+        Assert.assertTrue(trie.rootView().estimatedBytes() < populated);
+    }
+
+    @Test
+    public void testRemoveShrinksFanout() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        for (char c = 'A'; c <= 'Z'; ++c) {
+            trie.addIfAbsent("X" + c, (int) c);
+        }
+        long wide = trie.rootView().child(0).estimatedBytes();
+        for (char c = 'B'; c <= 'Z'; ++c) {
+            trie.remove("X" + c);
+        }
+
+        CharTrieView<Integer> node = trie.rootView().child(0);
+        Assert.assertEquals(1, node.fanout());
+        Assert.assertEquals('A', node.label(0));
+        Assert.assertTrue(node.estimatedBytes() < wide);
+        Assert.assertEquals(Integer.valueOf('A'), trie.get("XA"));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link TernarySearchTreeMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class TernarySearchTreeMapTest {
+
+    @Test
+    public void testBasicOperations() {
+        TernarySearchTreeMap<Integer> tree = new TernarySearchTreeMap<Integer>();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertEquals(Integer.valueOf(1), tree.addIfAbsent("CAT", 1));
+        Assert.assertEquals(Integer.valueOf(2), tree.addIfAbsent("CAR", 2));
+        Assert.assertEquals(Integer.valueOf(3), tree.addIfAbsent("CA", 3));
+        Assert.assertEquals(Integer.valueOf(1), tree.addIfAbsent("CAT", 4));
+        Assert.assertEquals(Integer.valueOf(5), tree.addIfAbsent("", 5));
+
+        Assert.assertEquals(4, tree.size());
+        Assert.assertEquals(Integer.valueOf(1), tree.get("CAT"));
+        Assert.assertEquals(Integer.valueOf(3), tree.get("CA"));
+        Assert.assertEquals(Integer.valueOf(5), tree.get(""));
+        Assert.assertFalse(tree.contains("C"));
+        Assert.assertFalse(tree.contains("CATS"));
+        Assert.assertFalse(tree.contains("DOG"));
+        Assert.assertEquals(Integer.valueOf(-1), tree.get("CAB", -1));
+
+        tree.clear();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertFalse(tree.contains("CAT"));
+        Assert.assertEquals(0, tree.nodeCount());
+    }
+
+    @Test
+    public void testRemove() {
+        TernarySearchTreeMap<Integer> tree = new TernarySearchTreeMap<Integer>();
+        tree.addIfAbsent("CAT", 1);
+        tree.addIfAbsent("CART", 2);
+        tree.addIfAbsent("CA", 3);
+        Assert.assertEquals(5, tree.nodeCount());
+
+        Assert.assertEquals(Integer.valueOf(2), tree.remove("CART"));
+        Assert.assertNull(tree.remove("CART"));
+        Assert.assertNull(tree.remove("CAR"));
+        Assert.assertEquals(3, tree.nodeCount());
+        Assert.assertEquals(Integer.valueOf(3), tree.remove("CA"));
+        Assert.assertEquals(3, tree.nodeCount());
+        Assert.assertEquals(Integer.valueOf(1), tree.remove("CAT"));
+        Assert.assertEquals(0, tree.nodeCount());
+        Assert.assertTrue(tree.isEmpty());
+
+        // Freed nodes are reused.
+        long bytes = tree.estimatedBytes();
+        tree.addIfAbsent("CART", 4);
+        Assert.assertEquals(4, tree.nodeCount());
+        Assert.assertEquals(bytes, tree.estimatedBytes());
+        Assert.assertEquals(Integer.valueOf(4), tree.get("CART"));
+    }
+
+    @Test
+    public void testAgainstTreeMap() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        List<String> shuffled = new ArrayList<String>(words);
+        Collections.shuffle(shuffled);
+
+        TernarySearchTreeMap<String> tree = new TernarySearchTreeMap<String>();
+        TreeMap<String, String> expected = new TreeMap<String, String>();
+        for (String word : shuffled) {
+            tree.addIfAbsent(word, word);
+            expected.put(word, word);
+        }
+        for (int i = 0; i < shuffled.size(); i += 3) {
+            String word = shuffled.get(i);
+            Assert.assertEquals(word, tree.remove(word));
+            expected.remove(word);
+        }
+
+        Assert.assertEquals(expected.size(), tree.size());
+        for (String word : words) {
+            Assert.assertEquals(expected.get(word), tree.get(word));
+        }
+        for (String prefix : Arrays.asList("", "a", "ab", "zy", "qqq")) {
+            Iterator<Map.Entry<String, String>> it = tree.entriesWithPrefix(prefix);
+            for (Map.Entry<String, String> entry : expected.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+                Assert.assertEquals(entry, it.next());
+            }
+            Assert.assertFalse(it.hasNext());
+            Assert.assertEquals(expected.subMap(prefix, prefix + Character.MAX_VALUE).size(),
+                tree.countWithPrefix(prefix));
+        }
+
+        List<String> sorted = new ArrayList<String>(expected.keySet());
+        for (int i = 0; i < sorted.size(); ++i) {
+            Assert.assertEquals(sorted.get(i), tree.select(i));
+            Assert.assertEquals(i, tree.rank(sorted.get(i)));
+        }
+        for (String word : words) {
+            String after = word + "~";
+            int index = Collections.binarySearch(sorted, after);
+            Assert.assertEquals(index >= 0 ? index : -index - 1, tree.rank(after));
+        }
+    }
+
+    @Test
+    public void testRankAndSelect() {
+        TernarySearchTreeMap<Integer> tree = new TernarySearchTreeMap<Integer>();
+        for (String key : Arrays.asList("CAT", "CA", "CART", "DOG", "CATS", "C", "")) {
+            tree.addIfAbsent(key, key.length());
+        }
+        List<String> sorted = Arrays.asList("", "C", "CA", "CART", "CAT", "CATS", "DOG");
+        for (int i = 0; i < sorted.size(); ++i) {
+            Assert.assertEquals(sorted.get(i), tree.select(i));
+            Assert.assertEquals(i, tree.rank(sorted.get(i)));
+        }
+        Assert.assertEquals(3, tree.rank("CAR"));
+        Assert.assertEquals(6, tree.rank("CB"));
+        Assert.assertEquals(7, tree.rank("E"));
+        Assert.assertEquals(4, tree.countWithPrefix("CA"));
+        Assert.assertEquals(2, tree.countWithPrefix("CAT"));
+        Assert.assertEquals(0, tree.countWithPrefix("CAB"));
+        Assert.assertEquals(7, tree.countWithPrefix(""));
+
+        tree.remove("CAT");
+        tree.remove("");
+        Assert.assertEquals(3, tree.countWithPrefix("CA"));
+        Assert.assertEquals("CATS", tree.select(3));
+        Assert.assertEquals(2, tree.rank("CART"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() {
+        TernarySearchTreeMap<Integer> tree = new TernarySearchTreeMap<Integer>();
+        tree.addIfAbsent("A", 1);
+        tree.select(1);
+    }
+
+    @Test
+    public void testKeysWithPrefix() {
+        TernarySearchTreeMap<Integer> tree = new TernarySearchTreeMap<Integer>();
+        for (String key : Arrays.asList("CAT", "CA", "CART", "DOG", "CATS", "C")) {
+            tree.addIfAbsent(key, key.length());
+        }
+        Assert.assertEquals(Arrays.asList("CA", "CART", "CAT", "CATS"), list(tree.keysWithPrefix("CA")));
+        Assert.assertEquals(Arrays.asList("C", "CA"), list(tree.keysWithPrefix("C", 2)));
+        Assert.assertEquals(Collections.<String>emptyList(), list(tree.keysWithPrefix("CAB")));
+        Assert.assertEquals(Collections.<String>emptyList(), list(tree.keysWithPrefix("", 0)));
+        Assert.assertEquals(6, list(tree.keysWithPrefix("")).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new TernarySearchTreeMap<Object>().keysWithPrefix("", -1);
+    }
+
+    @Test
+    public void testBalancedBulkInsertion() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        for (char a = 'a'; a <= 'z'; ++a) {
+            for (char b = 'a'; b <= 'z'; ++b) {
+                for (char c = 'a'; c <= 'z'; ++c) {
+                    String key = new String(new char[] {a, b, c});
+                    entries.add(new AbstractMap.SimpleImmutableEntry<String, Integer>(key, entries.size()));
+                }
+            }
+        }
+
+        TernarySearchTreeMap<Integer> incremental = new TernarySearchTreeMap<Integer>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            incremental.addIfAbsent(entry.getKey(), entry.getValue());
+        }
+        TernarySearchTreeMap<Integer> balanced = new TernarySearchTreeMap<Integer>();
+        balanced.addAllSorted(entries);
+
+        Assert.assertEquals(entries.size(), balanced.size());
+        for (Map.Entry<String, Integer> entry : entries) {
+            Assert.assertEquals(entry.getValue(), balanced.get(entry.getKey()));
+        }
+        // Sorted insertion turns every level into a chain of 26 siblings,
+        // middle-out insertion into a roughly balanced tree.
+        Assert.assertEquals(3 * 26, incremental.height());
+        Assert.assertTrue(balanced.height() <= 3 * 6);
+    }
+
+    private static List<String> list(Iterator<String> it) {
+        List<String> result = new ArrayList<String>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+}
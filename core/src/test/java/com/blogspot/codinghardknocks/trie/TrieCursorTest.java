@@ -0,0 +1,133 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link TrieCursor} and
+ * {@link CharTrieCursor}.
+ *
+ * @author kbohling
+ *
+ */
+public class TrieCursorTest {
+
+    @Test
+    public void testCharCursor() {
+        CharSequenceTrieMap<Integer> trie = new CharSequenceTrieMap<Integer>();
+        trie.addIfAbsent("CAT", 1);
+        trie.addIfAbsent("CAR", 2);
+        trie.addIfAbsent("CARS", 3);
+        trie.addIfAbsent("DOG", 4);
+
+        CharTrieCursor<Integer> cursor = trie.cursor();
+        Assert.assertEquals(0, cursor.depth());
+        Assert.assertEquals(4, cursor.count());
+        Assert.assertFalse(cursor.retreat());
+
+        // Type-ahead: extend the prefix a character at a time.
+        Assert.assertTrue(cursor.advance('C'));
+        Assert.assertTrue(cursor.advance('A'));
+        Assert.assertEquals(3, cursor.count());
+        Assert.assertFalse(cursor.isAccepting());
+        Assert.assertNull(cursor.value());
+        Assert.assertFalse(cursor.advance('B'));
+        Assert.assertEquals(2, cursor.depth());
+        Assert.assertTrue(cursor.advance('R'));
+        Assert.assertTrue(cursor.isAccepting());
+        Assert.assertEquals(Integer.valueOf(2), cursor.value());
+        Assert.assertEquals(2, cursor.count());
+
+        // Backspace, then take the other branch.
+        Assert.assertTrue(cursor.retreat());
+        Assert.assertTrue(cursor.advance('T'));
+        Assert.assertEquals(Integer.valueOf(1), cursor.value());
+
+        // A sequence either matches completely or leaves the cursor alone.
+        cursor.reset();
+        Assert.assertFalse(cursor.advance("CARTS"));
+        Assert.assertEquals(0, cursor.depth());
+        Assert.assertTrue(cursor.advance("CAR"));
+        Assert.assertTrue(cursor.advance("S"));
+        Assert.assertEquals(Integer.valueOf(3), cursor.value());
+        Assert.assertEquals(4, cursor.depth());
+
+        // Keys added below the cursor are visible without walking again.
+        cursor.retreat();
+        trie.addIfAbsent("CARD", 5);
+        Assert.assertEquals(3, cursor.count());
+        Assert.assertTrue(cursor.advance('D'));
+        Assert.assertEquals(Integer.valueOf(5), cursor.value());
+    }
+
+    @Test
+    public void testDeepCharCursor() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            key.append((char) ('a' + i % 26));
+        }
+        trie.addIfAbsent(key.toString(), 1);
+
+        CharTrieCursor<Integer> cursor = trie.cursor();
+        for (int i = 0; i < key.length(); ++i) {
+            Assert.assertTrue(cursor.advance(key.charAt(i)));
+        }
+        Assert.assertEquals(100, cursor.depth());
+        Assert.assertEquals(Integer.valueOf(1), cursor.value());
+        while (cursor.retreat()) {
+            Assert.assertEquals(1, cursor.count());
+        }
+        Assert.assertEquals(0, cursor.depth());
+    }
+
+    @Test
+    public void testGenericCursor() {
+        SortedMapTrieMap<Integer, String> trie = new SortedMapTrieMap<Integer, String>();
+        trie.addIfAbsent(keys(1, 2, 3), "a");
+        trie.addIfAbsent(keys(1, 2), "b");
+        trie.addIfAbsent(keys(4), "c");
+
+        TrieCursor<Integer, String> cursor = trie.cursor();
+        Assert.assertEquals(3, cursor.count());
+        Assert.assertTrue(cursor.advance(1));
+        Assert.assertFalse(cursor.isAccepting());
+        Assert.assertFalse(cursor.advance(3));
+        Assert.assertTrue(cursor.advance(2));
+        Assert.assertEquals("b", cursor.value());
+        Assert.assertEquals(2, cursor.count());
+        Assert.assertTrue(cursor.advance(3));
+        Assert.assertEquals("a", cursor.value());
+        Assert.assertEquals(3, cursor.depth());
+
+        Assert.assertTrue(cursor.retreat());
+        Assert.assertEquals("b", cursor.value());
+        cursor.reset();
+        Assert.assertEquals(0, cursor.depth());
+        Assert.assertTrue(cursor.advance(4));
+        Assert.assertEquals("c", cursor.value());
+    }
+
+    private static Iterator<Integer> keys(Integer... keys) {
+        return Arrays.asList(keys).iterator();
+    }
+}
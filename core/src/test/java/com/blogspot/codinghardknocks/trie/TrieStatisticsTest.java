@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link TrieStatistics}.
+ *
+ * @author kbohling
+ *
+ */
+public class TrieStatisticsTest {
+
+    private static final String[] KEYS = {"CAT", "CAR", "CA", "DOG"};
+
+    @Test
+    public void testShape() {
+        StringTrieMap<Integer> stringTrie = new StringTrieMap<Integer>();
+        CharSequenceTrieMap<Integer> charSeqTrie = new CharSequenceTrieMap<Integer>();
+        SortedMapTrieMap<Character, Integer> sortedTrie = new SortedMapTrieMap<Character, Integer>();
+        HashMapTrieMap<Character, Integer> hashTrie = new HashMapTrieMap<Character, Integer>();
+        for (String key : KEYS) {
+            stringTrie.addIfAbsent(key, 1);
+            charSeqTrie.addIfAbsent(key, 1);
+            sortedTrie.addIfAbsent(chars(key), 1);
+            hashTrie.addIfAbsent(chars(key), 1);
+        }
+
+        SortedMap<Integer, Integer> histogram = new TreeMap<Integer, Integer>();
+        histogram.put(0, 3);
+        histogram.put(1, 3);
+        histogram.put(2, 2);
+        for (TrieStatistics stats : Arrays.asList(stringTrie.statistics(), charSeqTrie.statistics(),
+                sortedTrie.statistics(), hashTrie.statistics())) {
+            Assert.assertEquals(8, stats.nodeCount());
+            Assert.assertEquals(4, stats.acceptingCount());
+            Assert.assertEquals(3, stats.maxDepth());
+            Assert.assertEquals(2.75, stats.averageDepth(), 1e-9);
+            // "C", "D" and "DO" only lead on to one other node.
+            Assert.assertEquals(3, stats.singleChildCount());
+            Assert.assertEquals(3.0 / 8, stats.singleChildShare(), 1e-9);
+            Assert.assertEquals(histogram, stats.fanoutHistogram());
+            Assert.assertTrue(stats.estimatedBytes() > 0);
+        }
+
+        // Every map node pays for a map, the char nodes only for two small arrays.
+        Assert.assertTrue(sortedTrie.statistics().estimatedBytes() > stringTrie.statistics().estimatedBytes());
+        Assert.assertTrue(hashTrie.statistics().estimatedBytes() > stringTrie.statistics().estimatedBytes());
+    }
+
+    @Test
+    public void testMetrics() {
+        StringTrieMap<Integer> trie = new StringTrieMap<Integer>();
+        TrieStatistics empty = trie.statistics();
+        Assert.assertEquals(1, empty.nodeCount());
+        Assert.assertEquals(0, empty.maxDepth());
+        Assert.assertEquals(0.0, empty.averageDepth(), 0);
+
+        for (String key : KEYS) {
+            trie.addIfAbsent(key, 1);
+        }
+        Map<String, Number> metrics = trie.statistics().toMetrics();
+        Assert.assertEquals(Arrays.asList("nodes", "accepting", "depth.max", "depth.average", "bytes",
+            "singleChild.count", "singleChild.share", "fanout.0", "fanout.1", "fanout.2"),
+            Arrays.asList(metrics.keySet().toArray()));
+        Assert.assertEquals(8, metrics.get("nodes").intValue());
+        Assert.assertEquals(2, metrics.get("fanout.2").intValue());
+        Assert.assertEquals(trie.statistics().estimatedBytes(), metrics.get("bytes").longValue());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnmodifiableHistogram() {
+        new StringTrieMap<Object>().statistics().fanoutHistogram().clear();
+    }
+
+    private static Iterator<Character> chars(String key) {
+        Character[] chars = new Character[key.length()];
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = key.charAt(i);
+        }
+        return Arrays.asList(chars).iterator();
+    }
+}
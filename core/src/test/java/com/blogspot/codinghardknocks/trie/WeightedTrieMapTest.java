@@ -0,0 +1,191 @@
+/*
+ * Copyright 2011 Kirby C. Bohling
+ *
+ * This code is licensed under the Apache License, Version 2.0 (the "License")
+ * terms.  You may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blogspot.codinghardknocks.trie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Unit tests to validate the behavior of {@link WeightedTrieMap}.
+ *
+ * @author kbohling
+ *
+ */
+public class WeightedTrieMapTest {
+
+    @Test
+    public void testBasicOperations() {
+        WeightedTrieMap<Integer> trie = new WeightedTrieMap<Integer>();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent("CAT", 1, 5.0));
+        Assert.assertEquals(Integer.valueOf(2), trie.addIfAbsent("CAR", 2, 7.0));
+        Assert.assertEquals(Integer.valueOf(3), trie.addIfAbsent("CA", 3, 1.0));
+        Assert.assertEquals(Integer.valueOf(1), trie.addIfAbsent("CAT", 4, 9.0));
+
+        Assert.assertEquals(3, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("CAT"));
+        Assert.assertEquals(5.0, trie.score("CAT"), 0);
+        Assert.assertTrue(Double.isNaN(trie.score("C")));
+        Assert.assertFalse(trie.contains("C"));
+        Assert.assertEquals(Integer.valueOf(-1), trie.get("DOG", -1));
+
+        Assert.assertEquals(Arrays.asList(new Completion<Integer>("CAR", 2, 7.0),
+            new Completion<Integer>("CAT", 1, 5.0)), trie.topK("C", 2));
+        Assert.assertTrue(trie.setScore("CA", 8.0));
+        Assert.assertFalse(trie.setScore("C", 8.0));
+        Assert.assertFalse(trie.setScore("CATS", 8.0));
+        Assert.assertEquals(Arrays.asList(new Completion<Integer>("CA", 3, 8.0),
+            new Completion<Integer>("CAR", 2, 7.0)), trie.topK("", 2));
+        Assert.assertEquals(Collections.<Completion<Integer>>emptyList(), trie.topK("CAB", 2));
+        Assert.assertEquals(Collections.<Completion<Integer>>emptyList(), trie.topK("C", 0));
+
+        Assert.assertEquals(Integer.valueOf(3), trie.remove("CA"));
+        Assert.assertNull(trie.remove("CA"));
+        Assert.assertEquals(Arrays.asList(new Completion<Integer>("CAR", 2, 7.0),
+            new Completion<Integer>("CAT", 1, 5.0)), trie.topK("", 5));
+        Assert.assertEquals(Integer.valueOf(2), trie.remove("CAR"));
+        Assert.assertEquals(Integer.valueOf(1), trie.remove("CAT"));
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertEquals(1, trie.statistics().nodeCount());
+        Assert.assertEquals(Collections.<Completion<Integer>>emptyList(), trie.topK("", 5));
+
+        trie.addIfAbsent("DOG", 5, 1.0);
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertFalse(trie.contains("DOG"));
+    }
+
+    @Test
+    public void testRemoveShrinksFanout() {
+        WeightedTrieMap<Integer> trie = new WeightedTrieMap<Integer>();
+        for (char c = 'A'; c <= 'Z'; ++c) {
+            trie.addIfAbsent("X" + c, (int) c, c);
+        }
+        for (char c = 'B'; c <= 'Z'; ++c) {
+            trie.remove("X" + c);
+        }
+        WeightedTrieMap<Integer> single = new WeightedTrieMap<Integer>();
+        single.addIfAbsent("XA", (int) 'A', 'A');
+
+        Assert.assertEquals(single.statistics().estimatedBytes(), trie.statistics().estimatedBytes());
+        Assert.assertEquals("XA", trie.topK("X", 5).get(0).key());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaNScore() {
+        new WeightedTrieMap<Object>().addIfAbsent("A", null, Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeInfinityScore() {
+        new WeightedTrieMap<Object>().addIfAbsent("A", null, Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    public void testExtremeScores() {
+        WeightedTrieMap<Object> trie = new WeightedTrieMap<Object>();
+        trie.addIfAbsent("A", null, -Double.MAX_VALUE);
+        trie.addIfAbsent("B", null, Double.POSITIVE_INFINITY);
+        Assert.assertEquals(2, trie.topK("", 5).size());
+        Assert.assertEquals("A", trie.topK("A", 5).get(0).key());
+        try {
+            trie.setScore("A", Double.NEGATIVE_INFINITY);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(-Double.MAX_VALUE, trie.score("A"), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeK() {
+        new WeightedTrieMap<Object>().topK("", -1);
+    }
+
+    @Test
+    public void testTiesByKey() {
+        WeightedTrieMap<String> trie = new WeightedTrieMap<String>();
+        for (String key : Arrays.asList("b", "ab", "a", "abc", "aa", "c")) {
+            trie.addIfAbsent(key, key, 1.0);
+        }
+        List<String> keys = new ArrayList<String>();
+        for (Completion<String> completion : trie.topK("", 10)) {
+            keys.add(completion.key());
+        }
+        Assert.assertEquals(Arrays.asList("a", "aa", "ab", "abc", "b", "c"), keys);
+    }
+
+    @Test
+    public void testAgainstSort() throws IOException {
+        List<String> words = DoubleArrayTrieMapTest.readLexicon();
+        Random random = new Random(42);
+        WeightedTrieMap<String> trie = new WeightedTrieMap<String>();
+        final Map<String, Double> scores = new TreeMap<String, Double>();
+        for (String word : words) {
+            // Few distinct scores, so there are plenty of ties.
+            double score = random.nextInt(50);
+            trie.addIfAbsent(word, word, score);
+            scores.put(word, score);
+        }
+        for (int i = 0; i < words.size(); i += 7) {
+            String word = words.get(i);
+            double score = random.nextInt(100) - 25;
+            Assert.assertTrue(trie.setScore(word, score));
+            scores.put(word, score);
+        }
+        for (int i = 3; i < words.size(); i += 11) {
+            String word = words.get(i);
+            Assert.assertEquals(word, trie.remove(word));
+            scores.remove(word);
+        }
+        Assert.assertEquals(scores.size(), trie.size());
+
+        Comparator<String> byScore = new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int cmp = Double.compare(scores.get(b), scores.get(a));
+                return cmp != 0 ? cmp : a.compareTo(b);
+            }
+        };
+        for (String prefix : Arrays.asList("", "a", "ab", "co", "zy", "qqq")) {
+            List<String> expected = new ArrayList<String>();
+            for (String key : scores.keySet()) {
+                if (key.startsWith(prefix)) {
+                    expected.add(key);
+                }
+            }
+            Collections.sort(expected, byScore);
+            for (int k : new int[] {1, 10, 100}) {
+                List<Completion<String>> actual = trie.topK(prefix, k);
+                Assert.assertEquals(Math.min(k, expected.size()), actual.size());
+                for (int i = 0; i < actual.size(); ++i) {
+                    String key = expected.get(i);
+                    Assert.assertEquals(new Completion<String>(key, key, scores.get(key)), actual.get(i));
+                }
+            }
+        }
+    }
+}